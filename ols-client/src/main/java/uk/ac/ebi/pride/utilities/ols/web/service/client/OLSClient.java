@@ -35,6 +35,10 @@ public class OLSClient implements Client {
             .setSynonym()
             .build()
             .toString();
+    private static final String IRI_QUERY_FIELD = new QueryFields.QueryFieldBuilder()
+            .setIri()
+            .build()
+            .toString();
     private static final String DEFAULT_FIELD_LIST = new FieldList.FieldListBuilder()
             .setLabel()
             .setIri()
@@ -174,6 +178,25 @@ public class OLSClient implements Client {
         return getTermsByName(partialName, ontologyID, reverseKeyOrder, null);
     }
 
+    /**
+     * Searches for partial term matches using the given page number and page size, rather than the ones set on this
+     * client.  This does not change any state of the client, so it is safe to call from several threads at once.
+     *
+     * @param partialName the term we are looking for
+     * @param ontologyID  the ontology to search in, null or empty to search all ontologies
+     * @param childrenOf  a list of IRI for the terms that you want to search under, comma separated, or null
+     * @param pageNum     the number of pages to fetch after the first one, negative to fetch all pages
+     * @param pageSize    the number of results per page
+     * @return a list of Terms found
+     */
+    // Zooma
+    public List<Term> getTermsByName(String partialName, String ontologyID, String childrenOf, int pageNum, int pageSize) {
+        if (partialName == null || partialName.isEmpty())
+            return Collections.emptyList();
+
+        return searchByTerm(partialName, ontologyID, false, childrenOf, false, getQueryField(), pageNum, pageSize);
+    }
+
     // Zooma
     public List<Term> getTermsByNameFromParent(String partialName, String ontologyID, boolean reverseKeyOrder, String childrenOf) {
         return  getTermsByName(partialName, ontologyID, reverseKeyOrder, childrenOf);
@@ -235,18 +258,49 @@ public class OLSClient implements Client {
 
     }
 
+    /**
+     * Searches for exact term matches using the given page number and page size, rather than the ones set on this
+     * client.  This does not change any state of the client, so it is safe to call from several threads at once.
+     *
+     * @param exactName  the term we are looking for
+     * @param ontologyId the ontology to search in, null or empty to search all ontologies
+     * @param childrenOf a list of IRI for the terms that you want to search under, comma separated, or null
+     * @param pageNum    the number of pages to fetch after the first one, negative to fetch all pages
+     * @param pageSize   the number of results per page
+     * @return a list of Terms found, or null if no name was given
+     */
+    // Zooma
+    public List<Term> getExactTermsByName(String exactName, String ontologyId, String childrenOf, int pageNum, int pageSize) {
+        if (exactName == null || exactName.isEmpty()){
+            return null;
+        }
+
+        return searchByTerm(exactName, ontologyId, true, childrenOf, false, getQueryField(), pageNum, pageSize);
+    }
+
 
     // Zooma
     public List<Term> getExactTermsByIriString(String iri) {
-        String customQueryField = new QueryFields.QueryFieldBuilder()
-                .setIri()
-                .build()
-                .toString();
-        this.setQueryField(customQueryField);
-        List<Term> terms = getExactTermsByName(iri, null);
-        //restore olsClient search to it's default query field and field list
-        this.setQueryField(DEFAULT_QUERY_FIELD);
-        return terms;
+        return getExactTermsByIriString(iri, getSearchPageNum(), getSearchPageSize());
+    }
+
+    /**
+     * Searches for terms with exactly the given iri, using the given page number and page size.  The iri query field
+     * is passed along with the search rather than set on this client, so this is safe to call from several threads at
+     * once.
+     *
+     * @param iri      the iri of the term we are looking for
+     * @param pageNum  the number of pages to fetch after the first one, negative to fetch all pages
+     * @param pageSize the number of results per page
+     * @return a list of Terms found, or null if no iri was given
+     */
+    // Zooma
+    public List<Term> getExactTermsByIriString(String iri, int pageNum, int pageSize) {
+        if (iri == null || iri.isEmpty()){
+            return null;
+        }
+
+        return searchByTerm(iri, null, true, null, false, IRI_QUERY_FIELD, pageNum, pageSize);
     }
 
 
@@ -271,17 +325,21 @@ public class OLSClient implements Client {
      * @throws RestClientException Rest Exception
      */
     private List<Term> searchByTerm(String termToSearch, String ontology, boolean exact, String childrenOf, boolean obsolete) throws RestClientException {
+        return searchByTerm(termToSearch, ontology, exact, childrenOf, obsolete,
+                getQueryField(), getSearchPageNum(), getSearchPageSize());
+    }
+
+    private List<Term> searchByTerm(String termToSearch, String ontology, boolean exact, String childrenOf, boolean obsolete,
+                                    String queryField, int pageNum, int pageSize) throws RestClientException {
         List<Term> termResults = new ArrayList<>();
         List<SearchResult> terms = new ArrayList<>();
 
-        int pageSize = getSearchPageSize();
         if(pageSize <= 0){
             pageSize = Constants.SEARCH_PAGE_SIZE;
         }
 
-        SearchQuery currentTermQuery = getSearchQuery(0, termToSearch, ontology, exact, childrenOf, obsolete, pageSize);
+        SearchQuery currentTermQuery = getSearchQuery(0, termToSearch, ontology, exact, childrenOf, obsolete, pageSize, queryField);
 
-        int pageNum = getSearchPageNum();
         if (pageNum < 0){
             pageNum = new Integer(currentTermQuery.getResponse().getNumFound() / pageSize);
         }
@@ -292,7 +350,7 @@ public class OLSClient implements Client {
                 int start = 0;
                 for(int i = 0; i < pageNum; i++){
                     start = start + pageSize;
-                    SearchQuery termQuery = getSearchQuery(start, termToSearch, ontology, exact, childrenOf, obsolete, pageSize);
+                    SearchQuery termQuery = getSearchQuery(start, termToSearch, ontology, exact, childrenOf, obsolete, pageSize, queryField);
                     if (termQuery != null && termQuery.getResponse() != null && termQuery.getResponse().getSearchResults() != null){
                         if(termQuery.getResponse().getSearchResults().length == 0) {
                             break;
@@ -438,10 +496,14 @@ public class OLSClient implements Client {
      * @throws RestClientException RestClient Exception
      */
     public SearchQuery getSearchQuery(int page, String name, String ontology, boolean exactMatch, String childrenOf, boolean obsolete, int size) throws RestClientException {
+        return getSearchQuery(page, name, ontology, exactMatch, childrenOf, obsolete, size, this.getQueryField());
+    }
+
+    private SearchQuery getSearchQuery(int page, String name, String ontology, boolean exactMatch, String childrenOf, boolean obsolete, int size, String queryField) throws RestClientException {
         String query;
 
         query = String.format("q=%s&" +
-                        this.getQueryField()
+                        queryField
                         + "&rows=%s&start=%s&"
                         + this.getFieldList() ,
                 name, size, page);
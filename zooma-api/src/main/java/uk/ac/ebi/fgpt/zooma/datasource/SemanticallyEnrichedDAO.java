@@ -17,6 +17,10 @@ public interface SemanticallyEnrichedDAO {
      * Retrieves an input stream containing RDF data that is supplementary to this datasource.  This RDF stream may
      * contain additional context, schema ontologies, or equivalence statements between annotations that should be
      * considered by ZOOMA and stored for reference, allowing inferences to be made over the raw annotations.
+     * <p>
+     * Supplementary data describes the datasource as a whole, so it is requested once per load of the datasource.  The
+     * stream should contain RDF in Turtle (or N-Triples, which is a subset of Turtle) so that it can be written and
+     * parsed in a single streaming pass.
      *
      * @return an input stream containing supplementary RDF data
      */
@@ -5,6 +5,7 @@ import uk.ac.ebi.fgpt.zooma.exception.ResourceAlreadyExistsException;
 import uk.ac.ebi.fgpt.zooma.model.Identifiable;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
@@ -72,6 +73,27 @@ public interface ZoomaDAO<I extends Identifiable> {
      */
     I read(URI uri);
 
+    /**
+     * Retrieves the identifiables with the given URIs from a zooma datasource.  URIs that do not identify any
+     * identifiable are ignored, and no ordering of the results is assumed.
+     * <p/>
+     * By default, this performs a lookup of each URI in turn.  Implementations that perform a query against an
+     * underlying datasource for each lookup should override this to retrieve all identifiables with a single query.
+     *
+     * @param uris the identifiers of the identifiables to retrieve
+     * @return the identifiables with these URIs
+     */
+    default Collection<I> read(Collection<URI> uris) {
+        List<I> results = new ArrayList<>();
+        for (URI uri : uris) {
+            I identifiable = read(uri);
+            if (identifiable != null) {
+                results.add(identifiable);
+            }
+        }
+        return results;
+    }
+
     /**
      * Updates any fields on the supplied identifiable in the zooma datasource that do not match the current state of
      * this identifiable.  This is done by comparing URIs - if an identifiable exists with a URI that matches the
@@ -76,4 +76,17 @@ public interface PropertySearchService {
      * @return a collection of matching properties
      */
     List<String> suggest(String propertyValuePrefix, URI... sources);
+
+    /**
+     * Suggest properties known to ZOOMA for those which have a value that matches the supplied prefix, and the given
+     * type.  This method is similar to {@link #searchByPrefix(String, String, URI...)} but returns a limited set of
+     * results and only provides the string values of matching property values.
+     * <p/>
+     * Results should always match based on an exact prefix match (essentially, {@link String#startsWith(String)}).
+     *
+     * @param propertyType        the property type that should be searched for
+     * @param propertyValuePrefix the property value that should be searched for
+     * @return a collection of matching properties
+     */
+    List<String> suggest(String propertyType, String propertyValuePrefix, URI... sources);
 }
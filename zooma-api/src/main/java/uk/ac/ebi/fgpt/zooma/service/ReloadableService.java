@@ -0,0 +1,20 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+/**
+ * A ZOOMA service backed by data, such as a search index, that may be rebuilt or reloaded whilst the service is
+ * running.
+ * <p/>
+ * Clients that cache results obtained from a reloadable service can compare generations to discover when those
+ * results may be out of date.
+ *
+ * @date 18/10/26
+ */
+public interface ReloadableService {
+    /**
+     * Returns the generation of the data currently backing this service.  The generation changes every time this data
+     * is rebuilt or reloaded, and remains the same otherwise.
+     *
+     * @return the current generation of this service's data
+     */
+    long getGeneration();
+}
@@ -0,0 +1,149 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable trie of namespaces, used to find the prefixes whose namespace is a leading part of a URI without
+ * scanning every known prefix mapping.
+ * <p/>
+ * Tries are never modified once created, so lookups are safe from any number of threads without locking.  Adding a
+ * mapping with {@link #withMapping(String, String)} copies only the path to the new namespace and returns a new trie
+ * that shares every other node with this one, so a new snapshot of the known namespaces can be published cheaply.
+ *
+ * @date 18/10/26
+ */
+public class NamespaceTrie {
+    private static final NamespaceTrie EMPTY = new NamespaceTrie(Node.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    /**
+     * Returns a trie containing the namespaces of the given prefix mappings
+     *
+     * @param prefixMappings the mappings of prefix to namespace to index
+     * @return a trie of the supplied namespaces
+     */
+    public static NamespaceTrie create(Map<String, String> prefixMappings) {
+        NamespaceTrie trie = EMPTY;
+        for (Map.Entry<String, String> mapping : prefixMappings.entrySet()) {
+            trie = trie.withMapping(mapping.getKey(), mapping.getValue());
+        }
+        return trie;
+    }
+
+    private NamespaceTrie(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of prefix mappings in this trie
+     *
+     * @return the number of mappings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a new trie that contains all the mappings in this trie plus the supplied mapping.  This trie is left
+     * unchanged.
+     *
+     * @param prefix    the prefix to add
+     * @param namespace the namespace the prefix maps to
+     * @return a new trie containing the additional mapping
+     */
+    public NamespaceTrie withMapping(String prefix, String namespace) {
+        return new NamespaceTrie(root.with(namespace, 0, prefix), size + 1);
+    }
+
+    /**
+     * Returns the prefixes whose namespace is a leading part of the given URI string.  Prefixes are ordered from the
+     * longest matching namespace to the shortest, and prefixes that share a namespace are ordered alphabetically.
+     *
+     * @param uri the URI to match namespaces against
+     * @return the matching prefixes, longest namespace first
+     */
+    public List<String> getMatchingPrefixes(String uri) {
+        List<String[]> matches = null;
+        Node node = root;
+        if (node.prefixes.length > 0) {
+            matches = new ArrayList<>();
+            matches.add(node.prefixes);
+        }
+        for (int i = 0; i < uri.length(); i++) {
+            node = node.child(uri.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.prefixes.length > 0) {
+                if (matches == null) {
+                    matches = new ArrayList<>();
+                }
+                matches.add(node.prefixes);
+            }
+        }
+
+        if (matches == null) {
+            return Collections.emptyList();
+        }
+        List<String> results = new ArrayList<>();
+        for (int i = matches.size() - 1; i >= 0; i--) {
+            Collections.addAll(results, matches.get(i));
+        }
+        return results;
+    }
+
+    private static class Node {
+        private static final Node EMPTY = new Node(new char[0], new Node[0], new String[0]);
+
+        private final char[] keys;
+        private final Node[] children;
+        private final String[] prefixes;
+
+        private Node(char[] keys, Node[] children, String[] prefixes) {
+            this.keys = keys;
+            this.children = children;
+            this.prefixes = prefixes;
+        }
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index < 0 ? null : children[index];
+        }
+
+        private Node with(String namespace, int depth, String prefix) {
+            if (depth == namespace.length()) {
+                String[] newPrefixes = Arrays.copyOf(prefixes, prefixes.length + 1);
+                newPrefixes[prefixes.length] = prefix;
+                Arrays.sort(newPrefixes);
+                return new Node(keys, children, newPrefixes);
+            }
+
+            char c = namespace.charAt(depth);
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                Node[] newChildren = children.clone();
+                newChildren[index] = children[index].with(namespace, depth + 1, prefix);
+                return new Node(keys, newChildren, prefixes);
+            }
+            else {
+                int insertion = -index - 1;
+                char[] newKeys = new char[keys.length + 1];
+                Node[] newChildren = new Node[children.length + 1];
+                System.arraycopy(keys, 0, newKeys, 0, insertion);
+                System.arraycopy(children, 0, newChildren, 0, insertion);
+                newKeys[insertion] = c;
+                newChildren[insertion] = EMPTY.with(namespace, depth + 1, prefix);
+                System.arraycopy(keys, insertion, newKeys, insertion + 1, keys.length - insertion);
+                System.arraycopy(children, insertion, newChildren, insertion + 1, children.length - insertion);
+                return new Node(newKeys, newChildren, prefixes);
+            }
+        }
+    }
+}
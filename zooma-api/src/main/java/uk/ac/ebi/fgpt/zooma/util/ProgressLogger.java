@@ -49,7 +49,8 @@ public abstract class ProgressLogger {
                     synchronized (lock) {
                         chars++;
                         if (chars % 40 == 0) {
-                            out.println(".");
+                            String progress = reportProgress();
+                            out.println(progress != null ? ". " + progress : ".");
                         }
                         else {
                             out.print(".");
@@ -78,6 +79,17 @@ public abstract class ProgressLogger {
         }
     }
 
+    /**
+     * Override this method to report a description of progress so far, such as the number of items processed and the
+     * rate of processing.  This description is printed at the end of each line of progress "dots".  By default, no
+     * description is reported.
+     *
+     * @return a short description of progress, or null if there is nothing to report
+     */
+    public String reportProgress() {
+        return null;
+    }
+
     /**
      * Implement this method to control when progress should be logged.  If this method returns true, progress will be
      * logged.  If this method returns false, the progress logger will report "ok" and exit.
@@ -13,11 +13,18 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A collection of utils for working with URIs in ZOOMA.  Some common utilities to expand/contract between prefixed
  * ("qName" style) forms and the full URI are included.
  * <p/>
+ * The default prefix mappings are held in an immutable snapshot, indexed by a {@link NamespaceTrie}, so shortforms and
+ * URIs can be resolved against them without locking.  New prefixes created in {@link
+ * PrefixCreationMode#CREATE_AND_CACHE} mode are published by atomically replacing the snapshot.  Shortforms of URIs
+ * resolved against the default mappings are memoized until the snapshot is next replaced.
  *
  * @author Tony Burdett
  * @author Simon Jupp
@@ -33,21 +40,19 @@ public class URIUtils {
      */
     public static final ShortformStrictness DEFAULT_SHORTFORM_STRICTNESS = ShortformStrictness.ALLOW_HASHES;
 
-    private static final Map<String, String> prefixMappings;
-    private static final String uninitializedKey = "UNINITIALIZED";
+    /**
+     * The maximum number of shortforms memoized for each snapshot of the default prefix mappings.  A full memo is
+     * cleared before the next shortform is memoized.
+     */
+    private static final int MAX_MEMOIZED_SHORTFORMS = 50000;
+
+    private static final AtomicReference<PrefixMappingSnapshot> prefixMappingSnapshot = new AtomicReference<>();
 
     /*
      * URI that indicates that we don't want the source type associated with this URI to be searched for the query term
      */
     public static final URI SEARCH_NONE = URI.create("None");
 
-    static {
-        // initialize final map prefixMappings...
-        prefixMappings = Collections.synchronizedMap(new HashMap<String, String>());
-        // ...and add a key to indicate it has not yet been loaded
-        prefixMappings.put(uninitializedKey, "true");
-    }
-
     private static Logger log = LoggerFactory.getLogger(URIUtils.class);
 
     protected static Logger getLog() {
@@ -58,19 +63,15 @@ public class URIUtils {
      * Loads prefix to namespace mappings into a map, and returns them.  Mappings are loaded from the prefix.properties
      * file, which should be located under config/naming/prefix.properties in your environments $ZOOMA_HOME directory.
      *
-     * @return a mapping of prefix to namespace values
+     * @return an unmodifiable mapping of prefix to namespace values
      */
-    public synchronized static Map<String, String> getPrefixMappings() {
-        // if prefixMappings contains the key that indicates it has never been loaded, then load
-        if (prefixMappings.containsKey(uninitializedKey)) {
-            loadPrefixMappings();
-        }
-        return prefixMappings;
+    public static Map<String, String> getPrefixMappings() {
+        return getPrefixMappingSnapshot().getMappings();
     }
 
     public synchronized static Map<String, String> loadPrefixMappings() {
         getLog().debug("Attempting to load prefix mappings from properties files...");
-        prefixMappings.clear();
+        Map<String, String> prefixMappings = new HashMap<>();
         try {
             String zooma_home = System.getProperty("zooma.home");
             if (zooma_home != null) {
@@ -100,7 +101,23 @@ public class URIUtils {
         catch (IOException e) {
             throw new RuntimeException("Unable to read zooma prefix properties", e);
         }
-        return prefixMappings;
+        PrefixMappingSnapshot snapshot = new PrefixMappingSnapshot(prefixMappings);
+        prefixMappingSnapshot.set(snapshot);
+        return snapshot.getMappings();
+    }
+
+    private static PrefixMappingSnapshot getPrefixMappingSnapshot() {
+        PrefixMappingSnapshot snapshot = prefixMappingSnapshot.get();
+        if (snapshot == null) {
+            synchronized (URIUtils.class) {
+                // if prefix mappings have never been loaded, then load
+                if (prefixMappingSnapshot.get() == null) {
+                    loadPrefixMappings();
+                }
+                snapshot = prefixMappingSnapshot.get();
+            }
+        }
+        return snapshot;
     }
 
     /**
@@ -113,7 +130,7 @@ public class URIUtils {
      * @return the shortened, qualified name
      */
     public static String getShortform(URI uri) {
-        return getShortform(getPrefixMappings(), uri, DEFAULT_SHORTFORM_STRICTNESS, DEFAULT_PREFIX_CREATION_MODE);
+        return getShortform(getPrefixMappingSnapshot(), uri, DEFAULT_SHORTFORM_STRICTNESS, DEFAULT_PREFIX_CREATION_MODE);
     }
 
     /**
@@ -127,7 +144,7 @@ public class URIUtils {
      * @return the shortened, qualified name
      */
     public static String getShortform(URI uri, ShortformStrictness strictness) {
-        return getShortform(getPrefixMappings(), uri, strictness, DEFAULT_PREFIX_CREATION_MODE);
+        return getShortform(getPrefixMappingSnapshot(), uri, strictness, DEFAULT_PREFIX_CREATION_MODE);
     }
 
     /**
@@ -141,7 +158,7 @@ public class URIUtils {
      * @return the shortened, qualified name
      */
     public static String getShortform(URI uri, ShortformStrictness strictness, PrefixCreationMode prefixCreationMode) {
-        return getShortform(getPrefixMappings(), uri, strictness, prefixCreationMode);
+        return getShortform(getPrefixMappingSnapshot(), uri, strictness, prefixCreationMode);
     }
 
     /**
@@ -172,6 +189,56 @@ public class URIUtils {
                                       URI uri,
                                       ShortformStrictness strictness,
                                       PrefixCreationMode prefixCreationMode) {
+        synchronized (prefixMappings) {
+            return getShortform(prefixMappings, null, uri, strictness, prefixCreationMode);
+        }
+    }
+
+    /**
+     * Gets the shortened version of the given URI from a snapshot of the default prefix mappings, reusing the shortform
+     * memoized for this URI if it has been shortened against the same snapshot before.
+     *
+     * @param snapshot the snapshot of prefix mappings to consider when getting the short form
+     * @param uri      the URI to find the short form for
+     * @return the qualified short name
+     * @throws IllegalArgumentException if the URI cannot be shortened using the current mode and prefixMappings
+     */
+    private static String getShortform(PrefixMappingSnapshot snapshot,
+                                       URI uri,
+                                       ShortformStrictness strictness,
+                                       PrefixCreationMode prefixCreationMode) {
+        if (uri == null) {
+            return null;
+        }
+
+        ConcurrentMap<URI, String> shortforms = snapshot.getShortforms(strictness, prefixCreationMode);
+        String shortform = shortforms.get(uri);
+        if (shortform == null) {
+            shortform = getShortform(snapshot.getMappings(), snapshot.getTrie(), uri, strictness, prefixCreationMode);
+            if (shortforms.size() >= MAX_MEMOIZED_SHORTFORMS) {
+                // start again, so the memo refills with the URIs that are still being shortened
+                shortforms.clear();
+            }
+            shortforms.putIfAbsent(uri, shortform);
+        }
+        return shortform;
+    }
+
+    /**
+     * Gets the shortened version of the given URI.  If a namespace trie is supplied, it must index exactly the supplied
+     * prefix mappings and they are treated as the default prefix mappings; otherwise every prefix mapping is scanned.
+     *
+     * @param prefixMappings the prefix mappings to consider when getting the short form
+     * @param trie           the trie of the default prefix mappings, or null if custom mappings are being used
+     * @param uri            the URI to find the short form for
+     * @return the qualified short name
+     * @throws IllegalArgumentException if the URI cannot be shortened using the current mode and prefixMappings
+     */
+    private static String getShortform(final Map<String, String> prefixMappings,
+                                       NamespaceTrie trie,
+                                       URI uri,
+                                       ShortformStrictness strictness,
+                                       PrefixCreationMode prefixCreationMode) {
         if (uri == null) {
             return null;
         }
@@ -185,103 +252,107 @@ public class URIUtils {
         }
 
         // parts of the uri/shortform
-        synchronized (prefixMappings) {
-            String prefix = getPrefix(prefixMappings, uri, "/", "#");
-            String namespace;
-            if (prefix == null) {
-                // null if no prefix that results in a "good" shortform can be found - test prefixing mode
-                getLog().trace("Failed to identify best quality shortform from prefix mappings. " +
-                                       "Trying again after assessing prefix creation mode and shortform strictness");
-                // test prefix creation mode
-                String bestPrefix;
-                String[] result;
-                switch (prefixCreationMode) {
-                    case CREATE:
-                        // get prefix for longest possible namespace match, if any
-                        bestPrefix = getPrefix(prefixMappings, uri);
-                        // use incremental strategy but do NOT cache
-                        result = createPrefixNamespaceMapping(prefixMappings, bestPrefix, false, uri);
-                        prefix = result[0];
-                        namespace = result[1];
-                        getLog().trace("Created new prefix/namespace mapping for <" + uriStr + "> " +
-                                               "(" + prefix + " -> " + namespace + "). " +
-                                               "This mapping will NOT be cached, though");
-                        break;
-                    case CREATE_AND_CACHE:
+        String prefix = getPrefix(prefixMappings, trie, uri, "/", "#");
+        String namespace;
+        if (prefix == null) {
+            // null if no prefix that results in a "good" shortform can be found - test prefixing mode
+            getLog().trace("Failed to identify best quality shortform from prefix mappings. " +
+                                   "Trying again after assessing prefix creation mode and shortform strictness");
+            // test prefix creation mode
+            String bestPrefix;
+            String[] result;
+            switch (prefixCreationMode) {
+                case CREATE:
+                    // get prefix for longest possible namespace match, if any
+                    bestPrefix = getPrefix(prefixMappings, trie, uri);
+                    // use incremental strategy but do NOT cache
+                    result = createPrefixNamespaceMapping(prefixMappings, bestPrefix, false, uri);
+                    prefix = result[0];
+                    namespace = result[1];
+                    getLog().trace("Created new prefix/namespace mapping for <" + uriStr + "> " +
+                                           "(" + prefix + " -> " + namespace + "). " +
+                                           "This mapping will NOT be cached, though");
+                    break;
+                case CREATE_AND_CACHE:
+                    if (trie == null) {
                         // get prefix for longest possible namespace match, if any
-                        bestPrefix = getPrefix(prefixMappings, uri);
+                        bestPrefix = getPrefix(prefixMappings, null, uri);
                         // use incremental strategy and cache
                         result = createPrefixNamespaceMapping(prefixMappings, bestPrefix, true, uri);
-                        prefix = result[0];
-                        namespace = result[1];
-                        getLog().trace("Created new prefix/namespace mapping for <" + uriStr + "> " +
-                                               "(" + prefix + " -> " + namespace + ")");
-                        break;
-                    case DO_NOT_CREATE:
-                        // test strictness
-                        switch (strictness) {
-                            case STRICT:
-                                // can't do anything
-                                throw new IllegalArgumentException(
-                                        "The URI <" + uri.toString() + "> cannot be shortened " +
-                                                "using any known prefix, and the creation mode is " +
-                                                "set to NOT create new prefixes.");
-                            case ALLOW_HASHES:
-                                // try to get prefix, but allow hashes in the shortform
-                                prefix = getPrefix(prefixMappings, uri, "/");
-                                namespace = prefixMappings.get(prefix);
-                                getLog().trace("Got prefix for <" + uriStr + "> by using non-standard shortform " +
-                                                       "(allows hashes)");
-                                break;
-                            case ALLOW_SLASHES_AND_HASHES:
-                                // try to get prefix, but allow hashes and slashes in the shortform
-                                prefix = getPrefix(prefixMappings, uri);
-                                namespace = prefixMappings.get(prefix);
-                                getLog().trace("Got prefix for <" + uriStr + "> by using non-standard shortform " +
-                                                       "(allows and/or slashes)");
-                                break;
-                            default:
-                                // not sure what to do!
-                                throw new IllegalArgumentException(
-                                        "The URI <" + uri.toString() + "> cannot be shortened " +
-                                                "using any known prefix, and the shortform strictness level is " +
-                                                "unknown.");
-                        }
-                        break;
-                    default:
-                        // not sure what to do!
-                        throw new IllegalArgumentException("The URI <" + uri.toString() + "> cannot be shortened " +
-                                                                   "using any known prefix, and the creation mode is " +
-                                                                   "unknown.");
-                }
+                    }
+                    else {
+                        // use incremental strategy and publish a new snapshot of the default mappings
+                        result = createAndPublishPrefixNamespaceMapping(uri);
+                    }
+                    prefix = result[0];
+                    namespace = result[1];
+                    getLog().trace("Created new prefix/namespace mapping for <" + uriStr + "> " +
+                                           "(" + prefix + " -> " + namespace + ")");
+                    break;
+                case DO_NOT_CREATE:
+                    // test strictness
+                    switch (strictness) {
+                        case STRICT:
+                            // can't do anything
+                            throw new IllegalArgumentException(
+                                    "The URI <" + uri.toString() + "> cannot be shortened " +
+                                            "using any known prefix, and the creation mode is " +
+                                            "set to NOT create new prefixes.");
+                        case ALLOW_HASHES:
+                            // try to get prefix, but allow hashes in the shortform
+                            prefix = getPrefix(prefixMappings, trie, uri, "/");
+                            namespace = prefixMappings.get(prefix);
+                            getLog().trace("Got prefix for <" + uriStr + "> by using non-standard shortform " +
+                                                   "(allows hashes)");
+                            break;
+                        case ALLOW_SLASHES_AND_HASHES:
+                            // try to get prefix, but allow hashes and slashes in the shortform
+                            prefix = getPrefix(prefixMappings, trie, uri);
+                            namespace = prefixMappings.get(prefix);
+                            getLog().trace("Got prefix for <" + uriStr + "> by using non-standard shortform " +
+                                                   "(allows and/or slashes)");
+                            break;
+                        default:
+                            // not sure what to do!
+                            throw new IllegalArgumentException(
+                                    "The URI <" + uri.toString() + "> cannot be shortened " +
+                                            "using any known prefix, and the shortform strictness level is " +
+                                            "unknown.");
+                    }
+                    break;
+                default:
+                    // not sure what to do!
+                    throw new IllegalArgumentException("The URI <" + uri.toString() + "> cannot be shortened " +
+                                                               "using any known prefix, and the creation mode is " +
+                                                               "unknown.");
             }
-            else {
-                namespace = prefixMappings.get(prefix);
-                if (namespace == null && prefix.contains("resource")) {
-                    String resourcename = prefix.replace("resource", "");
-                    namespace = prefixMappings.get("zoomaresource").concat(resourcename).concat("/");
-                }
+        }
+        else {
+            namespace = prefixMappings.get(prefix);
+            if (namespace == null && prefix.contains("resource")) {
+                String resourcename = prefix.replace("resource", "");
+                namespace = prefixMappings.get("zoomaresource").concat(resourcename).concat("/");
             }
+        }
 
-            if (prefix != null && namespace != null) {
-                String localname = uriStr.replaceAll(namespace, "");
-                if (!localname.equals(uriStr)) {
-                    String shortform = prefix + ":" + localname;
-                    getLog().trace("Shortform: '" + uriStr + "' -> '" + shortform + "'");
-                    return shortform;
-                }
-                else {
-                    throw new RuntimeException("Shortening the URI didn't seem to work (was " + uriStr + ", " +
-                                                       "became " + prefix + ":" + uriStr.replaceAll(namespace, ""));
-                }
+        if (prefix != null && namespace != null) {
+            String localname = uriStr.replaceAll(namespace, "");
+            if (!localname.equals(uriStr)) {
+                String shortform = prefix + ":" + localname;
+                getLog().trace("Shortform: '" + uriStr + "' -> '" + shortform + "'");
+                return shortform;
             }
             else {
-                String msg = "The URI <" + uri.toString() + "> cannot be shortened using any known prefix " +
-                        "or creation strategy";
-                getLog().error(msg);
-                throw new IllegalArgumentException(msg);
+                throw new RuntimeException("Shortening the URI didn't seem to work (was " + uriStr + ", " +
+                                                   "became " + prefix + ":" + uriStr.replaceAll(namespace, ""));
             }
         }
+        else {
+            String msg = "The URI <" + uri.toString() + "> cannot be shortened using any known prefix " +
+                    "or creation strategy";
+            getLog().error(msg);
+            throw new IllegalArgumentException(msg);
+        }
     }
 
     /**
@@ -293,7 +364,7 @@ public class URIUtils {
      * @return the full URI
      */
     public static URI getURI(String shortform) {
-        return getURI(getPrefixMappings(), shortform);
+        return expandShortform(getPrefixMappings(), shortform);
     }
 
     /**
@@ -311,6 +382,12 @@ public class URIUtils {
      * @return the full URI
      */
     public static URI getURI(final Map<String, String> prefixMappings, String shortform) {
+        synchronized (prefixMappings) {
+            return expandShortform(prefixMappings, shortform);
+        }
+    }
+
+    private static URI expandShortform(final Map<String, String> prefixMappings, String shortform) {
         // is this a CHEBI ID?  This is an ungodly hack to work with broken CHEBI IDs, remove if possible
         if (shortform.startsWith("CHEBI:")) {
             return URI.create("http://www.ebi.ac.uk/chebi/searchId.do;?chebiId=" + shortform);
@@ -325,32 +402,30 @@ public class URIUtils {
                 localName = tokens[1];
             }
 
-            synchronized (prefixMappings) {
-                String namespace;
-                if (prefixMappings.containsKey(prefix)) {
-                    namespace = prefixMappings.get(prefix);
-                    if (!namespace.endsWith("/") && !namespace.endsWith("#") && !"".equals(localName)) {
-                        // no separator at end of namespace - could be / or # or something else, so just have to guess
-                        namespace = namespace + "/";
-                    }
+            String namespace;
+            if (prefixMappings.containsKey(prefix)) {
+                namespace = prefixMappings.get(prefix);
+                if (!namespace.endsWith("/") && !namespace.endsWith("#") && !"".equals(localName)) {
+                    // no separator at end of namespace - could be / or # or something else, so just have to guess
+                    namespace = namespace + "/";
                 }
-                else if (prefix.endsWith("resource")) {
-                    String resourceName = prefix.replace("resource", "");
-                    if (prefixMappings.containsKey(resourceName)) {
-                        namespace = prefixMappings.get("zoomaresource").concat(resourceName).concat("/");
-                    }
-                    else {
-                        throw new IllegalArgumentException("Unknown resource '" + resourceName + "' - it is not " +
-                                                                   "possible to reconstruct this URI");
-                    }
+            }
+            else if (prefix.endsWith("resource")) {
+                String resourceName = prefix.replace("resource", "");
+                if (prefixMappings.containsKey(resourceName)) {
+                    namespace = prefixMappings.get("zoomaresource").concat(resourceName).concat("/");
                 }
                 else {
-                    // if we get to here, we cannot resolve prefix
-                    throw new IllegalArgumentException("Unknown prefix '" + prefix + "' - it is not " +
+                    throw new IllegalArgumentException("Unknown resource '" + resourceName + "' - it is not " +
                                                                "possible to reconstruct this URI");
                 }
-                return URI.create(namespace + localName);
             }
+            else {
+                // if we get to here, we cannot resolve prefix
+                throw new IllegalArgumentException("Unknown prefix '" + prefix + "' - it is not " +
+                                                           "possible to reconstruct this URI");
+            }
+            return URI.create(namespace + localName);
         }
         else {
             throw new IllegalArgumentException("Cannot expand '" + shortform + "' - " +
@@ -368,7 +443,7 @@ public class URIUtils {
      * @return the full URI of the namespace for the prefix in the shortform
      */
     public static URI getNamespace(String shortform) {
-        return getNamespace(getPrefixMappings(), shortform);
+        return resolveNamespace(getPrefixMappings(), shortform);
     }
 
     /**
@@ -381,26 +456,30 @@ public class URIUtils {
      * @return the full URI of the namespace for the prefix in the shortform
      */
     public static URI getNamespace(final Map<String, String> prefixMappings, String shortform) {
-        String prefix = shortform.split(":")[0];
         synchronized (prefixMappings) {
-            if (prefixMappings.containsKey(prefix)) {
-                String namespace = prefixMappings.get(prefix);
-                if (!namespace.endsWith("/") && !namespace.endsWith("#")) {
-                    // no separator at end of namespace - could be / or # or something else, so just have to guess
-                    namespace = namespace + "/";
-                }
-                return URI.create(namespace);
+            return resolveNamespace(prefixMappings, shortform);
+        }
+    }
+
+    private static URI resolveNamespace(final Map<String, String> prefixMappings, String shortform) {
+        String prefix = shortform.split(":")[0];
+        if (prefixMappings.containsKey(prefix)) {
+            String namespace = prefixMappings.get(prefix);
+            if (!namespace.endsWith("/") && !namespace.endsWith("#")) {
+                // no separator at end of namespace - could be / or # or something else, so just have to guess
+                namespace = namespace + "/";
+            }
+            return URI.create(namespace);
+        }
+        else {
+            // we can't resolve the prfix - but we might be able to infer it if it's a resource
+            if (prefix.contains("resource")) {
+                String resourcename = prefix.replace("resource", "");
+                return URI.create(prefixMappings.get("zoomaresource").concat(resourcename).concat("/"));
             }
             else {
-                // we can't resolve the prfix - but we might be able to infer it if it's a resource
-                if (prefix.contains("resource")) {
-                    String resourcename = prefix.replace("resource", "");
-                    return URI.create(prefixMappings.get("zoomaresource").concat(resourcename).concat("/"));
-                }
-                else {
-                    throw new IllegalArgumentException("Unknown prefix '" + prefix + "' - it is not " +
-                                                               "possible to reconstruct this URI");
-                }
+                throw new IllegalArgumentException("Unknown prefix '" + prefix + "' - it is not " +
+                                                           "possible to reconstruct this URI");
             }
         }
     }
@@ -562,19 +641,91 @@ public class URIUtils {
     /**
      * Generates a shortform given some known prefixes.  If any of the character sequences present in
      * <code>excludedChars</code> occur in the shortened form, this shortened form is rejected.
+     * <p/>
+     * If a namespace trie is supplied, only namespaces that the URI starts with are considered and they are tested from
+     * the longest to the shortest, so the first eligible namespace is the best.  Otherwise, every prefix mapping is
+     * scanned.
      *
      * @param prefixMappings the prefix mappings to consider when getting the short form
+     * @param trie           the trie indexing the supplied prefix mappings, or null to scan every mapping
      * @param uri            the URI to find the short form for
      * @param excludedChars  a variable argument of the characters that are not allowed to occur in the shortform
      * @return the best matching prefix for the given URI
      * @throws IllegalArgumentException if the URI cannot be shortened using the current mode and prefixMappings
      */
     private static String getPrefix(final Map<String, String> prefixMappings,
+                                    NamespaceTrie trie,
                                     URI uri,
                                     CharSequence... excludedChars) {
         String uriStr = uri.toString();
         String namespace = null;
         String prefix = null;
+
+        if (trie != null) {
+            for (String nextPrefix : trie.getMatchingPrefixes(uriStr)) {
+                String nextNamespace = prefixMappings.get(nextPrefix);
+                String localname = uriStr.replaceAll(nextNamespace, "");
+                if (isEligible(uriStr, nextPrefix, localname, excludedChars)) {
+                    prefix = nextPrefix;
+                    break;
+                }
+                else if (nextPrefix.equals("zoomaresource") && localname.contains("/")) {
+                    // there is an exception - if prefix is zoomaresource, infer prefix from convention
+                    prefix = localname.substring(0, localname.indexOf("/")).concat("resource");
+                    break;
+                }
+            }
+        }
+        else {
+            for (String nextPrefix : prefixMappings.keySet()) {
+                String nextNamespace = prefixMappings.get(nextPrefix);
+
+                // does this prefix map to our URI?
+                if (uriStr.contains(nextNamespace)) {
+                    if (namespace == null || namespace.length() < nextNamespace.length()) {
+                        // we have a match, but is it complete?
+                        String localname = uriStr.replaceAll(nextNamespace, "");
+                        if (isEligible(uriStr, nextPrefix, localname, excludedChars)) {
+                            prefix = nextPrefix;
+                            namespace = nextNamespace;
+                        }
+                        else if (nextPrefix.equals("zoomaresource")) {
+                            // there is an exception - if prefix is zoomaresource, infer prefix from convention
+                            if (localname.contains("/")) {
+                                String resourceName = localname.substring(0, localname.indexOf("/"));
+                                prefix = resourceName.concat("resource");
+                                namespace = nextNamespace.concat(resourceName).concat("/");
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        if (prefix == null) {
+            getLog().trace("The URI <" + uri.toString() + "> cannot be shortened to a form that does not include one " +
+                                   "of the disallowed characters " + describe(excludedChars));
+        }
+        return prefix;
+    }
+
+    private static boolean isEligible(String uriStr,
+                                      String prefix,
+                                      String localname,
+                                      CharSequence... excludedChars) {
+        for (CharSequence cs : excludedChars) {
+            if (localname.contains(cs)) {
+                getLog().trace("Namespace matched uri '" + uriStr + "'," +
+                                       " but would result in a disallowed shortform " +
+                                       "'" + prefix + ":" + localname + "' (includes " +
+                                       "one of " + describe(excludedChars) + ")");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String describe(CharSequence... excludedChars) {
         StringBuilder sb = new StringBuilder();
         int i = 0;
         sb.append("[");
@@ -585,49 +736,38 @@ public class URIUtils {
             }
         }
         sb.append("]");
-        String disallowedStr = sb.toString();
-
-        for (String nextPrefix : prefixMappings.keySet()) {
-            String nextNamespace = prefixMappings.get(nextPrefix);
-
-            // does this prefix map to our URI?
-            if (uriStr.contains(nextNamespace)) {
-                if (namespace == null || namespace.length() < nextNamespace.length()) {
-                    // we have a match, but is it complete?
-                    String localname = uriStr.replaceAll(nextNamespace, "");
-                    boolean ineligible = false;
-                    for (CharSequence cs : excludedChars) {
-                        if (localname.contains(cs)) {
-                            getLog().trace("Namespace matched uri '" + uriStr + "'," +
-                                                   " but would result in a disallowed shortform " +
-                                                   "'" + nextPrefix + ":" + localname + "' (includes " +
-                                                   "one of " + disallowedStr + ")");
-                            ineligible = true;
-                            break;
-                        }
-                    }
+        return sb.toString();
+    }
 
-                    if (!ineligible) {
-                        prefix = nextPrefix;
-                        namespace = nextNamespace;
-                    }
-                    else if (nextPrefix.equals("zoomaresource")) {
-                        // there is an exception - if prefix is zoomaresource, infer prefix from convention
-                        if (localname.contains("/")) {
-                            String resourceName = localname.substring(0, localname.indexOf("/"));
-                            prefix = resourceName.concat("resource");
-                            namespace = nextNamespace.concat(resourceName).concat("/");
-                        }
-                    }
-                }
+    /**
+     * Creates a new prefix for the namespace of the given URI and publishes a new snapshot of the default prefix
+     * mappings that includes it.  Snapshots are only ever replaced whilst holding the class lock, so the prefix is
+     * created against the latest snapshot and no concurrently created prefix is lost.
+     *
+     * @param uri the URI to create a prefix -> namespace mapping for
+     * @return a String array where the first element is the created prefix and the second element is the namespace it
+     * maps to
+     */
+    private synchronized static String[] createAndPublishPrefixNamespaceMapping(final URI uri) {
+        PrefixMappingSnapshot snapshot = getPrefixMappingSnapshot();
+        Map<String, String> prefixMappings = snapshot.getMappings();
+
+        // another thread may have published a suitable prefix since this URI was last checked
+        String prefix = getPrefix(prefixMappings, snapshot.getTrie(), uri, "/", "#");
+        if (prefix != null) {
+            String namespace = prefixMappings.get(prefix);
+            if (namespace == null && prefix.contains("resource")) {
+                String resourcename = prefix.replace("resource", "");
+                namespace = prefixMappings.get("zoomaresource").concat(resourcename).concat("/");
             }
+            return new String[]{prefix, namespace};
         }
 
-        if (prefix == null) {
-            getLog().trace("The URI <" + uri.toString() + "> cannot be shortened to a form that does not include one " +
-                                   "of the disallowed characters " + disallowedStr);
-        }
-        return prefix;
+        String bestPrefix = getPrefix(prefixMappings, snapshot.getTrie(), uri);
+        String[] result = createPrefixNamespaceMapping(prefixMappings, bestPrefix, false, uri);
+        getLog().trace("Caching " + result[0] + " -> " + result[1]);
+        prefixMappingSnapshot.set(snapshot.withMapping(result[0], result[1]));
+        return result;
     }
 
     /**
@@ -683,6 +823,54 @@ public class URIUtils {
         return result;
     }
 
+    /**
+     * An immutable snapshot of the default prefix mappings, the trie indexing their namespaces, and the shortforms
+     * memoized for them.
+     */
+    private static class PrefixMappingSnapshot {
+        private final Map<String, String> mappings;
+        private final NamespaceTrie trie;
+        private final ConcurrentMap<URI, String>[][] shortforms;
+
+        @SuppressWarnings("unchecked")
+        private PrefixMappingSnapshot(Map<String, String> mappings, NamespaceTrie trie) {
+            this.mappings = Collections.unmodifiableMap(mappings);
+            this.trie = trie;
+            this.shortforms = new ConcurrentMap[ShortformStrictness.values().length][PrefixCreationMode.values().length];
+            for (ConcurrentMap<URI, String>[] modes : shortforms) {
+                for (int i = 0; i < modes.length; i++) {
+                    modes[i] = new ConcurrentHashMap<>();
+                }
+            }
+        }
+
+        private PrefixMappingSnapshot(Map<String, String> mappings) {
+            this(mappings, NamespaceTrie.create(mappings));
+        }
+
+        private Map<String, String> getMappings() {
+            return mappings;
+        }
+
+        private NamespaceTrie getTrie() {
+            return trie;
+        }
+
+        private ConcurrentMap<URI, String> getShortforms(ShortformStrictness strictness,
+                                                         PrefixCreationMode prefixCreationMode) {
+            return shortforms[strictness.ordinal()][prefixCreationMode.ordinal()];
+        }
+
+        private PrefixMappingSnapshot withMapping(String prefix, String namespace) {
+            Map<String, String> newMappings = new HashMap<>(mappings);
+            if (newMappings.put(prefix, namespace) != null) {
+                // the prefix has been remapped, so the trie must be rebuilt to drop the old namespace
+                return new PrefixMappingSnapshot(newMappings);
+            }
+            return new PrefixMappingSnapshot(newMappings, trie.withMapping(prefix, namespace));
+        }
+    }
+
     public enum PrefixCreationMode {
         /**
          * Allows {@link URIUtils} to create new prefixes for previously unseen namespaces.  Creation of prefixes will
@@ -0,0 +1,62 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks longest-namespace matching and copy-on-write behaviour of {@link NamespaceTrie}.
+ *
+ * @date 18/10/26
+ */
+public class TestNamespaceTrie {
+    private NamespaceTrie trie;
+
+    @BeforeEach
+    public void setUp() {
+        Map<String, String> prefixMappings = new HashMap<>();
+        prefixMappings.put("raw", "http://www.test.com/");
+        prefixMappings.put("slash", "http://www.test.com/foo/");
+        prefixMappings.put("compound", "http://www.test.com/foo/bar/baz#");
+        prefixMappings.put("alias", "http://www.test.com/foo/");
+        prefixMappings.put("other", "http://www.othertest.com/");
+        trie = NamespaceTrie.create(prefixMappings);
+    }
+
+    @Test
+    public void testGetMatchingPrefixes() {
+        assertEquals(5, trie.size(), "Unexpected number of mappings");
+        assertEquals(Arrays.asList("compound", "alias", "slash", "raw"),
+                     trie.getMatchingPrefixes("http://www.test.com/foo/bar/baz#term"),
+                     "Unexpected prefixes for compound URI");
+        assertEquals(Arrays.asList("alias", "slash", "raw"),
+                     trie.getMatchingPrefixes("http://www.test.com/foo/bar/term"),
+                     "Unexpected prefixes for slash URI");
+        assertEquals(Collections.singletonList("raw"),
+                     trie.getMatchingPrefixes("http://www.test.com/"),
+                     "Namespace should match itself");
+        assertEquals(Collections.<String>emptyList(),
+                     trie.getMatchingPrefixes("http://www.anothertest.com/foo/term"),
+                     "No namespaces should match");
+    }
+
+    @Test
+    public void testWithMappingCopiesOnWrite() {
+        NamespaceTrie updated = trie.withMapping("bar", "http://www.test.com/foo/bar/");
+
+        assertEquals(Arrays.asList("bar", "alias", "slash", "raw"),
+                     updated.getMatchingPrefixes("http://www.test.com/foo/bar/term"),
+                     "New mapping should be matched first");
+        assertEquals(Arrays.asList("alias", "slash", "raw"),
+                     trie.getMatchingPrefixes("http://www.test.com/foo/bar/term"),
+                     "Original trie should be unchanged");
+        assertEquals(6, updated.size(), "Unexpected number of mappings");
+        assertEquals(5, trie.size(), "Unexpected number of mappings");
+    }
+}
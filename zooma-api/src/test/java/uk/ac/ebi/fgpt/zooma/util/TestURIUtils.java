@@ -7,9 +7,16 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -261,4 +268,68 @@ public class TestURIUtils {
 
         assertEquals(inferredURI, URIUtils.getURI(inferredShortform), "Unexpected lengthened form");
     }
+
+    @Test
+    public void testDefaultMappingsMatchCustomMappings() {
+        // shortforms resolved against the default mappings should match a scan of a copy of the same mappings
+        Map<String, String> pm = new HashMap<>(URIUtils.getPrefixMappings());
+        URI[] uris = {uri1, uri2, uri3, uri6, uri7, uri9, inferredURI};
+        for (URIUtils.ShortformStrictness strictness : URIUtils.ShortformStrictness.values()) {
+            for (URI uri : uris) {
+                String expected;
+                try {
+                    expected = URIUtils.getShortform(pm, uri, strictness, URIUtils.PrefixCreationMode.CREATE);
+                }
+                catch (IllegalArgumentException e) {
+                    expected = null;
+                }
+                for (int i = 0; i < 2; i++) {
+                    // second pass uses the memoized shortform
+                    String result;
+                    try {
+                        result = URIUtils.getShortform(uri, strictness, URIUtils.PrefixCreationMode.CREATE);
+                    }
+                    catch (IllegalArgumentException e) {
+                        result = null;
+                    }
+                    assertEquals(expected, result, "Unexpected shortened form of " + uri + " (" + strictness + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentPrefixCreation() {
+        final URIUtils.PrefixCreationMode prefixCreationMode = URIUtils.PrefixCreationMode.CREATE_AND_CACHE;
+        final URIUtils.ShortformStrictness strictness = URIUtils.ShortformStrictness.STRICT;
+        int originalSize = URIUtils.getPrefixMappings().size();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                final URI uri = URI.create(namespace2 + "new" + (i % 20) + "/term" + i);
+                results.add(executor.submit(new Callable<String>() {
+                    @Override public String call() throws Exception {
+                        String shortform = URIUtils.getShortform(uri, strictness, prefixCreationMode);
+                        assertEquals(uri, URIUtils.getURI(shortform), "Unexpected uri");
+                        return shortform;
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                result.get();
+            }
+        }
+        catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            fail("Concurrent prefix creation failed");
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        // each new namespace should have been cached exactly once
+        assertEquals(originalSize + 20, URIUtils.getPrefixMappings().size(), "Unexpected number of prefixes");
+    }
 }
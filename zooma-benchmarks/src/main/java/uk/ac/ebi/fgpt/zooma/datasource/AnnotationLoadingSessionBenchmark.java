@@ -0,0 +1,193 @@
+package uk.ac.ebi.fgpt.zooma.datasource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenanceTemplate;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.Study;
+import uk.ac.ebi.fgpt.zooma.util.AnnotationProvenanceBuilder;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of loading threads that share one {@link AbstractAnnotationLoadingSession}, against a
+ * session whose getOrCreate methods are serialized on the session, as they were before sessions could be shared
+ * without locking.
+ * <p/>
+ * Each operation creates (or reuses) the study, biological entity, property, provenance and annotation for one row of
+ * a datasource.  Rows repeat, so most operations find existing objects in the session caches, as they do when loading
+ * real datasources.
+ * <p/>
+ * Run {@link #main(String[])} (for example, <code>java -cp zooma-benchmarks/target/zooma-benchmarks.jar
+ * uk.ac.ebi.fgpt.zooma.datasource.AnnotationLoadingSessionBenchmark</code>) to measure with 1, 2, 4, 8 and 32 threads.
+ * Build with <code>mvn -P developer,benchmarks package</code>.
+ *
+ * @date 18/10/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnnotationLoadingSessionBenchmark {
+    private static final int[] THREADS = {1, 2, 4, 8, 32};
+
+    private static final int ROWS = 100000;
+    private static final int STUDIES = 100;
+    private static final int PROPERTIES = 1000;
+    private static final int SEMANTIC_TAGS = 500;
+    private static final int ANNOTATORS = 10;
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(AnnotationLoadingSessionBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+    private AbstractAnnotationLoadingSession session;
+    private AbstractAnnotationLoadingSession synchronizedSession;
+    private Collection<URI>[] semanticTags;
+    private Date annotationDate;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        session = new AbstractAnnotationLoadingSession() {
+            {
+                setAnnotationProvenanceTemplate(createTemplate());
+            }
+        };
+        synchronizedSession = new SynchronizedAnnotationLoadingSession();
+
+        semanticTags = new Collection[SEMANTIC_TAGS];
+        for (int i = 0; i < SEMANTIC_TAGS; i++) {
+            semanticTags[i] = Collections.singleton(URI.create("http://www.ebi.ac.uk/efo/EFO_" + i));
+        }
+        annotationDate = new Date();
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.clearCaches();
+        synchronizedSession.clearCaches();
+    }
+
+    @Benchmark
+    public Annotation sharedSession(Cursor cursor) {
+        return loadRow(session, cursor.next());
+    }
+
+    @Benchmark
+    public Annotation synchronizedSession(Cursor cursor) {
+        return loadRow(synchronizedSession, cursor.next());
+    }
+
+    private Annotation loadRow(AbstractAnnotationLoadingSession session, int row) {
+        Study study = session.getOrCreateStudy("study" + row % STUDIES, Collections.<URI>emptySet());
+        BiologicalEntity entity = session.getOrCreateBiologicalEntity("sample" + row,
+                                                                      Collections.<String>emptySet(),
+                                                                      Collections.<URI>emptySet(),
+                                                                      study);
+        Property property = session.getOrCreateProperty("organism part", "value" + row % PROPERTIES);
+        AnnotationProvenance provenance =
+                session.getOrCreateAnnotationProvenance("annotator" + row % ANNOTATORS, annotationDate);
+        return session.getOrCreateAnnotation(Collections.singleton(entity),
+                                             property,
+                                             provenance,
+                                             semanticTags[row % SEMANTIC_TAGS]);
+    }
+
+    private static AnnotationProvenanceTemplate createTemplate() {
+        URI source = URI.create("http://www.ebi.ac.uk/fgpt/zooma/benchmark");
+        return AnnotationProvenanceBuilder
+                .createTemplate(source.toString(), new Date())
+                .sourceIs(new SimpleDatabaseAnnotationSource(source, "benchmark"))
+                .evidenceIs(AnnotationProvenance.Evidence.MANUAL_CURATED);
+    }
+
+    /**
+     * The row each benchmark thread loads next
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup
+        public void setUp() {
+            // start threads at different rows, as concurrent loaders would be loading different rows
+            next = (int) (Thread.currentThread().getId() * 7919 % ROWS);
+        }
+
+        private int next() {
+            next = (next + 1) % ROWS;
+            return next;
+        }
+    }
+
+    /**
+     * A loading session that serializes every getOrCreate call on the session, as sessions used to
+     */
+    private static class SynchronizedAnnotationLoadingSession extends AbstractAnnotationLoadingSession {
+        private SynchronizedAnnotationLoadingSession() {
+            setAnnotationProvenanceTemplate(createTemplate());
+        }
+
+        @Override
+        public synchronized Study getOrCreateStudy(String studyAccession, Collection<URI> studyTypes) {
+            return super.getOrCreateStudy(studyAccession, studyTypes);
+        }
+
+        @Override
+        public synchronized BiologicalEntity getOrCreateBiologicalEntity(String bioentityName,
+                                                                         Collection<String> bioentityTypeName,
+                                                                         Collection<URI> bioentityTypeURI,
+                                                                         Study... studies) {
+            return super.getOrCreateBiologicalEntity(bioentityName, bioentityTypeName, bioentityTypeURI, studies);
+        }
+
+        @Override
+        public synchronized Property getOrCreateProperty(String propertyType, String propertyValue) {
+            return super.getOrCreateProperty(propertyType, propertyValue);
+        }
+
+        @Override
+        public synchronized AnnotationProvenance getOrCreateAnnotationProvenance(String annotator,
+                                                                                 Date annotationDate) {
+            return super.getOrCreateAnnotationProvenance(annotator, annotationDate);
+        }
+
+        @Override
+        public synchronized Annotation getOrCreateAnnotation(Collection<BiologicalEntity> biologicalEntities,
+                                                             Property property,
+                                                             AnnotationProvenance annotationProvenance,
+                                                             Collection<URI> semanticTags) {
+            return super.getOrCreateAnnotation(biologicalEntities, property, annotationProvenance, semanticTags);
+        }
+    }
+}
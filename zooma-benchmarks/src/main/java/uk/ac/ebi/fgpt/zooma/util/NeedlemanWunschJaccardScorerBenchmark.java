@@ -0,0 +1,107 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.simmetrics.StringMetric;
+import org.simmetrics.StringMetricBuilder;
+import org.simmetrics.metrics.JaccardSimilarity;
+import org.simmetrics.metrics.NeedlemanWunch;
+import org.simmetrics.tokenizers.Whitespace;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares scoring a collection of annotation summaries with {@link AnnotationSummaryNeedlemanWunschJaccardScorer}
+ * against scoring them with the simmetrics metrics it used to compute with.
+ * <p/>
+ * Build with <code>mvn -P developer,benchmarks package</code> and run with <code>java -jar
+ * zooma-benchmarks/target/zooma-benchmarks.jar</code>.
+ *
+ * @date 18/10/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeedlemanWunschJaccardScorerBenchmark {
+    private static final String[] WORDS = {
+            "liver", "cancer", "carcinoma", "hepatocellular", "organism", "part", "mus", "musculus", "homo",
+            "sapiens", "cell", "line", "tissue", "blood", "adult", "embryo", "disease", "of", "the", "left"};
+
+    @Param({"10", "100", "1000", "10000"})
+    private int candidates;
+
+    @Param({"hepatocellular carcinoma"})
+    private String searchString;
+
+    private List<AnnotationSummary> summaries;
+    private AnnotationSummaryNeedlemanWunschJaccardScorer scorer;
+    private AnnotationSummaryNeedlemanWunschJaccardScorer sequentialScorer;
+    private StringMetric nw;
+    private StringMetric jaccard;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        summaries = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            StringBuilder value = new StringBuilder();
+            int words = 1 + random.nextInt(4);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    value.append(' ');
+                }
+                value.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            value.append(' ').append(i);
+            summaries.add(new SimpleAnnotationSummary(null, null, "disease", value.toString(), null, null,
+                                                      50 + random.nextInt(50), null));
+        }
+
+        scorer = new AnnotationSummaryNeedlemanWunschJaccardScorer();
+        sequentialScorer = new AnnotationSummaryNeedlemanWunschJaccardScorer();
+        sequentialScorer.setParallelThreshold(Integer.MAX_VALUE);
+        nw = new NeedlemanWunch();
+        jaccard = StringMetricBuilder.with(new JaccardSimilarity<String>()).tokenize(new Whitespace()).build();
+    }
+
+    @Benchmark
+    public Map<AnnotationSummary, Float> simmetrics() {
+        Map<AnnotationSummary, Float> results = new HashMap<>();
+        String s1 = searchString.toLowerCase();
+        for (AnnotationSummary summary : summaries) {
+            String s2 = summary.getAnnotatedPropertyValue().toLowerCase();
+            float similarity = (float) Math.pow((double) (nw.compare(s1, s2) + jaccard.compare(s1, s2)) / 2, 2);
+            results.put(summary, summary.getQuality() * similarity);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public Map<AnnotationSummary, Float> scorer() {
+        return scorer.score(summaries, searchString);
+    }
+
+    @Benchmark
+    public Map<AnnotationSummary, Float> sequentialScorer() {
+        return sequentialScorer.score(summaries, searchString);
+    }
+}
@@ -0,0 +1,146 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares resolving shortforms and URIs against the default prefix mappings, which are indexed by a {@link
+ * NamespaceTrie} and memoized, against the synchronized scan of every prefix mapping that {@link URIUtils} used to
+ * perform (and still performs for caller supplied mappings).
+ * <p/>
+ * With 100,000 terms, more URIs are shortened than can be memoized, so the memo is repeatedly cleared and refilled.
+ * Run with <code>-t</code> (for example, <code>java -jar zooma-benchmarks/target/zooma-benchmarks.jar URIUtils -t
+ * 8</code>) to compare the two under contention.
+ * <p/>
+ * Build with <code>mvn -P developer,benchmarks package</code> and run with <code>java -jar
+ * zooma-benchmarks/target/zooma-benchmarks.jar</code>.
+ *
+ * @date 18/10/26
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class URIUtilsBenchmark {
+    @Param({"50", "500"})
+    private int namespaces;
+
+    @Param({"1000", "100000"})
+    private int terms;
+
+    private File zoomaHome;
+    private Map<String, String> scannedMappings;
+    private URI[] uris;
+    private String[] shortforms;
+
+    @Setup
+    public void setUp() throws IOException {
+        // URIUtils loads its default prefix mappings from $ZOOMA_HOME/config/naming/prefix.properties
+        zoomaHome = Files.createTempDirectory("zooma-benchmark").toFile();
+        File naming = new File(zoomaHome, "config" + File.separator + "naming");
+        if (!naming.mkdirs()) {
+            throw new IOException("Failed to create " + naming.getAbsolutePath());
+        }
+        Properties prefixes = new Properties();
+        for (int i = 0; i < namespaces; i++) {
+            prefixes.setProperty("ns" + i, namespace(i));
+        }
+        try (OutputStream out = new FileOutputStream(new File(naming, "prefix.properties"))) {
+            prefixes.store(out, null);
+        }
+        System.setProperty("zooma.home", zoomaHome.getAbsolutePath());
+        URIUtils.loadPrefixMappings();
+        scannedMappings = new HashMap<>(URIUtils.getPrefixMappings());
+
+        Random random = new Random(42);
+        uris = new URI[terms];
+        shortforms = new String[terms];
+        for (int i = 0; i < terms; i++) {
+            int ns = random.nextInt(namespaces);
+            uris[i] = URI.create(namespace(ns) + "TERM_" + i);
+            shortforms[i] = "ns" + ns + ":TERM_" + i;
+        }
+        if (!shortforms[0].equals(URIUtils.getShortform(uris[0]))) {
+            throw new IllegalStateException("Unexpected shortform for " + uris[0] + ": " +
+                                                    URIUtils.getShortform(uris[0]));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.clearProperty("zooma.home");
+        File prefixFile = new File(zoomaHome, "config" + File.separator + "naming" + File.separator +
+                "prefix.properties");
+        prefixFile.delete();
+        prefixFile.getParentFile().delete();
+        prefixFile.getParentFile().getParentFile().delete();
+        zoomaHome.delete();
+    }
+
+    @Benchmark
+    public String getShortformSynchronizedScan(Cursor cursor) {
+        return URIUtils.getShortform(scannedMappings, uris[cursor.next(terms)]);
+    }
+
+    @Benchmark
+    public String getShortformTrieAndMemo(Cursor cursor) {
+        return URIUtils.getShortform(uris[cursor.next(terms)]);
+    }
+
+    @Benchmark
+    public URI getURISynchronized(Cursor cursor) {
+        return URIUtils.getURI(scannedMappings, shortforms[cursor.next(terms)]);
+    }
+
+    @Benchmark
+    public URI getURI(Cursor cursor) {
+        return URIUtils.getURI(shortforms[cursor.next(terms)]);
+    }
+
+    private static String namespace(int i) {
+        return "http://www.example.org/ontology" + i + "/";
+    }
+
+    /**
+     * The position of each benchmark thread in the terms being resolved
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        @Setup
+        public void setUp() {
+            // start threads at different terms, as concurrent callers would be resolving different terms
+            next = (int) (Thread.currentThread().getId() * 7919);
+        }
+
+        private int next(int terms) {
+            next = (next + 1) % terms;
+            return next;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package uk.ac.ebi.fgpt.zooma.datasource.generated;
+public class AnnotationLoadingSessionBenchmark_Cursor_jmhType extends AnnotationLoadingSessionBenchmark_Cursor_jmhType_B3 {
+}
+
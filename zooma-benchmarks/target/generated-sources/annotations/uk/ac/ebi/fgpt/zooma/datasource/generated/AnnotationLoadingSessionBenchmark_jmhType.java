@@ -0,0 +1,4 @@
+package uk.ac.ebi.fgpt.zooma.datasource.generated;
+public class AnnotationLoadingSessionBenchmark_jmhType extends AnnotationLoadingSessionBenchmark_jmhType_B3 {
+}
+
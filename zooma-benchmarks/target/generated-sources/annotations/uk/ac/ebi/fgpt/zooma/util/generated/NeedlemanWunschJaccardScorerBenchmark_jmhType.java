@@ -0,0 +1,4 @@
+package uk.ac.ebi.fgpt.zooma.util.generated;
+public class NeedlemanWunschJaccardScorerBenchmark_jmhType extends NeedlemanWunschJaccardScorerBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package uk.ac.ebi.fgpt.zooma.util.generated;
+public class URIUtilsBenchmark_jmhType extends URIUtilsBenchmark_jmhType_B3 {
+}
+
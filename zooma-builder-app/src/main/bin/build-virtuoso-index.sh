@@ -221,6 +221,18 @@ loadfiles="ld_dir_all('$rdf_dir', '*.owl', 'http://rdf.ebi.ac.uk/dataset/zooma')
 
 $VIRTUOSO_HOME/bin/isql 127.0.0.1:$port dba dba exec="$loadfiles" >> $build_dir/log/virtuoso-zooma.log 2>&1 || die 4;
 
+loadfiles="ld_dir_all('$rdf_dir', '*.nt', 'http://rdf.ebi.ac.uk/dataset/zooma');"
+
+$VIRTUOSO_HOME/bin/isql 127.0.0.1:$port dba dba exec="$loadfiles" >> $build_dir/log/virtuoso-zooma.log 2>&1 || die 4;
+
+loadfiles="ld_dir_all('$rdf_dir', '*.nt.gz', 'http://rdf.ebi.ac.uk/dataset/zooma');"
+
+$VIRTUOSO_HOME/bin/isql 127.0.0.1:$port dba dba exec="$loadfiles" >> $build_dir/log/virtuoso-zooma.log 2>&1 || die 4;
+
+loadfiles="ld_dir_all('$rdf_dir', '*.ttl', 'http://rdf.ebi.ac.uk/dataset/zooma');"
+
+$VIRTUOSO_HOME/bin/isql 127.0.0.1:$port dba dba exec="$loadfiles" >> $build_dir/log/virtuoso-zooma.log 2>&1 || die 4;
+
 echo "Finished setting files to load, starting loader..."
 
 if [ $threads ] ; then
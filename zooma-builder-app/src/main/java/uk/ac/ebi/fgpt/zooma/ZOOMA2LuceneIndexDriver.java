@@ -4,6 +4,7 @@ import org.springframework.context.support.ClassPathXmlApplicationContext;
 import uk.ac.ebi.fgpt.zooma.env.ZoomaEnv;
 import uk.ac.ebi.fgpt.zooma.env.ZoomaHome;
 import uk.ac.ebi.fgpt.zooma.service.StatusService;
+import uk.ac.ebi.fgpt.zooma.service.ZoomaLuceneIndexer;
 import uk.ac.ebi.fgpt.zooma.util.ProgressLogger;
 
 import java.io.File;
@@ -31,10 +32,17 @@ public class ZOOMA2LuceneIndexDriver extends ZOOMA2BackingUpDriver {
                 final ZOOMA2LuceneIndexDriver driver = new ZOOMA2LuceneIndexDriver();
                 driver.createOutputDirectory();
 
+                final long startTime = System.currentTimeMillis();
                 ProgressLogger progress = new ProgressLogger(System.out, "Building ZOOMA indices...", 15) {
                     @Override public boolean test() {
                         return !driver.isComplete();
                     }
+
+                    @Override public String reportProgress() {
+                        long indexed = driver.getIndexedAnnotationCount();
+                        long seconds = Math.max(1, (System.currentTimeMillis() - startTime) / 1000);
+                        return indexed + " annotations indexed (" + (indexed / seconds) + "/s)";
+                    }
                 };
 
                 progress.start();
@@ -63,6 +71,7 @@ public class ZOOMA2LuceneIndexDriver extends ZOOMA2BackingUpDriver {
     }
 
     private StatusService zoomaStatusService;
+    private ZoomaLuceneIndexer luceneIndexer;
     private File luceneHome;
 
     private boolean started = false;
@@ -94,6 +103,7 @@ public class ZOOMA2LuceneIndexDriver extends ZOOMA2BackingUpDriver {
                 "file:${zooma.home}/config/spring/zooma-lucene.xml",
                 "file:${zooma.home}/config/spring/zooma-service.xml");
         zoomaStatusService = ctx.getBean("statusService", StatusService.class);
+        luceneIndexer = ctx.getBean("luceneIndexer", ZoomaLuceneIndexer.class);
 
         if (zoomaStatusService != null) {
             zoomaStatusService.reinitialize();
@@ -101,6 +111,10 @@ public class ZOOMA2LuceneIndexDriver extends ZOOMA2BackingUpDriver {
         }
     }
 
+    public long getIndexedAnnotationCount() {
+        return luceneIndexer != null ? luceneIndexer.getIndexedAnnotationCount() : 0;
+    }
+
     public boolean isComplete() {
         return zoomaStatusService != null && started && zoomaStatusService.checkStatus() && luceneHome.exists();
     }
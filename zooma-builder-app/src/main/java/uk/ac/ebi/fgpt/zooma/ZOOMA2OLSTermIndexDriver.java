@@ -0,0 +1,103 @@
+package uk.ac.ebi.fgpt.zooma;
+
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import uk.ac.ebi.fgpt.zooma.env.ZoomaEnv;
+import uk.ac.ebi.fgpt.zooma.env.ZoomaHome;
+import uk.ac.ebi.fgpt.zooma.service.OLSTermSnapshotIndexer;
+import uk.ac.ebi.fgpt.zooma.util.ProgressLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+
+/**
+ * A command line client for ZOOMA 2 that generates a local snapshot of ontology terms, which the webapp uses to answer
+ * OLS lookups without calling OLS.  The ontologies to include are configured in
+ * $ZOOMA_HOME/config/spring/zooma-ols-snapshot.xml.
+ * <p/>
+ * The snapshot is optional: if it has not been built, or does not contain an ontology, ZOOMA looks terms up in OLS.
+ *
+ * @date 18/10/26
+ */
+public class ZOOMA2OLSTermIndexDriver extends ZOOMA2BackingUpDriver {
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            System.err.println("This application does not take any arguments; configuration can be updated in " +
+                                       "$ZOOMA_HOME/config/spring/zooma-ols-snapshot.xml");
+        }
+        else {
+            try {
+                final ZOOMA2OLSTermIndexDriver driver = new ZOOMA2OLSTermIndexDriver();
+                driver.createOutputDirectory();
+
+                final long startTime = System.currentTimeMillis();
+                ProgressLogger progress = new ProgressLogger(System.out, "Building OLS term snapshot...", 15) {
+                    @Override public boolean test() {
+                        return !driver.isComplete();
+                    }
+
+                    @Override public String reportProgress() {
+                        long indexed = driver.getIndexedTermCount();
+                        long seconds = Math.max(1, (System.currentTimeMillis() - startTime) / 1000);
+                        return indexed + " terms indexed (" + (indexed / seconds) + "/s)";
+                    }
+                };
+
+                progress.start();
+                driver.generateIndex();
+                progress.ping();
+                System.out.println("OLS term snapshot completed successfully.");
+            }
+            catch (IOException | InterruptedException | IllegalStateException e) {
+                System.err.println("OLS term snapshot did not complete successfully: " + e.getMessage());
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }
+    }
+
+    private OLSTermSnapshotIndexer termIndexer;
+    private File snapshotHome;
+
+    private volatile boolean complete = false;
+
+    public ZOOMA2OLSTermIndexDriver() {
+        ZoomaEnv.configureZOOMAEnvironment();
+        ZoomaHome.checkInstall();
+    }
+
+    public void createOutputDirectory() throws IOException {
+        snapshotHome = FileSystems.getDefault().getPath(System.getProperty("zooma.data.dir"), "index", "ols").toFile();
+        if (snapshotHome.exists()) {
+            System.out.println("OLS term snapshot already exists in " + snapshotHome.getAbsolutePath());
+            makeBackup(snapshotHome, System.out);
+            System.out.println("OLS term snapshot will now be created afresh in " + snapshotHome.getAbsolutePath());
+        }
+        else {
+            System.out.println("OLS term snapshot will be created in a new directory, " +
+                                       snapshotHome.getAbsolutePath());
+        }
+    }
+
+    public void generateIndex() throws InterruptedException {
+        ClassPathXmlApplicationContext ctx = new ClassPathXmlApplicationContext(
+                "file:${zooma.home}/config/spring/zooma-ols-snapshot.xml");
+        try {
+            termIndexer = ctx.getBean("olsTermSnapshotIndexer", OLSTermSnapshotIndexer.class);
+            termIndexer.init();
+            termIndexer.waitUntilReady();
+        }
+        finally {
+            complete = true;
+            ctx.destroy();
+        }
+    }
+
+    public long getIndexedTermCount() {
+        return termIndexer != null ? termIndexer.getIndexedTermCount() : 0;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+}
@@ -0,0 +1,312 @@
+package uk.ac.ebi.fgpt.zooma.search;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The HTTP transport a {@link ZOOMASearchClient} uses to talk to a ZOOMA server.  One transport can be shared by any
+ * number of clients and threads.
+ * <p/>
+ * Requests are made over a pool of at most <code>maxConnections</code> connections owned by this transport, so
+ * requests beyond that wait for a connection to become free.  Every response is read to the end and closed, so
+ * connections are kept alive and reused from the pool rather than being set up for every request.  Responses are
+ * requested gzip compressed if compression is enabled.
+ * <p/>
+ * Asynchronous requests run on a pool of daemon threads owned by this transport, with one thread per connection.
+ *
+ * @date 18/10/26
+ */
+public class ZOOMAHttpTransport implements Closeable {
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+    public static final int DEFAULT_READ_TIMEOUT = 60000;
+
+    private final int maxConnections;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final boolean compression;
+
+    private final PoolingClientConnectionManager connectionManager;
+    private final DefaultHttpClient httpClient;
+    private final ObjectMapper mapper;
+    private final ExecutorService executor;
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    public ZOOMAHttpTransport() {
+        this(DEFAULT_MAX_CONNECTIONS, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, true);
+    }
+
+    /**
+     * Creates a new transport
+     *
+     * @param maxConnections the maximum number of requests in flight at once
+     * @param connectTimeout the connection timeout, in milliseconds
+     * @param readTimeout    the timeout waiting for response data, in milliseconds
+     * @param compression    whether to request gzip compressed responses
+     */
+    public ZOOMAHttpTransport(int maxConnections, int connectTimeout, int readTimeout, boolean compression) {
+        this.maxConnections = maxConnections;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.compression = compression;
+
+        this.connectionManager = new PoolingClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        this.httpClient = new DefaultHttpClient(connectionManager);
+        HttpParams params = httpClient.getParams();
+        HttpConnectionParams.setConnectionTimeout(params, connectTimeout);
+        HttpConnectionParams.setSoTimeout(params, readTimeout);
+
+        // responses are drained and closed by this transport, so the connection can be reused
+        this.mapper = new ObjectMapper().configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+        final AtomicInteger threadCount = new AtomicInteger(1);
+        this.executor = Executors.newFixedThreadPool(maxConnections, new ThreadFactory() {
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "zooma-client-" + threadCount.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Returns the object mapper used to read responses.  The mapper is shared, and must not be reconfigured.
+     *
+     * @return the shared object mapper
+     */
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    /**
+     * Fetches and deserializes the JSON response from the given URL
+     *
+     * @param url  the URL to fetch
+     * @param type the type of the response
+     * @param <T>  the type of the response
+     * @return the deserialized response
+     * @throws IOException if the request failed
+     */
+    public <T> T get(URL url, final TypeReference<?> type) throws IOException {
+        return execute(url, null, new ResponseReader<T>() {
+            @Override public T read(InputStream in) throws IOException {
+                return mapper.readValue(in, type);
+            }
+        });
+    }
+
+    /**
+     * Fetches the JSON response from the given URL as a tree
+     *
+     * @param url the URL to fetch
+     * @return the JSON response
+     * @throws IOException if the request failed
+     */
+    public JsonNode getJson(URL url) throws IOException {
+        return execute(url, null, new ResponseReader<JsonNode>() {
+            @Override public JsonNode read(InputStream in) throws IOException {
+                return mapper.readTree(in);
+            }
+        });
+    }
+
+    /**
+     * Posts the given object as JSON to the given URL, and reads the newline delimited JSON response
+     *
+     * @param url  the URL to post to
+     * @param body the object to serialize as the request body
+     * @return the JSON object on each line of the response, in order
+     * @throws IOException if the request failed
+     */
+    public List<JsonNode> postForLines(URL url, Object body) throws IOException {
+        return execute(url, mapper.writeValueAsBytes(body), new ResponseReader<List<JsonNode>>() {
+            @Override public List<JsonNode> read(InputStream in) throws IOException {
+                List<JsonNode> lines = new ArrayList<>();
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.trim().isEmpty()) {
+                        lines.add(mapper.readTree(line));
+                    }
+                }
+                return lines;
+            }
+        });
+    }
+
+    /**
+     * Runs the given request on this transport's request threads
+     *
+     * @param request the request to run
+     * @param <T>     the type of the result of the request
+     * @return a future that completes with the result of the request
+     */
+    public <T> CompletableFuture<T> submit(final Callable<T> request) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(new Runnable() {
+            @Override public void run() {
+                try {
+                    future.complete(request.call());
+                }
+                catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Stops the request threads of this transport, waiting for requests already submitted to complete, and then closes
+     * the pooled connections.
+     */
+    @Override public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        finally {
+            connectionManager.shutdown();
+        }
+    }
+
+    private <T> T execute(URL url, byte[] body, ResponseReader<T> reader) throws IOException {
+        HttpUriRequest request;
+        try {
+            if (body != null) {
+                HttpPost post = new HttpPost(url.toURI());
+                post.setEntity(new ByteArrayEntity(body, ContentType.APPLICATION_JSON));
+                request = post;
+            }
+            else {
+                request = new HttpGet(url.toURI());
+            }
+        }
+        catch (URISyntaxException e) {
+            throw new IOException("Invalid request URL <" + url + ">", e);
+        }
+        request.setHeader("Accept", "application/json");
+        if (compression) {
+            request.setHeader("Accept-Encoding", "gzip");
+        }
+
+        getLog().trace("Sending request [" + url + "]...");
+        HttpResponse response = httpClient.execute(request);
+        HttpEntity entity = response.getEntity();
+        int status = response.getStatusLine().getStatusCode();
+        if (status >= 400) {
+            // read the error response, so the connection is returned to the pool
+            EntityUtils.consume(entity);
+            throw new HttpStatusException(url, status);
+        }
+        if (entity == null) {
+            throw new IOException("Request to <" + url + "> returned no content");
+        }
+
+        InputStream in = entity.getContent();
+        try {
+            Header encoding = entity.getContentEncoding();
+            if (encoding != null && "gzip".equalsIgnoreCase(encoding.getValue())) {
+                in = new GZIPInputStream(in);
+            }
+            return reader.read(in);
+        }
+        finally {
+            drainAndClose(in);
+        }
+    }
+
+    private void drainAndClose(InputStream in) throws IOException {
+        try {
+            byte[] buffer = new byte[4096];
+            while (in.read(buffer) != -1) {
+                // discard any unread content
+            }
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private interface ResponseReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    /**
+     * Indicates that a ZOOMA server responded to a request with an HTTP error status
+     */
+    public static class HttpStatusException extends IOException {
+        private final int statusCode;
+
+        public HttpStatusException(URL url, int statusCode) {
+            super("Request to <" + url + "> failed with HTTP status " + statusCode);
+            this.statusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
+}
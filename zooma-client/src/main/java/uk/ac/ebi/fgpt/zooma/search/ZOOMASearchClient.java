@@ -2,7 +2,6 @@ package uk.ac.ebi.fgpt.zooma.search;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.ebi.fgpt.zooma.exception.SearchException;
@@ -25,6 +24,7 @@ import uk.ac.ebi.fgpt.zooma.model.Study;
 import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
 import uk.ac.ebi.fgpt.zooma.util.URIUtils;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
@@ -39,15 +39,26 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * A simple search client stub that takes a list of properties and uses them to search a ZOOMA service.
+ * <p/>
+ * Requests are made over a {@link ZOOMAHttpTransport}, which can be shared between clients to pool connections to the
+ * ZOOMA server.  Labels, synonyms and annotation summaries fetched by the client are held in bounded caches, and
+ * collections of properties are annotated with a single request to the server's batch annotation service where it is
+ * available.
+ * <p/>
+ * Clients should be closed when no longer required.  Closing a client created with its own transport closes that
+ * transport, but a transport supplied to a client is left open for the other clients sharing it.
  *
  * @author Tony Burdett
  * @author Adam Faulconbridge
  * @date 03/09/12
  */
-public class ZOOMASearchClient {
+public class ZOOMASearchClient implements Closeable {
     private final String zoomaBase;
 
     private final String zoomaAnnotationsBase;
@@ -66,6 +77,12 @@ public class ZOOMASearchClient {
     private final String zoomaFilterParamEnd;
     private final String zoomaFilterParamSeparator;
 
+    private final ZOOMAHttpTransport transport;
+    private final boolean ownsTransport;
+    private final Map<String, Map<String, Set<String>>> labelCache;
+    private final Map<String, JsonNode> summaryCache;
+    private volatile boolean batchAnnotationSupported = true;
+
     private Map<String, String> prefixMappings;
 
     private Logger log = LoggerFactory.getLogger(getClass());
@@ -74,7 +91,33 @@ public class ZOOMASearchClient {
         return log;
     }
 
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+
     public ZOOMASearchClient(URL zoomaLocation) {
+        this(zoomaLocation, new ZOOMAHttpTransport(), DEFAULT_CACHE_SIZE, true);
+    }
+
+    public ZOOMASearchClient(URL zoomaLocation, ZOOMAHttpTransport transport) {
+        this(zoomaLocation, transport, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a new client for the ZOOMA server at the given location
+     *
+     * @param zoomaLocation the location of the ZOOMA server
+     * @param transport     the transport to send requests over
+     * @param cacheSize     the maximum number of labels and of annotation summaries to cache
+     */
+    public ZOOMASearchClient(URL zoomaLocation, ZOOMAHttpTransport transport, int cacheSize) {
+        this(zoomaLocation, transport, cacheSize, false);
+    }
+
+    private ZOOMASearchClient(URL zoomaLocation, ZOOMAHttpTransport transport, int cacheSize, boolean ownsTransport) {
+        this.transport = transport;
+        this.ownsTransport = ownsTransport;
+        this.labelCache = createCache(cacheSize);
+        this.summaryCache = createCache(cacheSize);
+
         this.zoomaBase = zoomaLocation.toString() + "/v2/api/";
 
         this.zoomaAnnotationsBase = zoomaBase + "annotations/";
@@ -98,11 +141,7 @@ public class ZOOMASearchClient {
 
     public Map<String, String> getPrefixMappings() throws IOException {
         URL prefixMappingsURL = new URL(zoomaServicesBase + "prefixMappings");
-        ObjectMapper mapper = new ObjectMapper();
-        Map<String, String> results = mapper.readValue(
-                prefixMappingsURL,
-                new TypeReference<Map<String, String>>() {
-                });
+        Map<String, String> results = transport.get(prefixMappingsURL, new TypeReference<Map<String, String>>() {});
         getLog().trace(results.toString());
         return results;
     }
@@ -136,37 +175,13 @@ public class ZOOMASearchClient {
                     URLEncoder.encode(((TypedProperty) property).getPropertyType(), "UTF-8")
                     : searchUrl;
             if (!requiredSources.isEmpty() || !preferredSources.isEmpty()) {
-                StringBuilder filters = new StringBuilder();
-                filters.append(zoomaArgumentSeparator).append(zoomaFilterArgument);
-                if (!requiredSources.isEmpty()) {
-                    filters.append(zoomaRequiredParam).append(zoomaFilterParamStart);
-                    Iterator<String> requiredIt = requiredSources.iterator();
-                    while (requiredIt.hasNext()) {
-                        filters.append(requiredIt.next());
-                        if (requiredIt.hasNext()) {
-                            filters.append(zoomaFilterParamSeparator);
-                        }
-                    }
-                    filters.append(zoomaFilterParamEnd);
-                }
-                if (!preferredSources.isEmpty()) {
-                    filters.append(zoomaPreferredParam).append(zoomaFilterParamStart);
-                    Iterator<String> preferredIt = preferredSources.iterator();
-                    while (preferredIt.hasNext()) {
-                        filters.append(preferredIt.next());
-                        if (preferredIt.hasNext()) {
-                            filters.append(zoomaFilterParamSeparator);
-                        }
-                    }
-                    filters.append(zoomaFilterParamEnd);
-                }
-                searchUrl = searchUrl.concat(filters.toString());
+                searchUrl = searchUrl + zoomaArgumentSeparator + zoomaFilterArgument +
+                        buildFilter(requiredSources, preferredSources);
             }
             URL queryURL = new URL(searchUrl);
             getLog().trace("Sending query [" + queryURL + "]...");
 
-            ObjectMapper mapper = new ObjectMapper();
-            return mapper.readValue(queryURL, new TypeReference<List<SimpleAnnotationPrediction>>() {});
+            return transport.get(queryURL, new TypeReference<List<SimpleAnnotationPrediction>>() {});
 
         }
         catch (IOException e) {
@@ -176,6 +191,100 @@ public class ZOOMASearchClient {
         }
     }
 
+    public CompletableFuture<List<AnnotationPrediction>> annotateAsync(Property property) {
+        return annotateAsync(property, Collections.<String>emptyList());
+    }
+
+    public CompletableFuture<List<AnnotationPrediction>> annotateAsync(Property property,
+                                                                      List<String> requiredSources) {
+        return annotateAsync(property, requiredSources, Collections.<String>emptyList());
+    }
+
+    /**
+     * Asynchronous form of {@link #annotate(Property, List, List)}, which runs the request on the threads of this
+     * client's transport.
+     *
+     * @param property         what you're looking for
+     * @param requiredSources  the list of sources which are required in making an annotation prediction
+     * @param preferredSources the list of sources, in order of preference, to predict an annotation from
+     * @return a future that completes with the annotation predictions, ordered by decreasing score
+     */
+    public CompletableFuture<List<AnnotationPrediction>> annotateAsync(final Property property,
+                                                                      final List<String> requiredSources,
+                                                                      final List<String> preferredSources) {
+        return transport.submit(new Callable<List<AnnotationPrediction>>() {
+            @Override public List<AnnotationPrediction> call() throws Exception {
+                return annotate(property, requiredSources, preferredSources);
+            }
+        });
+    }
+
+    public Map<Property, List<AnnotationPrediction>> annotateAll(Collection<? extends Property> properties) {
+        return annotateAll(properties, Collections.<String>emptyList(), Collections.<String>emptyList());
+    }
+
+    /**
+     * Annotates a collection of properties.  If the ZOOMA server supports batch annotation, all properties are sent in
+     * a single request and any that fail in the batch are retried individually.  Otherwise, each property is annotated
+     * with a separate, concurrent request.
+     *
+     * @param properties       the properties to annotate
+     * @param requiredSources  the list of sources which are required in making an annotation prediction
+     * @param preferredSources the list of sources, in order of preference, to predict an annotation from
+     * @return a map of each property to its annotation predictions, in the order the properties were supplied
+     */
+    public Map<Property, List<AnnotationPrediction>> annotateAll(Collection<? extends Property> properties,
+                                                                 List<String> requiredSources,
+                                                                 List<String> preferredSources) {
+        Map<Property, List<AnnotationPrediction>> results = new LinkedHashMap<>();
+        List<Property> unannotated = new ArrayList<>(properties);
+        if (batchAnnotationSupported && !unannotated.isEmpty()) {
+            try {
+                unannotated = annotateBatch(unannotated, requiredSources, preferredSources, results);
+            }
+            catch (ZOOMAHttpTransport.HttpStatusException e) {
+                if (e.getStatusCode() == 404 || e.getStatusCode() == 405) {
+                    getLog().debug("ZOOMA at " + zoomaBase + " does not support batch annotation");
+                    batchAnnotationSupported = false;
+                }
+                else {
+                    getLog().error("Batch annotation failed (" + e.getMessage() + "), annotating individually");
+                }
+            }
+            catch (IOException e) {
+                getLog().error("Batch annotation failed (" + e.getMessage() + "), annotating individually");
+            }
+        }
+
+        Map<Property, CompletableFuture<List<AnnotationPrediction>>> futures = new LinkedHashMap<>();
+        for (Property property : unannotated) {
+            if (!futures.containsKey(property)) {
+                futures.put(property, annotateAsync(property, requiredSources, preferredSources));
+            }
+        }
+        for (Map.Entry<Property, CompletableFuture<List<AnnotationPrediction>>> future : futures.entrySet()) {
+            try {
+                results.put(future.getKey(), future.getValue().get());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted whilst annotating '" + future.getKey() + "'", e);
+            }
+            catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException
+                        ? (RuntimeException) e.getCause()
+                        : new RuntimeException(e.getCause());
+            }
+        }
+
+        // restore the order the properties were supplied in
+        Map<Property, List<AnnotationPrediction>> orderedResults = new LinkedHashMap<>();
+        for (Property property : properties) {
+            orderedResults.put(property, results.get(property));
+        }
+        return orderedResults;
+    }
+
     public Annotation getAnnotation(URI annotationURI) {
         try {
             String shortname = lookupShortname(annotationURI);
@@ -187,14 +296,13 @@ public class ZOOMASearchClient {
             AnnotationProvenance annotationProvenance = null;
             List<URI> semanticTags = new ArrayList<>();
 
-            ObjectMapper mapper = new ObjectMapper();
             JsonNode annotationNode = null;
             int tries = 0;
             boolean success = false;
             IOException lastException = null;
             while (!success & tries < 3) {
                 try {
-                    annotationNode = mapper.readValue(fetchURL, JsonNode.class);
+                    annotationNode = transport.getJson(fetchURL);
                     success = true;
                 }
                 catch (IOException e) {
@@ -287,12 +395,7 @@ public class ZOOMASearchClient {
         }
         if (shortform != null) {
             getLog().trace("Formulating search for label of '" + shortform + "' (derived from <" + uri + ">)");
-            URL labelsURL = new URL(zoomaServicesBase + "labels/" + shortform);
-            ObjectMapper mapper = new ObjectMapper();
-            Map<String, Set<String>> labelMap =
-                    mapper.readValue(labelsURL, new TypeReference<Map<String, Set<String>>>() {
-                    });
-            return labelMap.get("label").iterator().next();
+            return lookupLabels(shortform).get("label").iterator().next();
         }
         else {
             String msg = "URI <" + uri + "> resolved to 'null' shortform";
@@ -304,11 +407,31 @@ public class ZOOMASearchClient {
     public Collection<String> getSynonyms(URI uri) throws IOException {
         String shortform = URIUtils.getShortform(prefixMappings, uri);
         getLog().trace("Formulating search for synonyms of '" + shortform + "' (derived from <" + uri + ">)");
-        URL labelsURL = new URL(zoomaServicesBase + "labels/" + shortform);
-        ObjectMapper mapper = new ObjectMapper();
-        Map<String, Set<String>> labelMap = mapper.readValue(labelsURL, new TypeReference<Map<String, Set<String>>>() {
-        });
-        return labelMap.get("synonyms");
+        return lookupLabels(shortform).get("synonyms");
+    }
+
+    /**
+     * Closes this client, and its transport if the transport was created by this client rather than supplied to it.
+     */
+    @Override public void close() {
+        if (ownsTransport) {
+            transport.close();
+        }
+    }
+
+    private Map<String, Set<String>> lookupLabels(String shortform) throws IOException {
+        Map<String, Set<String>> labelMap;
+        synchronized (labelCache) {
+            labelMap = labelCache.get(shortform);
+        }
+        if (labelMap == null) {
+            URL labelsURL = new URL(zoomaServicesBase + "labels/" + shortform);
+            labelMap = transport.get(labelsURL, new TypeReference<Map<String, Set<String>>>() {});
+            synchronized (labelCache) {
+                labelCache.put(shortform, labelMap);
+            }
+        }
+        return labelMap;
     }
 
     private String lookupShortname(URI uri) {
@@ -353,14 +476,23 @@ public class ZOOMASearchClient {
         this.prefixMappings = Collections.unmodifiableMap(mappings);
     }
 
-    private AnnotationSummary mapAnnotationSummary(JsonNode result, ObjectMapper mapper) throws IOException {
+    private AnnotationSummary mapAnnotationSummary(JsonNode result) throws IOException {
         // acquire the annotation summary for this result
         String mid = result.get("mid").asText();
         float resultScore = Float.parseFloat(result.get("score").asText());
 
         URL summaryURL = new URL(zoomaBase + "summaries/" + mid);
         try {
-            JsonNode summaryNode = mapper.readValue(summaryURL, JsonNode.class);
+            JsonNode summaryNode;
+            synchronized (summaryCache) {
+                summaryNode = summaryCache.get(mid);
+            }
+            if (summaryNode == null) {
+                summaryNode = transport.getJson(summaryURL);
+                synchronized (summaryCache) {
+                    summaryCache.put(mid, summaryNode);
+                }
+            }
 
             URI propertyUri =
                     summaryNode.get("annotatedPropertyUri") != null && !summaryNode.get("annotatedPropertyUri").isNull()
@@ -402,4 +534,86 @@ public class ZOOMASearchClient {
             throw e;
         }
     }
+
+    /**
+     * Annotates properties with a single request to the batch annotation service.
+     *
+     * @return the properties that could not be annotated in the batch
+     */
+    private List<Property> annotateBatch(List<Property> properties,
+                                         List<String> requiredSources,
+                                         List<String> preferredSources,
+                                         Map<Property, List<AnnotationPrediction>> results) throws IOException {
+        List<Map<String, String>> queries = new ArrayList<>();
+        for (Property property : properties) {
+            Map<String, String> query = new LinkedHashMap<>();
+            query.put("propertyValue", property.getPropertyValue());
+            if (property instanceof TypedProperty) {
+                query.put("propertyType", ((TypedProperty) property).getPropertyType());
+            }
+            queries.add(query);
+        }
+
+        String batchUrl = zoomaServicesBase + "annotate/batch";
+        if (!requiredSources.isEmpty() || !preferredSources.isEmpty()) {
+            batchUrl = batchUrl + "?" + zoomaFilterArgument +
+                    URLEncoder.encode(buildFilter(requiredSources, preferredSources), "UTF-8");
+        }
+        List<JsonNode> lines = transport.postForLines(new URL(batchUrl), queries);
+        if (lines.size() != properties.size()) {
+            throw new IOException("Batch annotation returned " + lines.size() + " results " +
+                                          "for " + properties.size() + " queries");
+        }
+
+        List<Property> failed = new ArrayList<>();
+        for (int i = 0; i < properties.size(); i++) {
+            JsonNode line = lines.get(i);
+            if ("OK".equals(line.path("status").asText())) {
+                List<AnnotationPrediction> predictions = transport.getMapper().convertValue(
+                        line.get("annotations"), new TypeReference<List<SimpleAnnotationPrediction>>() {});
+                results.put(properties.get(i), predictions);
+            }
+            else {
+                getLog().debug("Batch annotation of '" + properties.get(i).getPropertyValue() + "' failed " +
+                                       "(" + line.path("message").asText() + "), retrying individually");
+                failed.add(properties.get(i));
+            }
+        }
+        return failed;
+    }
+
+    private String buildFilter(List<String> requiredSources, List<String> preferredSources) {
+        StringBuilder filters = new StringBuilder();
+        if (!requiredSources.isEmpty()) {
+            filters.append(zoomaRequiredParam).append(zoomaFilterParamStart);
+            Iterator<String> requiredIt = requiredSources.iterator();
+            while (requiredIt.hasNext()) {
+                filters.append(requiredIt.next());
+                if (requiredIt.hasNext()) {
+                    filters.append(zoomaFilterParamSeparator);
+                }
+            }
+            filters.append(zoomaFilterParamEnd);
+        }
+        if (!preferredSources.isEmpty()) {
+            filters.append(zoomaPreferredParam).append(zoomaFilterParamStart);
+            Iterator<String> preferredIt = preferredSources.iterator();
+            while (preferredIt.hasNext()) {
+                filters.append(preferredIt.next());
+                if (preferredIt.hasNext()) {
+                    filters.append(zoomaFilterParamSeparator);
+                }
+            }
+            filters.append(zoomaFilterParamEnd);
+        }
+        return filters.toString();
+    }
+
+    private static <K, V> Map<K, V> createCache(final int maxSize) {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
 }
@@ -0,0 +1,164 @@
+package uk.ac.ebi.fgpt.zooma.search;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationPrediction;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Tests the {@link ZOOMASearchClient} against a stub ZOOMA server.
+ *
+ * @date 18/10/26
+ */
+public class TestZOOMASearchClient {
+    private HttpServer server;
+    private ZOOMAHttpTransport transport;
+    private ConcurrentMap<String, AtomicInteger> requestCounts;
+
+    private Property liver;
+    private Property heart;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            requestCounts = new ConcurrentHashMap<>();
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            respond("/v2/api/services/prefixMappings", "{\"efo\":\"http://www.ebi.ac.uk/efo/\"}", false);
+            respond("/v2/api/services/labels/", "{\"label\":[\"liver\"],\"synonyms\":[\"hepar\"]}", true);
+            respond("/v2/api/annotations/", "[]", false);
+            server.start();
+            transport = new ZOOMAHttpTransport(4, 1000, 5000, true);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Couldn't start stub ZOOMA server");
+        }
+
+        liver = new SimpleTypedProperty("organism part", "liver");
+        heart = new SimpleTypedProperty("organism part", "heart");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        transport.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testAnnotateAllUsesBatch() {
+        respond("/v2/api/services/annotate/batch",
+                "{\"status\":\"OK\",\"annotations\":[]}\n{\"status\":\"TIMEOUT\",\"message\":\"timed out\"}\n",
+                false);
+        ZOOMASearchClient client = new ZOOMASearchClient(getLocation(), transport);
+
+        Map<Property, List<AnnotationPrediction>> results = client.annotateAll(Arrays.asList(liver, heart));
+        assertEquals(Arrays.asList(liver, heart), Arrays.asList(results.keySet().toArray()), "Wrong properties");
+        assertEquals(Collections.<AnnotationPrediction>emptyList(), results.get(liver), "Wrong predictions");
+        assertEquals(Collections.<AnnotationPrediction>emptyList(), results.get(heart), "Wrong predictions");
+        assertEquals(1, getRequestCount("/v2/api/services/annotate/batch"), "Batch service should be used once");
+        // the timed out query is retried individually
+        assertEquals(1, getRequestCount("/v2/api/annotations/"), "Only failed queries should be retried");
+    }
+
+    @Test
+    public void testAnnotateAllWithoutBatch() {
+        ZOOMASearchClient client = new ZOOMASearchClient(getLocation(), transport);
+
+        Map<Property, List<AnnotationPrediction>> results = client.annotateAll(Arrays.asList(liver, heart));
+        assertEquals(2, results.size(), "Wrong number of results");
+        results = client.annotateAll(Collections.singletonList(liver));
+        assertEquals(1, results.size(), "Wrong number of results");
+        assertEquals(3, getRequestCount("/v2/api/annotations/"), "Every query should be sent individually");
+    }
+
+    @Test
+    public void testLabelsAreCached() {
+        try {
+            ZOOMASearchClient client = new ZOOMASearchClient(getLocation(), transport);
+            URI uri = URI.create("http://www.ebi.ac.uk/efo/EFO_0000887");
+            assertEquals("liver", client.getLabel(uri), "Wrong label");
+            assertEquals(Collections.singleton("hepar"), client.getSynonyms(uri), "Wrong synonyms");
+            assertEquals("liver", client.getLabel(uri), "Wrong label");
+            assertEquals(1, getRequestCount("/v2/api/services/labels/"), "Labels should be cached");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Couldn't lookup labels");
+        }
+    }
+
+    @Test
+    public void testCloseLeavesSharedTransportOpen() {
+        ZOOMASearchClient client = new ZOOMASearchClient(getLocation(), transport);
+        client.close();
+        client = new ZOOMASearchClient(getLocation(), transport);
+        assertEquals(1, client.annotateAll(Collections.singletonList(liver)).size(), "Shared transport was closed");
+    }
+
+    private URL getLocation() {
+        try {
+            return new URL("http://localhost:" + server.getAddress().getPort());
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private int getRequestCount(String path) {
+        AtomicInteger count = requestCounts.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    private void respond(final String path, final String response, final boolean gzip) {
+        requestCounts.put(path, new AtomicInteger());
+        server.createContext(path, new HttpHandler() {
+            @Override public void handle(HttpExchange exchange) throws IOException {
+                requestCounts.get(path).incrementAndGet();
+                try (InputStream in = exchange.getRequestBody()) {
+                    while (in.read() != -1) {
+                        // consume request
+                    }
+                }
+                byte[] body = response.getBytes(StandardCharsets.UTF_8);
+                if (gzip) {
+                    assertEquals("gzip", exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+                    exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                    exchange.sendResponseHeaders(200, 0);
+                    try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+                        out.write(body);
+                    }
+                }
+                else {
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                }
+            }
+        });
+    }
+}
@@ -13,8 +13,7 @@ import java.net.URL;
  */
 public class ZOOMASearchClientTester {
     public static void main(String[] args) {
-        try {
-            ZOOMASearchClient client = new ZOOMASearchClient(new URL("http://wwwdev.ebi.ac.uk/fgpt/zooma"));
+        try (ZOOMASearchClient client = new ZOOMASearchClient(new URL("http://wwwdev.ebi.ac.uk/fgpt/zooma"))) {
             client.annotate(new SimpleTypedProperty("organism part", "head and thorax"));
         }
         catch (MalformedURLException e) {
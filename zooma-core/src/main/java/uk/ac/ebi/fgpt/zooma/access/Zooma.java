@@ -1,5 +1,6 @@
 package uk.ac.ebi.fgpt.zooma.access;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.CharMatcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -8,6 +9,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -20,7 +22,14 @@ import uk.ac.ebi.fgpt.zooma.util.AnnotationPredictionBuilder;
 import uk.ac.ebi.fgpt.zooma.util.ZoomaUtils;
 
 import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -64,6 +73,10 @@ public class Zooma extends SourceFilteredEndpoint {
 
     private final ExecutorService executorService;
 
+    // max number of searches from a single batch request that may be queued or running at once
+    private final int batchConcurrency;
+    private ObjectMapper objectMapper = new ObjectMapper();
+
     @Autowired
     public Zooma(ZoomaProperties zoomaProperties,
                  ZoomaAnnotations zoomaAnnotations,
@@ -81,6 +94,7 @@ public class Zooma extends SourceFilteredEndpoint {
         int concurrency = Integer.parseInt(configuration.getProperty("zooma.search.concurrent.threads"));
         int queueSize = Integer.parseInt(configuration.getProperty("zooma.search.max.queue"));
         final AtomicInteger atomicInteger = new AtomicInteger(1);
+        this.batchConcurrency = concurrency;
 
         BlockingQueue<Runnable> workQueue;
         if (queueSize == -1) {
@@ -115,10 +129,26 @@ public class Zooma extends SourceFilteredEndpoint {
                         });
     }
 
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * Sets the object mapper used to write JSON results that are streamed directly to the response, so that they are
+     * serialized in the same way as results written by Spring's message converters
+     *
+     * @param objectMapper the object mapper configured for this web application
+     */
+    @Autowired(required = false)
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
     @RequestMapping(value = "/suggest", method = RequestMethod.GET)
     @ResponseBody List<?> suggestEndpoint(@RequestParam String prefix,
                                           @RequestParam(required = false, defaultValue = "") String filter,
-                                          @RequestParam(required = false, defaultValue = "false") boolean properties) {
+                                          @RequestParam(required = false, defaultValue = "false") boolean properties,
+                                          @RequestParam(required = false) String propertyType) {
         if (properties) {
             SearchType searchType = validateFilterArguments(filter);
             URI[] requiredSources;
@@ -140,11 +170,13 @@ public class Zooma extends SourceFilteredEndpoint {
                 case REQUIRED_ONLY:
                 case REQUIRED_AND_PREFERRED:
                     requiredSources = parseRequiredSourcesFromFilter(filter);
-                    return suggestFromSources(prefix, requiredSources);
+                    return propertyType == null
+                            ? suggestFromSources(prefix, requiredSources)
+                            : suggestFromSources(prefix, propertyType, requiredSources);
                 case PREFERRED_ONLY:
                 case UNRESTRICTED:
                 default:
-                    return suggest(prefix);
+                    return propertyType == null ? suggest(prefix) : suggest(prefix, propertyType);
             }
         }
     }
@@ -153,6 +185,10 @@ public class Zooma extends SourceFilteredEndpoint {
         return zoomaProperties.suggest(prefix);
     }
 
+    public List<String> suggest(String prefix, String propertyType) {
+        return zoomaProperties.suggest(prefix, propertyType);
+    }
+
     public List<Property> suggestWithType(String prefix) {
         return zoomaProperties.query(prefix);
     }
@@ -161,6 +197,10 @@ public class Zooma extends SourceFilteredEndpoint {
         return zoomaProperties.suggest(prefix, requiredSources);
     }
 
+    public List<String> suggestFromSources(String prefix, String propertyType, URI... requiredSources) {
+        return zoomaProperties.suggest(prefix, propertyType, requiredSources);
+    }
+
     public List<Property> suggestWithTypeFromSources(String prefix, URI... requiredSources) {
         return zoomaProperties.query(prefix, requiredSources);
     }
@@ -241,45 +281,28 @@ public class Zooma extends SourceFilteredEndpoint {
                                                                 @RequestParam(required = false,
                                                                               defaultValue = "") String filter) {
         propertyValue = removeProblematicCharacters(propertyValue);
+        SourceFilter sourceFilter = parseSourceFilter(filter);
         if (propertyType == null) {
-            SearchType searchType = validateFilterArguments(filter);
-            URI[] requiredSources = new URI[0];
-            URI[] ontologySources = parseOntologySourcesFromFilter(filter);
-            List<URI> preferredSources = Collections.emptyList();
-            switch (searchType) {
-                case REQUIRED_ONLY:
-                    requiredSources = parseRequiredSourcesFromFilter(filter);
-                    break;
-                case REQUIRED_AND_PREFERRED:
-                    requiredSources = parseRequiredSourcesFromFilter(filter);
-                case PREFERRED_ONLY:
-                    preferredSources = parsePreferredSourcesFromFilter(filter);
-                    break;
-                case UNRESTRICTED:
-                default:
-                    return annotate(propertyValue, requiredSources, ontologySources);
+            if (sourceFilter.searchType == SearchType.UNRESTRICTED) {
+                return annotate(propertyValue, sourceFilter.requiredSources, sourceFilter.ontologySources);
             }
-            return annotate(propertyValue, preferredSources, requiredSources, ontologySources);
+            return annotate(propertyValue,
+                            sourceFilter.preferredSources,
+                            sourceFilter.requiredSources,
+                            sourceFilter.ontologySources);
         }
         else {
-            SearchType searchType = validateFilterArguments(filter);
-            URI[] requiredSources = new URI[0];
-            URI[] ontologySources = parseOntologySourcesFromFilter(filter);
-            List<URI> preferredSources = Collections.emptyList();
-            switch (searchType) {
-                case REQUIRED_ONLY:
-                    requiredSources = parseRequiredSourcesFromFilter(filter);
-                    break;
-                case REQUIRED_AND_PREFERRED:
-                    requiredSources = parseRequiredSourcesFromFilter(filter);
-                case PREFERRED_ONLY:
-                    preferredSources = parsePreferredSourcesFromFilter(filter);
-                    break;
-                case UNRESTRICTED:
-                default:
-                    return annotate(propertyValue, propertyType, requiredSources, ontologySources);
+            if (sourceFilter.searchType == SearchType.UNRESTRICTED) {
+                return annotate(propertyValue,
+                                propertyType,
+                                sourceFilter.requiredSources,
+                                sourceFilter.ontologySources);
             }
-            return annotate(propertyValue, propertyType, preferredSources, requiredSources, ontologySources);
+            return annotate(propertyValue,
+                            propertyType,
+                            sourceFilter.preferredSources,
+                            sourceFilter.requiredSources,
+                            sourceFilter.ontologySources);
         }
     }
 
@@ -351,6 +374,168 @@ public class Zooma extends SourceFilteredEndpoint {
         return waitForResults(f, propertyValue);
     }
 
+    /**
+     * Annotates a batch of property values in a single request.  The request body should be a JSON array of objects,
+     * each with a <code>propertyValue</code> and an optional <code>propertyType</code>.  Duplicate queries are only
+     * searched once, and unique queries are searched concurrently on the same request processing threads used by
+     * {@link #annotationEndpoint(String, String, String)}.
+     * <p/>
+     * Results are streamed back as newline delimited JSON, one {@link BatchAnnotationResult} per line in the same order
+     * as the request.  Each query is subject to the usual search timeout, and queries that time out or fail are
+     * reported in their result line rather than failing the whole batch.
+     *
+     * @param queries  the property values (and optionally types) to annotate
+     * @param filter   a filter restricting the sources used, applied to every query in the batch
+     * @param response the response to stream results to
+     * @throws IOException if results could not be written to the response
+     */
+    @RequestMapping(value = "/annotate/batch", method = RequestMethod.POST)
+    public void batchAnnotationEndpoint(@RequestBody List<BatchAnnotationQuery> queries,
+                                        @RequestParam(required = false, defaultValue = "") String filter,
+                                        HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        annotate(queries, filter, response.getOutputStream());
+    }
+
+    public void annotate(List<BatchAnnotationQuery> queries, String filter, OutputStream out) throws IOException {
+        SourceFilter sourceFilter = parseSourceFilter(filter);
+
+        // deduplicate queries, recording the last position in the batch at which each unique query is needed
+        List<BatchAnnotationQuery> uniqueQueries = new ArrayList<>();
+        Map<BatchAnnotationQuery, Integer> uniqueIndices = new HashMap<>();
+        int[] queryIndices = new int[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            BatchAnnotationQuery query = queries.get(i) == null ? new BatchAnnotationQuery() : queries.get(i);
+            BatchAnnotationQuery normalized = new BatchAnnotationQuery(
+                    query.getPropertyValue() == null ? null : removeProblematicCharacters(query.getPropertyValue()),
+                    query.getPropertyType());
+            if (!uniqueIndices.containsKey(normalized)) {
+                uniqueIndices.put(normalized, uniqueQueries.size());
+                uniqueQueries.add(normalized);
+            }
+            queryIndices[i] = uniqueIndices.get(normalized);
+        }
+        int[] lastUse = new int[uniqueQueries.size()];
+        for (int i = 0; i < queryIndices.length; i++) {
+            lastUse[queryIndices[i]] = i;
+        }
+        getLog().debug("Annotating batch of " + queries.size() + " queries " +
+                               "(" + uniqueQueries.size() + " unique)");
+
+        // keep a bounded number of searches in flight, so a large batch cannot flood the request queue
+        List<Future<List<AnnotationPrediction>>> futures = new ArrayList<>(Collections.nCopies(
+                uniqueQueries.size(), (Future<List<AnnotationPrediction>>) null));
+        // each search times out relative to when it was submitted, not to when its result is written
+        long[] deadlines = new long[uniqueQueries.size()];
+        Map<Integer, BatchAnnotationResult> completed = new HashMap<>();
+        int submitted = 0;
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        for (int i = 0; i < queryIndices.length; i++) {
+            int u = queryIndices[i];
+            while (submitted < uniqueQueries.size() && submitted < u + batchConcurrency) {
+                BatchAnnotationQuery query = uniqueQueries.get(submitted);
+                if (query.getPropertyValue() != null) {
+                    futures.set(submitted, submitBatchQuery(query, sourceFilter));
+                    deadlines[submitted] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos((long) searchTimeout);
+                }
+                submitted++;
+            }
+
+            BatchAnnotationResult result = completed.remove(u);
+            if (result == null) {
+                result = getBatchResult(uniqueQueries.get(u), futures.get(u), deadlines[u]);
+                futures.set(u, null);
+            }
+            if (lastUse[u] > i) {
+                completed.put(u, result);
+            }
+
+            writer.write(objectMapper.writeValueAsString(result));
+            writer.write('\n');
+            // flush whenever the next result is not ready, so clients receive results as soon as possible
+            if (i + 1 == queryIndices.length || !isBatchResultReady(queryIndices[i + 1], completed, futures)) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    private boolean isBatchResultReady(int u,
+                                       Map<Integer, BatchAnnotationResult> completed,
+                                       List<Future<List<AnnotationPrediction>>> futures) {
+        return completed.containsKey(u) || (futures.get(u) != null && futures.get(u).isDone());
+    }
+
+    private Future<List<AnnotationPrediction>> submitBatchQuery(final BatchAnnotationQuery query,
+                                                                final SourceFilter sourceFilter) {
+        return executorService.submit(
+                new Callable<List<AnnotationPrediction>>() {
+                    @Override
+                    public List<AnnotationPrediction> call() throws Exception {
+                        String propertyValue = query.getPropertyValue();
+                        String propertyType = query.getPropertyType();
+                        Map<AnnotationSummary, Float> summaries;
+                        if (sourceFilter.searchType == SearchType.UNRESTRICTED) {
+                            summaries = propertyType == null
+                                    ? zoomaAnnotationSummaries.queryAndScore(propertyValue,
+                                                                             sourceFilter.requiredSources,
+                                                                             sourceFilter.ontologySources)
+                                    : zoomaAnnotationSummaries.queryAndScore(propertyValue,
+                                                                             propertyType,
+                                                                             sourceFilter.requiredSources,
+                                                                             sourceFilter.ontologySources);
+                        }
+                        else {
+                            summaries = zoomaAnnotationSummaries.queryAndScore(propertyValue,
+                                                                               propertyType == null ? "" : propertyType,
+                                                                               sourceFilter.preferredSources,
+                                                                               sourceFilter.requiredSources,
+                                                                               sourceFilter.ontologySources);
+                        }
+                        return createPredictions(propertyValue, propertyType, summaries);
+                    }
+                }
+        );
+    }
+
+    private BatchAnnotationResult getBatchResult(BatchAnnotationQuery query,
+                                                 Future<List<AnnotationPrediction>> f,
+                                                 long deadline) {
+        if (f == null) {
+            return new BatchAnnotationResult(query, BatchAnnotationResult.Status.ERROR, "No propertyValue supplied");
+        }
+        try {
+            long timeout = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            return new BatchAnnotationResult(query, waitForResults(f, query.getPropertyValue(), timeout));
+        }
+        catch (SearchTimeoutException e) {
+            getLog().debug("Batch search for '" + query.getPropertyValue() + "' timed out", e);
+            return new BatchAnnotationResult(query, BatchAnnotationResult.Status.TIMEOUT, e.getMessage());
+        }
+        catch (RuntimeException e) {
+            getLog().debug("Batch search for '" + query.getPropertyValue() + "' failed", e);
+            return new BatchAnnotationResult(query, BatchAnnotationResult.Status.ERROR, e.getMessage());
+        }
+    }
+
+    private SourceFilter parseSourceFilter(String filter) {
+        SourceFilter sourceFilter = new SourceFilter(validateFilterArguments(filter),
+                                                     parseOntologySourcesFromFilter(filter));
+        switch (sourceFilter.searchType) {
+            case REQUIRED_ONLY:
+                sourceFilter.requiredSources = parseRequiredSourcesFromFilter(filter);
+                break;
+            case REQUIRED_AND_PREFERRED:
+                sourceFilter.requiredSources = parseRequiredSourcesFromFilter(filter);
+            case PREFERRED_ONLY:
+                sourceFilter.preferredSources = parsePreferredSourcesFromFilter(filter);
+                break;
+        }
+        return sourceFilter;
+    }
+
     /**
      * Some characters can make regex matches problematic. This method removes these problematic
      * characters.
@@ -364,8 +549,14 @@ public class Zooma extends SourceFilteredEndpoint {
     }
 
     private List<AnnotationPrediction> waitForResults(Future<List<AnnotationPrediction>> f, String propertyValue) {
+        return waitForResults(f, propertyValue, (long) searchTimeout);
+    }
+
+    private List<AnnotationPrediction> waitForResults(Future<List<AnnotationPrediction>> f,
+                                                      String propertyValue,
+                                                      long timeout) {
         try {
-            return f.get((long) (searchTimeout), TimeUnit.MILLISECONDS);
+            return f.get(timeout, TimeUnit.MILLISECONDS);
         }
         catch (InterruptedException e) {
             throw new SearchTimeoutException("Failed to complete a search for '" + propertyValue + "' " +
@@ -699,4 +890,122 @@ public class Zooma extends SourceFilteredEndpoint {
             getLog().warn("Zooma shutdown attempted with " + runnables.size() + " search jobs still executing");
         }
     }
+
+    /**
+     * The sources a search is restricted to, parsed from a filter argument
+     */
+    private static class SourceFilter {
+        private final SearchType searchType;
+        private final URI[] ontologySources;
+        private URI[] requiredSources = new URI[0];
+        private List<URI> preferredSources = Collections.emptyList();
+
+        private SourceFilter(SearchType searchType, URI[] ontologySources) {
+            this.searchType = searchType;
+            this.ontologySources = ontologySources;
+        }
+    }
+
+    /**
+     * A single query in a batch annotation request
+     */
+    public static class BatchAnnotationQuery {
+        private String propertyValue;
+        private String propertyType;
+
+        public BatchAnnotationQuery() {
+        }
+
+        public BatchAnnotationQuery(String propertyValue, String propertyType) {
+            this.propertyValue = propertyValue;
+            this.propertyType = propertyType;
+        }
+
+        public String getPropertyValue() {
+            return propertyValue;
+        }
+
+        public void setPropertyValue(String propertyValue) {
+            this.propertyValue = propertyValue;
+        }
+
+        public String getPropertyType() {
+            return propertyType;
+        }
+
+        public void setPropertyType(String propertyType) {
+            this.propertyType = propertyType;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            BatchAnnotationQuery that = (BatchAnnotationQuery) o;
+            return Objects.equals(propertyValue, that.propertyValue) && Objects.equals(propertyType, that.propertyType);
+        }
+
+        @Override public int hashCode() {
+            return Objects.hash(propertyValue, propertyType);
+        }
+    }
+
+    /**
+     * The outcome of a single query in a batch annotation request, streamed back as one line of the response
+     */
+    public static class BatchAnnotationResult {
+        public enum Status {
+            OK,
+            TIMEOUT,
+            ERROR
+        }
+
+        private final String propertyValue;
+        private final String propertyType;
+        private final Status status;
+        private final List<AnnotationPrediction> annotations;
+        private final String message;
+
+        public BatchAnnotationResult(BatchAnnotationQuery query, List<AnnotationPrediction> annotations) {
+            this(query, Status.OK, annotations, null);
+        }
+
+        public BatchAnnotationResult(BatchAnnotationQuery query, Status status, String message) {
+            this(query, status, Collections.<AnnotationPrediction>emptyList(), message);
+        }
+
+        private BatchAnnotationResult(BatchAnnotationQuery query,
+                                      Status status,
+                                      List<AnnotationPrediction> annotations,
+                                      String message) {
+            this.propertyValue = query.getPropertyValue();
+            this.propertyType = query.getPropertyType();
+            this.status = status;
+            this.annotations = annotations;
+            this.message = message;
+        }
+
+        public String getPropertyValue() {
+            return propertyValue;
+        }
+
+        public String getPropertyType() {
+            return propertyType;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public List<AnnotationPrediction> getAnnotations() {
+            return annotations;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
 }
\ No newline at end of file
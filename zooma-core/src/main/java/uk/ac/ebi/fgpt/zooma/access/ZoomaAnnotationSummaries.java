@@ -1,5 +1,13 @@
 package uk.ac.ebi.fgpt.zooma.access;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Controller;
@@ -12,16 +20,26 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
 import uk.ac.ebi.fgpt.zooma.service.AnnotationSummarySearchService;
 import uk.ac.ebi.fgpt.zooma.service.AnnotationSummaryService;
+import uk.ac.ebi.fgpt.zooma.service.ReloadableService;
 import uk.ac.ebi.fgpt.zooma.util.InferredAnnotationSummaryCache;
 import uk.ac.ebi.fgpt.zooma.util.Limiter;
 import uk.ac.ebi.fgpt.zooma.util.Scorer;
 import uk.ac.ebi.fgpt.zooma.util.Sorter;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Search ZOOMA for all the unique combinations of mapping between the given property values (and optional types) and
@@ -35,6 +53,12 @@ import java.util.Map;
  * For more information on the reconcilliation API, see <a href="http://code.google.com/p/google-refine/wiki/ReconciliationServiceApi">
  * http://code.google.com/p/google-refine/wiki/ReconciliationServiceApi </a>. This controller returns matching results
  * using ZOOMA functionality behind the scenes.
+ * <p/>
+ * Scored results of property value queries are cached, keyed on the query, type, sources and prefix flag.  The cache
+ * is bounded by both the number of results and an estimate of the memory they occupy, and results expire after a
+ * fixed time.  If the annotation summary search service is a {@link ReloadableService}, the whole cache is discarded
+ * whenever the generation of the underlying indexes changes.  Caching can be configured or disabled using the
+ * <code>zooma.search.cache.*</code> configuration properties.
  *
  * @author Tony Burdett
  * @date 24/05/12
@@ -52,6 +76,21 @@ public class ZoomaAnnotationSummaries {
 
     private InferredAnnotationSummaryCache inferredAnnotationSummaryCache = new InferredAnnotationSummaryCache();
 
+    private boolean resultCacheEnabled = true;
+    private int resultCacheMaxEntries = 10000;
+    private int resultCacheMaxMemory = 64;
+    private int resultCacheExpiry = 3600;
+
+    private Cache<QueryKey, CachedResult> resultCache;
+    private volatile long resultCacheGeneration;
+    private final AtomicLong resultCacheInvalidations = new AtomicLong();
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
     @Autowired
     public ZoomaAnnotationSummaries(
             AnnotationSummaryService annotationSummaryService,
@@ -64,6 +103,29 @@ public class ZoomaAnnotationSummaries {
         this.annotationSummarySorter = annotationSummarySorter;
         this.annotationSummaryLimiter = annotationSummaryLimiter;
         this.annotationSummaryScorer = annotationSummaryScorer;
+        this.resultCacheGeneration = getAnnotationSummarySearchServiceGeneration();
+        this.resultCache = createResultCache();
+    }
+
+    /**
+     * Configures the result cache from the supplied properties.  Recognised properties are
+     * <code>zooma.search.cache.enabled</code>, <code>zooma.search.cache.max.entries</code>,
+     * <code>zooma.search.cache.max.memory</code> (in megabytes) and <code>zooma.search.cache.expiry</code> (in
+     * seconds); any that are absent retain their defaults.
+     *
+     * @param configuration the ZOOMA configuration properties
+     */
+    @Autowired(required = false)
+    public void setConfigurationProperties(@Qualifier("configurationProperties") Properties configuration) {
+        this.resultCacheEnabled = Boolean.parseBoolean(
+                configuration.getProperty("zooma.search.cache.enabled", Boolean.toString(resultCacheEnabled)));
+        this.resultCacheMaxEntries = Integer.parseInt(
+                configuration.getProperty("zooma.search.cache.max.entries", Integer.toString(resultCacheMaxEntries)));
+        this.resultCacheMaxMemory = Integer.parseInt(
+                configuration.getProperty("zooma.search.cache.max.memory", Integer.toString(resultCacheMaxMemory)));
+        this.resultCacheExpiry = Integer.parseInt(
+                configuration.getProperty("zooma.search.cache.expiry", Integer.toString(resultCacheExpiry)));
+        this.resultCache = createResultCache();
     }
 
     public AnnotationSummaryService getAnnotationSummaryService() {
@@ -130,17 +192,31 @@ public class ZoomaAnnotationSummaries {
     }
 
     public Map<AnnotationSummary, Float> queryAndScore(String query, URI[] sources, URI[] ontologySources, boolean prefixed) {
-        Collection<AnnotationSummary> annotations = prefixed
-                ? getAnnotationSummarySearchService().searchByPrefix(query, sources, ontologySources)
-                : getAnnotationSummarySearchService().search(query, sources, ontologySources);
-        return getAnnotationSummaryScorer().score(annotations, query);
+        return queryAndScore(query, "", sources, ontologySources, prefixed);
     }
 
     public Map<AnnotationSummary, Float> queryAndScore(String query, String type, URI[] sources, URI[] ontologySources) {
         return queryAndScore(query, type, sources, ontologySources, false);
     }
 
-    public Map<AnnotationSummary, Float> queryAndScore(String query, String type, URI[] sources, URI[] ontologySources, boolean prefixed) {
+    public Map<AnnotationSummary, Float> queryAndScore(final String query,
+                                                       final String type,
+                                                       final URI[] sources,
+                                                       final URI[] ontologySources,
+                                                       final boolean prefixed) {
+        QueryKey key = new QueryKey(query, type, null, sources, ontologySources, prefixed);
+        return getCachedResult(key, new Callable<Map<AnnotationSummary, Float>>() {
+            @Override public Map<AnnotationSummary, Float> call() {
+                return doQueryAndScore(query, type, sources, ontologySources, prefixed);
+            }
+        });
+    }
+
+    private Map<AnnotationSummary, Float> doQueryAndScore(String query,
+                                                          String type,
+                                                          URI[] sources,
+                                                          URI[] ontologySources,
+                                                          boolean prefixed) {
         if (type.isEmpty()) {
             Collection<AnnotationSummary> annotations = prefixed
                     ? getAnnotationSummarySearchService().searchByPrefix(query, sources, ontologySources)
@@ -155,10 +231,22 @@ public class ZoomaAnnotationSummaries {
         }
     }
 
-    public Map<AnnotationSummary, Float> queryAndScore(String query,
-                                                       String type,
-                                                       List<URI> preferredSources,
-                                                       URI[] requiredSources, URI[] ontologySources) {
+    public Map<AnnotationSummary, Float> queryAndScore(final String query,
+                                                       final String type,
+                                                       final List<URI> preferredSources,
+                                                       final URI[] requiredSources, final URI[] ontologySources) {
+        QueryKey key = new QueryKey(query, type, preferredSources, requiredSources, ontologySources, false);
+        return getCachedResult(key, new Callable<Map<AnnotationSummary, Float>>() {
+            @Override public Map<AnnotationSummary, Float> call() {
+                return doQueryAndScore(query, type, preferredSources, requiredSources, ontologySources);
+            }
+        });
+    }
+
+    private Map<AnnotationSummary, Float> doQueryAndScore(String query,
+                                                          String type,
+                                                          List<URI> preferredSources,
+                                                          URI[] requiredSources, URI[] ontologySources) {
         if (type.isEmpty()) {
             Collection<AnnotationSummary> annotations =
                     getAnnotationSummarySearchService().searchByPreferredSources(query,
@@ -187,4 +275,224 @@ public class ZoomaAnnotationSummaries {
                 getAnnotationSummarySearchService().searchBySemanticTags(semanticTags);
         return getAnnotationSummaryScorer().score(annotations);
     }
+
+    /**
+     * Returns statistics describing the performance of the query result cache.
+     *
+     * @return a map of statistic names to values
+     */
+    @RequestMapping(value = "/cache", method = RequestMethod.GET)
+    public @ResponseBody Map<String, Object> getCacheStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", resultCache != null);
+        if (resultCache != null) {
+            CacheStats stats = resultCache.stats();
+            statistics.put("size", resultCache.size());
+            statistics.put("hitCount", stats.hitCount());
+            statistics.put("missCount", stats.missCount());
+            statistics.put("hitRate", stats.hitRate());
+            statistics.put("evictionCount", stats.evictionCount());
+            statistics.put("averageLoadPenaltyMillis", stats.averageLoadPenalty() / 1000000);
+        }
+        statistics.put("invalidationCount", resultCacheInvalidations.get());
+        statistics.put("generation", resultCacheGeneration);
+        return statistics;
+    }
+
+    /**
+     * Discards all cached query results
+     */
+    public void clearCache() {
+        if (resultCache != null) {
+            resultCache.invalidateAll();
+        }
+    }
+
+    private Map<AnnotationSummary, Float> getCachedResult(QueryKey key,
+                                                          final Callable<Map<AnnotationSummary, Float>> search) {
+        Cache<QueryKey, CachedResult> cache = resultCache;
+        if (cache == null) {
+            return getUncachedResult(search);
+        }
+
+        // discard everything if the indexes have been rebuilt or reloaded since results were cached
+        final long generation = getAnnotationSummarySearchServiceGeneration();
+        if (generation != resultCacheGeneration) {
+            synchronized (this) {
+                if (generation != resultCacheGeneration) {
+                    getLog().debug("Annotation summary indexes have changed (generation " + resultCacheGeneration +
+                                           " -> " + generation + "), clearing cached query results");
+                    cache.invalidateAll();
+                    resultCacheInvalidations.incrementAndGet();
+                    resultCacheGeneration = generation;
+                }
+            }
+        }
+
+        CachedResult result;
+        try {
+            result = cache.get(key, new Callable<CachedResult>() {
+                @Override public CachedResult call() throws Exception {
+                    return new CachedResult(generation, search.call());
+                }
+            });
+        }
+        catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            else {
+                throw new IllegalStateException("Failed to query annotation summaries", e.getCause());
+            }
+        }
+
+        if (result.getGeneration() != generation) {
+            // cached before a concurrent reload, so is out of date
+            cache.invalidate(key);
+            return getUncachedResult(search);
+        }
+        // callers are free to modify the returned map, so always return a copy
+        return new HashMap<>(result.getResults());
+    }
+
+    private Map<AnnotationSummary, Float> getUncachedResult(Callable<Map<AnnotationSummary, Float>> search) {
+        try {
+            return search.call();
+        }
+        catch (RuntimeException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IllegalStateException("Failed to query annotation summaries", e);
+        }
+    }
+
+    private long getAnnotationSummarySearchServiceGeneration() {
+        if (getAnnotationSummarySearchService() instanceof ReloadableService) {
+            return ((ReloadableService) getAnnotationSummarySearchService()).getGeneration();
+        }
+        else {
+            return 0;
+        }
+    }
+
+    private Cache<QueryKey, CachedResult> createResultCache() {
+        if (!resultCacheEnabled) {
+            getLog().debug("Annotation summary query result cache is disabled");
+            return null;
+        }
+
+        // every entry weighs at least a fair share of the memory limit, so the entry limit is also respected
+        final long maxWeight = resultCacheMaxMemory * 1024L * 1024L;
+        final int minimumWeight = (int) Math.max(1, maxWeight / Math.max(1, resultCacheMaxEntries));
+        return CacheBuilder.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher(new Weigher<QueryKey, CachedResult>() {
+                    @Override public int weigh(QueryKey key, CachedResult value) {
+                        return (int) Math.min(Integer.MAX_VALUE,
+                                              Math.max(minimumWeight, key.estimateSize() + value.estimateSize()));
+                    }
+                })
+                .expireAfterWrite(resultCacheExpiry, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * The parameters of a query, used to look up cached results.  Untyped queries are equivalent to queries with an
+     * empty type.
+     */
+    private static class QueryKey {
+        private final String query;
+        private final String type;
+        private final List<URI> preferredSources;
+        private final List<URI> requiredSources;
+        private final List<URI> ontologySources;
+        private final boolean prefixed;
+
+        private QueryKey(String query,
+                         String type,
+                         List<URI> preferredSources,
+                         URI[] requiredSources,
+                         URI[] ontologySources,
+                         boolean prefixed) {
+            this.query = query;
+            this.type = type == null ? "" : type;
+            this.preferredSources = preferredSources == null ? null : new ArrayList<>(preferredSources);
+            this.requiredSources = requiredSources == null ? null : Arrays.asList(requiredSources.clone());
+            this.ontologySources = ontologySources == null ? null : Arrays.asList(ontologySources.clone());
+            this.prefixed = prefixed;
+        }
+
+        private long estimateSize() {
+            long size = 64 + estimateSize(query) + estimateSize(type);
+            size += estimateSize(preferredSources) + estimateSize(requiredSources) + estimateSize(ontologySources);
+            return size;
+        }
+
+        private static long estimateSize(String s) {
+            return s == null ? 0 : 40 + 2L * s.length();
+        }
+
+        private static long estimateSize(Collection<URI> uris) {
+            return uris == null ? 0 : 32 + 80L * uris.size();
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            QueryKey that = (QueryKey) o;
+            return prefixed == that.prefixed &&
+                    Objects.equals(query, that.query) &&
+                    Objects.equals(type, that.type) &&
+                    Objects.equals(preferredSources, that.preferredSources) &&
+                    Objects.equals(requiredSources, that.requiredSources) &&
+                    Objects.equals(ontologySources, that.ontologySources);
+        }
+
+        @Override public int hashCode() {
+            return Objects.hash(query, type, preferredSources, requiredSources, ontologySources, prefixed);
+        }
+    }
+
+    /**
+     * Scored query results, along with the generation of the indexes they were obtained from
+     */
+    private static class CachedResult {
+        private final long generation;
+        private final Map<AnnotationSummary, Float> results;
+
+        private CachedResult(long generation, Map<AnnotationSummary, Float> results) {
+            this.generation = generation;
+            this.results = new HashMap<>(results);
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public Map<AnnotationSummary, Float> getResults() {
+            return results;
+        }
+
+        private long estimateSize() {
+            long size = 64 + 48L * results.size();
+            for (AnnotationSummary summary : results.keySet()) {
+                size += 96 + QueryKey.estimateSize(summary.getID()) +
+                        QueryKey.estimateSize(summary.getAnnotatedPropertyType()) +
+                        QueryKey.estimateSize(summary.getAnnotatedPropertyValue()) +
+                        QueryKey.estimateSize(summary.getSemanticTags()) +
+                        QueryKey.estimateSize(summary.getAnnotationURIs()) +
+                        QueryKey.estimateSize(summary.getAnnotationSourceURIs());
+            }
+            return size;
+        }
+    }
 }
@@ -162,4 +162,14 @@ public class ZoomaProperties {
         getLog().trace("Querying for '" + prefix + "'");
         return getPropertySearchService().suggest(prefix, requiredSources);
     }
+
+    public List<String> suggest(String prefix, String type) {
+        getLog().trace("Querying for '" + prefix + "', '" + type + "'");
+        return getPropertySearchService().suggest(type, prefix);
+    }
+
+    public List<String> suggest(String prefix, String type, URI[] requiredSources) {
+        getLog().trace("Querying for '" + prefix + "', '" + type + "'");
+        return getPropertySearchService().suggest(type, prefix, requiredSources);
+    }
 }
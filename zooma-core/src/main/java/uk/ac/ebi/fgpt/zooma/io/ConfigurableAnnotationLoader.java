@@ -46,6 +46,8 @@ public class ConfigurableAnnotationLoader implements ZoomaLoader<Annotation> {
     private boolean serializingEnabled;
     private boolean storingEnabled;
 
+    private String fileExtension = "rdf";
+
     private Logger log = LoggerFactory.getLogger(getClass());
 
     protected Logger getLog() {
@@ -86,6 +88,20 @@ public class ConfigurableAnnotationLoader implements ZoomaLoader<Annotation> {
         this.annotationSerializer = annotationSerializer;
     }
 
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Sets the extension of the data files generated by this loader, which should match the format written by the
+     * annotation serializer.  This defaults to "rdf", for RDF/XML.
+     *
+     * @param fileExtension the extension of generated data files, for example "rdf" or "nt.gz"
+     */
+    public void setFileExtension(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
     public ZoomaStorer getAnnotationStorer() {
         return annotationStorer;
     }
@@ -141,11 +157,11 @@ public class ConfigurableAnnotationLoader implements ZoomaLoader<Annotation> {
                 AtomicInteger fileCounter = datasourceFileCounter.get(datasourceName);
                 int fileNumber = fileCounter.incrementAndGet();
 
-                String filename = fileNameBase + "_" + fileNumber + ".rdf";
+                String filename = fileNameBase + "_" + fileNumber + "." + getFileExtension();
                 File f = new File(outputDirectory, filename);
                 while (!f.createNewFile()) {
                     fileNumber = fileCounter.incrementAndGet();
-                    filename = fileNameBase + "_" + fileNumber + ".rdf";
+                    filename = fileNameBase + "_" + fileNumber + "." + getFileExtension();
                     f = new File(outputDirectory, filename);
                 }
                 getAnnotationSerializer().serialize(datasourceName, annotations, f);
@@ -199,7 +215,7 @@ public class ConfigurableAnnotationLoader implements ZoomaLoader<Annotation> {
             // serialize
             if (isSerializingEnabled()) {
                 getLog().debug("Serializing supplementary data for " + datasourceName);
-                String filename = datasourceName + "_supplemental.rdf";
+                String filename = datasourceName + "_supplemental.ttl";
                 File f = new File(outputDirectory, filename);
                 FileOutputStream rdfOutputStream = new FileOutputStream(f);
 
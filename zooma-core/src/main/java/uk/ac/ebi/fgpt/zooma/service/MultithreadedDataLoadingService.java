@@ -32,7 +32,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  * datasource (or collection of data items) level.  Calls to {@link #load()} will create one parallel task per
  * datasource, and each datasource generates a set of tasks that are blocked into chunks of annotations to keep memory
  * overhead down.  By default, blocks of 100,000 data items are loaded per task at any one time, although this can be
- * configured based on available resources and the performance of the underlying datasource.
+ * configured based on available resources and the performance of the underlying datasource.  If the datasource is a
+ * {@link SemanticallyEnrichedDAO}, its supplementary RDF data is loaded once by a separate task that runs alongside the
+ * blocks of data items.
  * <p>
  * Actual loading of data items is delegated to a supplied {@link ZoomaLoader}; this service sets up the infrastructure
  * to do invocations on the loader in parallel.  By default there are a 4 worker threads available for datasource
@@ -272,12 +274,6 @@ public class MultithreadedDataLoadingService<T extends Identifiable> implements
                             );
                             Collection<T> items = datasource.read(blockSize, taskStart);
                             getZoomaLoader().load(datasource.getDatasourceName(), items);
-
-                            // also, if the DAO is semantically enriched, load supplementary data
-                            if (datasource instanceof SemanticallyEnrichedDAO) {
-                                InputStream rdfIn = ((SemanticallyEnrichedDAO) datasource).getSupplementaryRDFStream();
-                                getZoomaLoader().loadSupplementaryData(datasource.getDatasourceName(), rdfIn);
-                            }
                         }
                         catch (UnsupportedOperationException e) {
                             getLog().warn(datasource.getDatasourceName() + " does not support read(size, start).  " +
@@ -320,11 +316,31 @@ public class MultithreadedDataLoadingService<T extends Identifiable> implements
             }
 
             // create a receipt
-            receipt = new SingleWorkloadReceipt(datasource.getDatasourceName(), LoadType.LOAD_DATASOURCE, scheduler);
+            Receipt blockReceipt =
+                    new SingleWorkloadReceipt(datasource.getDatasourceName(), LoadType.LOAD_DATASOURCE, scheduler);
+
+            // if the DAO is semantically enriched, load supplementary data once, alongside the blocks of data items
+            SupplementaryDataReceipt supplementaryReceipt = null;
+            if (datasource instanceof SemanticallyEnrichedDAO) {
+                supplementaryReceipt = new SupplementaryDataReceipt(datasource.getDatasourceName(),
+                                                                    (SemanticallyEnrichedDAO) datasource);
+                CompositingReceipt compositingReceipt = new CompositingReceipt(datasource.getDatasourceName(),
+                                                                               LoadType.LOAD_DATASOURCE,
+                                                                               blockReceipt,
+                                                                               supplementaryReceipt);
+                compositingReceipt.finish();
+                receipt = compositingReceipt;
+            }
+            else {
+                receipt = blockReceipt;
+            }
             receiptService.registerReceipt(receipt);
 
-            // start up the scheduler
+            // start up the schedulers
             scheduler.start();
+            if (supplementaryReceipt != null) {
+                supplementaryReceipt.start();
+            }
         }
         catch (Exception e) {
             // failed to schedule this load task, add a failed receipt
@@ -522,6 +538,10 @@ public class MultithreadedDataLoadingService<T extends Identifiable> implements
             return completionDate;
         }
 
+        protected void setCompletionDate(Date completionDate) {
+            this.completionDate = completionDate;
+        }
+
         @Override public String toString() {
             return "Receipt {\n" +
                     "\tid = '" + id + "',\n" +
@@ -559,6 +579,87 @@ public class MultithreadedDataLoadingService<T extends Identifiable> implements
         }
     }
 
+    /**
+     * A receipt for the single task that loads the supplementary RDF data of a semantically enriched datasource.  The
+     * supplementary data describes the datasource as a whole, so it is read and loaded exactly once per datasource, in
+     * parallel with the blocks of data items, and this receipt records how long it took.
+     */
+    private class SupplementaryDataReceipt extends AbstractReceipt {
+        private final WorkloadScheduler scheduler;
+
+        private volatile long loadTime = -1;
+
+        private SupplementaryDataReceipt(final String datasourceName, final SemanticallyEnrichedDAO datasource) {
+            super(datasourceName, LoadType.LOAD_DATASOURCE);
+
+            // get the security context
+            final SecurityContext ctx = SecurityContextHolder.getContext();
+
+            this.scheduler = new WorkloadScheduler(loadExecutor, 1, datasourceName + " supplementary data") {
+                @Override
+                protected void executeTask(int iteration) throws Exception {
+                    long startTime = System.currentTimeMillis();
+                    try {
+                        // set security context
+                        SecurityContextHolder.setContext(ctx);
+
+                        getLog().debug("Loading supplementary data for " + datasourceName + ", " +
+                                               "executing in " + Thread.currentThread().getName());
+                        InputStream rdfIn = datasource.getSupplementaryRDFStream();
+                        getZoomaLoader().loadSupplementaryData(datasourceName, rdfIn);
+                        completed(startTime);
+                        getLog().info("Loaded supplementary data for " + datasourceName + " in " + loadTime + " ms");
+                    }
+                    catch (UnsupportedOperationException e) {
+                        completed(startTime);
+                        getLog().warn(getZoomaLoader().getClass().getSimpleName() + " does not support " +
+                                              "supplementary data.  No supplementary data for " + datasourceName +
+                                              " will be loaded.");
+                    }
+                    finally {
+                        // clear security context
+                        SecurityContextHolder.clearContext();
+                    }
+                }
+            };
+        }
+
+        private void start() {
+            scheduler.start();
+        }
+
+        private void completed(long startTime) {
+            long endTime = System.currentTimeMillis();
+            loadTime = endTime - startTime;
+            setCompletionDate(new Date(endTime));
+        }
+
+        /**
+         * Returns the time, in milliseconds, taken to read and load the supplementary data, or -1 if the load has not
+         * finished
+         *
+         * @return the time taken to load supplementary data
+         */
+        public long getLoadTime() {
+            return loadTime;
+        }
+
+        @Override public void waitUntilCompletion() throws InterruptedException {
+            scheduler.waitUntilComplete();
+            getLog().debug("Supplementary data for " + getDatasourceName() + " loaded in " + loadTime + " ms, " +
+                                   "completed receipt ID = " + getID());
+        }
+
+        @Override public String toString() {
+            return "Receipt {\n" +
+                    "\tid = '" + getID() + "',\n" +
+                    "\tdatasourceName = '" + getDatasourceName() + " (supplementary data)',\n" +
+                    "\tloadType = " + getLoadType() + "',\n" +
+                    "\tsubmissionDate = " + getSubmissionDate().toString() + ",\n" +
+                    "\tloadTime = " + loadTime + " ms\n}";
+        }
+    }
+
     private class CompositingReceipt extends AbstractReceipt {
         private final boolean rethrowExceptions;
         private final List<Receipt> receipts;
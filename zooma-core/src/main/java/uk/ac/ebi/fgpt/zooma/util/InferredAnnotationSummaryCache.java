@@ -1,15 +1,25 @@
 package uk.ac.ebi.fgpt.zooma.util;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.context.request.RequestContextHolder;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
 import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A cache that can be used to store any 'inferred' {@link uk.ac.ebi.fgpt.zooma.model.AnnotationSummary} objects - that
@@ -17,14 +27,33 @@ import java.util.concurrent.atomic.AtomicInteger;
  * matched by a search.  As these AnnotationSummaries are only inferred to exist, they have no ids, and therefore the
  * {@link uk.ac.ebi.fgpt.zooma.view.SearchResponse} object that ZOOMA returns does not contain any IDs that clients can
  * use to retrieve further data about this summary.  This cache provides a mechanism to temporarily store inferred
- * AnnotationSummaries, keyed by HttpSession, enabling subsequent lookup.  The cache is emptied once
+ * AnnotationSummaries, keyed by HttpSession, enabling subsequent lookup.  The cache is emptied once it has not been used
+ * for 10 minutes.
+ * <p/>
+ * Each session is cached separately, and only locked whilst that session's summaries are read or modified, so
+ * concurrent requests from different sessions do not contend with each other.  Each session holds at most {@link
+ * #getMaxSummariesPerSession()} summaries, discarding the least recently used, and expires once it has not been
+ * accessed for {@link #getTimeToLive()} seconds.  At most {@link #getMaxSessions()} sessions are cached in a size
+ * bounded cache, which discards the least recently accessed session in constant time when a new one is required.
+ * Summaries can be retrieved by their temporary ID from any session using a global index.
  *
  * @author Tony Burdett
  * @date 27/05/14
  */
 public class InferredAnnotationSummaryCache extends TransientCacheable {
     private AtomicInteger counter;
-    private final SessionMap sessionMap;
+
+    private volatile Cache<String, SessionCache> sessionCaches;
+    // global index of temporary summary IDs to the session that cached them
+    private final ConcurrentMap<String, String> summaryIndex;
+
+    private int maxSessions = 1000;
+    private int maxSummariesPerSession = 1000;
+    private int timeToLive = 600;
+
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+    private final AtomicLong evictionCount;
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -35,56 +64,129 @@ public class InferredAnnotationSummaryCache extends TransientCacheable {
     public InferredAnnotationSummaryCache() {
         super(600, 60);
         counter = new AtomicInteger(1);
-        sessionMap = new SessionMap();
+        summaryIndex = new ConcurrentHashMap<>();
+        hitCount = new AtomicLong();
+        missCount = new AtomicLong();
+        evictionCount = new AtomicLong();
+        sessionCaches = createSessionCaches();
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * Sets the maximum number of sessions that summaries will be cached for
+     *
+     * @param maxSessions the maximum number of sessions to cache
+     */
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = maxSessions;
+        clearCaches();
+        this.sessionCaches = createSessionCaches();
+    }
+
+    public int getMaxSummariesPerSession() {
+        return maxSummariesPerSession;
+    }
+
+    /**
+     * Sets the maximum number of summaries that will be cached for any one session
+     *
+     * @param maxSummariesPerSession the maximum number of summaries to cache per session
+     */
+    public void setMaxSummariesPerSession(int maxSummariesPerSession) {
+        this.maxSummariesPerSession = maxSummariesPerSession;
+    }
+
+    public int getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Sets the time, in seconds, after which summaries for a session that has not been accessed will be discarded
+     *
+     * @param timeToLive the time to live of an idle session, in seconds
+     */
+    public void setTimeToLive(int timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    public int getSize() {
+        return summaryIndex.size();
     }
 
     @Override protected boolean createCaches() {
         return true;
     }
 
-    @Override protected synchronized boolean clearCaches() {
+    @Override protected boolean clearCaches() {
         getLog().debug("Clearing temporary AnnotationSummary caches");
-        sessionMap.clear();
+        for (SessionCache sessionCache : new ArrayList<>(sessionCaches.asMap().values())) {
+            evict(sessionCache, false);
+        }
         return true;
     }
 
-    public synchronized Collection<AnnotationSummary> retrieveAnnotationSummaries() {
+    public Collection<AnnotationSummary> retrieveAnnotationSummaries() {
         // notify cache to retain results
         ping();
 
-        String sessionID = RequestContextHolder.currentRequestAttributes().getSessionId();
-        if (sessionMap.containsKey(sessionID)) {
-            return sessionMap.get(sessionID).values();
+        SessionCache sessionCache = getSessionCache(getSessionID());
+        if (sessionCache != null) {
+            return sessionCache.values();
         }
         else {
             return Collections.emptySet();
         }
     }
 
-    public synchronized AnnotationSummary retrieveAnnotationSummary(String annotationSummaryID) {
+    public AnnotationSummary retrieveAnnotationSummary(String annotationSummaryID) {
         // notify cache to retain results
         ping();
 
-        String sessionID = RequestContextHolder.currentRequestAttributes().getSessionId();
+        String sessionID = getSessionID();
         // retrieve from the same session; this insulates user requests and helps performance
-        if (sessionMap.containsKey(sessionID)) {
-            return sessionMap.get(sessionID).get(annotationSummaryID);
+        SessionCache sessionCache = getSessionCache(sessionID);
+        if (sessionCache != null) {
+            AnnotationSummary annotationSummary = sessionCache.get(annotationSummaryID);
+            if (annotationSummary != null) {
+                hitCount.incrementAndGet();
+                return annotationSummary;
+            }
         }
-        else {
-            // no result for the current session; scan all
-            getLog().warn("Attempting to retrieve annotation summary '" + annotationSummaryID + "' " +
-                                  "for session '" + sessionID + "' yielded no results.  Checking all sessions...");
-            for (AnnotationSummaryMap map : sessionMap.values()) {
-                if (map.containsKey(annotationSummaryID)) {
-                    return map.get(annotationSummaryID);
-                }
+
+        // no result for the current session; use the global index
+        String ownerID = summaryIndex.get(annotationSummaryID);
+        if (ownerID != null) {
+            SessionCache owner = getSessionCache(ownerID);
+            AnnotationSummary annotationSummary = owner != null ? owner.get(annotationSummaryID) : null;
+            if (annotationSummary != null) {
+                getLog().debug("Annotation summary '" + annotationSummaryID + "' requested for session " +
+                                       "'" + sessionID + "' was cached by session " +
+                                       "'" + ownerID + "'");
+                hitCount.incrementAndGet();
+                return annotationSummary;
             }
-            getLog().error("Request for annotation summary '" + annotationSummaryID + "' was not found");
-            return null;
         }
+        missCount.incrementAndGet();
+        getLog().error("Request for annotation summary '" + annotationSummaryID + "' was not found");
+        return null;
     }
 
-    public synchronized AnnotationSummary cacheAnnotationSummary(AnnotationSummary annotationSummary) {
+    public AnnotationSummary cacheAnnotationSummary(AnnotationSummary annotationSummary) {
         if (annotationSummary.getID() != null) {
             throw new IllegalArgumentException(
                     "Only inferred annotation summaries (i.e. those with no ID) can be cached");
@@ -104,20 +206,147 @@ public class InferredAnnotationSummaryCache extends TransientCacheable {
                                                                   annotationSummary.getQuality(),
                                                                   annotationSummary.getAnnotationSourceURIs());
 
-        String sessionID = RequestContextHolder.currentRequestAttributes().getSessionId();
-        synchronized (sessionMap) {
-            if (!sessionMap.containsKey(sessionID)) {
-                sessionMap.put(sessionID, new AnnotationSummaryMap());
-            }
-            getLog().debug("Caching temporary annotation summary '" + id + "' for session '" + sessionID + "'");
-            sessionMap.get(sessionID).put(id, cacheable);
+        String sessionID = getSessionID();
+        getLog().debug("Caching temporary annotation summary '" + id + "' for session '" + sessionID + "'");
+        while (!obtainSessionCache(sessionID).put(id, cacheable)) {
+            // session was evicted concurrently, so retry with a new one
+            getLog().debug("Session '" + sessionID + "' was evicted whilst caching '" + id + "', retrying");
         }
         return cacheable;
     }
 
-    private class SessionMap extends HashMap<String, AnnotationSummaryMap> {
+    /**
+     * Returns the ID of the session making the current request.
+     *
+     * @return the current session ID
+     */
+    protected String getSessionID() {
+        return RequestContextHolder.currentRequestAttributes().getSessionId();
+    }
+
+    private SessionCache getSessionCache(String sessionID) {
+        SessionCache sessionCache = sessionCaches.getIfPresent(sessionID);
+        if (sessionCache != null && sessionCache.isExpired()) {
+            evict(sessionCache, true);
+            return null;
+        }
+        return sessionCache;
     }
 
-    private class AnnotationSummaryMap extends HashMap<String, AnnotationSummary> {
+    private SessionCache obtainSessionCache(String sessionID) {
+        SessionCache sessionCache = getSessionCache(sessionID);
+        if (sessionCache == null) {
+            SessionCache newSessionCache = new SessionCache(sessionID);
+            sessionCache = sessionCaches.asMap().putIfAbsent(sessionID, newSessionCache);
+            if (sessionCache == null) {
+                sessionCache = newSessionCache;
+            }
+        }
+        return sessionCache;
+    }
+
+    /**
+     * Creates the cache of sessions, which discards the least recently accessed session once there are more than the
+     * maximum number of sessions.  A single segment is used so that eviction is in strict access order; reads do not
+     * lock, and only the creation of a new session takes the segment lock.  Expired sessions are discarded when they
+     * are next accessed, or when they become least recently used.
+     *
+     * @return a new, empty cache of sessions
+     */
+    private Cache<String, SessionCache> createSessionCaches() {
+        return CacheBuilder.newBuilder()
+                .concurrencyLevel(1)
+                .maximumSize(maxSessions)
+                .removalListener(new RemovalListener<String, SessionCache>() {
+                    @Override public void onRemoval(RemovalNotification<String, SessionCache> notification) {
+                        if (notification.wasEvicted()) {
+                            discard(notification.getValue(), true);
+                        }
+                    }
+                })
+                .build();
+    }
+
+    private void evict(SessionCache sessionCache, boolean countEvictions) {
+        if (sessionCaches.asMap().remove(sessionCache.getSessionID(), sessionCache)) {
+            discard(sessionCache, countEvictions);
+        }
+    }
+
+    private void discard(SessionCache sessionCache, boolean countEvictions) {
+        int evicted = sessionCache.close();
+        if (countEvictions) {
+            evictionCount.addAndGet(evicted);
+        }
+        getLog().debug("Discarded " + evicted + " temporary annotation summaries " +
+                               "for session '" + sessionCache.getSessionID() + "'");
+    }
+
+    /**
+     * The summaries cached for a single session, in least recently used order.  All access is synchronized on this
+     * object.
+     */
+    private class SessionCache {
+        private final String sessionID;
+        private final LinkedHashMap<String, AnnotationSummary> summaries;
+        private volatile long lastAccessed;
+        private boolean closed;
+
+        private SessionCache(String sessionID) {
+            this.sessionID = sessionID;
+            this.summaries = new LinkedHashMap<>(16, 0.75f, true);
+            this.lastAccessed = System.currentTimeMillis();
+            this.closed = false;
+        }
+
+        public String getSessionID() {
+            return sessionID;
+        }
+
+        public long getLastAccessed() {
+            return lastAccessed;
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() - lastAccessed > timeToLive * 1000L;
+        }
+
+        public synchronized AnnotationSummary get(String annotationSummaryID) {
+            lastAccessed = System.currentTimeMillis();
+            return summaries.get(annotationSummaryID);
+        }
+
+        public synchronized Collection<AnnotationSummary> values() {
+            lastAccessed = System.currentTimeMillis();
+            return new ArrayList<>(summaries.values());
+        }
+
+        public synchronized boolean put(String annotationSummaryID, AnnotationSummary annotationSummary) {
+            if (closed) {
+                return false;
+            }
+            lastAccessed = System.currentTimeMillis();
+            summaries.put(annotationSummaryID, annotationSummary);
+            summaryIndex.put(annotationSummaryID, sessionID);
+
+            // discard least recently used summaries from this session
+            Iterator<Map.Entry<String, AnnotationSummary>> it = summaries.entrySet().iterator();
+            while (summaries.size() > maxSummariesPerSession && it.hasNext()) {
+                summaryIndex.remove(it.next().getKey());
+                it.remove();
+                evictionCount.incrementAndGet();
+            }
+            return true;
+        }
+
+        public synchronized int close() {
+            closed = true;
+            int size = summaries.size();
+            for (String annotationSummaryID : summaries.keySet()) {
+                summaryIndex.remove(annotationSummaryID);
+            }
+            summaries.clear();
+            return size;
+        }
     }
 }
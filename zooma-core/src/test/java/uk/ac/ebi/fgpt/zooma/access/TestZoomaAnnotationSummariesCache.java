@@ -0,0 +1,96 @@
+package uk.ac.ebi.fgpt.zooma.access;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.service.AnnotationSummarySearchService;
+import uk.ac.ebi.fgpt.zooma.service.ReloadableService;
+import uk.ac.ebi.fgpt.zooma.util.Scorer;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class TestZoomaAnnotationSummariesCache {
+    private AnnotationSummarySearchService searchService;
+    private Scorer<AnnotationSummary> scorer;
+    private ZoomaAnnotationSummaries zoomaAnnotationSummaries;
+
+    private URI[] sources = new URI[0];
+    private URI[] ontologySources = new URI[0];
+
+    @SuppressWarnings("unchecked") @BeforeEach
+    public void setUp() {
+        searchService = mock(AnnotationSummarySearchService.class,
+                             withSettings().extraInterfaces(ReloadableService.class));
+        when(((ReloadableService) searchService).getGeneration()).thenReturn(1L);
+
+        AnnotationSummary summary = mock(AnnotationSummary.class);
+        Collection<AnnotationSummary> summaries = Collections.singleton(summary);
+        when(searchService.search(anyString(), any(URI[].class), any(URI[].class))).thenReturn(summaries);
+
+        Map<AnnotationSummary, Float> scores = new HashMap<>();
+        scores.put(summary, 90f);
+        scorer = mock(Scorer.class);
+        when(scorer.score(anyCollection(), anyString())).thenReturn(scores);
+
+        zoomaAnnotationSummaries = new ZoomaAnnotationSummaries(null, searchService, null, null, scorer);
+    }
+
+    @Test
+    public void testRepeatQueriesAreCached() {
+        Map<AnnotationSummary, Float> first = zoomaAnnotationSummaries.queryAndScore("liver", sources, ontologySources);
+        // callers may modify results, which must not affect the cache
+        first.clear();
+        Map<AnnotationSummary, Float> second =
+                zoomaAnnotationSummaries.queryAndScore("liver", "", sources, ontologySources);
+
+        assertEquals(1, second.size(), "Wrong number of results");
+        verify(searchService, times(1)).search(eq("liver"), any(URI[].class), any(URI[].class));
+
+        zoomaAnnotationSummaries.queryAndScore("heart", sources, ontologySources);
+        verify(searchService, times(1)).search(eq("heart"), any(URI[].class), any(URI[].class));
+
+        Map<String, Object> statistics = zoomaAnnotationSummaries.getCacheStatistics();
+        assertEquals(1L, statistics.get("hitCount"), "Wrong number of cache hits");
+        assertEquals(2L, statistics.get("missCount"), "Wrong number of cache misses");
+    }
+
+    @Test
+    public void testReloadInvalidatesCache() {
+        zoomaAnnotationSummaries.queryAndScore("liver", sources, ontologySources);
+        when(((ReloadableService) searchService).getGeneration()).thenReturn(2L);
+        zoomaAnnotationSummaries.queryAndScore("liver", sources, ontologySources);
+        zoomaAnnotationSummaries.queryAndScore("liver", sources, ontologySources);
+
+        verify(searchService, times(2)).search(eq("liver"), any(URI[].class), any(URI[].class));
+        assertEquals(1L, zoomaAnnotationSummaries.getCacheStatistics().get("invalidationCount"));
+    }
+
+    @Test
+    public void testCacheCanBeDisabled() {
+        Properties configuration = new Properties();
+        configuration.setProperty("zooma.search.cache.enabled", "false");
+        zoomaAnnotationSummaries.setConfigurationProperties(configuration);
+
+        zoomaAnnotationSummaries.queryAndScore("liver", sources, ontologySources);
+        zoomaAnnotationSummaries.queryAndScore("liver", sources, ontologySources);
+
+        verify(searchService, times(2)).search(eq("liver"), any(URI[].class), any(URI[].class));
+        assertEquals(false, zoomaAnnotationSummaries.getCacheStatistics().get("enabled"));
+    }
+}
@@ -0,0 +1,131 @@
+package uk.ac.ebi.fgpt.zooma.access;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TestZoomaBatchAnnotation {
+    private ZoomaAnnotationSummaries zoomaAnnotationSummaries;
+    private Zooma zooma;
+
+    @BeforeEach
+    public void setUp() {
+        zoomaAnnotationSummaries = mock(ZoomaAnnotationSummaries.class);
+        when(zoomaAnnotationSummaries.queryAndScore(any(String.class), any(URI[].class), any(URI[].class)))
+                .thenReturn(Collections.<AnnotationSummary, Float>emptyMap());
+        when(zoomaAnnotationSummaries.queryAndScore(startsWith("slow"), any(URI[].class), any(URI[].class)))
+                .thenAnswer(new Answer<Map<AnnotationSummary, Float>>() {
+                    @Override public Map<AnnotationSummary, Float> answer(InvocationOnMock invocation)
+                            throws Throwable {
+                        Thread.sleep(5000);
+                        return Collections.emptyMap();
+                    }
+                });
+        when(zoomaAnnotationSummaries.queryAndScore(eq("broken"), any(URI[].class), any(URI[].class)))
+                .thenThrow(new IllegalArgumentException("broken query"));
+
+        Properties configuration = new Properties();
+        configuration.setProperty("zooma.search.significance.score", "10.0");
+        configuration.setProperty("zooma.search.cutoff.score", "0.9");
+        configuration.setProperty("zooma.search.timeout", "0.5");
+        configuration.setProperty("zooma.search.ols.cutoff.score", "0.8");
+        configuration.setProperty("ols.term.location", "http://www.ebi.ac.uk/ols/api/terms?iri=");
+        configuration.setProperty("zooma.search.concurrent.threads", "2");
+        configuration.setProperty("zooma.search.max.queue", "2");
+        zooma = new Zooma(null, null, zoomaAnnotationSummaries, configuration);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        try {
+            zooma.destroy();
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    public void testBatchAnnotation() {
+        List<Zooma.BatchAnnotationQuery> queries = new ArrayList<>();
+        for (String value : Arrays.asList("alpha", "beta", "slow", "alpha", null, "broken", "gam(ma)", "alpha")) {
+            queries.add(new Zooma.BatchAnnotationQuery(value, null));
+        }
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            zooma.annotate(queries, "", out);
+
+            String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+            assertEquals(queries.size(), lines.length, "Wrong number of results");
+
+            ObjectMapper mapper = new ObjectMapper();
+            List<String> values = new ArrayList<>();
+            List<String> statuses = new ArrayList<>();
+            for (String line : lines) {
+                Map<?, ?> result = mapper.readValue(line, Map.class);
+                values.add((String) result.get("propertyValue"));
+                statuses.add((String) result.get("status"));
+            }
+            assertEquals(Arrays.asList("alpha", "beta", "slow", "alpha", null, "broken", "gamma", "alpha"),
+                         values,
+                         "Results should be returned in request order");
+            assertEquals(Arrays.asList("OK", "OK", "TIMEOUT", "OK", "ERROR", "ERROR", "OK", "OK"),
+                         statuses,
+                         "Wrong result status");
+
+            // duplicate queries should only be searched once
+            verify(zoomaAnnotationSummaries, times(1)).queryAndScore(eq("alpha"), any(URI[].class), any(URI[].class));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testBatchTimeoutsStartAtSubmission() {
+        List<Zooma.BatchAnnotationQuery> queries = new ArrayList<>();
+        for (String value : Arrays.asList("slow1", "slow2", "slow3", "slow4")) {
+            queries.add(new Zooma.BatchAnnotationQuery(value, null));
+        }
+
+        try {
+            // two searches run at once, so each pair of slow searches should time out together
+            long start = System.currentTimeMillis();
+            zooma.annotate(queries, "", new ByteArrayOutputStream());
+            long elapsed = System.currentTimeMillis() - start;
+            assertTrue(elapsed < 1600, "Searches submitted together should time out together (took " + elapsed + "ms)");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+}
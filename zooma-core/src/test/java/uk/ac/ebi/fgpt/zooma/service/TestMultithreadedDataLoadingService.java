@@ -0,0 +1,79 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
+import uk.ac.ebi.fgpt.zooma.datasource.SemanticallyEnrichedDAO;
+import uk.ac.ebi.fgpt.zooma.exception.ZoomaLoadingException;
+import uk.ac.ebi.fgpt.zooma.io.ZoomaLoader;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Checks that {@link MultithreadedDataLoadingService} loads supplementary data once per datasource, however many
+ * blocks the datasource is loaded in.
+ *
+ * @date 18/10/26
+ */
+public class TestMultithreadedDataLoadingService {
+    private MultithreadedDataLoadingService<Annotation> loadingService;
+    private ZoomaLoader<Annotation> zoomaLoader;
+    private AnnotationDAO annotationDAO;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        zoomaLoader = mock(ZoomaLoader.class);
+        annotationDAO = mock(AnnotationDAO.class, withSettings().extraInterfaces(SemanticallyEnrichedDAO.class));
+        when(annotationDAO.getDatasourceName()).thenReturn("test");
+        when(annotationDAO.count()).thenReturn(250);
+        when(annotationDAO.read(anyInt(), anyInt())).thenReturn(Collections.<Annotation>emptyList());
+        when(((SemanticallyEnrichedDAO) annotationDAO).getSupplementaryRDFStream())
+                .thenReturn(new ByteArrayInputStream(new byte[0]));
+
+        loadingService = new MultithreadedDataLoadingService<>(1, 4);
+        loadingService.setZoomaLoader(zoomaLoader);
+        loadingService.setBlockSize(100);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        loadingService.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSupplementaryDataLoadedOnce() {
+        try {
+            DataLoadingService.Receipt receipt = loadingService.load(annotationDAO);
+            assertNotNull(receipt, "No receipt was issued");
+            receipt.waitUntilCompletion();
+
+            verify(annotationDAO, times(3)).read(anyInt(), anyInt());
+            verify(zoomaLoader, times(3)).load(eq("test"), (Collection<Annotation>) anyCollection());
+            verify((SemanticallyEnrichedDAO) annotationDAO, times(1)).getSupplementaryRDFStream();
+            verify(zoomaLoader, times(1)).loadSupplementaryData(eq("test"), any(InputStream.class));
+        }
+        catch (InterruptedException | ZoomaLoadingException e) {
+            e.printStackTrace();
+            fail("Loading was interrupted");
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+
+import java.net.URI;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class TestInferredAnnotationSummaryCache {
+    private String sessionID;
+    private InferredAnnotationSummaryCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        sessionID = "session1";
+        cache = new InferredAnnotationSummaryCache() {
+            @Override protected String getSessionID() {
+                return sessionID;
+            }
+        };
+    }
+
+    private AnnotationSummary createSummary(String propertyValue) {
+        return new SimpleAnnotationSummary(null,
+                                           null,
+                                           "organism part",
+                                           propertyValue,
+                                           Collections.singleton(URI.create("http://www.ebi.ac.uk/efo/EFO_0000001")),
+                                           Collections.<URI>emptySet(),
+                                           80f,
+                                           Collections.<URI>emptySet());
+    }
+
+    @Test
+    public void testCacheAndRetrieve() {
+        AnnotationSummary cached = cache.cacheAnnotationSummary(createSummary("liver"));
+        assertNotNull(cached.getID(), "Cached summary should have a temporary ID");
+        assertSame(cached, cache.retrieveAnnotationSummary(cached.getID()));
+        assertEquals(1, cache.retrieveAnnotationSummaries().size());
+
+        // summaries can be found from other sessions using the global index
+        sessionID = "session2";
+        assertSame(cached, cache.retrieveAnnotationSummary(cached.getID()));
+        assertEquals(0, cache.retrieveAnnotationSummaries().size());
+
+        assertNull(cache.retrieveAnnotationSummary("temp:unknown"));
+        assertEquals(2, cache.getHitCount(), "Wrong number of hits");
+        assertEquals(1, cache.getMissCount(), "Wrong number of misses");
+    }
+
+    @Test
+    public void testCacheWithID() {
+        try {
+            cache.cacheAnnotationSummary(new SimpleAnnotationSummary("id", null, null, "liver", null, null, 0f, null));
+            fail("Summaries with IDs should not be cached");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSessionSizeBound() {
+        cache.setMaxSummariesPerSession(2);
+        AnnotationSummary first = cache.cacheAnnotationSummary(createSummary("liver"));
+        AnnotationSummary second = cache.cacheAnnotationSummary(createSummary("heart"));
+
+        // touch the first summary, so the second is least recently used
+        cache.retrieveAnnotationSummary(first.getID());
+        cache.cacheAnnotationSummary(createSummary("lung"));
+
+        assertEquals(2, cache.getSize(), "Wrong cache size");
+        assertEquals(1, cache.getEvictionCount(), "Wrong number of evictions");
+        assertNotNull(cache.retrieveAnnotationSummary(first.getID()));
+        assertNull(cache.retrieveAnnotationSummary(second.getID()));
+    }
+
+    @Test
+    public void testSessionCountBound() {
+        cache.setMaxSessions(2);
+        AnnotationSummary first = cache.cacheAnnotationSummary(createSummary("liver"));
+        sessionID = "session2";
+        cache.cacheAnnotationSummary(createSummary("heart"));
+        sessionID = "session3";
+        cache.cacheAnnotationSummary(createSummary("lung"));
+
+        assertEquals(2, cache.getSize(), "Wrong cache size");
+        assertNull(cache.retrieveAnnotationSummary(first.getID()), "Least recently used session should be evicted");
+    }
+
+    @Test
+    public void testTimeToLive() {
+        cache.setTimeToLive(0);
+        AnnotationSummary cached = cache.cacheAnnotationSummary(createSummary("liver"));
+        try {
+            Thread.sleep(10);
+        }
+        catch (InterruptedException e) {
+            fail();
+        }
+        assertNull(cache.retrieveAnnotationSummary(cached.getID()), "Expired summary should not be returned");
+        assertEquals(0, cache.getSize(), "Expired session should be discarded");
+        assertEquals(1, cache.getEvictionCount(), "Wrong number of evictions");
+    }
+}
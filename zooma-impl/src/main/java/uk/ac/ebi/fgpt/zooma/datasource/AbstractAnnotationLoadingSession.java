@@ -23,14 +23,14 @@ import java.net.URI;
 import java.net.URLEncoder;
 import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * An annotation loading session that caches objects that have been previously seen so as to avoid creating duplicates
@@ -39,24 +39,32 @@ import java.util.Set;
  * It is assumed that within a single session, objects with the same sets of parameters used in their creation are
  * identical.  Care should therefore be taken to reuse the same method of construction for each object, and to ensure
  * that enough information is supplied to prevent duplicates being inadvertently created.
+ * <p/>
+ * Sessions are safe to share between loading threads without serializing them: caches are concurrent maps, so each
+ * object is created at most once per URI, and each thread hashes IDs with its own message digest.
+ * <p/>
+ * Caches are deliberately unbounded.  Bounded (evicting) and weakly referenced caches were considered and rejected:
+ * objects are interned and annotations are merged by URI, so a cache that forgets an object part way through a load
+ * would create a duplicate of it.  Memory is instead reclaimed by clearing the caches once the session is idle (see
+ * {@link TransientCacheable}).
  *
  * @author Tony Burdett
  * @author Simon Jupp
  * @date 28/09/12
  */
 public abstract class AbstractAnnotationLoadingSession extends TransientCacheable implements AnnotationLoadingSession {
-    private final Map<URI, Study> studyCache;
-    private final Map<URI, BiologicalEntity> biologicalEntityCache;
-    private final Map<URI, Property> propertyCache;
-    private final Map<URI, SimpleAnnotation> annotationCache;
-    private AnnotationProvenance annotationProvenanceCache;
+    private final ConcurrentMap<URI, Study> studyCache;
+    private final ConcurrentMap<URI, BiologicalEntity> biologicalEntityCache;
+    private final ConcurrentMap<URI, Property> propertyCache;
+    private final ConcurrentMap<URI, SimpleAnnotation> annotationCache;
+    private final ConcurrentMap<List<Object>, AnnotationProvenance> annotationProvenanceCache;
 
     private final URI defaultTargetTypeUri;
     private final URI defaultTargetSourceTypeUri;
 
-    private final MessageDigest messageDigest;
+    private final ThreadLocal<MessageDigest> messageDigest;
 
-    private AnnotationProvenanceTemplate annotationProvenanceTemplate;
+    private volatile AnnotationProvenanceTemplate annotationProvenanceTemplate;
 
     private Logger log = LoggerFactory.getLogger(getClass());
 
@@ -73,16 +81,23 @@ public abstract class AbstractAnnotationLoadingSession extends TransientCacheabl
         this.defaultTargetTypeUri = defaultTargetTypeUri;
         this.defaultTargetSourceTypeUri = defaultTargetSourceTypeUri;
 
-        this.studyCache = Collections.synchronizedMap(new HashMap<URI, Study>());
-        this.biologicalEntityCache = Collections.synchronizedMap(new HashMap<URI, BiologicalEntity>());
-        this.propertyCache = Collections.synchronizedMap(new HashMap<URI, Property>());
-        this.annotationCache = Collections.synchronizedMap(new HashMap<URI, SimpleAnnotation>());
+        this.studyCache = new ConcurrentHashMap<>();
+        this.biologicalEntityCache = new ConcurrentHashMap<>();
+        this.propertyCache = new ConcurrentHashMap<>();
+        this.annotationCache = new ConcurrentHashMap<>();
+        this.annotationProvenanceCache = new ConcurrentHashMap<>();
 
-        this.messageDigest = ZoomaUtils.generateMessageDigest();
+        this.messageDigest = new ThreadLocal<MessageDigest>() {
+            @Override protected MessageDigest initialValue() {
+                return ZoomaUtils.generateMessageDigest();
+            }
+        };
     }
 
     public void setAnnotationProvenanceTemplate(AnnotationProvenanceTemplate annotationProvenanceTemplate) {
         this.annotationProvenanceTemplate = annotationProvenanceTemplate;
+        // provenance created from the previous template may have a different source
+        annotationProvenanceCache.clear();
     }
 
     public URI getDefaultTargetTypeUri() {
@@ -103,12 +118,12 @@ public abstract class AbstractAnnotationLoadingSession extends TransientCacheabl
     }
 
     @Override
-    public synchronized Study getOrCreateStudy(String studyAccession, Collection<URI> studyTypes) {
+    public Study getOrCreateStudy(String studyAccession, Collection<URI> studyTypes) {
         return getOrCreateStudy(studyAccession, generateIDFromContent(studyAccession), studyTypes);
     }
 
     @Override
-    public synchronized Study getOrCreateStudy(String studyAccession, String studyID, Collection<URI> studyTypes) {
+    public Study getOrCreateStudy(String studyAccession, String studyID, Collection<URI> studyTypes) {
         return getOrCreateStudy(studyAccession, mintStudyURI(studyID), studyTypes);
     }
 
@@ -117,22 +132,28 @@ public abstract class AbstractAnnotationLoadingSession extends TransientCacheabl
         // ping to keep caches alive
         ping();
 
-        if (!studyCache.containsKey(studyURI)) {
+        Study study = studyCache.get(studyURI);
+        if (study == null) {
+            Study newStudy;
             if (studyTypes.isEmpty()) {
-                studyCache.put(studyURI, new SimpleStudy(studyURI, studyAccession, getDefaultTargetSourceTypeUri()));
+                newStudy = new SimpleStudy(studyURI, studyAccession, getDefaultTargetSourceTypeUri());
             }
             else {
-                studyCache.put(studyURI, new SimpleStudy(studyURI, studyAccession, studyTypes));
+                newStudy = new SimpleStudy(studyURI, studyAccession, studyTypes);
+            }
+            study = studyCache.putIfAbsent(studyURI, newStudy);
+            if (study == null) {
+                study = newStudy;
             }
         }
-        return studyCache.get(studyURI);
+        return study;
     }
 
     @Override
-    public synchronized BiologicalEntity getOrCreateBiologicalEntity(String bioentityName,
-                                                                     Collection<String> bioentityTypeName,
-                                                                     Collection<URI> bioentityTypeURI,
-                                                                     Study... studies) {
+    public BiologicalEntity getOrCreateBiologicalEntity(String bioentityName,
+                                                        Collection<String> bioentityTypeName,
+                                                        Collection<URI> bioentityTypeURI,
+                                                        Study... studies) {
         List<String> ids = new ArrayList<>();
         for (Study s : studies) {
             ids.add(s.getAccession());
@@ -143,11 +164,11 @@ public abstract class AbstractAnnotationLoadingSession extends TransientCacheabl
     }
 
     @Override
-    public synchronized BiologicalEntity getOrCreateBiologicalEntity(String bioentityName,
-                                                                     String bioentityID,
-                                                                     Collection<String> bioentityTypeName,
-                                                                     Collection<URI> bioentityTypeURI,
-                                                                     Study... studies) {
+    public BiologicalEntity getOrCreateBiologicalEntity(String bioentityName,
+                                                        String bioentityID,
+                                                        Collection<String> bioentityTypeName,
+                                                        Collection<URI> bioentityTypeURI,
+                                                        Study... studies) {
         String[] studyAccs = new String[studies.length];
         for (int i = 0; i < studies.length; i++) {
             studyAccs[i] = studies[i].getAccession();
@@ -167,34 +188,37 @@ public abstract class AbstractAnnotationLoadingSession extends TransientCacheabl
         // ping to keep caches alive
         ping();
 
-        if (!biologicalEntityCache.containsKey(bioentityURI)) {
+        BiologicalEntity biologicalEntity = biologicalEntityCache.get(bioentityURI);
+        if (biologicalEntity == null) {
+            BiologicalEntity newBiologicalEntity;
             if (!bioentityTypeURI.isEmpty()) {
-                biologicalEntityCache.put(bioentityURI,
-                                          new SimpleBiologicalEntity(bioentityURI,
-                                                                     bioentityName,
-                                                                     bioentityTypeURI,
-                                                                     studies));
+                newBiologicalEntity = new SimpleBiologicalEntity(bioentityURI,
+                                                                 bioentityName,
+                                                                 bioentityTypeURI,
+                                                                 studies);
             }
             else if (!bioentityTypeName.isEmpty()) {
-                biologicalEntityCache.put(bioentityURI,
-                                          new SimpleBiologicalEntity(bioentityURI,
-                                                                     bioentityName,
-                                                                     mintBioentityTypeURIs(bioentityTypeName),
-                                                                     studies));
+                newBiologicalEntity = new SimpleBiologicalEntity(bioentityURI,
+                                                                 bioentityName,
+                                                                 mintBioentityTypeURIs(bioentityTypeName),
+                                                                 studies);
             }
             else {
-                biologicalEntityCache.put(bioentityURI,
-                                          new SimpleBiologicalEntity(bioentityURI,
-                                                                     bioentityName,
-                                                                     getDefaultTargetTypeUri(),
-                                                                     studies));
+                newBiologicalEntity = new SimpleBiologicalEntity(bioentityURI,
+                                                                 bioentityName,
+                                                                 getDefaultTargetTypeUri(),
+                                                                 studies);
+            }
+            biologicalEntity = biologicalEntityCache.putIfAbsent(bioentityURI, newBiologicalEntity);
+            if (biologicalEntity == null) {
+                biologicalEntity = newBiologicalEntity;
             }
         }
-        return biologicalEntityCache.get(bioentityURI);
+        return biologicalEntity;
     }
 
     @Override
-    public synchronized Property getOrCreateProperty(String propertyType, String propertyValue) {
+    public Property getOrCreateProperty(String propertyType, String propertyValue) {
         if (propertyType != null && !propertyType.equals("")) {
             String normalizedType = ZoomaUtils.normalizePropertyTypeString(propertyType);
             return getOrCreateProperty(propertyType,
@@ -209,9 +233,9 @@ public abstract class AbstractAnnotationLoadingSession extends TransientCacheabl
     }
 
     @Override
-    public synchronized Property getOrCreateProperty(String propertyType,
-                                                     String propertyValue,
-                                                     String propertyID) {
+    public Property getOrCreateProperty(String propertyType,
+                                        String propertyValue,
+                                        String propertyID) {
         if (propertyType != null && !propertyType.equals("")) {
             String normalizedType = ZoomaUtils.normalizePropertyTypeString(propertyType);
             return getOrCreateProperty(propertyType,
@@ -233,25 +257,29 @@ public abstract class AbstractAnnotationLoadingSession extends TransientCacheabl
         // ping to keep caches alive
         ping();
 
-        Property property;
-        if (propertyType != null && !propertyType.equals("")) {
-            String normalizedType = ZoomaUtils.normalizePropertyTypeString(propertyType);
-            property = new SimpleTypedProperty(propertyURI, normalizedType, propertyValue);
-        }
-        else {
-            property = new SimpleUntypedProperty(propertyURI, propertyValue);
-        }
-        if (!propertyCache.containsKey(propertyURI)) {
-            propertyCache.put(propertyURI, property);
+        Property property = propertyCache.get(propertyURI);
+        if (property == null) {
+            Property newProperty;
+            if (propertyType != null && !propertyType.equals("")) {
+                String normalizedType = ZoomaUtils.normalizePropertyTypeString(propertyType);
+                newProperty = new SimpleTypedProperty(propertyURI, normalizedType, propertyValue);
+            }
+            else {
+                newProperty = new SimpleUntypedProperty(propertyURI, propertyValue);
+            }
+            property = propertyCache.putIfAbsent(propertyURI, newProperty);
+            if (property == null) {
+                property = newProperty;
+            }
         }
-        return propertyCache.get(propertyURI);
+        return property;
     }
 
     @Override
-    public synchronized Annotation getOrCreateAnnotation(Collection<BiologicalEntity> biologicalEntities,
-                                                         Property property,
-                                                         AnnotationProvenance annotationProvenance,
-                                                         Collection<URI> semanticTags) {
+    public Annotation getOrCreateAnnotation(Collection<BiologicalEntity> biologicalEntities,
+                                            Property property,
+                                            AnnotationProvenance annotationProvenance,
+                                            Collection<URI> semanticTags) {
         List<String> idContents = new ArrayList<>();
         for (BiologicalEntity biologicalEntity : biologicalEntities) {
             for (Study s : biologicalEntity.getStudies()) {
@@ -290,11 +318,11 @@ public abstract class AbstractAnnotationLoadingSession extends TransientCacheabl
     }
 
     @Override
-    public synchronized Annotation getOrCreateAnnotation(String annotationID,
-                                                         Collection<BiologicalEntity> biologicalEntities,
-                                                         Property property,
-                                                         AnnotationProvenance annotationProvenance,
-                                                         Collection<URI> semanticTags) {
+    public Annotation getOrCreateAnnotation(String annotationID,
+                                            Collection<BiologicalEntity> biologicalEntities,
+                                            Property property,
+                                            AnnotationProvenance annotationProvenance,
+                                            Collection<URI> semanticTags) {
         return getOrCreateAnnotation(mintAnnotationURI(annotationID),
                                      biologicalEntities,
                                      property,
@@ -311,24 +339,23 @@ public abstract class AbstractAnnotationLoadingSession extends TransientCacheabl
         // ping to keep caches alive
         ping();
 
-        if (!annotationCache.containsKey(annotationURI)) {
+        SimpleAnnotation annotation = annotationCache.get(annotationURI);
+        if (annotation == null) {
             // create and cache a new annotation
-            if (semanticTags.isEmpty()) {
-                annotationCache.put(annotationURI, new SimpleAnnotation(annotationURI,
-                                                                        biologicalEntities,
-                                                                        property,
-                                                                        annotationProvenance));
+            SimpleAnnotation newAnnotation = new SimpleAnnotation(annotationURI,
+                                                                  biologicalEntities,
+                                                                  property,
+                                                                  annotationProvenance,
+                                                                  semanticTags.toArray(new URI[semanticTags.size()]));
+            annotation = annotationCache.putIfAbsent(annotationURI, newAnnotation);
+            if (annotation == null) {
+                return newAnnotation;
             }
-            annotationCache.put(annotationURI, new SimpleAnnotation(annotationURI,
-                                                                    biologicalEntities,
-                                                                    property,
-                                                                    annotationProvenance,
-                                                                    semanticTags.toArray(new URI[semanticTags.size()])));
         }
-        else {
-            getLog().debug("Annotation <" + annotationURI + "> already exists; merging additional data");
-            // retrieve previous annotation and merge fields
-            SimpleAnnotation annotation = annotationCache.get(annotationURI);
+
+        getLog().debug("Annotation <" + annotationURI + "> already exists; merging additional data");
+        // retrieve previous annotation and merge fields, one thread at a time
+        synchronized (annotation) {
             // merge bioentities
             annotation.getAnnotatedBiologicalEntities().addAll(biologicalEntities);
             // merge semantic tags
@@ -338,22 +365,21 @@ public abstract class AbstractAnnotationLoadingSession extends TransientCacheabl
                 annotation.addAnnotationProvenance(annotationProvenance);
             }
         }
-        return annotationCache.get(annotationURI);
+        return annotation;
     }
 
     @Override public AnnotationProvenance getOrCreateAnnotationProvenance(String annotator, Date annotationDate) {
-        if (annotationProvenanceCache != null) {
-            if (annotationProvenanceCache.getAnnotator() != null && annotationProvenanceCache.getAnnotator().equals(
-                    annotator)) {
-                if (annotationProvenanceCache.getAnnotationDate() != null &&
-                        annotationProvenanceCache.getAnnotationDate().equals(annotationDate)) {
-                    return annotationProvenanceCache;
-                }
+        List<Object> key = Arrays.<Object>asList(annotator, annotationDate);
+        AnnotationProvenance annotationProvenance = annotationProvenanceCache.get(key);
+        if (annotationProvenance == null) {
+            // templates are mutable, so only one thread at a time can build from the template
+            AnnotationProvenanceTemplate template = annotationProvenanceTemplate;
+            synchronized (template) {
+                annotationProvenance = template.annotatorIs(annotator).annotationDateIs(annotationDate).build();
             }
+            annotationProvenanceCache.putIfAbsent(key, annotationProvenance);
         }
-        annotationProvenanceCache =
-                annotationProvenanceTemplate.annotatorIs(annotator).annotationDateIs(annotationDate).build();
-        return annotationProvenanceCache;
+        return annotationProvenance;
     }
 
     @Override
@@ -363,13 +389,13 @@ public abstract class AbstractAnnotationLoadingSession extends TransientCacheabl
     }
 
     @Override
-    public synchronized boolean clearCaches() {
+    public boolean clearCaches() {
         getLog().debug("Clearing caches for " + getClass().getSimpleName());
         studyCache.clear();
         biologicalEntityCache.clear();
         propertyCache.clear();
         annotationCache.clear();
-        annotationProvenanceCache = null;
+        annotationProvenanceCache.clear();
         return true;
     }
 
@@ -426,8 +452,6 @@ public abstract class AbstractAnnotationLoadingSession extends TransientCacheabl
             }
             getLog().error("Attempting to generate new ID from content containing nulls: " + sb.toString());
         }
-        synchronized (messageDigest) {
-            return ZoomaUtils.generateHashEncodedID(messageDigest, contents);
-        }
+        return ZoomaUtils.generateHashEncodedID(messageDigest.get(), contents);
     }
 }
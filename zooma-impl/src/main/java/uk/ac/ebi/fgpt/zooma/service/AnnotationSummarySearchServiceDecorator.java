@@ -10,13 +10,16 @@ import java.util.List;
 /**
  * An abstract decorator of an {@link AnnotationSummarySearchService}.  You should subclass this decorator to create
  * different decorations that add functionality to annotation summary searches.
+ * <p/>
+ * Decorators report the generation of the decorated service, if it is a {@link ReloadableService}, so clients can
+ * detect when the data behind a whole chain of decorators has been reloaded.
  *
  * @author Tony Burdett
  * @date 02/08/13
  * @see AnnotationSummarySearchService
  */
 public abstract class AnnotationSummarySearchServiceDecorator extends Initializable
-        implements AnnotationSummarySearchService {
+        implements AnnotationSummarySearchService, ReloadableService {
     private final AnnotationSummarySearchService _annotatationSummarySearchService;
 
     public AnnotationSummarySearchServiceDecorator(AnnotationSummarySearchService annotationSummarySearchService) {
@@ -69,6 +72,15 @@ public abstract class AnnotationSummarySearchServiceDecorator extends Initializa
                                                                           requiredSources, ontologySources);
     }
 
+    @Override public long getGeneration() {
+        if (_annotatationSummarySearchService instanceof ReloadableService) {
+            return ((ReloadableService) _annotatationSummarySearchService).getGeneration();
+        }
+        else {
+            return 0;
+        }
+    }
+
     @Override protected void doInitialization() throws Exception {
         // do nothing by default
     }
@@ -38,4 +38,8 @@ public abstract class PropertySearchServiceDecorator implements PropertySearchSe
     @Override public List<String> suggest(String propertyValuePrefix, URI... sources) {
         return _propertySearchService.suggest(propertyValuePrefix, sources);
     }
+
+    @Override public List<String> suggest(String propertyType, String propertyValuePrefix, URI... sources) {
+        return _propertySearchService.suggest(propertyType, propertyValuePrefix, sources);
+    }
 }
@@ -8,8 +8,11 @@ import org.springframework.core.io.Resource;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * An abstract implementation of a {@link SearchStringProcessor} that loads a dictionary of required terms at startup.
@@ -20,6 +23,9 @@ import java.util.Set;
  * three elements: first, the term; second, the ontology entry that defines this term; third, a boolean flag indicating
  * whether this term exactly matches the label in the ontology.  Only the first element is required.  Elements are tab
  * separated.
+ * <p/>
+ * When initialized, the dictionary is also compiled into a {@link DictionaryMatcher} so that search strings can be
+ * screened against every dictionary term in a single pass.
  *
  * @author Tony Burdett
  * @date 05/11/13
@@ -27,6 +33,8 @@ import java.util.Set;
 public abstract class AbstractDictionaryLoadingProcessor implements SearchStringProcessor {
     private final Resource dictionaryResource;
     private Set<String> dictionary;
+    private DictionaryMatcher dictionaryMatcher;
+    private Pattern[] dictionaryPatterns;
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -50,6 +58,15 @@ public abstract class AbstractDictionaryLoadingProcessor implements SearchString
         return dictionary;
     }
 
+    /**
+     * Returns a matcher for the terms in the dictionary, numbered in the iteration order of {@link #getDictionary()}
+     *
+     * @return the compiled dictionary
+     */
+    public DictionaryMatcher getDictionaryMatcher() {
+        return dictionaryMatcher;
+    }
+
     /**
      * Returns true if the search string contains any terms loaded from the dictionary.  This is a very basic
      * implementation of this method based on the loaded dictionary, and you may wish to override this to be smarter.
@@ -58,12 +75,34 @@ public abstract class AbstractDictionaryLoadingProcessor implements SearchString
      */
     @Override
     public boolean canProcess(String searchString) {
-        for (String term : getDictionary()) {
-            if (searchString.contains(term)) {
-                return true;
+        return getDictionaryMatcher().matchesAny(searchString);
+    }
+
+    /**
+     * Removes dictionary terms that occur as whole words in the supplied string, replacing every match of the term with
+     * a space.  Terms are considered in dictionary order, each against the result of removing the terms before it, so
+     * removing one term can expose or hide the next.  Terms are matched as regular expressions when replaced.
+     *
+     * @param processedString the string to remove dictionary terms from
+     * @return the string with dictionary terms removed, or null if no dictionary term occurred in the string
+     */
+    protected String removeDictionaryTerms(String processedString) {
+        boolean removed = false;
+        BitSet candidates = getDictionaryMatcher().findEntries(processedString);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            String term = getDictionaryMatcher().getEntry(i);
+            if (processedString.contains(" " + term + " ") ||
+                    processedString.startsWith(term + " ") ||
+                    processedString.endsWith(" " + term)) {
+                processedString = dictionaryPatterns[i] != null
+                        ? dictionaryPatterns[i].matcher(processedString).replaceAll(" ")
+                        : processedString.replaceAll(term, " ");
+                removed = true;
+                // later terms must be screened against the modified string
+                candidates = getDictionaryMatcher().findEntries(processedString);
             }
         }
-        return false;
+        return removed ? processedString : null;
     }
 
     /**
@@ -83,6 +122,17 @@ public abstract class AbstractDictionaryLoadingProcessor implements SearchString
                 }
             }
         }
+        this.dictionaryMatcher = new DictionaryMatcher(dictionary);
+        this.dictionaryPatterns = new Pattern[dictionaryMatcher.size()];
+        for (int i = 0; i < dictionaryPatterns.length; i++) {
+            try {
+                dictionaryPatterns[i] = Pattern.compile(dictionaryMatcher.getEntry(i));
+            }
+            catch (PatternSyntaxException e) {
+                // leave uncompiled, so the term fails as and when it is used
+                getLog().debug("Dictionary term '" + dictionaryMatcher.getEntry(i) + "' is not a valid pattern");
+            }
+        }
         getLog().debug("Loaded dictionary from '" + getDictionaryResource().getURL() + "'. " +
                                getDictionary().size() + " entries loaded");
     }
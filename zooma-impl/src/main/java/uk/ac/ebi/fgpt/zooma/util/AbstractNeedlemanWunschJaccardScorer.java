@@ -1,28 +1,60 @@
 package uk.ac.ebi.fgpt.zooma.util;
 
-import org.simmetrics.StringMetric;
-import org.simmetrics.StringMetricBuilder;
-import org.simmetrics.metrics.JaccardSimilarity;
-import org.simmetrics.metrics.NeedlemanWunch;
-import org.simmetrics.tokenizers.Whitespace;
 import uk.ac.ebi.fgpt.zooma.model.Qualitative;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /**
  * An {@link uk.ac.ebi.fgpt.zooma.util.AbstractStringQualityBasedScorer} that uses a combination of the Needleman-Wunsch
  * and Jaccard algorithms to evaluate a similarity score.
+ * <p/>
+ * Similarities are computed by a {@link NeedlemanWunschJaccardSimilarity}, which gives the same scores as the
+ * simmetrics metrics without allocating for each comparison.  The search string is prepared once per call to score,
+ * and collections of at least {@link #getParallelThreshold()} objects are scored in parallel.
  *
  * @author Tony Burdett
  * @date 12/12/13
  */
 public abstract class AbstractNeedlemanWunschJaccardScorer<T extends Qualitative>
         extends AbstractStringQualityBasedScorer<T> {
-    private NeedlemanWunch nwSimilarity;
-    private StringMetric jaccardSimilarity;
+    // the number of objects each parallel task scores without splitting further
+    private static final int BATCH_SIZE = 256;
+
+    private final NeedlemanWunschJaccardSimilarity similarity;
+
+    private int parallelThreshold = 1000;
 
     public AbstractNeedlemanWunschJaccardScorer() {
-        this.nwSimilarity = new NeedlemanWunch();
-        this.jaccardSimilarity =
-                StringMetricBuilder.with(new JaccardSimilarity<String>()).tokenize(new Whitespace()).build();
+        this.similarity = new NeedlemanWunschJaccardSimilarity();
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the size of collection above which objects are scored in parallel
+     *
+     * @param parallelThreshold the smallest number of objects to score in parallel
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    @Override
+    public Map<T, Float> score(Collection<T> collection, String searchString) {
+        return score(collection, similarity.prepare(searchString, true));
+    }
+
+    @Override
+    public Map<T, Float> scoreCaseSensitive(Collection<T> collection, String searchString) {
+        return score(collection, similarity.prepare(searchString, false));
     }
 
     /**
@@ -33,9 +65,65 @@ public abstract class AbstractNeedlemanWunschJaccardScorer<T extends Qualitative
      * @return a measure of similarity between the two strings
      */
     protected float getSimilarity(String s1, String s2) {
-        // similarity is average NW and Jaccard score, squared
-        float nw = nwSimilarity.compare(s1, s2);
-        float jaccard = jaccardSimilarity.compare(s1, s2);
-        return (float) Math.pow((double) (nw + jaccard) / 2, 2);
+        return similarity.compare(s1, s2);
+    }
+
+    private Map<T, Float> score(Collection<T> collection, NeedlemanWunschJaccardSimilarity.Query query) {
+        List<T> matches = new ArrayList<>(collection);
+        float[] scores = new float[matches.size()];
+        if (matches.size() >= parallelThreshold) {
+            ForkJoinPool.commonPool().invoke(new ScoringTask(matches, query, scores, 0, matches.size()));
+        }
+        else {
+            score(matches, query, scores, 0, matches.size());
+        }
+
+        Map<T, Float> results = new HashMap<>();
+        for (int i = 0; i < scores.length; i++) {
+            results.put(matches.get(i), scores[i]);
+        }
+        return results;
+    }
+
+    private void score(List<T> matches,
+                       NeedlemanWunschJaccardSimilarity.Query query,
+                       float[] scores,
+                       int start,
+                       int end) {
+        for (int i = start; i < end; i++) {
+            T t = matches.get(i);
+            scores[i] = t.getQuality() * similarity.compare(query, extractMatchedString(t));
+        }
+    }
+
+    private class ScoringTask extends RecursiveAction {
+        private final List<T> matches;
+        private final NeedlemanWunschJaccardSimilarity.Query query;
+        private final float[] scores;
+        private final int start;
+        private final int end;
+
+        private ScoringTask(List<T> matches,
+                            NeedlemanWunschJaccardSimilarity.Query query,
+                            float[] scores,
+                            int start,
+                            int end) {
+            this.matches = matches;
+            this.query = query;
+            this.scores = scores;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override protected void compute() {
+            if (end - start > BATCH_SIZE) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new ScoringTask(matches, query, scores, start, middle),
+                          new ScoringTask(matches, query, scores, middle, end));
+            }
+            else {
+                score(matches, query, scores, start, end);
+            }
+        }
     }
 }
@@ -0,0 +1,186 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An Aho-Corasick automaton that finds every dictionary entry occurring in a string in a single pass over the string,
+ * regardless of the size of the dictionary.
+ * <p/>
+ * Entries are numbered in the order they are supplied, so callers can process matches in the same order as they would
+ * by iterating over the dictionary.  Matchers are immutable once created and can be shared between threads.
+ *
+ * @date 18/10/26
+ */
+public class DictionaryMatcher {
+    private final String[] entries;
+
+    // per state: sorted transition characters and the states they lead to
+    private final char[][] transitionKeys;
+    private final int[][] transitionStates;
+    // per state: the longest proper suffix that is also a state
+    private final int[] failures;
+    // per state: the entries ending at this state, and the next state on the failure chain with any entries
+    private final int[][] outputs;
+    private final int[] outputLinks;
+
+    /**
+     * Creates a matcher for the given dictionary entries
+     *
+     * @param entries the dictionary entries to match, numbered in iteration order
+     */
+    public DictionaryMatcher(Collection<String> entries) {
+        this.entries = entries.toArray(new String[entries.size()]);
+
+        // build the trie of entries
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> entriesByState = new ArrayList<>();
+        trie.add(new TreeMap<Character, Integer>());
+        entriesByState.add(new ArrayList<Integer>());
+        for (int i = 0; i < this.entries.length; i++) {
+            int state = 0;
+            for (char c : this.entries[i].toCharArray()) {
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<Character, Integer>());
+                    entriesByState.add(new ArrayList<Integer>());
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            entriesByState.get(state).add(i);
+        }
+
+        int stateCount = trie.size();
+        this.transitionKeys = new char[stateCount][];
+        this.transitionStates = new int[stateCount][];
+        this.outputs = new int[stateCount][];
+        for (int state = 0; state < stateCount; state++) {
+            TreeMap<Character, Integer> transitions = trie.get(state);
+            transitionKeys[state] = new char[transitions.size()];
+            transitionStates[state] = new int[transitions.size()];
+            int t = 0;
+            for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+                transitionKeys[state][t] = transition.getKey();
+                transitionStates[state][t] = transition.getValue();
+                t++;
+            }
+            List<Integer> stateEntries = entriesByState.get(state);
+            outputs[state] = new int[stateEntries.size()];
+            for (int e = 0; e < stateEntries.size(); e++) {
+                outputs[state][e] = stateEntries.get(e);
+            }
+        }
+
+        // breadth first traversal to link each state to its longest proper suffix state
+        this.failures = new int[stateCount];
+        this.outputLinks = new int[stateCount];
+        Arrays.fill(outputLinks, -1);
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int child : transitionStates[0]) {
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int t = 0; t < transitionKeys[state].length; t++) {
+                char c = transitionKeys[state][t];
+                int child = transitionStates[state][t];
+                int failure = failures[state];
+                int next = transition(failure, c);
+                while (next < 0 && failure != 0) {
+                    failure = failures[failure];
+                    next = transition(failure, c);
+                }
+                failures[child] = next < 0 ? 0 : next;
+                outputLinks[child] = outputs[failures[child]].length > 0 ? failures[child] : outputLinks[failures[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of entries in this matcher
+     *
+     * @return the number of dictionary entries
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Returns the dictionary entry with the given number
+     *
+     * @param index the number of the entry
+     * @return the dictionary entry
+     */
+    public String getEntry(int index) {
+        return entries[index];
+    }
+
+    /**
+     * Returns true if any dictionary entry occurs anywhere in the supplied text
+     *
+     * @param text the text to search
+     * @return true if the text contains a dictionary entry, false otherwise
+     */
+    public boolean matchesAny(CharSequence text) {
+        if (outputs[0].length > 0) {
+            return true;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            if (outputs[state].length > 0 || outputLinks[state] >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the numbers of all dictionary entries that occur anywhere in the supplied text
+     *
+     * @param text the text to search
+     * @return the set of entry numbers found in the text
+     */
+    public BitSet findEntries(CharSequence text) {
+        BitSet found = new BitSet(entries.length);
+        for (int entry : outputs[0]) {
+            found.set(entry);
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            for (int match = outputs[state].length > 0 ? state : outputLinks[state];
+                 match >= 0;
+                 match = outputLinks[match]) {
+                for (int entry : outputs[match]) {
+                    found.set(entry);
+                }
+            }
+        }
+        return found;
+    }
+
+    private int next(int state, char c) {
+        int next = transition(state, c);
+        while (next < 0 && state != 0) {
+            state = failures[state];
+            next = transition(state, c);
+        }
+        return next < 0 ? 0 : next;
+    }
+
+    private int transition(int state, char c) {
+        int index = Arrays.binarySearch(transitionKeys[state], c);
+        return index < 0 ? -1 : transitionStates[state][index];
+    }
+}
@@ -0,0 +1,330 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import java.util.Locale;
+
+/**
+ * Computes the similarity used by {@link AbstractNeedlemanWunschJaccardScorer}: the square of the average of the
+ * simmetrics {@link org.simmetrics.metrics.NeedlemanWunch} similarity and the whitespace tokenized {@link
+ * org.simmetrics.metrics.JaccardSimilarity}.  Scores are bit-for-bit identical to those computed with simmetrics, but
+ * are computed without allocating.
+ * <p/>
+ * A search string is prepared once as a {@link Query}, which holds its characters (lowercased, if case should be
+ * ignored) and its distinct tokens.  Each matched string is then copied into a per-thread buffer, where it is tokenized
+ * and aligned against the query using per-thread dynamic programming rows.  Queries are immutable, so one query can be
+ * compared against many matched strings from several threads at once.
+ *
+ * @date 18/10/26
+ */
+public class NeedlemanWunschJaccardSimilarity {
+    // the costs simmetrics' NeedlemanWunch uses by default
+    private static final float MATCH = 0.0f;
+    private static final float MISMATCH = -1.0f;
+    private static final float GAP = -2.0f;
+
+    private static final ThreadLocal<Workspace> workspace = new ThreadLocal<Workspace>() {
+        @Override protected Workspace initialValue() {
+            return new Workspace();
+        }
+    };
+
+    /**
+     * Prepares a search string to be compared to many matched strings
+     *
+     * @param searchString the string that was used in a search
+     * @param ignoreCase   whether matched strings should be compared ignoring case
+     * @return the prepared query
+     */
+    public Query prepare(String searchString, boolean ignoreCase) {
+        return new Query(ignoreCase ? searchString.toLowerCase() : searchString, ignoreCase);
+    }
+
+    /**
+     * Returns the similarity between two strings, exactly as {@link AbstractNeedlemanWunschJaccardScorer} has always
+     * computed it with simmetrics
+     *
+     * @param s1 the search string
+     * @param s2 the matched string
+     * @return a measure of similarity between the two strings
+     */
+    public float compare(String s1, String s2) {
+        return compare(prepare(s1, false), s2);
+    }
+
+    /**
+     * Returns the similarity between a prepared search string and a matched string.  If the query ignores case, this
+     * is equivalent to lowercasing the matched string first.
+     *
+     * @param query         the prepared search string
+     * @param matchedString the string, extracted from a matched object, to compare to the search string
+     * @return a measure of similarity between the two strings
+     */
+    public float compare(Query query, String matchedString) {
+        Workspace ws = workspace.get();
+        int length = ws.load(matchedString, query.ignoreCase);
+        float nw = needlemanWunsch(query.chars, ws.chars, length, ws);
+        float jaccard = jaccard(query, ws.chars, length, ws);
+        return (float) Math.pow((double) (nw + jaccard) / 2, 2);
+    }
+
+    private float needlemanWunsch(char[] a, char[] b, int lengthB, Workspace ws) {
+        int lengthA = a.length;
+        if (lengthA == 0 && lengthB == 0) {
+            return 1.0f;
+        }
+        if (lengthA == 0 || lengthB == 0) {
+            return 0.0f;
+        }
+        float maxValue = (float) Math.max(lengthA, lengthB) * Math.max(MATCH, GAP);
+        float minValue = (float) Math.max(lengthA, lengthB) * Math.min(MISMATCH, GAP);
+        return (-distance(a, b, lengthB, ws) - minValue) / (maxValue - minValue);
+    }
+
+    private float distance(char[] a, char[] b, int lengthB, Workspace ws) {
+        if (regionEquals(a, 0, a.length, b, 0, lengthB)) {
+            return 0.0f;
+        }
+
+        // as in simmetrics, the first row and column grow by one per character, rather than by the gap cost
+        float[] v0 = ws.rows(lengthB + 1);
+        float[] v1 = ws.nextRow;
+        for (int j = 0; j <= lengthB; j++) {
+            v0[j] = j;
+        }
+        for (int i = 1; i <= a.length; i++) {
+            v1[0] = i;
+            char ai = a[i - 1];
+            for (int j = 1; j <= lengthB; j++) {
+                float substitution = ai == b[j - 1] ? MATCH : MISMATCH;
+                v1[j] = Math.min(Math.min(v0[j] - GAP, v1[j - 1] - GAP), v0[j - 1] - substitution);
+            }
+            float[] swap = v0;
+            v0 = v1;
+            v1 = swap;
+        }
+        return v0[lengthB];
+    }
+
+    private float jaccard(Query query, char[] chars, int length, Workspace ws) {
+        int tokenCount = ws.tokenize(chars, length);
+        if (query.tokenCount == 0 && tokenCount == 0) {
+            return 1.0f;
+        }
+        if (query.tokenCount == 0 || tokenCount == 0) {
+            return 0.0f;
+        }
+
+        int[] offsets = ws.offsets;
+        int distinct = 0;
+        int intersection = 0;
+        for (int t = 0; t < tokenCount; t++) {
+            int start = offsets[2 * t];
+            int end = offsets[2 * t + 1];
+            if (isRepeated(chars, start, end, offsets, t)) {
+                continue;
+            }
+            distinct++;
+            if (query.indexOf(chars, start, end) != -1) {
+                intersection++;
+            }
+        }
+        int union = query.tokenCount + distinct - intersection;
+        return (float) intersection / (float) union;
+    }
+
+    private static boolean isRepeated(char[] chars, int start, int end, int[] offsets, int token) {
+        for (int t = 0; t < token; t++) {
+            if (regionEquals(chars, start, end, chars, offsets[2 * t], offsets[2 * t + 1])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionEquals(char[] a, int startA, int endA, char[] b, int startB, int endB) {
+        if (endA - startA != endB - startB) {
+            return false;
+        }
+        for (int i = startA, j = startB; i < endA; i++, j++) {
+            if (a[i] != b[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(char[] chars, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + chars[i];
+        }
+        return h;
+    }
+
+    /**
+     * Splits characters into tokens exactly as simmetrics' whitespace tokenizer does, by splitting on the regular
+     * expression <code>\s+</code>: a string that starts with whitespace has an empty first token, and a string of only
+     * whitespace has no tokens at all.
+     *
+     * @return the number of tokens, whose start and end offsets are written in pairs to offsets
+     */
+    private static int tokenize(char[] chars, int length, int[] offsets) {
+        if (length == 0) {
+            return 0;
+        }
+        int count = 0;
+        int i = 0;
+        boolean leadingWhitespace = isWhitespace(chars[0]);
+        while (i < length) {
+            while (i < length && isWhitespace(chars[i])) {
+                i++;
+            }
+            if (i < length) {
+                int start = i;
+                while (i < length && !isWhitespace(chars[i])) {
+                    i++;
+                }
+                if (count == 0 && leadingWhitespace) {
+                    offsets[0] = 0;
+                    offsets[1] = 0;
+                    count++;
+                }
+                offsets[2 * count] = start;
+                offsets[2 * count + 1] = i;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int maxTokens(int length) {
+        // at most one token per two characters, plus an empty leading token
+        return length / 2 + 2;
+    }
+
+    private static boolean isWhitespace(char c) {
+        // the characters matched by \s in a java regular expression
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean lowercasesAscii(Locale locale) {
+        // in these locales, String.toLowerCase() does not map 'I' to 'i'
+        String language = locale.getLanguage();
+        return !"tr".equals(language) && !"az".equals(language) && !"lt".equals(language);
+    }
+
+    /**
+     * A search string prepared for comparison with many matched strings
+     */
+    public static final class Query {
+        private final String searchString;
+        private final boolean ignoreCase;
+        private final char[] chars;
+
+        // the distinct tokens of the search string, with their hash codes
+        private final int tokenCount;
+        private final int[] tokenOffsets;
+        private final int[] tokenHashes;
+
+        private Query(String searchString, boolean ignoreCase) {
+            this.searchString = searchString;
+            this.ignoreCase = ignoreCase;
+            this.chars = searchString.toCharArray();
+
+            int[] offsets = new int[2 * maxTokens(chars.length)];
+            int count = tokenize(chars, chars.length, offsets);
+            int[] distinctOffsets = new int[2 * count];
+            int[] hashes = new int[count];
+            int distinct = 0;
+            for (int t = 0; t < count; t++) {
+                int start = offsets[2 * t];
+                int end = offsets[2 * t + 1];
+                if (!isRepeated(chars, start, end, offsets, t)) {
+                    distinctOffsets[2 * distinct] = start;
+                    distinctOffsets[2 * distinct + 1] = end;
+                    hashes[distinct] = hash(chars, start, end);
+                    distinct++;
+                }
+            }
+            this.tokenCount = distinct;
+            this.tokenOffsets = distinctOffsets;
+            this.tokenHashes = hashes;
+        }
+
+        public String getSearchString() {
+            return searchString;
+        }
+
+        public boolean isIgnoreCase() {
+            return ignoreCase;
+        }
+
+        private int indexOf(char[] other, int start, int end) {
+            int h = hash(other, start, end);
+            for (int t = 0; t < tokenCount; t++) {
+                if (tokenHashes[t] == h &&
+                        regionEquals(chars, tokenOffsets[2 * t], tokenOffsets[2 * t + 1], other, start, end)) {
+                    return t;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Buffers reused by each thread for every comparison it makes
+     */
+    private static final class Workspace {
+        private char[] chars = new char[64];
+        private int[] offsets = new int[2 * maxTokens(64)];
+        private float[] row = new float[65];
+        private float[] nextRow = new float[65];
+
+        /**
+         * Copies a matched string into this workspace, lowercasing it if required
+         *
+         * @return the number of characters copied
+         */
+        private int load(String s, boolean ignoreCase) {
+            if (ignoreCase && (!isAscii(s) || !lowercasesAscii(Locale.getDefault()))) {
+                // only String.toLowerCase() lowercases non-ascii characters exactly as the original scorer did
+                s = s.toLowerCase();
+            }
+            int length = s.length();
+            if (chars.length < length) {
+                chars = new char[Math.max(length, 2 * chars.length)];
+                offsets = new int[2 * maxTokens(chars.length)];
+            }
+            s.getChars(0, length, chars, 0);
+            if (ignoreCase) {
+                for (int i = 0; i < length; i++) {
+                    char c = chars[i];
+                    if (c >= 'A' && c <= 'Z') {
+                        chars[i] = (char) (c + ('a' - 'A'));
+                    }
+                }
+            }
+            return length;
+        }
+
+        private int tokenize(char[] chars, int length) {
+            return NeedlemanWunschJaccardSimilarity.tokenize(chars, length, offsets);
+        }
+
+        private float[] rows(int length) {
+            if (row.length < length) {
+                row = new float[Math.max(length, 2 * row.length)];
+                nextRow = new float[row.length];
+            }
+            return row;
+        }
+
+        private static boolean isAscii(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) > 127) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
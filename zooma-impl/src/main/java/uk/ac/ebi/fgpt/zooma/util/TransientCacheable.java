@@ -15,12 +15,12 @@ import java.text.DecimalFormat;
  * @date 27/05/14
  */
 public abstract class TransientCacheable {
-    private Thread t;
-    private boolean cachesCreated = false;
+    private volatile Thread t;
+    private volatile boolean cachesCreated = false;
 
     private final int timeout;
     private final int monitoringInterval;
-    private long lastRequestTime = -1;
+    private volatile long lastRequestTime = -1;
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -112,7 +112,14 @@ public abstract class TransientCacheable {
         if (!cachesCreated) {
             cachesCreated = createCaches();
         }
-        cacheMonitoring();
+        // only lock to (re)start the monitoring thread, so frequent pings from many threads do not contend
+        Thread monitor = t;
+        if (monitor == null || !monitor.isAlive()) {
+            cacheMonitoring();
+        }
+        else {
+            this.lastRequestTime = System.currentTimeMillis();
+        }
     }
 
     /**
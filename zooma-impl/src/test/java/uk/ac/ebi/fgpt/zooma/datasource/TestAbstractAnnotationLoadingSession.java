@@ -0,0 +1,148 @@
+package uk.ac.ebi.fgpt.zooma.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.Study;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that an {@link AbstractAnnotationLoadingSession} shared between loading threads creates exactly one object
+ * per URI.
+ *
+ * @date 18/10/26
+ */
+public class TestAbstractAnnotationLoadingSession {
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 2000;
+    private static final int DISTINCT = 50;
+
+    private AbstractAnnotationLoadingSession session;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        session = new AbstractAnnotationLoadingSession() {};
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        session.clearCaches();
+    }
+
+    @Test
+    public void testConcurrentInterning() {
+        List<Callable<List<Object>>> loaders = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            loaders.add(new Callable<List<Object>>() {
+                @Override public List<Object> call() {
+                    List<Object> created = new ArrayList<>();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        int n = i % DISTINCT;
+                        Study study = session.getOrCreateStudy("study" + n, Collections.<URI>emptySet());
+                        BiologicalEntity entity = session.getOrCreateBiologicalEntity("sample" + n,
+                                                                                      Collections.<String>emptySet(),
+                                                                                      Collections.<URI>emptySet(),
+                                                                                      study);
+                        Property property = session.getOrCreateProperty("organism part", "value" + n);
+                        created.add(study);
+                        created.add(entity);
+                        created.add(property);
+                    }
+                    return created;
+                }
+            });
+        }
+
+        // every object for the same URI should be the same instance
+        Map<URI, Object> instances = new HashMap<>();
+        Map<Object, Boolean> distinctInstances = new IdentityHashMap<>();
+        for (List<Object> created : runAll(loaders)) {
+            for (Object o : created) {
+                URI uri = o instanceof Study ? ((Study) o).getURI()
+                        : o instanceof BiologicalEntity ? ((BiologicalEntity) o).getURI()
+                        : ((Property) o).getURI();
+                if (instances.containsKey(uri)) {
+                    assertSame(instances.get(uri), o, "Duplicate object created for <" + uri + ">");
+                }
+                else {
+                    instances.put(uri, o);
+                }
+                distinctInstances.put(o, true);
+            }
+        }
+        assertEquals(3 * DISTINCT, instances.size(), "Unexpected number of distinct URIs");
+        assertEquals(3 * DISTINCT, distinctInstances.size(), "Unexpected number of distinct objects");
+    }
+
+    @Test
+    public void testConcurrentAnnotationMerging() {
+        final URI annotationURI = URI.create("http://www.ebi.ac.uk/fgpt/zooma/test/annotation");
+        final Property property = session.getOrCreateProperty("organism part", "liver");
+        List<Callable<List<Object>>> loaders = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            loaders.add(new Callable<List<Object>>() {
+                @Override public List<Object> call() {
+                    List<Object> created = new ArrayList<>();
+                    for (int i = 0; i < DISTINCT; i++) {
+                        URI semanticTag = URI.create("http://www.ebi.ac.uk/efo/EFO_" + thread + "_" + i);
+                        created.add(session.getOrCreateAnnotation(annotationURI,
+                                                                  Collections.<BiologicalEntity>emptySet(),
+                                                                  property,
+                                                                  null,
+                                                                  Collections.singleton(semanticTag)));
+                    }
+                    return created;
+                }
+            });
+        }
+
+        Set<Object> annotations = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        for (List<Object> created : runAll(loaders)) {
+            annotations.addAll(created);
+        }
+        assertEquals(1, annotations.size(), "Only one annotation should be created");
+        Annotation annotation = (Annotation) annotations.iterator().next();
+        assertEquals(THREADS * DISTINCT,
+                     new HashSet<>(annotation.getSemanticTags()).size(),
+                     "Semantic tags from every thread should be merged");
+    }
+
+    private List<List<Object>> runAll(List<Callable<List<Object>>> loaders) {
+        List<List<Object>> results = new ArrayList<>();
+        try {
+            for (Future<List<Object>> f : executor.invokeAll(loaders)) {
+                results.add(f.get());
+            }
+        }
+        catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            fail("Concurrent loading failed");
+        }
+        return results;
+    }
+}
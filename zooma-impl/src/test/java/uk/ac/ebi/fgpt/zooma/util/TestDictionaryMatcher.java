@@ -0,0 +1,77 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that a {@link DictionaryMatcher} finds the same entries as testing each entry with {@link
+ * String#contains(CharSequence)}.
+ *
+ * @date 18/10/26
+ */
+public class TestDictionaryMatcher {
+    private List<String> entries;
+    private DictionaryMatcher matcher;
+
+    @BeforeEach
+    public void setUp() {
+        entries = Arrays.asList("he", "she", "his", "hers", "left", "cleft", "mg/kg", "µm", "right angle");
+        matcher = new DictionaryMatcher(entries);
+    }
+
+    @Test
+    public void testFindEntries() {
+        assertEquals(entries.size(), matcher.size(), "Unexpected number of entries");
+        assertEquals(expected("ushers"), matcher.findEntries("ushers"), "Unexpected entries for 'ushers'");
+        assertEquals(expected("left cleft palate"), matcher.findEntries("left cleft palate"),
+                     "Unexpected entries for 'left cleft palate'");
+        assertEquals(expected("10 µm at a right angle"), matcher.findEntries("10 µm at a right angle"),
+                     "Unexpected entries for unicode text");
+        assertTrue(matcher.matchesAny("50 mg/kg"), "Should match 'mg/kg'");
+        assertFalse(matcher.matchesAny("liver"), "Should not match 'liver'");
+        assertFalse(matcher.matchesAny(""), "Should not match empty string");
+    }
+
+    @Test
+    public void testRandomText() {
+        Random random = new Random(11);
+        String alphabet = "hersilft ";
+        for (int i = 0; i < 500; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(30);
+            for (int c = 0; c < length; c++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String s = text.toString();
+            assertEquals(expected(s), matcher.findEntries(s), "Unexpected entries for '" + s + "'");
+            assertEquals(!expected(s).isEmpty(), matcher.matchesAny(s), "Unexpected match for '" + s + "'");
+        }
+    }
+
+    @Test
+    public void testEmptyEntry() {
+        DictionaryMatcher emptyMatcher = new DictionaryMatcher(Collections.singletonList(""));
+        assertTrue(emptyMatcher.matchesAny("anything"), "Empty entry occurs in every string");
+        assertEquals(1, emptyMatcher.findEntries("").cardinality(), "Empty entry occurs in the empty string");
+    }
+
+    private BitSet expected(String text) {
+        BitSet expected = new BitSet();
+        for (int i = 0; i < entries.size(); i++) {
+            if (text.contains(entries.get(i))) {
+                expected.set(i);
+            }
+        }
+        return expected;
+    }
+}
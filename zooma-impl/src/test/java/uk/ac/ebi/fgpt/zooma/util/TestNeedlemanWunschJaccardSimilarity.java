@@ -0,0 +1,117 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.simmetrics.StringMetric;
+import org.simmetrics.StringMetricBuilder;
+import org.simmetrics.metrics.JaccardSimilarity;
+import org.simmetrics.metrics.NeedlemanWunch;
+import org.simmetrics.tokenizers.Whitespace;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link NeedlemanWunschJaccardSimilarity}, and the {@link AbstractNeedlemanWunschJaccardScorer} that uses
+ * it, give exactly the same scores as the simmetrics metrics they replace.
+ *
+ * @date 18/10/26
+ */
+public class TestNeedlemanWunschJaccardSimilarity {
+    private static final List<String> STRINGS = Arrays.asList(
+            "", " ", "  \t ", "a", "A", "liver", "Liver", "LIVER", "liver ", " liver", "  liver  ", "liver liver",
+            "liver cancer", "cancer of the liver", "hepatocellular carcinoma", "organism part", "organism\tpart",
+            "organism\n\npart", "part organism organism", "mus musculus", "Mus Musculus", "10 mg/kg", "Größe",
+            "GRÖSSE", "İstanbul", "ΣΊΣΥΦΟΣ", "µm", "a b c d e f g h i j k l m n o p q r s t u v w x y z");
+
+    private StringMetric nw;
+    private StringMetric jaccard;
+    private NeedlemanWunschJaccardSimilarity similarity;
+
+    @BeforeEach
+    public void setUp() {
+        nw = new NeedlemanWunch();
+        jaccard = StringMetricBuilder.with(new JaccardSimilarity<String>()).tokenize(new Whitespace()).build();
+        similarity = new NeedlemanWunschJaccardSimilarity();
+    }
+
+    @Test
+    public void testSameScoresAsSimmetrics() {
+        for (String s1 : STRINGS) {
+            NeedlemanWunschJaccardSimilarity.Query query = similarity.prepare(s1, false);
+            for (String s2 : STRINGS) {
+                assertSameScore(expected(s1, s2), similarity.compare(query, s2), s1, s2);
+            }
+        }
+    }
+
+    @Test
+    public void testSameScoresIgnoringCase() {
+        for (String s1 : STRINGS) {
+            NeedlemanWunschJaccardSimilarity.Query query = similarity.prepare(s1, true);
+            for (String s2 : STRINGS) {
+                assertSameScore(expected(s1.toLowerCase(), s2.toLowerCase()), similarity.compare(query, s2), s1, s2);
+            }
+        }
+    }
+
+    @Test
+    public void testSameScoresForRandomStrings() {
+        Random random = new Random(42);
+        String alphabet = "abcABC  \t-é";
+        for (int i = 0; i < 2000; i++) {
+            String s1 = randomString(random, alphabet, 12);
+            String s2 = randomString(random, alphabet, 80);
+            assertSameScore(expected(s1, s2), similarity.compare(s1, s2), s1, s2);
+        }
+    }
+
+    @Test
+    public void testParallelScoring() {
+        AnnotationSummaryNeedlemanWunschJaccardScorer scorer = new AnnotationSummaryNeedlemanWunschJaccardScorer();
+        scorer.setParallelThreshold(100);
+
+        Random random = new Random(7);
+        List<AnnotationSummary> summaries = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            // summaries with the same value are equal, so quality must depend only on the value
+            String value = randomString(random, "aeilrvLV c", 20);
+            summaries.add(new SimpleAnnotationSummary(null, null, "organism part", value, null, null,
+                                                      50 + value.length(), null));
+        }
+
+        Map<AnnotationSummary, Float> scores = scorer.score(summaries, "Liver");
+        assertEquals(new HashSet<>(summaries).size(), scores.size(), "Wrong number of scores");
+        for (AnnotationSummary summary : summaries) {
+            float expected = summary.getQuality() *
+                    expected("liver", summary.getAnnotatedPropertyValue().toLowerCase());
+            assertSameScore(expected, scores.get(summary), "Liver", summary.getAnnotatedPropertyValue());
+        }
+    }
+
+    private float expected(String s1, String s2) {
+        return (float) Math.pow((double) (nw.compare(s1, s2) + jaccard.compare(s1, s2)) / 2, 2);
+    }
+
+    private void assertSameScore(float expected, float actual, String s1, String s2) {
+        assertEquals(Float.floatToIntBits(expected), Float.floatToIntBits(actual),
+                     "Wrong score for '" + s1 + "' and '" + s2 + "': expected " + expected + " but was " + actual);
+    }
+
+    private String randomString(Random random, String alphabet, int maxLength) {
+        int length = random.nextInt(maxLength + 1);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
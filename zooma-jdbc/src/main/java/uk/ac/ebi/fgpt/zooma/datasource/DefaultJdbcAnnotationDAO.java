@@ -3,6 +3,8 @@ package uk.ac.ebi.fgpt.zooma.datasource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import uk.ac.ebi.fgpt.zooma.exception.NoSuchResourceException;
 import uk.ac.ebi.fgpt.zooma.exception.ResourceAlreadyExistsException;
 import uk.ac.ebi.fgpt.zooma.model.Annotation;
@@ -14,9 +16,17 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URI;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A basic JDBC implementation of an annotation DAO.  This class will look for the classpath resource annotations.sql
@@ -46,6 +56,12 @@ import java.util.List;
  * </tbody> </table>
  * <p>
  * Optional fields may be excluded from the result set, but all others are required, even if values are null.
+ * <p>
+ * Blocks of annotations requested with {@link #read(int, int)} are served from a single forward-only cursor over the
+ * whole result set, rather than by querying for each block.  A background thread maps rows from the cursor into a
+ * bounded buffer, and each block is handed out in order as the next <code>size</code> annotations from that buffer.
+ * Requesting the first block again starts a new pass.  Blocks that have already been passed, or that are requested
+ * after the stream has been closed as idle, are read with a windowed query instead.
  *
  * @author Tony Burdett
  * @date 02/12/14
@@ -61,6 +77,13 @@ public class DefaultJdbcAnnotationDAO implements AnnotationDAO {
     private final DefaultJdbcAnnotationMapper mapper;
     private final JdbcTemplate jdbcTemplate;
 
+    private int fetchSize = 1000;
+    private int streamBufferSize = 10000;
+    private long streamTimeout = 600000;
+
+    private final Object streamLock = new Object();
+    private AnnotationStream stream;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     protected Logger getLog() {
@@ -123,6 +146,50 @@ public class DefaultJdbcAnnotationDAO implements AnnotationDAO {
         return jdbcTemplate;
     }
 
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the number of rows the JDBC driver should fetch from the database in each round trip when reading
+     * annotations.  Defaults to 1000.
+     *
+     * @param fetchSize the number of rows to fetch at a time
+     */
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getStreamBufferSize() {
+        return streamBufferSize;
+    }
+
+    /**
+     * Sets the maximum number of mapped annotations that are buffered ahead of the blocks being read.  Defaults to
+     * 10,000.
+     *
+     * @param streamBufferSize the maximum number of buffered annotations
+     */
+    public void setStreamBufferSize(int streamBufferSize) {
+        this.streamBufferSize = streamBufferSize;
+    }
+
+    public long getStreamTimeout() {
+        return streamTimeout;
+    }
+
+    /**
+     * Sets the time, in milliseconds, after which an idle annotation stream is closed.  A stream is idle if its buffer
+     * is full and no block has been taken from it, or if blocks are waiting for a preceding block that has not been
+     * requested.  Once a stream is closed, the remaining blocks are read with a windowed query.  Defaults to 10
+     * minutes.
+     *
+     * @param streamTimeout the stream timeout, in milliseconds
+     */
+    public void setStreamTimeout(long streamTimeout) {
+        this.streamTimeout = streamTimeout;
+    }
+
     @Override
     public String getDatasourceName() {
         return mapper.getAnnotationFactory().getDatasourceName();
@@ -179,11 +246,76 @@ public class DefaultJdbcAnnotationDAO implements AnnotationDAO {
 
     @Override
     public Collection<Annotation> read() {
-        return getJdbcTemplate().query(ANNOTATIONS_SELECT_ALL, mapper);
+        return getJdbcTemplate().query(new StreamingStatementCreator(ANNOTATIONS_SELECT_ALL), mapper);
     }
 
     @Override
     public List<Annotation> read(int size, int start) {
+        AnnotationStream s;
+        synchronized (streamLock) {
+            if (stream == null || (start == 0 && (stream.isClosed() || stream.getPosition() > 0))) {
+                // a new pass over the annotations, so replace any previous stream
+                if (stream != null) {
+                    stream.close();
+                }
+                stream = new AnnotationStream();
+                stream.open();
+            }
+            s = stream;
+
+            // wait for the preceding blocks to be handed out, giving up if the stream stops moving
+            int lastPosition = s.getPosition();
+            long deadline = System.currentTimeMillis() + getStreamTimeout();
+            while (!s.isClosed() && (s.isDraining() || s.getPosition() < start)) {
+                if (s.isDraining() || s.getPosition() != lastPosition) {
+                    lastPosition = s.getPosition();
+                    deadline = System.currentTimeMillis() + getStreamTimeout();
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    getLog().warn("Annotations " + lastPosition + " onwards were never read from the " +
+                                          getDatasourceName() + " stream, closing it");
+                    s.close();
+                    break;
+                }
+                try {
+                    streamLock.wait(remaining);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            if (s.isClosed() || s.isDraining() || s.getPosition() != start) {
+                // this block can't be served from the stream, so read it directly
+                s = null;
+            }
+            else {
+                s.setDraining(true);
+            }
+        }
+
+        if (s != null) {
+            try {
+                return s.next(size);
+            }
+            catch (RuntimeException e) {
+                getLog().warn("Could not read annotations " + start + "-" + (start + size) + " from the " +
+                                      getDatasourceName() + " stream (" + e.getMessage() + "), " +
+                                      "reading them directly");
+            }
+            finally {
+                synchronized (streamLock) {
+                    s.setDraining(false);
+                    streamLock.notifyAll();
+                }
+            }
+        }
+        return readWindow(size, start);
+    }
+
+    protected List<Annotation> readWindow(int size, int start) {
         return getJdbcTemplate().query(ANNOTATIONS_SELECT_LIMIT, mapper, start, start + size);
     }
 
@@ -210,4 +342,159 @@ public class DefaultJdbcAnnotationDAO implements AnnotationDAO {
         throw new UnsupportedOperationException(
                 getClass().getSimpleName() + " is a read-only annotation DAO, deletions not supported");
     }
+
+    /**
+     * Creates forward-only, read-only statements that fetch rows in batches of {@link #getFetchSize()}
+     */
+    private class StreamingStatementCreator implements PreparedStatementCreator {
+        private final String sql;
+
+        private StreamingStatementCreator(String sql) {
+            this.sql = sql;
+        }
+
+        @Override public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
+            PreparedStatement statement =
+                    connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(getFetchSize());
+            return statement;
+        }
+    }
+
+    /**
+     * A single pass over all annotations in this datasource.  A producer thread maps rows from one forward-only cursor
+     * into a bounded buffer, and blocks are taken from the buffer in order.  Position and draining state are guarded
+     * by the DAO's stream lock.
+     */
+    private class AnnotationStream implements Runnable {
+        private final Object END = new Object();
+
+        private final BlockingQueue<Object> buffer;
+
+        private int position;
+        private boolean draining;
+        private volatile boolean exhausted;
+        private volatile boolean closed;
+
+        private AnnotationStream() {
+            this.buffer = new ArrayBlockingQueue<>(getStreamBufferSize());
+        }
+
+        private void open() {
+            Thread t = new Thread(this, getDatasourceName() + "-annotation-stream");
+            t.setDaemon(true);
+            t.start();
+        }
+
+        private boolean isClosed() {
+            return closed;
+        }
+
+        private int getPosition() {
+            return position;
+        }
+
+        private boolean isDraining() {
+            return draining;
+        }
+
+        private void setDraining(boolean draining) {
+            this.draining = draining;
+        }
+
+        @Override public void run() {
+            getLog().debug("Opening annotation stream for " + getDatasourceName());
+            try {
+                getJdbcTemplate().query(new StreamingStatementCreator(ANNOTATIONS_SELECT_ALL),
+                                        new RowCallbackHandler() {
+                                            private int rowNum = 0;
+
+                                            @Override public void processRow(ResultSet rs) throws SQLException {
+                                                if (!put(mapper.mapRow(rs, rowNum++))) {
+                                                    throw new StreamAbandonedException();
+                                                }
+                                            }
+                                        });
+                if (put(END)) {
+                    getLog().debug("Read all annotations from the " + getDatasourceName() + " stream");
+                }
+            }
+            catch (StreamAbandonedException e) {
+                getLog().debug("Annotation stream for " + getDatasourceName() + " was abandoned, closing cursor");
+            }
+            catch (RuntimeException e) {
+                getLog().error("Annotation stream for " + getDatasourceName() + " failed", e);
+                close();
+            }
+        }
+
+        /**
+         * Takes the next block of annotations from this stream.  Only the thread that is draining the stream should
+         * call this method.
+         *
+         * @param size the number of annotations to take
+         * @return the next block of annotations, which will be smaller than size if the stream has ended
+         */
+        private List<Annotation> next(int size) {
+            List<Annotation> annotations = new ArrayList<>(Math.min(size, getStreamBufferSize()));
+            take(size, annotations);
+            synchronized (streamLock) {
+                position += size;
+            }
+            return annotations;
+        }
+
+        private void take(int size, List<Annotation> annotations) {
+            try {
+                for (int i = 0; i < size && !exhausted; i++) {
+                    Object next = null;
+                    while (next == null && !closed) {
+                        // poll briefly, so that a failed or replaced stream is noticed
+                        next = buffer.poll(100, TimeUnit.MILLISECONDS);
+                    }
+                    if (next == END) {
+                        exhausted = true;
+                        close();
+                    }
+                    else if (next == null) {
+                        throw new IllegalStateException("annotation stream was closed");
+                    }
+                    else {
+                        annotations.add((Annotation) next);
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("interrupted whilst reading annotation stream", e);
+            }
+        }
+
+        private boolean put(Object next) {
+            try {
+                if (!closed && buffer.offer(next, getStreamTimeout(), TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            close();
+            return false;
+        }
+
+        private void close() {
+            closed = true;
+            synchronized (streamLock) {
+                streamLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Thrown from within the cursor callback to stop reading rows when an annotation stream has been abandoned
+     */
+    private static class StreamAbandonedException extends RuntimeException {
+    }
 }
@@ -0,0 +1,150 @@
+package uk.ac.ebi.fgpt.zooma.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+import uk.ac.ebi.fgpt.zooma.util.AnnotationProvenanceBuilder;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Tests that {@link DefaultJdbcAnnotationDAO} serves blocks of annotations in order from an in-memory HSQLDB
+ * database.
+ *
+ * @date 18/10/26
+ */
+public class TestDefaultJdbcAnnotationDAO {
+    private static final int ROWS = 250;
+
+    private JdbcTemplate jdbcTemplate;
+    private DefaultJdbcAnnotationDAO annotationDAO;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        dataSource.setDriverClassName("org.hsqldb.jdbc.JDBCDriver");
+        dataSource.setUrl("jdbc:hsqldb:mem:annotations;sql.syntax_ora=true");
+        dataSource.setUsername("SA");
+        dataSource.setPassword("");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table ANNOTATIONS (STUDY varchar(32), BIOENTITY varchar(32), " +
+                                     "PROPERTY_TYPE varchar(32), PROPERTY_VALUE varchar(32), " +
+                                     "SEMANTIC_TAG varchar(64))");
+        // insert in reverse, so the DAO has to sort rows
+        for (int i = ROWS - 1; i >= 0; i--) {
+            jdbcTemplate.update("insert into ANNOTATIONS values (?, ?, ?, ?, ?)",
+                                "study", "sample" + pad(i), "organism part", "value" + pad(i),
+                                "http://www.ebi.ac.uk/efo/EFO_" + pad(i));
+        }
+
+        final URI source = URI.create("http://www.ebi.ac.uk/fgpt/zooma/test");
+        AnnotationLoadingSession session = new AbstractAnnotationLoadingSession() {
+            {
+                setAnnotationProvenanceTemplate(
+                        AnnotationProvenanceBuilder
+                                .createTemplate(source.toString(), new Date())
+                                .sourceIs(new SimpleDatabaseAnnotationSource(source, "jdbc-test"))
+                                .evidenceIs(AnnotationProvenance.Evidence.MANUAL_CURATED));
+            }
+        };
+        annotationDAO = new DefaultJdbcAnnotationDAO(new DefaultAnnotationFactory(session), jdbcTemplate);
+        annotationDAO.setFetchSize(20);
+        annotationDAO.setStreamBufferSize(50);
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        jdbcTemplate.execute("drop table ANNOTATIONS");
+    }
+
+    @Test
+    public void testCount() {
+        assertEquals(ROWS, annotationDAO.count(), "Wrong number of annotations");
+    }
+
+    @Test
+    public void testReadBlocksInParallel() {
+        List<Callable<List<Annotation>>> blocks = new ArrayList<>();
+        for (int start = 0; start < ROWS; start += 100) {
+            final int blockStart = start;
+            blocks.add(new Callable<List<Annotation>>() {
+                @Override public List<Annotation> call() {
+                    return annotationDAO.read(100, blockStart);
+                }
+            });
+        }
+        Collections.reverse(blocks);
+
+        List<List<Annotation>> results = new ArrayList<>();
+        try {
+            for (Future<List<Annotation>> f : executor.invokeAll(blocks)) {
+                results.add(0, f.get());
+            }
+        }
+        catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            fail("Reading blocks failed");
+        }
+
+        assertEquals(100, results.get(0).size(), "Wrong size for first block");
+        assertEquals(100, results.get(1).size(), "Wrong size for second block");
+        assertEquals(50, results.get(2).size(), "Wrong size for last block");
+        int i = 0;
+        for (List<Annotation> block : results) {
+            for (Annotation annotation : block) {
+                assertEquals("value" + pad(i++),
+                             annotation.getAnnotatedProperty().getPropertyValue(),
+                             "Annotations were read out of order");
+            }
+        }
+    }
+
+    @Test
+    public void testReadPassedBlockAgain() {
+        List<Annotation> first = annotationDAO.read(100, 0);
+        List<Annotation> second = annotationDAO.read(100, 100);
+        // the stream has moved on, so this block is read with a windowed query
+        List<Annotation> secondAgain = annotationDAO.read(100, 100);
+        assertEquals(100, first.size(), "Wrong size for first block");
+        assertEquals(extractValues(second), extractValues(secondAgain), "Blocks should be the same");
+
+        // reading the first block again starts a new pass
+        assertEquals(extractValues(first), extractValues(annotationDAO.read(100, 0)), "Blocks should be the same");
+        assertEquals("organism part",
+                     ((TypedProperty) first.get(0).getAnnotatedProperty()).getPropertyType(),
+                     "Wrong property type");
+    }
+
+    private List<String> extractValues(List<Annotation> annotations) {
+        List<String> values = new ArrayList<>();
+        for (Annotation annotation : annotations) {
+            values.add(annotation.getAnnotatedProperty().getPropertyValue());
+        }
+        return values;
+    }
+
+    private String pad(int i) {
+        return String.format("%03d", i);
+    }
+}
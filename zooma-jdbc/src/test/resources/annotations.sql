@@ -0,0 +1,2 @@
+select STUDY, BIOENTITY, PROPERTY_TYPE, PROPERTY_VALUE, SEMANTIC_TAG
+from ANNOTATIONS
@@ -12,10 +12,22 @@ import uk.ac.ebi.fgpt.zooma.model.Property;
 import uk.ac.ebi.fgpt.zooma.model.Study;
 import uk.ac.ebi.fgpt.zooma.service.OLSSearchService;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URI;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -24,26 +36,44 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.regex.Pattern;
 
 /**
  * An annotation DAO that is capable of extracting annotations from a text file.
  * <p>
  * Supplied text files should be in "CSV" format (comma-separated values), although the delimiter can be modified
- * (commas or tabs are commonly used).  The supplied file is parsed and cached in memory at startup, and DAO methods
- * read from this in-memory cache
+ * (commas or tabs are commonly used).  By default, the supplied file is parsed and cached in memory by {@link
+ * #loadDataFromCSV()}, and DAO methods read from this in-memory cache.
+ * <p>
+ * For large files, enable streaming mode with {@link #setStreaming(boolean)}.  In streaming mode, {@link
+ * #loadDataFromCSV()} only scans the file (which must be on the filesystem) to index the byte offsets of its rows, and
+ * {@link #count()} returns the number of rows rather than annotations.  Each call to {@link #read(int, int)} then
+ * parses its own range of rows directly from the file, so blocks of annotations can be parsed in parallel by the
+ * loading service and no more than the blocks in use are held in memory.  Rows may be terminated by "\n", "\r\n" or
+ * "\r", as for {@link BufferedReader#readLine()}.
  *
  * @author Tony Burdett
  * @date 23/10/12
  */
 public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements AnnotationDAO {
+    private static final int ROW_INDEX_INTERVAL = 1024;
+    private static final long MAP_CHUNK_SIZE = 64 * 1024 * 1024;
+
     private final String delimiter;
+    private final Pattern delimiterPattern;
 
     private Resource csvResource;
 
     private Map<String, Integer> columnIndexMap;
     private List<Annotation> annotations;
 
+    private boolean streaming = false;
+    private File csvFile;
+    private int firstRowLineNumber;
+    private int rowCount;
+    private long[] rowOffsets;
+
     private static DateTimeFormatter dashedDateFormatter = DateTimeFormat.forPattern("yyyy-MM-dd HH:mm:ss");
     private static DateTimeFormatter slashDateFormatter = DateTimeFormat.forPattern("dd/MM/yyyy HH:mm");
 
@@ -59,7 +89,24 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
                             Resource csvResource,
                             String delimiter) {
         super(annotationFactory);
-        this.delimiter = delimiter;
+        // delimiters are regular expressions, except single characters, tabs and escaped metacharacters (e.g. "\\|")
+        // which are matched literally
+        if (delimiter.equals("\\t")) {
+            this.delimiter = "\t";
+            this.delimiterPattern = null;
+        }
+        else if (delimiter.length() == 2 && delimiter.charAt(0) == '\\' && isRegexCharacter(delimiter.charAt(1))) {
+            this.delimiter = delimiter.substring(1);
+            this.delimiterPattern = null;
+        }
+        else if (delimiter.length() > 1 && containsRegexCharacter(delimiter)) {
+            this.delimiter = null;
+            this.delimiterPattern = Pattern.compile(delimiter);
+        }
+        else {
+            this.delimiter = delimiter;
+            this.delimiterPattern = null;
+        }
         this.csvResource = csvResource;
 
         this.columnIndexMap = Collections.synchronizedMap(new HashMap<String, Integer>());
@@ -68,6 +115,20 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
 
     private OLSSearchService olsSearchService;
 
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Sets whether this DAO streams annotations from the CSV file on demand, rather than parsing the whole file into
+     * memory.  Streaming requires the CSV resource to be a file.
+     *
+     * @param streaming true to stream annotations from the file
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     public OLSSearchService getOlsSearchService() {
         return olsSearchService;
     }
@@ -94,6 +155,19 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
     }
 
     public void loadDataFromCSV() throws Exception {
+        if (isStreaming()) {
+            try {
+                this.csvResource.getFile();
+                indexCSV();
+                return;
+            }
+            catch (FileNotFoundException e) {
+                getLog().warn("CSV resource " + this.csvResource + " is not a file, " +
+                                      "annotations will be parsed into memory instead of streamed");
+                setStreaming(false);
+            }
+        }
+
         getLog().debug("Parsing CSV file from input stream");
 
         // parse annotations file
@@ -103,202 +177,448 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
         int lineNumber = 0;
         while ((line = reader.readLine()) != null) {
             lineNumber++;
-            // tokenize line
-            String[] annotationElements = line.split(delimiter, -1);
-
             if (!readHeader) {
                 // extract column indices from the header row
-                readHeader = examineHeader(annotationElements);
+                readHeader = examineHeader(tokenize(line));
             }
             else {
-                // required attributes
-                String studyAcc, bioentityName, propertyType, propertyValue;
-                List<URI> semanticTags;
-
-                // optional URI attributes with null initializers
-                URI annotationURI = null;
-                URI studyURI = null;
-                URI studyType = null;
-                URI bioentityURI = null;
-                URI propertyURI = null;
-
-                // optional ID attributes with null initializers
-                String annotationID = null;
-                String studyID = null;
-                String bioentityID = null;
-                String bioentityTypeName = null;
-                URI bioentityTypeURI = null;
-                String propertyID = null;
-                String annotator = null;
-                Date annotationDate = null;
-
-                int column;
-
-                // read elements and generate annotations
-                List<String> missingColumns = new ArrayList<>();
-                if ((column = lookupColumn("STUDY")) != -1) {
-                    studyAcc = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : annotationElements[column];
-                }
-                else {
-                    studyAcc = null;
-                    missingColumns.add("STUDY");
-                }
-                if ((column = lookupColumn("BIOENTITY")) != -1) {
-                    bioentityName = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : annotationElements[column];
-                }
-                else {
-                    bioentityName = null;
-                    missingColumns.add("BIOENTITY");
-                }
-                if ((column = lookupColumn("PROPERTY_TYPE")) != -1) {
-                    propertyType = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : annotationElements[column];
-                }
-                else {
-                    propertyType = null;
-                    missingColumns.add("PROPERTY_TYPE");
-                }
-                if ((column = lookupColumn("PROPERTY_VALUE")) != -1) {
-                    if (annotationElements[column].isEmpty()) {
-                        propertyValue = null;
-                        missingColumns.add("PROPERTY_VALUE");
-                    }
-                    else {
-                        propertyValue = annotationElements[column];
+                parseRow(line, lineNumber, annotations);
+            }
+        }
+
+        // now close the reader
+        reader.close();
+        getLog().debug("Parsed file successfully, " +
+                               "read " + annotations.size() + " annotations");
+    }
+
+    /**
+     * Scans the CSV file to find its header, count its rows and record the byte offset of every {@value
+     * #ROW_INDEX_INTERVAL}th row.  The file is memory mapped in chunks, so scanning does not hold rows in memory.
+     *
+     * @throws IOException if the CSV file could not be read
+     */
+    protected synchronized void indexCSV() throws IOException {
+        File file = this.csvResource.getFile();
+        getLog().debug("Indexing rows of CSV file " + file.getAbsolutePath());
+
+        // find the header, and the offset of the first row after it
+        long dataStart = 0;
+        int lineNumber = 0;
+        try (InputStream in = new BufferedInputStream(this.csvResource.getInputStream())) {
+            ByteArrayOutputStream lineBytes = new ByteArrayOutputStream();
+            boolean readHeader = false;
+            int b;
+            while (!readHeader && (b = in.read()) != -1) {
+                dataStart++;
+                if (b == '\n' || b == '\r') {
+                    if (b == '\r') {
+                        // "\r\n" terminates a single line
+                        in.mark(1);
+                        if (in.read() == '\n') {
+                            dataStart++;
+                        }
+                        else {
+                            in.reset();
+                        }
                     }
+                    lineNumber++;
+                    readHeader = examineHeader(tokenize(new String(lineBytes.toByteArray(), StandardCharsets.UTF_8)));
+                    lineBytes.reset();
                 }
                 else {
-                    propertyValue = null;
-                    missingColumns.add("PROPERTY_VALUE");
+                    lineBytes.write(b);
                 }
-                if ((column = lookupColumn("SEMANTIC_TAG")) != -1) {
-                    String semanticTagsStr;
-                    semanticTagsStr = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : annotationElements[column];
-                    if (semanticTagsStr == null) {
-                        semanticTags = new ArrayList<>();
-                        getLog().error("SEMANTIC_TAG column is empty for line = \"" + line + "\"" );
-                    } else {
-                        if (semanticTagsStr.contains("|")) {
-                            semanticTags = new ArrayList<>();
-                            for (String semanticTagStr : semanticTagsStr.split(Pattern.quote("|"))) {
-                                semanticTags.add(convertSemanticTagToURI(semanticTagStr.trim()));
+            }
+            if (!readHeader && lineBytes.size() > 0) {
+                lineNumber++;
+                readHeader = examineHeader(tokenize(new String(lineBytes.toByteArray(), StandardCharsets.UTF_8)));
+            }
+            if (!readHeader) {
+                throw new InvalidDataFormatException("No header row found in CSV file " + file.getAbsolutePath());
+            }
+        }
+
+        // count rows and index their offsets
+        int rows = 0;
+        long[] offsets = new long[16];
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            boolean inRow = false;
+            boolean afterCarriageReturn = false;
+            for (long chunkStart = dataStart; chunkStart < size; chunkStart += MAP_CHUNK_SIZE) {
+                long chunkSize = Math.min(MAP_CHUNK_SIZE, size - chunkStart);
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkSize);
+                for (int i = 0; i < chunkSize; i++) {
+                    byte b = chunk.get(i);
+                    if (afterCarriageReturn) {
+                        afterCarriageReturn = false;
+                        if (b == '\n') {
+                            // the rest of a "\r\n" row terminator
+                            continue;
+                        }
+                    }
+                    if (!inRow) {
+                        if (rows % ROW_INDEX_INTERVAL == 0) {
+                            int index = rows / ROW_INDEX_INTERVAL;
+                            if (index == offsets.length) {
+                                offsets = Arrays.copyOf(offsets, offsets.length * 2);
                             }
-                        } else {
-                            semanticTags = Collections.singletonList(convertSemanticTagToURI(annotationElements[column]));
+                            offsets[index] = chunkStart + i;
                         }
-                   }
-                }
-                else {
-                    semanticTags = Collections.singletonList(null);
-                    missingColumns.add("SEMANTIC_TAG");
+                        inRow = true;
+                    }
+                    // rows end at "\n", "\r\n" or "\r", as lines do for BufferedReader.readLine()
+                    if (b == '\n' || b == '\r') {
+                        rows++;
+                        inRow = false;
+                        afterCarriageReturn = b == '\r';
+                    }
                 }
-                if (!missingColumns.isEmpty()) {
-                    StringBuilder sb = new StringBuilder();
-                    sb.append("The required element(s) ");
-                    Iterator<String> missingColumnIt = missingColumns.iterator();
-                    while (missingColumnIt.hasNext()) {
-                        sb.append(missingColumnIt.next());
-                        if (missingColumnIt.hasNext()) {
-                            sb.append(", ");
+            }
+            if (inRow) {
+                rows++;
+            }
+        }
+
+        this.csvFile = file;
+        this.firstRowLineNumber = lineNumber + 1;
+        this.rowOffsets = offsets;
+        this.rowCount = rows;
+        getLog().debug("Indexed CSV file successfully, found " + rows + " rows");
+    }
+
+    /**
+     * Parses a range of rows directly from the indexed CSV file.
+     *
+     * @param size  the maximum number of rows to parse
+     * @param start the index of the first row to parse
+     * @return the annotations in these rows
+     */
+    protected List<Annotation> readRows(int size, int start) {
+        List<Annotation> results = new ArrayList<>();
+        if (start >= getRowCount()) {
+            return results;
+        }
+
+        int indexedRow = (start / ROW_INDEX_INTERVAL) * ROW_INDEX_INTERVAL;
+        try (FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ)) {
+            channel.position(rowOffsets[indexedRow / ROW_INDEX_INTERVAL]);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel),
+                                                                             StandardCharsets.UTF_8));
+            for (int row = indexedRow; row < start; row++) {
+                reader.readLine();
+            }
+            String line;
+            for (int row = start; row < start + size && (line = reader.readLine()) != null; row++) {
+                parseRow(line, firstRowLineNumber + row, results);
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Failed to read rows " + start + "-" + (start + size) + " " +
+                                               "from CSV file " + csvFile.getAbsolutePath(), e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted whilst reading rows from CSV file " + csvFile.getAbsolutePath(),
+                                       e);
+        }
+        return results;
+    }
+
+    private synchronized int getRowCount() {
+        if (rowOffsets == null) {
+            try {
+                indexCSV();
+            }
+            catch (IOException e) {
+                throw new RuntimeException("Failed to index CSV file for datasource '" + getDatasourceName() + "'", e);
+            }
+        }
+        return rowCount;
+    }
+
+    /**
+     * Returns all annotations in this datasource.  In streaming mode, annotations are parsed from the file a block of
+     * rows at a time as they are iterated over.
+     *
+     * @return all annotations in this datasource
+     */
+    private Iterable<Annotation> allAnnotations() {
+        if (!isStreaming()) {
+            return annotations;
+        }
+        return new Iterable<Annotation>() {
+            @Override public Iterator<Annotation> iterator() {
+                return new Iterator<Annotation>() {
+                    private final int rows = getRowCount();
+                    private int nextRow = 0;
+                    private Iterator<Annotation> block = Collections.<Annotation>emptyList().iterator();
+
+                    @Override public boolean hasNext() {
+                        while (!block.hasNext() && nextRow < rows) {
+                            block = readRows(ROW_INDEX_INTERVAL, nextRow).iterator();
+                            nextRow += ROW_INDEX_INTERVAL;
                         }
+                        return block.hasNext();
                     }
-                    sb.append(" are absent at line ").append(lineNumber).append(", result set cannot be mapped");
-                    throw new InvalidDataFormatException(sb.toString());
-                }
 
-                // optional URI attributes
-                if ((column = lookupColumn("ANNOTATION_URI")) != -1) {
-                    annotationURI = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : URI.create(annotationElements[column]);
-                }
-                if ((column = lookupColumn("STUDY_URI")) != -1) {
-                    studyURI = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : URI.create(annotationElements[column]);
-                }
-                if ((column = lookupColumn("BIOENTITY_URI")) != -1) {
-                    bioentityURI = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : URI.create(annotationElements[column]);
-                }
-                if ((column = lookupColumn("PROPERTY_URI")) != -1) {
-                    propertyURI = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : URI.create(annotationElements[column]);
-                }
+                    @Override public Annotation next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return block.next();
+                    }
 
-                // optional ID attributes
-                if ((column = lookupColumn("ANNOTATION_ID")) != -1) {
-                    annotationID = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : annotationElements[column];
-                }
-                if ((column = lookupColumn("STUDY_ID")) != -1) {
-                    studyID = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : annotationElements[column];
-                }
-                if ((column = lookupColumn("STUDY_TYPE")) != -1) {
-                    studyType = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : URI.create(annotationElements[column]);
-                }
-                if ((column = lookupColumn("BIOENTITY_ID")) != -1) {
-                    bioentityID = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : annotationElements[column];
-                }
-                if ((column = lookupColumn("BIOENTITY_TYPE_URI")) != -1) {
-                    bioentityTypeURI = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : URI.create(annotationElements[column]);
+                    @Override public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Parses one row of the CSV file, adding the annotations it describes to the supplied collection.  Empty rows are
+     * ignored.
+     *
+     * @param line       the row to parse
+     * @param lineNumber the line number of this row in the file, for error reporting
+     * @param results    the collection to add annotations to
+     * @throws InterruptedException if interrupted whilst waiting for the OLS service to check for obsolete terms
+     */
+    protected void parseRow(String line, int lineNumber, Collection<Annotation> results) throws InterruptedException {
+        if (line.isEmpty()) {
+            return;
+        }
+
+        // tokenize line
+        String[] annotationElements = tokenize(line);
+
+        // required attributes
+        String studyAcc, bioentityName, propertyType, propertyValue;
+        List<URI> semanticTags;
+
+        // optional URI attributes with null initializers
+        URI annotationURI = null;
+        URI studyURI = null;
+        URI studyType = null;
+        URI bioentityURI = null;
+        URI propertyURI = null;
+
+        // optional ID attributes with null initializers
+        String annotationID = null;
+        String studyID = null;
+        String bioentityID = null;
+        String bioentityTypeName = null;
+        URI bioentityTypeURI = null;
+        String propertyID = null;
+        String annotator = null;
+        Date annotationDate = null;
+
+        int column;
+
+        // read elements and generate annotations
+        List<String> missingColumns = new ArrayList<>();
+        if ((column = lookupColumn("STUDY")) != -1) {
+            studyAcc = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : annotationElements[column];
+        }
+        else {
+            studyAcc = null;
+            missingColumns.add("STUDY");
+        }
+        if ((column = lookupColumn("BIOENTITY")) != -1) {
+            bioentityName = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : annotationElements[column];
+        }
+        else {
+            bioentityName = null;
+            missingColumns.add("BIOENTITY");
+        }
+        if ((column = lookupColumn("PROPERTY_TYPE")) != -1) {
+            propertyType = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : annotationElements[column];
+        }
+        else {
+            propertyType = null;
+            missingColumns.add("PROPERTY_TYPE");
+        }
+        if ((column = lookupColumn("PROPERTY_VALUE")) != -1) {
+            if (annotationElements[column].isEmpty()) {
+                propertyValue = null;
+                missingColumns.add("PROPERTY_VALUE");
+            }
+            else {
+                propertyValue = annotationElements[column];
+            }
+        }
+        else {
+            propertyValue = null;
+            missingColumns.add("PROPERTY_VALUE");
+        }
+        if ((column = lookupColumn("SEMANTIC_TAG")) != -1) {
+            String semanticTagsStr;
+            semanticTagsStr = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : annotationElements[column];
+            if (semanticTagsStr == null) {
+                semanticTags = new ArrayList<>();
+                getLog().error("SEMANTIC_TAG column is empty for line = \"" + line + "\"" );
+            } else {
+                if (semanticTagsStr.indexOf('|') != -1) {
+                    semanticTags = new ArrayList<>();
+                    int from = 0;
+                    int next;
+                    do {
+                        next = semanticTagsStr.indexOf('|', from);
+                        String semanticTagStr = next == -1
+                                ? semanticTagsStr.substring(from)
+                                : semanticTagsStr.substring(from, next);
+                        semanticTags.add(convertSemanticTagToURI(semanticTagStr.trim()));
+                        from = next + 1;
+                    }
+                    while (next != -1);
+                } else {
+                    semanticTags = Collections.singletonList(convertSemanticTagToURI(annotationElements[column]));
                 }
-                if ((column = lookupColumn("BIOENTITY_TYPE_NAME")) != -1) {
-                    bioentityTypeName = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : annotationElements[column];
+           }
+        }
+        else {
+            semanticTags = Collections.singletonList(null);
+            missingColumns.add("SEMANTIC_TAG");
+        }
+        if (!missingColumns.isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("The required element(s) ");
+            Iterator<String> missingColumnIt = missingColumns.iterator();
+            while (missingColumnIt.hasNext()) {
+                sb.append(missingColumnIt.next());
+                if (missingColumnIt.hasNext()) {
+                    sb.append(", ");
                 }
-                if ((column = lookupColumn("PROPERTY_ID")) != -1) {
-                    propertyID = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : annotationElements[column];
+            }
+            sb.append(" are absent at line ").append(lineNumber).append(", result set cannot be mapped");
+            throw new InvalidDataFormatException(sb.toString());
+        }
+
+        // optional URI attributes
+        if ((column = lookupColumn("ANNOTATION_URI")) != -1) {
+            annotationURI = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : URI.create(annotationElements[column]);
+        }
+        if ((column = lookupColumn("STUDY_URI")) != -1) {
+            studyURI = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : URI.create(annotationElements[column]);
+        }
+        if ((column = lookupColumn("BIOENTITY_URI")) != -1) {
+            bioentityURI = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : URI.create(annotationElements[column]);
+        }
+        if ((column = lookupColumn("PROPERTY_URI")) != -1) {
+            propertyURI = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : URI.create(annotationElements[column]);
+        }
+
+        // optional ID attributes
+        if ((column = lookupColumn("ANNOTATION_ID")) != -1) {
+            annotationID = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : annotationElements[column];
+        }
+        if ((column = lookupColumn("STUDY_ID")) != -1) {
+            studyID = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : annotationElements[column];
+        }
+        if ((column = lookupColumn("STUDY_TYPE")) != -1) {
+            studyType = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : URI.create(annotationElements[column]);
+        }
+        if ((column = lookupColumn("BIOENTITY_ID")) != -1) {
+            bioentityID = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : annotationElements[column];
+        }
+        if ((column = lookupColumn("BIOENTITY_TYPE_URI")) != -1) {
+            bioentityTypeURI = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : URI.create(annotationElements[column]);
+        }
+        if ((column = lookupColumn("BIOENTITY_TYPE_NAME")) != -1) {
+            bioentityTypeName = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : annotationElements[column];
+        }
+        if ((column = lookupColumn("PROPERTY_ID")) != -1) {
+            propertyID = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : annotationElements[column];
+        }
+        if ((column = lookupColumn("ANNOTATOR")) != -1) {
+            annotator = annotationElements.length <= column || annotationElements[column].isEmpty()
+                    ? null
+                    : annotationElements[column];
+        }
+        if ((column = lookupColumn("ANNOTATION_DATE")) != -1) {
+            if (annotationElements.length <= column || annotationElements[column].isEmpty()) {
+                annotationDate = null;
+            }
+            else {
+                String dateStr = annotationElements[column];
+                if (dateStr.contains("-")) {
+                    annotationDate = dashedDateFormatter.parseDateTime(annotationElements[column]).toDate();
                 }
-                if ((column = lookupColumn("ANNOTATOR")) != -1) {
-                    annotator = annotationElements.length <= column || annotationElements[column].isEmpty()
-                            ? null
-                            : annotationElements[column];
+                else if (dateStr.contains("/")) {
+                    annotationDate = slashDateFormatter.parseDateTime(annotationElements[column]).toDate();
                 }
-                if ((column = lookupColumn("ANNOTATION_DATE")) != -1) {
-                    if (annotationElements.length <= column || annotationElements[column].isEmpty()) {
-                        annotationDate = null;
-                    }
-                    else {
-                        String dateStr = annotationElements[column];
-                        if (dateStr.contains("-")) {
-                            annotationDate = dashedDateFormatter.parseDateTime(annotationElements[column]).toDate();
-                        }
-                        else if (dateStr.contains("/")) {
-                            annotationDate = slashDateFormatter.parseDateTime(annotationElements[column]).toDate();
-                        }
-                        else {
-                            getLog().error("Can't recognise format for date '" + dateStr + "' at line " + lineNumber);
-                        }
-                    }
+                else {
+                    getLog().error("Can't recognise format for date '" + dateStr + "' at line " + lineNumber);
                 }
+            }
+        }
 
-                // now we've collected fields, generate annotation using annotation factory
-                for (URI semanticTag : semanticTags) {
-
-                    Annotation annotation = createAnnotation(annotationURI,
-                            annotationID,
+        //get the replacements for any obsolete semantic tags, once for the whole row
+        Collection<URI> semanticTagReplacements = obsoleteSemanticTags(semanticTags);
+
+        // now we've collected fields, generate annotation using annotation factory
+        for (URI semanticTag : semanticTags) {
+
+            Annotation annotation = createAnnotation(annotationURI,
+                    annotationID,
+                    studyAcc,
+                    studyURI,
+                    studyID,
+                    studyType,
+                    bioentityName,
+                    bioentityURI,
+                    bioentityID,
+                    bioentityTypeName,
+                    bioentityTypeURI,
+                    propertyType,
+                    propertyValue,
+                    propertyURI,
+                    propertyID,
+                    semanticTag,
+                    annotator,
+                    annotationDate);
+
+            //get the replacedBy annotation that should have been created in the Loading Session,
+            //if the annotation has a replacedBy entry
+            if (!semanticTagReplacements.isEmpty()) {
+                //for each semantic tag, create a new annotation
+                Collection<URI> replacedBy = new ArrayList<>();
+                for(URI replacementSemTag : semanticTagReplacements) {
+                    Annotation replacementAnnotation = createReplacementAnnotation(null,
+                            null,
                             studyAcc,
                             studyURI,
                             studyID,
@@ -312,50 +632,17 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
                             propertyValue,
                             propertyURI,
                             propertyID,
-                            semanticTag,
+                            replacementSemTag,
                             annotator,
                             annotationDate);
-
-                    //get the replacedBy annotation that should have been created in the Loading Session,
-                    //if the annotation has a replacedBy entry
-                    Collection<URI> semanticTagReplacements = obsoleteSemanticTags(semanticTags);
-                    if (!semanticTagReplacements.isEmpty()) {
-                        //for each semantic tag, create a new annotation
-                        Collection<URI> replacedBy = new ArrayList<>();
-                        for(URI replacementSemTag : semanticTagReplacements) {
-                            Annotation replacementAnnotation = createReplacementAnnotation(null,
-                                    null,
-                                    studyAcc,
-                                    studyURI,
-                                    studyID,
-                                    studyType,
-                                    bioentityName,
-                                    bioentityURI,
-                                    bioentityID,
-                                    bioentityTypeName,
-                                    bioentityTypeURI,
-                                    propertyType,
-                                    propertyValue,
-                                    propertyURI,
-                                    propertyID,
-                                    replacementSemTag,
-                                    annotator,
-                                    annotationDate);
-                            replacedBy.add(replacementAnnotation.getURI());
-                            replacementAnnotation.setReplaces(annotation.getURI());
-                            annotations.add(replacementAnnotation);
-                        }
-                        annotation.setReplacedBy(replacedBy.toArray(new URI[replacedBy.size()]));
-                    }
-                    annotations.add(annotation);
+                    replacedBy.add(replacementAnnotation.getURI());
+                    replacementAnnotation.setReplaces(annotation.getURI());
+                    results.add(replacementAnnotation);
                 }
+                annotation.setReplacedBy(replacedBy.toArray(new URI[replacedBy.size()]));
             }
+            results.add(annotation);
         }
-
-        // now close the reader
-        reader.close();
-        getLog().debug("Parsed file successfully, " +
-                               "read " + annotations.size() + " annotations");
     }
 
     @Override
@@ -371,7 +658,7 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
     @Override
     public Collection<Annotation> readByStudy(Study study) {
         Collection<Annotation> results = new HashSet<>();
-        for (Annotation annotation : annotations) {
+        for (Annotation annotation : allAnnotations()) {
             for (BiologicalEntity be : annotation.getAnnotatedBiologicalEntities()) {
                 if (be.getStudies().contains(study)) {
                     results.add(annotation);
@@ -384,7 +671,7 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
     @Override
     public Collection<Annotation> readByBiologicalEntity(BiologicalEntity biologicalEntity) {
         Collection<Annotation> results = new HashSet<>();
-        for (Annotation annotation : annotations) {
+        for (Annotation annotation : allAnnotations()) {
             if (annotation.getAnnotatedBiologicalEntities().contains(biologicalEntity)) {
                 results.add(annotation);
             }
@@ -395,7 +682,7 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
     @Override
     public Collection<Annotation> readByProperty(Property property) {
         Collection<Annotation> results = new HashSet<>();
-        for (Annotation annotation : annotations) {
+        for (Annotation annotation : allAnnotations()) {
             if (annotation.getAnnotatedProperty().matches(property)) {
                 results.add(annotation);
             }
@@ -406,7 +693,7 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
     @Override
     public Collection<Annotation> readBySemanticTag(URI semanticTagURI) {
         Collection<Annotation> results = new HashSet<>();
-        for (Annotation annotation : annotations) {
+        for (Annotation annotation : allAnnotations()) {
             if (annotation.getSemanticTags().contains(semanticTagURI)) {
                 results.add(annotation);
             }
@@ -422,6 +709,9 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
         catch (InterruptedException e) {
             getLog().warn("Interrupted whilst waiting for initialization");
         }
+        if (isStreaming()) {
+            return getRowCount();
+        }
         return annotations.size();
     }
 
@@ -444,6 +734,13 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
         catch (InterruptedException e) {
             getLog().warn("Interrupted whilst waiting for initialization");
         }
+        if (isStreaming()) {
+            List<Annotation> results = new ArrayList<>();
+            for (Annotation annotation : allAnnotations()) {
+                results.add(annotation);
+            }
+            return Collections.unmodifiableCollection(results);
+        }
         return Collections.unmodifiableCollection(annotations);
     }
 
@@ -455,8 +752,12 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
         catch (InterruptedException e) {
             getLog().warn("Interrupted whilst waiting for initialization");
         }
+        if (isStreaming()) {
+            return readRows(size, start);
+        }
         if (start + size > annotations.size()) {
-            return Collections.unmodifiableList(annotations.subList(start, annotations.size()));
+            return Collections.unmodifiableList(annotations.subList(Math.min(start, annotations.size()),
+                                                                    annotations.size()));
         }
         else {
             return Collections.unmodifiableList(annotations.subList(start, start + size));
@@ -471,7 +772,7 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
         catch (InterruptedException e) {
             getLog().warn("Interrupted whilst waiting for initialization");
         }
-        for (Annotation annotation : annotations) {
+        for (Annotation annotation : allAnnotations()) {
             if (annotation.getURI().equals(uri)) {
                 return annotation;
             }
@@ -498,7 +799,17 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
         if (semanticTag == null) {
             return null;
         }
-        semanticTag = semanticTag.replaceAll("'","").trim();
+        if (semanticTag.indexOf('\'') != -1) {
+            StringBuilder sb = new StringBuilder(semanticTag.length());
+            for (int i = 0; i < semanticTag.length(); i++) {
+                char c = semanticTag.charAt(i);
+                if (c != '\'') {
+                    sb.append(c);
+                }
+            }
+            semanticTag = sb.toString();
+        }
+        semanticTag = semanticTag.trim();
         if (semanticTag.equals("")) {
             return null;
         }
@@ -508,19 +819,58 @@ public class CSVAnnotationDAO extends RowBasedDataAnnotationMapper implements An
     }
 
     private Collection<URI> obsoleteSemanticTags(Collection<URI> semanticTags) throws InterruptedException {
+        if (this.getOlsSearchService() == null) {
+            return Collections.emptyList();
+        }
         if(!this.getOlsSearchService().isReady()){
             this.getOlsSearchService().waitUntilReady();
         }
 
         Collection<URI> replacements = new ArrayList<>();
         for (URI semanticTag : semanticTags){
-            if (getOlsSearchService().isReplaceable(semanticTag)){
+            if (semanticTag != null && getOlsSearchService().isReplaceable(semanticTag)){
                 replacements.add(getOlsSearchService().replaceSemanticTag(semanticTag));
             }
         }
         return replacements;
     }
 
+    /**
+     * Splits a row into its elements, keeping trailing empty elements.  Literal delimiters are matched without using
+     * regular expressions.
+     *
+     * @param line the row to split
+     * @return the elements of the row
+     */
+    private String[] tokenize(String line) {
+        if (delimiterPattern != null) {
+            return delimiterPattern.split(line, -1);
+        }
+
+        List<String> elements = new ArrayList<>();
+        int from = 0;
+        int next;
+        while ((next = line.indexOf(delimiter, from)) != -1) {
+            elements.add(line.substring(from, next));
+            from = next + delimiter.length();
+        }
+        elements.add(line.substring(from));
+        return elements.toArray(new String[elements.size()]);
+    }
+
+    private static boolean containsRegexCharacter(String delimiter) {
+        for (int i = 0; i < delimiter.length(); i++) {
+            if (isRegexCharacter(delimiter.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isRegexCharacter(char c) {
+        return "\\[](){}.*+?^$|".indexOf(c) != -1;
+    }
+
     private boolean examineHeader(String[] header) {
         // test if this is the header
         boolean isHeader = false;
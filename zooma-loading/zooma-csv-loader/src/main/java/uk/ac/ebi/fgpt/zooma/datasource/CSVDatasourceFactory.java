@@ -33,6 +33,15 @@ public class CSVDatasourceFactory {
                                                    String loadFrom,
                                                    String annotationCreator,
                                                    String delimiter) {
+        return generateDatasource(datasourceName, datasourceURI, loadFrom, annotationCreator, delimiter, false);
+    }
+
+    public static AnnotationDAO generateDatasource(String datasourceName,
+                                                   URI datasourceURI,
+                                                   String loadFrom,
+                                                   String annotationCreator,
+                                                   String delimiter,
+                                                   boolean streaming) {
         // loadFrom is optional, may be null
         Resource csvResource = null;
         if (StringUtils.hasText(loadFrom)) {
@@ -60,6 +69,7 @@ public class CSVDatasourceFactory {
         else {
             csvAnnotationDAO = new CSVAnnotationDAO(csvAnnotationFactory, csvResource, delimiter);
         }
+        csvAnnotationDAO.setStreaming(streaming);
         csvAnnotationDAO.init();
 
         return csvAnnotationDAO;
@@ -66,6 +66,11 @@ public class CSVAnnotationsBeanDefinitionParser extends AbstractBeanDefinitionPa
             defaultSourceType = element.getAttribute("defaultSourceType");
         }
 
+        boolean streaming = false;
+        if (element.hasAttribute("streaming")) {
+            streaming = Boolean.parseBoolean(element.getAttribute("streaming"));
+        }
+
         // creating loading session bean
         BeanDefinitionBuilder csvLoadingSession = BeanDefinitionBuilder.rootBeanDefinition(CSVLoadingSession.class);
         csvLoadingSession.addConstructorArgValue(uri);
@@ -94,6 +99,9 @@ public class CSVAnnotationsBeanDefinitionParser extends AbstractBeanDefinitionPa
         if (delimiter != null) {
             csvAnnotationDao.addConstructorArgValue(delimiter);
         }
+        if (streaming) {
+            csvAnnotationDao.addPropertyValue("streaming", true);
+        }
 
         parserContext.registerBeanComponent(new BeanComponentDefinition(csvAnnotationDao.getBeanDefinition(),
                                                                         name + "-csvDAO"));
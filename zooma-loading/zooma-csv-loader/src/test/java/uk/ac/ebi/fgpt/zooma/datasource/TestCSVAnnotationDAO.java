@@ -0,0 +1,183 @@
+package uk.ac.ebi.fgpt.zooma.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.FileSystemResource;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that a {@link CSVAnnotationDAO} in streaming mode reads the same annotations as one that parses the whole
+ * file into memory.
+ *
+ * @date 18/10/26
+ */
+public class TestCSVAnnotationDAO {
+    private static final int ROWS = 2500;
+
+    private File csvFile;
+    private CSVAnnotationDAO inMemoryDAO;
+    private CSVAnnotationDAO streamingDAO;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            csvFile = File.createTempFile("annotations", ".tsv");
+            try (PrintWriter writer = new PrintWriter(csvFile, "UTF-8")) {
+                writer.print("STUDY\tBIOENTITY\tPROPERTY_TYPE\tPROPERTY_VALUE\tSEMANTIC_TAG\r\n");
+                for (int i = 0; i < ROWS; i++) {
+                    writer.print("study" + i % 10 + "\tsample" + i + "\torganism part\tvalue " + i + "\t" +
+                                         "http://www.ebi.ac.uk/efo/EFO_" + i + "|" +
+                                         "http://www.ebi.ac.uk/efo/EFO_" + (i + 1));
+                    // leave the last row unterminated
+                    if (i < ROWS - 1) {
+                        writer.print("\r\n");
+                    }
+                }
+            }
+
+            inMemoryDAO = createDAO();
+            inMemoryDAO.loadDataFromCSV();
+            streamingDAO = createDAO();
+            streamingDAO.setStreaming(true);
+            streamingDAO.loadDataFromCSV();
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail("Failed to create CSV file");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (!csvFile.delete()) {
+            csvFile.deleteOnExit();
+        }
+    }
+
+    @Test
+    public void testCount() {
+        // each row has two semantic tags, and so describes two annotations
+        assertEquals(2 * ROWS, inMemoryDAO.count(), "Wrong number of annotations");
+        assertEquals(ROWS, streamingDAO.count(), "Wrong number of rows");
+    }
+
+    @Test
+    public void testReadBlocks() {
+        List<String> streamed = new ArrayList<>();
+        for (int start = 0; start < streamingDAO.count(); start += 1000) {
+            streamed.addAll(extractValues(streamingDAO.read(1000, start)));
+        }
+        assertEquals(extractValues(inMemoryDAO.read()), streamed, "Streamed blocks differ from parsed annotations");
+        assertEquals(extractValues(inMemoryDAO.read(200, 3000)),
+                     extractValues(streamingDAO.read(100, 1500)),
+                     "Streamed block differs from parsed annotations");
+        assertEquals(0, streamingDAO.read(100, ROWS).size(), "Block after the last row should be empty");
+    }
+
+    @Test
+    public void testReadAll() {
+        assertEquals(extractValues(inMemoryDAO.read()),
+                     extractValues(streamingDAO.read()),
+                     "Streamed annotations differ from parsed annotations");
+        List<Annotation> lastRow = streamingDAO.read(1, ROWS - 1);
+        assertEquals(2, lastRow.size(), "Wrong number of annotations in last row");
+        Annotation annotation = lastRow.get(1);
+        assertEquals(URI.create("http://www.ebi.ac.uk/efo/EFO_" + ROWS),
+                     annotation.getSemanticTags().iterator().next(),
+                     "Wrong semantic tag");
+        assertEquals(annotation.getURI(), streamingDAO.read(annotation.getURI()).getURI(), "Wrong annotation read");
+    }
+
+    @Test
+    public void testDelimiters() {
+        try {
+            // a regular expression delimiter
+            writeDelimitedFile(" \t", "study1", "sample1", "organism_part", "liver", "http://www.ebi.ac.uk/efo/EFO_1");
+            CSVAnnotationDAO dao = createDAO("\\s+");
+            dao.loadDataFromCSV();
+            assertEquals("liver", dao.read().iterator().next().getAnnotatedProperty().getPropertyValue(),
+                         "Wrong property value for regular expression delimiter");
+
+            // an escaped metacharacter, matched literally
+            writeDelimitedFile("|", "study1", "sample1", "organism part", "left lung", "http://www.ebi.ac.uk/efo/EFO_2");
+            dao = createDAO("\\|");
+            dao.loadDataFromCSV();
+            assertEquals("left lung", dao.read().iterator().next().getAnnotatedProperty().getPropertyValue(),
+                         "Wrong property value for escaped delimiter");
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail("Failed to read delimited file");
+        }
+    }
+
+    @Test
+    public void testLineTerminators() {
+        try {
+            String[] terminators = {"\r", "\n", "\r\n"};
+            try (PrintWriter writer = new PrintWriter(csvFile, "UTF-8")) {
+                writer.print("STUDY\tBIOENTITY\tPROPERTY_TYPE\tPROPERTY_VALUE\tSEMANTIC_TAG\r");
+                for (int i = 0; i < 9; i++) {
+                    writer.print("study1\tsample" + i + "\torganism part\tvalue " + i + "\t" +
+                                         "http://www.ebi.ac.uk/efo/EFO_" + i + terminators[i % 3]);
+                }
+            }
+
+            CSVAnnotationDAO dao = createDAO();
+            dao.loadDataFromCSV();
+            CSVAnnotationDAO streaming = createDAO();
+            streaming.setStreaming(true);
+            streaming.loadDataFromCSV();
+            assertEquals(9, dao.count(), "Wrong number of annotations");
+            assertEquals(9, streaming.count(), "Wrong number of rows");
+            assertEquals(extractValues(dao.read()), extractValues(streaming.read()),
+                         "Streamed annotations differ from parsed annotations");
+            assertEquals("value 7", streaming.read(1, 7).iterator().next().getAnnotatedProperty().getPropertyValue(),
+                         "Wrong annotation read");
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail("Failed to read file with mixed line terminators");
+        }
+    }
+
+    private CSVAnnotationDAO createDAO() {
+        return createDAO("\\t");
+    }
+
+    private CSVAnnotationDAO createDAO(String delimiter) {
+        CSVLoadingSession session = new CSVLoadingSession(URI.create("http://www.ebi.ac.uk/fgpt/zooma/test"), "test");
+        return new CSVAnnotationDAO(new DefaultAnnotationFactory(session), new FileSystemResource(csvFile), delimiter);
+    }
+
+    private void writeDelimitedFile(String delimiter, String... row) throws IOException {
+        try (PrintWriter writer = new PrintWriter(csvFile, "UTF-8")) {
+            writer.print("STUDY" + delimiter + "BIOENTITY" + delimiter + "PROPERTY_TYPE" + delimiter +
+                                 "PROPERTY_VALUE" + delimiter + "SEMANTIC_TAG\n");
+            for (int i = 0; i < row.length; i++) {
+                writer.print((i > 0 ? delimiter : "") + row[i]);
+            }
+            writer.print("\n");
+        }
+    }
+
+    private List<String> extractValues(Collection<Annotation> annotations) {
+        List<String> values = new ArrayList<>();
+        for (Annotation annotation : annotations) {
+            values.add(annotation.getAnnotatedProperty().getPropertyValue());
+        }
+        return values;
+    }
+}
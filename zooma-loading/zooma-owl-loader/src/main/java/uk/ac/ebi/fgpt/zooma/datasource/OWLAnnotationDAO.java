@@ -1,6 +1,6 @@
 package uk.ac.ebi.fgpt.zooma.datasource;
 
-import org.semanticweb.owlapi.io.RDFXMLOntologyFormat;
+import org.coode.owlapi.turtle.TurtleOntologyFormat;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
@@ -40,6 +40,8 @@ import java.util.Set;
  * @date 23/10/12
  */
 public class OWLAnnotationDAO extends Initializable implements AnnotationDAO, SemanticallyEnrichedDAO {
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+
     private AnnotationFactory annotationFactory;
     private OntologyLoader owlLoader;
     private String datasourceName;
@@ -62,12 +64,12 @@ public class OWLAnnotationDAO extends Initializable implements AnnotationDAO, Se
             final OWLOntology ontology = owlLoader.getOntology();
             final OWLOntologyManager manager = ontology.getOWLOntologyManager();
             final PipedOutputStream out = new PipedOutputStream();
-            final PipedInputStream in = new PipedInputStream(out);
+            final PipedInputStream in = new PipedInputStream(out, PIPE_BUFFER_SIZE);
             new Thread(new Runnable() {
                 @Override public void run() {
                     try {
-                        getLog().debug("Writing ontology to supplementary RDF data stream using RDF/XML format...");
-                        manager.saveOntology(ontology, new RDFXMLOntologyFormat(), out);
+                        getLog().debug("Writing ontology to supplementary RDF data stream using Turtle format...");
+                        manager.saveOntology(ontology, new TurtleOntologyFormat(), out);
                         getLog().debug("Finished streaming ontology to supplementary RDF data stream");
                     }
                     catch (OWLOntologyStorageException e) {
@@ -82,7 +84,7 @@ public class OWLAnnotationDAO extends Initializable implements AnnotationDAO, Se
                         }
                     }
                 }
-            }).start();
+            }, getDatasourceName() + "-supplementary-rdf").start();
             return in;
         }
         catch (IOException e) {
@@ -237,7 +239,7 @@ public class OWLAnnotationDAO extends Initializable implements AnnotationDAO, Se
             getLog().warn("Interrupted whilst waiting for initialization");
         }
         if (start + size > annotations.size()) {
-            return annotations.subList(start, annotations.size());
+            return annotations.subList(Math.min(start, annotations.size()), annotations.size());
         }
         else {
             return annotations.subList(start, start + size);
@@ -61,7 +61,7 @@ public class TestOWLAnnotationDAO {
     public void testGetSupplementaryRDFStream() {
         // read bytes from input stream, write to file
         try (InputStream in = annotationDAO.getSupplementaryRDFStream();
-             OutputStream out = new FileOutputStream(new File("target", "test_supplemental.rdf"))) {
+             OutputStream out = new FileOutputStream(new File("target", "test_supplemental.ttl"))) {
             getLog().debug("Reading from supplementary RDF data stream...");
             byte[] buffer = new byte[1024];
             int len = in.read(buffer);
@@ -228,9 +228,8 @@ public class SparqlAnnotationDAO implements AnnotationDAO {
     @Override
     public List<Annotation> read(int size, int start) {
 
-        String query = getQueryManager().getSparqlQuery("ANNOTATIONS.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
+        Query q1 = getQueryManager().getQuery("ANNOTATIONS.read");
         if (size > -1) {
             q1.setLimit(size);
         }
@@ -263,9 +262,11 @@ public class SparqlAnnotationDAO implements AnnotationDAO {
 
     private List<URI> getAllAnnotationURIs(int size, int start) {
 
-        String query = getQueryManager().getSparqlQuery("Instance");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
+        QuerySolutionMap initialBinding = new QuerySolutionMap();
+        initialBinding.add(QueryVariables.RESOURCE_TYPE.toString(),
+                new ResourceImpl(Namespaces.OAC.getURI() + "DataAnnotation"));
+        Query q1 = getQueryManager().getQuery("Instance");
         if (size > -1) {
             q1.setLimit(size);
         }
@@ -273,14 +274,12 @@ public class SparqlAnnotationDAO implements AnnotationDAO {
             q1.setOffset(start);
             q1.addOrderBy(underscore + QueryVariables.RESOURCE.toString(), Query.ORDER_DEFAULT);
         }
-        QuerySolutionMap initialBinding = new QuerySolutionMap();
-        initialBinding.add(QueryVariables.RESOURCE_TYPE.toString(),
-                new ResourceImpl(Namespaces.OAC.getURI() + "DataAnnotation"));
 
         QueryExecution execute = null;
         List<URI> uris = new ArrayList<URI>();
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
 
             while (results.hasNext()) {
@@ -304,16 +303,16 @@ public class SparqlAnnotationDAO implements AnnotationDAO {
 
     @Override
     public Annotation read(URI uri) {
-        String query = getQueryManager().getSparqlQuery("ANNOTATIONS.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
 
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         initialBinding.add(QueryVariables.ANNOTATION_ID.toString(), new ResourceImpl(uri.toString()));
+        Query q1 = getQueryManager().getQueryTemplate("ANNOTATIONS.read");
 
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             List<Annotation> annos = evaluateQueryResults(results);
             getLog().trace("SPARQL query " + queryCounter++ + " complete");
@@ -343,17 +342,16 @@ public class SparqlAnnotationDAO implements AnnotationDAO {
 
     @Override
     public Collection<Annotation> readByStudy(Study study) {
-        String query = getQueryManager().getSparqlQuery("ANNOTATIONS_STUDY.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
 
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         initialBinding.add(QueryVariables.STUDY_ID.toString(), new ResourceImpl(study.getURI().toString()));
-        ParameterizedSparqlString queryString = new ParameterizedSparqlString(q1.toString(), initialBinding);
+        Query q1 = getQueryManager().getQueryTemplate("ANNOTATIONS_STUDY.read");
 
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, queryString.asQuery(), false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             return evaluateQueryResults(results);
         } catch (LodeException e) {
@@ -371,19 +369,16 @@ public class SparqlAnnotationDAO implements AnnotationDAO {
 
     @Override
     public Collection<Annotation> readByBiologicalEntity(BiologicalEntity biologicalEntity) {
-        String query = getQueryManager().getSparqlQuery("ANNOTATIONS_BIOENTITY.read");
-
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
-
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         initialBinding.add(QueryVariables.BIOLOGICAL_ENTITY.toString(),
                 new ResourceImpl(biologicalEntity.getURI().toString()));
-//        ParameterizedSparqlString queryString = new ParameterizedSparqlString(q1.toString(), initialBinding);
+        Query q1 = getQueryManager().getQueryTemplate("ANNOTATIONS_BIOENTITY.read");
 
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             return evaluateQueryResults(results);
         } catch (LodeException e) {
@@ -400,10 +395,7 @@ public class SparqlAnnotationDAO implements AnnotationDAO {
 
     @Override
     public Collection<Annotation> readByProperty(Property property) {
-        String query = getQueryManager().getSparqlQuery("ANNOTATIONS.read");
-
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
 
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         if (property.getURI() != null) {
@@ -421,11 +413,12 @@ public class SparqlAnnotationDAO implements AnnotationDAO {
             }
         }
 
-        ParameterizedSparqlString queryString = new ParameterizedSparqlString(q1.toString(), initialBinding);
+        Query q1 = getQueryManager().getQueryTemplate("ANNOTATIONS.read");
 
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, queryString.asQuery(), false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             return evaluateQueryResults(results);
         } catch (LodeException e) {
@@ -442,17 +435,16 @@ public class SparqlAnnotationDAO implements AnnotationDAO {
 
     @Override
     public Collection<Annotation> readBySemanticTag(URI semanticTagURI) {
-        String query = getQueryManager().getSparqlQuery("ANNOTATIONS.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
 
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         initialBinding.add(QueryVariables.SEMANTIC_TAG.toString(), new ResourceImpl(semanticTagURI.toString()));
-        ParameterizedSparqlString queryString = new ParameterizedSparqlString(q1.toString(), initialBinding);
+        Query q1 = getQueryManager().getQueryTemplate("ANNOTATIONS.read");
 
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, queryString.asQuery(), false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             return evaluateQueryResults(results);
         } catch (LodeException e) {
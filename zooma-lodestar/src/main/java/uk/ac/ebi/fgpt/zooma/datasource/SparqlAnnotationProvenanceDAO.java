@@ -3,11 +3,9 @@ package uk.ac.ebi.fgpt.zooma.datasource;
 import com.hp.hpl.jena.graph.Graph;
 import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.query.QueryExecution;
-import com.hp.hpl.jena.query.QueryFactory;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.QuerySolutionMap;
 import com.hp.hpl.jena.query.ResultSet;
-import com.hp.hpl.jena.query.Syntax;
 import com.hp.hpl.jena.rdf.model.Literal;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
@@ -76,16 +74,15 @@ public class SparqlAnnotationProvenanceDAO implements AnnotationProvenanceDAO {
 
     @Override
     public AnnotationProvenance readByAnnotationURI(URI uri) {
-        String query = getQueryManager().getSparqlQuery("AnnotationProvenance.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
-
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         initialBinding.add(QueryVariables.ANNOTATION_ID.toString(), new ResourceImpl(uri.toString()));
+        Query q1 = getQueryManager().getQueryTemplate("AnnotationProvenance.read");
 
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             List<AnnotationProvenance> annos = evaluateQueryResults(results);
             if (annos.size() > 1) {
@@ -85,9 +85,8 @@ public class SparqlAnnotationSourceDAO implements AnnotationSourceDAO {
     }
 
     @Override public List<AnnotationSource> read(int size, int start) {
-        String query = getQueryManager().getSparqlQuery("AnnotationSource.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
+        Query q1 = getQueryManager().getQuery("AnnotationSource.read");
         if (size > -1) {
             q1.setLimit(size);
         }
@@ -115,16 +114,15 @@ public class SparqlAnnotationSourceDAO implements AnnotationSourceDAO {
     }
 
     @Override public AnnotationSource read(URI uri) {
-        String query = getQueryManager().getSparqlQuery("AnnotationSource.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
-
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         initialBinding.add(QueryVariables.DATABASEID.toString(), new ResourceImpl(uri.toString()));
+        Query q1 = getQueryManager().getQueryTemplate("AnnotationSource.read");
 
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             List<AnnotationSource> sources = evaluateQueryResults(results);
             if (sources.size() > 1) {
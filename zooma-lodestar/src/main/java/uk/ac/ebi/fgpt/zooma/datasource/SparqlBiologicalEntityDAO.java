@@ -1,14 +1,11 @@
 package uk.ac.ebi.fgpt.zooma.datasource;
 
 import com.hp.hpl.jena.graph.Graph;
-import com.hp.hpl.jena.query.ParameterizedSparqlString;
 import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.query.QueryExecution;
-import com.hp.hpl.jena.query.QueryFactory;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.QuerySolutionMap;
 import com.hp.hpl.jena.query.ResultSet;
-import com.hp.hpl.jena.query.Syntax;
 import com.hp.hpl.jena.rdf.model.Literal;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
@@ -96,9 +93,8 @@ public class SparqlBiologicalEntityDAO implements BiologicalEntityDAO {
     }
 
     @Override public List<BiologicalEntity> read(int size, int start) {
-        String query = getQueryManager().getSparqlQuery("BiologicalEntity.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
+        Query q1 = getQueryManager().getQuery("BiologicalEntity.read");
 
         if (size > -1) {
             q1.setLimit(size);
@@ -130,17 +126,16 @@ public class SparqlBiologicalEntityDAO implements BiologicalEntityDAO {
             throw new RuntimeException("Can't read biological entity of null URI");
         }
 
-        String query = getQueryManager().getSparqlQuery("BiologicalEntity.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
 
 
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         initialBinding.add(QueryVariables.BIOLOGICAL_ENTITY.toString(), new ResourceImpl(uri.toString()));
         QueryExecution execute = null;
         try {
-            ParameterizedSparqlString queryString = new ParameterizedSparqlString(q1.toString(), initialBinding);
-            execute = getQueryService().getQueryExecution(g, queryString.asQuery(), false);
+            Query q1 = getQueryManager().getQueryTemplate("BiologicalEntity.read");
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             List<BiologicalEntity> bes = evaluateQueryResults(results);
 
@@ -173,9 +168,8 @@ public class SparqlBiologicalEntityDAO implements BiologicalEntityDAO {
     }
 
     @Override public int count() {
-        String query = getQueryManager().getSparqlCountQuery("BiologicalEntity.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
+        Query q1 = getQueryManager().getCountQuery("BiologicalEntity.read");
         QueryExecution execute = null;
         int c = 0;
         try {
@@ -294,14 +288,14 @@ public class SparqlBiologicalEntityDAO implements BiologicalEntityDAO {
 
     @Override
     public Collection<BiologicalEntity> readBySemanticTags(boolean useInference, URI... semanticTags) {
-        String query;
+        String queryId;
         if (useInference) {
-            query = getQueryManager().getSparqlQuery("BiologicalEntity.bySemanticTagInferred");
+            queryId = "BiologicalEntity.bySemanticTagInferred";
         }
         else {
-            query = getQueryManager().getSparqlQuery("BiologicalEntity.bySemanticTag");
+            queryId = "BiologicalEntity.bySemanticTag";
         }
-        return _readBySemanticTags(query, useInference, semanticTags);
+        return _readBySemanticTags(queryId, useInference, semanticTags);
     }
 
     @Override public Collection<BiologicalEntity> readByStudyAndName(Study study, String bioentityName) {
@@ -313,17 +307,18 @@ public class SparqlBiologicalEntityDAO implements BiologicalEntityDAO {
         throw new UnsupportedOperationException("Biological Entity lookup by study is not yet implemented");
     }
 
-    private Collection<BiologicalEntity> _readBySemanticTags(String query, boolean inference, URI... semanticTags) {
+    private Collection<BiologicalEntity> _readBySemanticTags(String queryId, boolean inference, URI... semanticTags) {
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
         QueryExecution execute = null;
         List<BiologicalEntity> bes = new ArrayList<>();
 
         for (URI uri : semanticTags) {
             QuerySolutionMap initialBinding = new QuerySolutionMap();
             initialBinding.add(QueryVariables.SEMANTIC_TAG.toString(), new ResourceImpl(uri.toString()));
+            Query q1 = getQueryManager().getQueryTemplate(queryId);
             try {
-                execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, inference);
+                execute = getQueryService().getQueryExecution(g, q1, inference);
+                execute.setInitialBinding(initialBinding);
                 ResultSet results = execute.execSelect();
                 bes.addAll(evaluateQueryResults(results));
             }
@@ -3,11 +3,9 @@ package uk.ac.ebi.fgpt.zooma.datasource;
 import com.hp.hpl.jena.graph.Graph;
 import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.query.QueryExecution;
-import com.hp.hpl.jena.query.QueryFactory;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.QuerySolutionMap;
 import com.hp.hpl.jena.query.ResultSet;
-import com.hp.hpl.jena.query.Syntax;
 import com.hp.hpl.jena.rdf.model.Literal;
 import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.rdf.model.impl.ResourceImpl;
@@ -108,9 +106,8 @@ public class SparqlLuceneAnnotationDAO implements AnnotationDAO {
 
     @Override public List<Annotation> read(int size, int start) {
 
-        String query = getQueryManager().getSparqlQuery("ANNOTATIONS.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
+        Query q1 = getQueryManager().getQuery("ANNOTATIONS.read");
         if (size > -1) {
             q1.setLimit(size);
         }
@@ -144,9 +141,11 @@ public class SparqlLuceneAnnotationDAO implements AnnotationDAO {
 
     private List<URI> getAllAnnotationURIs(int size, int start) {
 
-        String query = getQueryManager().getSparqlQuery("Instance");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
+        QuerySolutionMap initialBinding = new QuerySolutionMap();
+        initialBinding.add(QueryVariables.RESOURCE_TYPE.toString(),
+                new ResourceImpl(Namespaces.OAC.getURI() + "DataAnnotation"));
+        Query q1 = getQueryManager().getQuery("Instance");
         if (size > -1) {
             q1.setLimit(size);
         }
@@ -154,14 +153,12 @@ public class SparqlLuceneAnnotationDAO implements AnnotationDAO {
             q1.setOffset(start);
             q1.addOrderBy(underscore + QueryVariables.RESOURCE.toString(), Query.ORDER_DEFAULT);
         }
-        QuerySolutionMap initialBinding = new QuerySolutionMap();
-        initialBinding.add(QueryVariables.RESOURCE_TYPE.toString(),
-                new ResourceImpl(Namespaces.OAC.getURI() + "DataAnnotation"));
 
         QueryExecution execute = null;
         List<URI> uris = new ArrayList<URI>();
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
 
             while (results.hasNext()) {
@@ -186,16 +183,16 @@ public class SparqlLuceneAnnotationDAO implements AnnotationDAO {
     }
 
     @Override public Annotation read(URI uri) {
-        String query = getQueryManager().getSparqlQuery("ANNOTATIONS.lucene.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
 
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         initialBinding.add(QueryVariables.ANNOTATION_ID.toString(), new ResourceImpl(uri.toString()));
+        Query q1 = getQueryManager().getQueryTemplate("ANNOTATIONS.lucene.read");
 
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             List<Annotation> annos = evaluateQueryResults(results);
             getLog().trace("SPARQL query " + queryCounter++ + " complete");
@@ -56,17 +56,16 @@ public class SparqlOntologyDAO implements OntologyDAO {
 
 
     @Override public String getSemanticTagLabel(URI semanticTagURI) {
-        String query = getQueryManager().getSparqlQuery("ANNOTATIONS.label");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
-
         getLog().trace("Formulating query for label of <" + semanticTagURI + ">");
 
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         initialBinding.add(QueryVariables.SEMANTIC_TAG.toString(), new ResourceImpl(semanticTagURI.toString()));
+        Query q1 = getQueryManager().getQueryTemplate("ANNOTATIONS.label");
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             String label = evaluateLabelQueryResult(results);
 
@@ -94,15 +93,14 @@ public class SparqlOntologyDAO implements OntologyDAO {
     @Override
     public Set<String> getSemanticTags(){
 
-        String query = getQueryManager().getSparqlQuery("ANNOTATIONS.semantictags");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
+        Query q1 = getQueryManager().getQueryTemplate("ANNOTATIONS.semantictags");
 
         getLog().trace("Formulating query to get all distinct semantic tags in the annotations");
 
         QueryExecution execute = null;
         try{
-            execute = getQueryService().getQueryExecution(g, q1.toString(), null, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
             ResultSet results = execute.execSelect();
             return getSemanticTagsFromBindingSet(results);
         } catch (LodeException e) {
@@ -130,18 +128,17 @@ public class SparqlOntologyDAO implements OntologyDAO {
     }
 
     @Override public Set<String> getSemanticTagSynonyms(URI synonymTypeURI, URI semanticTagURI) {
-        String query = getQueryManager().getSparqlQuery("ANNOTATIONS.synonyms");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
-
         getLog().trace("Formulating query for label of <" + semanticTagURI + ">");
 
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         initialBinding.add(QueryVariables.SYNONYM_PROPERTY.toString(), new ResourceImpl(synonymTypeURI.toString()));
         initialBinding.add(QueryVariables.SEMANTIC_TAG.toString(), new ResourceImpl(semanticTagURI.toString()));
+        Query q1 = getQueryManager().getQueryTemplate("ANNOTATIONS.synonyms");
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             return evaluateSynonymQueryResult(results);
 
@@ -3,18 +3,20 @@ package uk.ac.ebi.fgpt.zooma.datasource;
 import com.hp.hpl.jena.datatypes.RDFDatatype;
 import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
 import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.NodeFactory;
 import com.hp.hpl.jena.query.Query;
 import com.hp.hpl.jena.query.QueryExecution;
-import com.hp.hpl.jena.query.QueryFactory;
 import com.hp.hpl.jena.query.QuerySolution;
 import com.hp.hpl.jena.query.QuerySolutionMap;
 import com.hp.hpl.jena.query.ResultSet;
-import com.hp.hpl.jena.query.Syntax;
 import com.hp.hpl.jena.rdf.model.Literal;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.rdf.model.impl.ResourceImpl;
+import com.hp.hpl.jena.sparql.core.Var;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory;
 import org.semanticweb.owlapi.model.OWLNamedIndividual;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.slf4j.Logger;
@@ -88,9 +90,8 @@ public class SparqlPropertyDAO implements PropertyDAO {
     }
 
     @Override public int count() {
-        String query = getQueryManager().getSparqlCountQuery("Property.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
+        Query q1 = getQueryManager().getCountQuery("Property.read");
         QueryExecution execute = null;
         int c = 0;
         try {
@@ -201,9 +202,8 @@ public class SparqlPropertyDAO implements PropertyDAO {
     }
 
     @Override public List<Property> read(int size, int start) {
-        String query = getQueryManager().getSparqlQuery("Property.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
+        Query q1 = getQueryManager().getQuery("Property.read");
         if (size > -1) {
             q1.setLimit(size);
         }
@@ -235,11 +235,10 @@ public class SparqlPropertyDAO implements PropertyDAO {
     }
 
     @Override public List<String> readTypes(int size, int start) {
-        String query = getQueryManager().getSparqlQuery("Property.types");
         List<String> types = new ArrayList<>();
 
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
+        Query q1 = getQueryManager().getQuery("Property.types");
         if (size > -1) {
             q1.setLimit(size);
         }
@@ -274,14 +273,14 @@ public class SparqlPropertyDAO implements PropertyDAO {
 
 
     @Override public Property read(URI uri) {
-        String query = getQueryManager().getSparqlQuery("Property.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         initialBinding.add(QueryVariables.PROPERTY_VALUE_ID.toString(), new ResourceImpl(uri.toString()));
+        Query q1 = getQueryManager().getQueryTemplate("Property.read");
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             List<Property> ps = evaluateQueryResults(results);
             if (ps.size() > 1) {
@@ -311,6 +310,45 @@ public class SparqlPropertyDAO implements PropertyDAO {
 
     }
 
+    /**
+     * Retrieves all properties with the given URIs using a single query, by binding the property URIs in a VALUES
+     * block rather than querying for each URI in turn.
+     *
+     * @param uris the URIs of the properties to retrieve
+     * @return the properties with these URIs
+     */
+    @Override public Collection<Property> read(Collection<URI> uris) {
+        if (uris.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Graph g = getQueryService().getDefaultGraph();
+        Query q1 = getQueryManager().getQuery("Property.read");
+        Var propertyVar = Var.alloc(QueryVariables.PROPERTY_VALUE_ID.toString());
+        List<Binding> values = new ArrayList<>();
+        for (URI uri : uris) {
+            values.add(BindingFactory.binding(propertyVar, NodeFactory.createURI(uri.toString())));
+        }
+        q1.setValuesDataBlock(Collections.singletonList(propertyVar), values);
+        QueryExecution execute = null;
+        try {
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            ResultSet results = execute.execSelect();
+            return evaluateQueryResults(results);
+        }
+        catch (LodeException e) {
+            throw new SPARQLQueryException("Failed to retrieve properties", e);
+        }
+        finally {
+            if (execute != null) {
+                execute.close();
+                if (g != null) {
+                    g.close();
+                }
+            }
+        }
+    }
+
     @Override public String readType(URI uri) {
         Property p = read(uri);
         if (p instanceof TypedProperty) {
@@ -325,9 +363,7 @@ public class SparqlPropertyDAO implements PropertyDAO {
             throw new IllegalArgumentException("You supply at least a type or value to search on");
         }
 
-        String query = getQueryManager().getSparqlQuery("Property.search");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         Model m = ModelFactory.createDefaultModel();
 
@@ -337,10 +373,12 @@ public class SparqlPropertyDAO implements PropertyDAO {
         if (value != null) {
             initialBinding.add(QueryVariables.PROPERTY_VALUE.toString(), m.createTypedLiteral(value, XSDDatatype.XSDstring));
         }
+        Query q1 = getQueryManager().getQueryTemplate("Property.search");
 
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             return evaluateQueryResults(results);
 
@@ -360,16 +398,16 @@ public class SparqlPropertyDAO implements PropertyDAO {
     }
 
     @Override public Property readByValue(String value) {
-        String query = getQueryManager().getSparqlQuery("Property.readNoType");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         Model m = ModelFactory.createDefaultModel();
 
         initialBinding.add(QueryVariables.PROPERTY_VALUE.toString(), m.createLiteral(value));
+        Query q1 = getQueryManager().getQueryTemplate("Property.readNoType");
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             List<Property> ps = evaluateQueryResults(results);
 
@@ -405,16 +443,16 @@ public class SparqlPropertyDAO implements PropertyDAO {
 
     @Override
     public Collection<Property> readByType(String type) {
-        String query = getQueryManager().getSparqlQuery("Property.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         Model m = ModelFactory.createDefaultModel();
 
         initialBinding.add(QueryVariables.PROPERTY_NAME.toString(), m.createLiteral(type));
+        Query q1 = getQueryManager().getQueryTemplate("Property.read");
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             return evaluateQueryResults(results);
         }
@@ -76,9 +76,8 @@ public class SparqlStudyDAO implements StudyDAO {
 
     @Override
     public int count() {
-        String query = getQueryManager().getSparqlCountQuery("Study.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
+        Query q1 = getQueryManager().getCountQuery("Study.read");
         QueryExecution execute = null;
         int c = 0;
         try {
@@ -189,9 +188,8 @@ public class SparqlStudyDAO implements StudyDAO {
 
     @Override
     public List<Study> read(int size, int start) {
-        String query = getQueryManager().getSparqlQuery("Study.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
+        Query q1 = getQueryManager().getQuery("Study.read");
         if (size > -1) {
             q1.setLimit(size);
         }
@@ -223,16 +221,14 @@ public class SparqlStudyDAO implements StudyDAO {
             throw new RuntimeException("Can't read studies for URI null");
         }
 
-        String query = getQueryManager().getSparqlQuery("Study.read");
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
-
-
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         initialBinding.add(QueryVariables.STUDY_ID.toString(), new ResourceImpl(uri.toString()));
+        Query q1 = getQueryManager().getQueryTemplate("Study.read");
         QueryExecution execute = null;
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             List<Study> studies = evaluateQueryResults(results);
 
@@ -288,13 +284,13 @@ public class SparqlStudyDAO implements StudyDAO {
 
     @Override
     public Collection<Study> readBySemanticTags(boolean useInference, URI... semanticTags) {
-        String query;
+        String queryId;
         if (useInference) {
-            query = getQueryManager().getSparqlQuery("Study.bySemanticTagInferred");
+            queryId = "Study.bySemanticTagInferred";
         } else {
-            query = getQueryManager().getSparqlQuery("Study.bySemanticTag");
+            queryId = "Study.bySemanticTag";
         }
-        return _readBySemanticTags(query, useInference, semanticTags);
+        return _readBySemanticTags(queryId, useInference, semanticTags);
     }
 
 
@@ -335,11 +331,7 @@ public class SparqlStudyDAO implements StudyDAO {
     @Override
     public Collection<Study> readByProperty(Property... property) {
 
-        String query = getQueryManager().getSparqlQuery("Study.readByProperty");
-
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
-
         Collection<Study> bes = new HashSet<Study>();
         try {
 
@@ -348,7 +340,9 @@ public class SparqlStudyDAO implements StudyDAO {
                     QueryExecution execute = null;
                     QuerySolutionMap initialBinding = new QuerySolutionMap();
                     initialBinding.add(QueryVariables.PROPERTY_VALUE_ID.toString(), new ResourceImpl(p.getURI().toString()));
-                    execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+                    Query q1 = getQueryManager().getQueryTemplate("Study.readByProperty");
+                    execute = getQueryService().getQueryExecution(g, q1, false);
+                    execute.setInitialBinding(initialBinding);
                     ResultSet results = execute.execSelect();
                     bes.addAll(evaluateQueryResults(results));
                     execute.close();
@@ -366,10 +360,9 @@ public class SparqlStudyDAO implements StudyDAO {
     }
 
 
-    private Collection<Study> _readBySemanticTags(String query, boolean useInference, URI... semanticTags) {
+    private Collection<Study> _readBySemanticTags(String queryId, boolean useInference, URI... semanticTags) {
 
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
         List<Study> bes = new ArrayList<>();
 
         QueryExecution execute = null;
@@ -377,7 +370,9 @@ public class SparqlStudyDAO implements StudyDAO {
             for (URI uri : semanticTags) {
                 QuerySolutionMap initialBinding = new QuerySolutionMap();
                 initialBinding.add(QueryVariables.SEMANTIC_TAG.toString(), new ResourceImpl(uri.toString()));
-                execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, useInference);
+                Query q1 = getQueryManager().getQueryTemplate(queryId);
+                execute = getQueryService().getQueryExecution(g, q1, useInference);
+                execute.setInitialBinding(initialBinding);
                 ResultSet results = execute.execSelect();
                 bes.addAll(evaluateQueryResults(results));
                 execute.close();
@@ -404,18 +399,16 @@ public class SparqlStudyDAO implements StudyDAO {
             return Collections.<URI>emptySet();
         }
 
-        String query = getQueryManager().getSparqlQuery("Types");
-
         Graph g = getQueryService().getDefaultGraph();
-        Query q1 = QueryFactory.create(query, Syntax.syntaxARQ);
-
         QuerySolutionMap initialBinding = new QuerySolutionMap();
         initialBinding.add(QueryVariables.RESOURCE.toString(), new ResourceImpl(resource.toString()));
+        Query q1 = getQueryManager().getQueryTemplate("Types");
 
         QueryExecution execute = null;
         Set<URI> types = new HashSet<URI>();
         try {
-            execute = getQueryService().getQueryExecution(g, q1.toString(), initialBinding, false);
+            execute = getQueryService().getQueryExecution(g, q1, false);
+            execute.setInitialBinding(initialBinding);
             ResultSet results = execute.execSelect();
             while (results.hasNext()) {
                 QuerySolution solution = results.nextSolution();
@@ -1,5 +1,8 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.Syntax;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.Resource;
@@ -10,21 +13,29 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * QueryManager handles retrieval of sparql queries based on query id from a specified file
  * <p/>
  * Input file expects format ^[query id] followed by the sparql query hash comments (#) are allowed
+ * <p/>
+ * Queries are indexed by id when the query file is loaded.  The PREFIX header for the configured namespaces is built
+ * once, and each query is parsed the first time it is requested.  Use {@link #getQueryTemplate(String)} to obtain the
+ * shared, parsed query and bind variables when executing it, or {@link #getQuery(String)} to obtain a copy that can be
+ * modified.  If the prefix mappings change, the header is rebuilt and queries are parsed again on their next use.
  *
  * @author Simon Jupp
  * @date 17/05/2012 Functional Genomics Group EMBL-EBI
  */
 public class QueryManager {
     private Resource sparqlQueryResource;
-    private String[] queries;
+    private Map<String, String> queries;
+    private volatile QueryTemplates templates;
 
     public PropertiesMapAdapter getPropertiesMapAdapter() {
         return propertiesMapAdapter;
@@ -61,21 +72,18 @@ public class QueryManager {
     }
 
     public String getSparqlQuery(String queryId, boolean withDefaultPrefix) {
-        for (String query : queries) {
-            final String name = query.substring(0, query.indexOf(":"));
-
-
-            if (name.equals(queryId)) {
-                String q = "";
-                if (withDefaultPrefix) {
-                    q = getPrefix() + "\n";
-                }
-                return q + query.substring(name.length() + 2).trim();
-            }
+        String query = queries.get(queryId);
+        if (query == null) {
+            getLog().error("No query for " + queryId + " found");
+            throw new SPARQLQueryException("No SPARQL template query for " + queryId);
         }
 
-        getLog().error("No query for " + queryId + " found");
-        throw new SPARQLQueryException("No SPARQL template query for " + queryId);
+        if (withDefaultPrefix) {
+            return getPrefix() + "\n" + query;
+        }
+        else {
+            return query;
+        }
     }
 
     public String getSparqlQuery(String queryId) {
@@ -83,18 +91,96 @@ public class QueryManager {
     }
 
     public String getPrefix() {
-        // add prefixes for all loaded namespaces
-        StringBuilder sb = new StringBuilder();
+        return getTemplates().prefix;
+    }
+
+    public String getSparqlCountQuery(String queryId) {
+        String subQuery = getSparqlQuery(queryId, false);
+        return getPrefix() + "\nSELECT (count(*) as ?count) WHERE { { " + subQuery + " } }";
+    }
+
+    /**
+     * Returns the query with the given id, with the default prefixes.  The returned query is a copy of a previously
+     * parsed template, so callers are free to modify it (for example, to set a limit or offset).  Copying a query
+     * parses it again, so callers that do not need to modify the query should use {@link #getQueryTemplate(String)}
+     * instead.
+     *
+     * @param queryId the id of the query
+     * @return a copy of the parsed query
+     */
+    public Query getQuery(String queryId) {
+        return getQueryTemplate(queryId).cloneQuery();
+    }
+
+    /**
+     * Returns the parsed template of the query with the given id, with the default prefixes.  The template is shared
+     * between callers and must not be modified.  Variables should be bound by supplying their values as the initial
+     * binding of the query execution (see {@link com.hp.hpl.jena.query.QueryExecution#setInitialBinding}), which
+     * leaves the template untouched and still returns bound variables that are selected by the query.
+     *
+     * @param queryId the id of the query
+     * @return the shared, parsed query
+     */
+    public Query getQueryTemplate(String queryId) {
+        QueryTemplates templates = getTemplates();
+        Query template = templates.queries.get(queryId);
+        if (template == null) {
+            template = parse(getSparqlQuery(queryId, false), templates.prefix);
+            Query existing = templates.queries.putIfAbsent(queryId, template);
+            if (existing != null) {
+                template = existing;
+            }
+        }
+        return template;
+    }
+
+    /**
+     * Returns a query that counts the results of the query with the given id.  The returned query is a previously
+     * parsed template that is shared between callers and must not be modified.
+     *
+     * @param queryId the id of the query to count results of
+     * @return the shared, parsed count query
+     */
+    public Query getCountQuery(String queryId) {
+        QueryTemplates templates = getTemplates();
+        Query template = templates.countQueries.get(queryId);
+        if (template == null) {
+            template = parse("SELECT (count(*) as ?count) WHERE { { " + getSparqlQuery(queryId, false) + " } }",
+                             templates.prefix);
+            Query existing = templates.countQueries.putIfAbsent(queryId, template);
+            if (existing != null) {
+                template = existing;
+            }
+        }
+        return template;
+    }
+
+    private Query parse(String query, String prefix) {
+        Query q = QueryFactory.create(prefix + "\n" + query, Syntax.syntaxARQ);
+        // result variables are otherwise computed lazily, which would modify a shared template
+        q.setResultVars();
+        return q;
+    }
+
+    /**
+     * Returns the templates for the current prefix mappings, building a new prefix header (and discarding previously
+     * parsed queries) if the mappings have changed since the templates were last built.
+     *
+     * @return the query templates for the current prefix mappings
+     */
+    private QueryTemplates getTemplates() {
         Map<String, String> propMap = getPropertiesMapAdapter().getPropertyMap();
-        for (String prefix : propMap.keySet()) {
-            sb.append("PREFIX ").append(prefix).append(":<").append(propMap.get(prefix)).append(">\n");
+        QueryTemplates templates = this.templates;
+        if (templates == null || templates.prefixMappings != propMap) {
+            templates = new QueryTemplates(propMap);
+            this.templates = templates;
         }
-        return sb.toString();
+        return templates;
     }
 
-    private String[] collectQueries(InputStream in) throws IOException {
+    private Map<String, String> collectQueries(InputStream in) throws IOException {
         getLog().debug("Loading SPARQL queries...");
-        List<String> queries = new ArrayList<>();
+        Map<String, String> queries = new LinkedHashMap<>();
         BufferedReader inp = new BufferedReader(new InputStreamReader(in));
         String nextLine = null;
 
@@ -115,8 +201,8 @@ public class QueryManager {
                 continue;
             }
             if (line.startsWith("^[") && line.endsWith("]")) {
-                StringBuilder buff = new StringBuilder(line.substring(2, line.length() - 1));
-                buff.append(": ");
+                String name = line.substring(2, line.length() - 1);
+                StringBuilder buff = new StringBuilder();
 
                 for (; ; ) {
                     line = inp.readLine();
@@ -138,20 +224,33 @@ public class QueryManager {
                     buff.append(System.getProperty("line.separator"));
                 }
 
-                queries.add(buff.toString());
+                getLog().debug("Adding query '" + name + ": " + buff + "'");
+                queries.put(name, buff.toString().trim());
             }
         }
-
-        String[] result = new String[queries.size()];
-        for (int i = 0; i < queries.size(); i++) {
-            getLog().debug("Adding query '" + queries.get(i) + "'");
-            result[i] = queries.get(i);
-        }
-        return result;
+        return Collections.unmodifiableMap(queries);
     }
 
-    public String getSparqlCountQuery(String queryId) {
-        String subQuery = getSparqlQuery(queryId, false);
-        return getPrefix() + "\nSELECT (count(*) as ?count) WHERE { { " + subQuery + " } }";
+    /**
+     * The prefix header and parsed queries for one set of prefix mappings
+     */
+    private static class QueryTemplates {
+        private final Map<String, String> prefixMappings;
+        private final String prefix;
+        private final ConcurrentMap<String, Query> queries;
+        private final ConcurrentMap<String, Query> countQueries;
+
+        private QueryTemplates(Map<String, String> prefixMappings) {
+            this.prefixMappings = prefixMappings;
+
+            // add prefixes for all loaded namespaces
+            StringBuilder sb = new StringBuilder();
+            for (String prefix : prefixMappings.keySet()) {
+                sb.append("PREFIX ").append(prefix).append(":<").append(prefixMappings.get(prefix)).append(">\n");
+            }
+            this.prefix = sb.toString();
+            this.queries = new ConcurrentHashMap<>();
+            this.countQueries = new ConcurrentHashMap<>();
+        }
     }
 }
@@ -0,0 +1,153 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import com.hp.hpl.jena.query.Query;
+import com.hp.hpl.jena.query.QueryExecution;
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.QueryFactory;
+import com.hp.hpl.jena.query.QuerySolutionMap;
+import com.hp.hpl.jena.query.ResultSetFormatter;
+import com.hp.hpl.jena.query.Syntax;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.impl.ResourceImpl;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import uk.ac.ebi.fgpt.zooma.util.PropertiesMapAdapter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Compares the latency of reading single annotations from an in-memory Jena model using queries parsed on every read
+ * (as the SPARQL DAOs used to) against the shared templates held by a {@link QueryManager}, binding the annotation as
+ * the initial binding of each query execution in both cases.
+ *
+ * @date 18/10/26
+ */
+public class QueryManagerBenchmark {
+    private static final int ANNOTATIONS = 1000;
+    private static final int WARMUP = 2000;
+    private static final int ITERATIONS = 10000;
+
+    public static void main(String[] args) {
+        try {
+            QueryManagerBenchmark benchmark = new QueryManagerBenchmark();
+            benchmark.run();
+        }
+        catch (IOException e) {
+            System.err.println("Failed to set up benchmark: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    private final QueryManager queryManager;
+    private final Map<String, String> namespaces;
+    private final Model model;
+
+    public QueryManagerBenchmark() throws IOException {
+        PropertiesMapAdapter propertiesMapAdapter = new PropertiesMapAdapter();
+        propertiesMapAdapter.setProperties(
+                PropertiesLoaderUtils.loadProperties(new ClassPathResource("zooma/prefix.properties")));
+        propertiesMapAdapter.init();
+        namespaces = propertiesMapAdapter.getPropertyMap();
+
+        queryManager = new QueryManager();
+        queryManager.setSparqlQueryResource(new ClassPathResource("queries.sparql"));
+        queryManager.setPropertiesMapAdapter(propertiesMapAdapter);
+        queryManager.init();
+
+        model = createModel();
+    }
+
+    public void run() {
+        System.out.println("Reading annotations from an in-memory model of " + ANNOTATIONS + " annotations");
+        // alternate runs, so both paths are measured with a warmed up JVM
+        for (int round = 1; round <= 2; round++) {
+            System.out.println("Round " + round + ":");
+            report("parsed per read", time(false));
+            report("shared template", time(true));
+        }
+    }
+
+    private long time(boolean useTemplates) {
+        for (int i = 0; i < WARMUP; i++) {
+            read(i % ANNOTATIONS, useTemplates);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            read(i % ANNOTATIONS, useTemplates);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private int read(int annotation, boolean useTemplates) {
+        QuerySolutionMap initialBinding = new QuerySolutionMap();
+        initialBinding.add(QueryVariables.ANNOTATION_ID.toString(), new ResourceImpl(annotationURI(annotation)));
+
+        Query query;
+        if (useTemplates) {
+            query = queryManager.getQueryTemplate("ANNOTATIONS.read");
+        }
+        else {
+            query = QueryFactory.create(queryManager.getSparqlQuery("ANNOTATIONS.read"), Syntax.syntaxARQ);
+        }
+
+        QueryExecution execute = QueryExecutionFactory.create(query, model, initialBinding);
+        try {
+            int results = ResultSetFormatter.consume(execute.execSelect());
+            if (results != 1) {
+                throw new IllegalStateException("Expected one result, got " + results);
+            }
+            return results;
+        }
+        finally {
+            execute.close();
+        }
+    }
+
+    private void report(String name, long nanos) {
+        System.out.println(String.format("\t%-16s %8.1f us/read", name, nanos / 1000.0 / ITERATIONS));
+    }
+
+    private Model createModel() {
+        Model m = ModelFactory.createDefaultModel();
+        String oac = namespaces.get("oac");
+        String zoomaterms = namespaces.get("zoomaterms");
+        String dc = namespaces.get("dc");
+        String resource = namespaces.get("zoomaresource");
+
+        Resource source = m.createResource(resource + "source/benchmark")
+                .addProperty(RDF.type, m.createResource(zoomaterms + "DatabaseSource"))
+                .addProperty(m.createProperty(zoomaterms, "shortName"), "benchmark");
+        for (int i = 0; i < ANNOTATIONS; i++) {
+            Resource property = m.createResource(resource + "property/" + i)
+                    .addProperty(RDF.type, m.createResource(zoomaterms + "Property"))
+                    .addProperty(m.createProperty(zoomaterms, "propertyName"), "organism part")
+                    .addProperty(m.createProperty(zoomaterms, "propertyValue"), "value " + i);
+            Resource study = m.createResource(resource + "study/" + i % 10)
+                    .addProperty(RDF.type, m.createResource(oac + "Study"))
+                    .addProperty(RDFS.label, "study" + i % 10);
+            Resource bioentity = m.createResource(resource + "bioentity/" + i)
+                    .addProperty(RDF.type, m.createResource(oac + "BiologicalEntity"))
+                    .addProperty(RDFS.label, "sample" + i)
+                    .addProperty(m.createProperty(dc, "isPartOf"), study);
+            Resource semanticTag = m.createResource("http://www.ebi.ac.uk/efo/EFO_" + i)
+                    .addProperty(RDF.type, m.createResource(oac + "SemanticTag"));
+            m.createResource(annotationURI(i))
+                    .addProperty(RDF.type, m.createResource(oac + "DataAnnotation"))
+                    .addProperty(m.createProperty(oac, "hasBody"), property)
+                    .addProperty(m.createProperty(oac, "hasBody"), semanticTag)
+                    .addProperty(m.createProperty(oac, "hasTarget"), bioentity)
+                    .addProperty(m.createProperty(dc, "source"), source);
+        }
+        return m;
+    }
+
+    private String annotationURI(int i) {
+        return namespaces.get("zoomaresource") + "annotation/" + i;
+    }
+}
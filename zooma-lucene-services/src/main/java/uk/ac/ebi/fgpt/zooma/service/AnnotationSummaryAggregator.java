@@ -0,0 +1,422 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Aggregates a stream of annotations into annotation summaries in a single pass, using a bounded amount of memory.
+ * <p/>
+ * Each annotation is reduced to a compact record, keyed by its property type, property value and sorted semantic
+ * tags, and buffered in memory.  Whenever the estimated size of the buffer exceeds the memory budget, the buffer is
+ * sorted by key and spilled to a temporary file.  Once every annotation has been added, {@link
+ * #aggregate(SummaryHandler)} merges the spilled runs with whatever remains in memory, and passes each summary to the
+ * handler as soon as all of its annotations have been read.  At no point are all annotations or all summaries held in
+ * memory, so the caller can write each summary to an index as it completes.
+ * <p/>
+ * Instances are not thread safe, and should be closed once aggregation is complete to remove any spilled files.
+ *
+ * @date 18/10/26
+ */
+public class AnnotationSummaryAggregator implements Closeable {
+    // rough per-record overhead of the record object, its arrays and strings
+    private static final int RECORD_OVERHEAD = 160;
+
+    private final long memoryBudget;
+    private final File spillDirectory;
+
+    private final List<Record> buffer;
+    private final List<File> runs;
+    private long bufferSize;
+    private long recordCount;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    /**
+     * Creates a new aggregator
+     *
+     * @param memoryBudget   the approximate number of bytes of annotation records to buffer before spilling to disk
+     * @param spillDirectory the directory to create temporary files in, or null to use the default temporary directory
+     */
+    public AnnotationSummaryAggregator(long memoryBudget, File spillDirectory) {
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+        this.buffer = new ArrayList<>();
+        this.runs = new ArrayList<>();
+        this.bufferSize = 0;
+        this.recordCount = 0;
+    }
+
+    /**
+     * Returns the number of sorted runs that have been spilled to disk so far
+     *
+     * @return the number of spilled runs
+     */
+    public int getSpillCount() {
+        return runs.size();
+    }
+
+    /**
+     * Returns the number of annotations that have been added to this aggregator
+     *
+     * @return the number of annotations added
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Adds a single annotation to this aggregator.  Annotations with no (non-null) semantic tags do not belong to any
+     * summary, and are ignored.
+     *
+     * @param propertyType  the annotated property type, never null
+     * @param propertyValue the annotated property value
+     * @param propertyUri   the URI of the annotated property, or null if unknown
+     * @param semanticTags  the semantic tags of the annotation
+     * @param annotationUri the URI of the annotation
+     * @param quality       the quality score of the annotation
+     * @param source        the URI of the source of the annotation, or null if unknown
+     * @throws IOException if the buffer needed to be spilled to disk but could not be written
+     */
+    public void add(String propertyType,
+                    String propertyValue,
+                    URI propertyUri,
+                    Collection<URI> semanticTags,
+                    URI annotationUri,
+                    float quality,
+                    URI source) throws IOException {
+        Set<String> tags = new TreeSet<>();
+        for (URI tag : semanticTags) {
+            if (tag != null) {
+                tags.add(tag.toString());
+            }
+        }
+        if (tags.isEmpty()) {
+            return;
+        }
+
+        Record record = new Record(propertyType,
+                                   propertyValue,
+                                   tags.toArray(new String[tags.size()]),
+                                   propertyUri != null ? propertyUri.toString() : "",
+                                   annotationUri.toString(),
+                                   quality,
+                                   source != null ? source.toString() : "");
+        buffer.add(record);
+        bufferSize += record.estimateSize();
+        recordCount++;
+        if (bufferSize > memoryBudget) {
+            spill();
+        }
+    }
+
+    /**
+     * Merges all added annotations into summaries, passing each one to the supplied handler in key order.  The quality
+     * of each summary passed to the handler is the best quality of any of its annotations.
+     *
+     * @param handler the handler to receive each summary
+     * @throws IOException if spilled runs could not be read, or if the handler fails
+     */
+    public void aggregate(SummaryHandler handler) throws IOException {
+        Collections.sort(buffer);
+        getLog().debug("Aggregating " + recordCount + " annotation records " +
+                               "from " + runs.size() + " spilled runs and " + buffer.size() + " buffered records");
+
+        PriorityQueue<RunCursor> cursors = new PriorityQueue<>();
+        try {
+            RunCursor memoryCursor = new RunCursor(buffer.iterator());
+            if (memoryCursor.advance()) {
+                cursors.add(memoryCursor);
+            }
+            for (File run : runs) {
+                RunCursor fileCursor = new RunCursor(run);
+                if (fileCursor.advance()) {
+                    cursors.add(fileCursor);
+                }
+                else {
+                    fileCursor.close();
+                }
+            }
+
+            Record first = null;
+            String propertyUri = "";
+            float topScore = 0;
+            Set<URI> annotations = new LinkedHashSet<>();
+            Set<URI> sources = new LinkedHashSet<>();
+            while (!cursors.isEmpty()) {
+                RunCursor cursor = cursors.poll();
+                Record record = cursor.current;
+                if (first == null || first.compareTo(record) != 0) {
+                    if (first != null) {
+                        emit(handler, first, propertyUri, topScore, annotations, sources);
+                    }
+                    first = record;
+                    propertyUri = "";
+                    topScore = record.quality;
+                    annotations = new LinkedHashSet<>();
+                    sources = new LinkedHashSet<>();
+                }
+                if (propertyUri.isEmpty()) {
+                    propertyUri = record.propertyUri;
+                }
+                topScore = Math.max(topScore, record.quality);
+                annotations.add(URI.create(record.annotationUri));
+                if (!record.source.isEmpty()) {
+                    sources.add(URI.create(record.source));
+                }
+
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+                else {
+                    cursor.close();
+                }
+            }
+            if (first != null) {
+                emit(handler, first, propertyUri, topScore, annotations, sources);
+            }
+        }
+        finally {
+            for (RunCursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Discards all buffered records and deletes any spilled runs
+     */
+    @Override public void close() {
+        buffer.clear();
+        bufferSize = 0;
+        for (File run : runs) {
+            if (!run.delete()) {
+                getLog().warn("Failed to delete temporary annotation summary file " + run.getAbsolutePath());
+            }
+        }
+        runs.clear();
+    }
+
+    private void emit(SummaryHandler handler,
+                      Record record,
+                      String propertyUri,
+                      float topScore,
+                      Set<URI> annotations,
+                      Set<URI> sources) throws IOException {
+        List<URI> semanticTags = new ArrayList<>();
+        for (String tag : record.semanticTags) {
+            semanticTags.add(URI.create(tag));
+        }
+        handler.handleSummary(record.propertyType,
+                              record.propertyValue,
+                              propertyUri.isEmpty() ? null : URI.create(propertyUri),
+                              semanticTags,
+                              annotations,
+                              topScore,
+                              sources);
+    }
+
+    private void spill() throws IOException {
+        Collections.sort(buffer);
+        File run = File.createTempFile("zooma-summaries-", ".run", spillDirectory);
+        getLog().debug("Spilling " + buffer.size() + " annotation records (~" + bufferSize + " bytes) " +
+                               "to " + run.getAbsolutePath());
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run)))) {
+            for (Record record : buffer) {
+                record.write(out);
+            }
+        }
+        buffer.clear();
+        bufferSize = 0;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A callback that receives each aggregated annotation summary
+     */
+    public interface SummaryHandler {
+        /**
+         * Handles a single, complete annotation summary
+         *
+         * @param propertyType  the annotated property type
+         * @param propertyValue the annotated property value
+         * @param propertyUri   the URI of the annotated property, or null if unknown
+         * @param semanticTags  the sorted semantic tags of the summary
+         * @param annotations   the URIs of all annotations in the summary
+         * @param topScore      the best quality score of any annotation in the summary
+         * @param sources       the sources of all annotations in the summary
+         * @throws IOException if the summary could not be handled
+         */
+        void handleSummary(String propertyType,
+                           String propertyValue,
+                           URI propertyUri,
+                           List<URI> semanticTags,
+                           Set<URI> annotations,
+                           float topScore,
+                           Set<URI> sources) throws IOException;
+    }
+
+    private static class Record implements Comparable<Record> {
+        private final String propertyType;
+        private final String propertyValue;
+        private final String[] semanticTags;
+        private final String propertyUri;
+        private final String annotationUri;
+        private final float quality;
+        private final String source;
+
+        private Record(String propertyType,
+                       String propertyValue,
+                       String[] semanticTags,
+                       String propertyUri,
+                       String annotationUri,
+                       float quality,
+                       String source) {
+            this.propertyType = propertyType;
+            this.propertyValue = propertyValue;
+            this.semanticTags = semanticTags;
+            this.propertyUri = propertyUri;
+            this.annotationUri = annotationUri;
+            this.quality = quality;
+            this.source = source;
+        }
+
+        private static Record read(DataInputStream in) throws IOException {
+            String propertyType = readString(in);
+            String propertyValue = readString(in);
+            String[] semanticTags = new String[in.readInt()];
+            for (int i = 0; i < semanticTags.length; i++) {
+                semanticTags[i] = readString(in);
+            }
+            String propertyUri = readString(in);
+            String annotationUri = readString(in);
+            float quality = in.readFloat();
+            String source = readString(in);
+            return new Record(propertyType, propertyValue, semanticTags, propertyUri, annotationUri, quality, source);
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            writeString(out, propertyType);
+            writeString(out, propertyValue);
+            out.writeInt(semanticTags.length);
+            for (String semanticTag : semanticTags) {
+                writeString(out, semanticTag);
+            }
+            writeString(out, propertyUri);
+            writeString(out, annotationUri);
+            out.writeFloat(quality);
+            writeString(out, source);
+        }
+
+        private long estimateSize() {
+            long chars = propertyType.length() + propertyValue.length() + propertyUri.length() +
+                    annotationUri.length() + source.length();
+            for (String semanticTag : semanticTags) {
+                chars += semanticTag.length();
+            }
+            return RECORD_OVERHEAD + 2 * chars;
+        }
+
+        /**
+         * Orders records by summary key only, so records comparing equal belong to the same summary
+         */
+        @Override public int compareTo(Record o) {
+            int c = propertyType.compareTo(o.propertyType);
+            if (c != 0) {
+                return c;
+            }
+            c = propertyValue.compareTo(o.propertyValue);
+            if (c != 0) {
+                return c;
+            }
+            for (int i = 0; i < semanticTags.length && i < o.semanticTags.length; i++) {
+                c = semanticTags[i].compareTo(o.semanticTags[i]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return Integer.compare(semanticTags.length, o.semanticTags.length);
+        }
+    }
+
+    /**
+     * A position in a sorted run of records, either in memory or spilled to disk
+     */
+    private static class RunCursor implements Comparable<RunCursor>, Closeable {
+        private final Iterator<Record> records;
+        private final DataInputStream in;
+        private Record current;
+
+        private RunCursor(Iterator<Record> records) {
+            this.records = records;
+            this.in = null;
+        }
+
+        private RunCursor(File run) throws IOException {
+            this.records = null;
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+        }
+
+        private boolean advance() throws IOException {
+            if (records != null) {
+                current = records.hasNext() ? records.next() : null;
+            }
+            else {
+                try {
+                    current = Record.read(in);
+                }
+                catch (EOFException e) {
+                    current = null;
+                }
+            }
+            return current != null;
+        }
+
+        @Override public int compareTo(RunCursor o) {
+            return current.compareTo(o.current);
+        }
+
+        @Override public void close() throws IOException {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+}
@@ -1,21 +1,36 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
 import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
 
+import java.io.IOException;
 import java.net.URI;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * Maps lucene documents into {@link AnnotationSummary} objects.
+ * <p/>
+ * Where the index was built with doc values for the summary quality fields (see {@link
+ * ZoomaLuceneIndexer#createAnnotationSummaryIndex}), the quality of a summary can be evaluated directly from the doc
+ * values of an index segment, without loading or parsing the stored document.
  *
  * @author Tony Burdett
  * @date 10/07/13
@@ -31,6 +46,14 @@ public class AnnotationSummaryMapper implements LuceneDocumentMapper<AnnotationS
 
     private final URI[] sourceRanking;
 
+    // the quality of each segment mapped by each thread, so doc values and ranked sources are resolved once per segment
+    private final ThreadLocal<Map<LeafReader, SegmentQuality>> segmentQualities =
+            new ThreadLocal<Map<LeafReader, SegmentQuality>>() {
+                @Override protected Map<LeafReader, SegmentQuality> initialValue() {
+                    return new WeakHashMap<>();
+                }
+            };
+
     private Logger log = LoggerFactory.getLogger(getClass());
 
     protected Logger getLog() {
@@ -123,6 +146,10 @@ public class AnnotationSummaryMapper implements LuceneDocumentMapper<AnnotationS
 
     @Override
     public AnnotationSummary mapDocument(Document d, int rank) {
+        return mapDocument(d, getDocumentQuality(d, rank));
+    }
+
+    private AnnotationSummary mapDocument(Document d, float score) {
         getLog().trace("Mapping document '" + d.toString() + "'...");
 
         // grab single cardinality fields
@@ -150,7 +177,6 @@ public class AnnotationSummaryMapper implements LuceneDocumentMapper<AnnotationS
         for (String s : sourceStrs) {
             annotationSourceURIs.add(URI.create(s));
         }
-        float score = getDocumentQuality(d, rank);
 
         getLog().trace("\nNext Annotation summary:\n\t" +
                                "property uri '" + propertyUri + "',\n\t" +
@@ -179,15 +205,135 @@ public class AnnotationSummaryMapper implements LuceneDocumentMapper<AnnotationS
     public float getDocumentQuality(Document d, int rank) {
         float topScore = Float.parseFloat(d.get("topScore"));
         int veris = Integer.parseInt(d.get("timesVerified"));
-        float freq = (float) Integer.parseInt(d.get("frequency"));
+        int freq = Integer.parseInt(d.get("frequency"));
         Set<URI> sources = new HashSet<>();
         for (String sourceString : d.getValues("source")) {
             sources.add(URI.create(sourceString));
         }
+        return getDocumentQuality(topScore, veris, freq, getSourceRanking(sources), rank);
+    }
+
+    /**
+     * Maps the document with the given segment-relative ID into an {@link AnnotationSummary}, evaluating the quality
+     * score from the doc values of the segment instead of from the stored document.  If the segment has no quality doc
+     * values (for example, if the index was built by an earlier version of ZOOMA), the stored fields are used instead.
+     *
+     * @param d       the stored document to map
+     * @param rank    the rank (i.e. position) in a lucene search in which this document was returned
+     * @param context the index segment containing the document
+     * @param doc     the ID of the document, relative to the segment
+     * @return the mapped annotation summary
+     * @throws IOException if the doc values could not be read
+     */
+    public AnnotationSummary mapDocument(Document d, int rank, LeafReaderContext context, int doc)
+            throws IOException {
+        SegmentQuality segmentQuality = getCachedSegmentQuality(context);
+        if (segmentQuality != null) {
+            return mapDocument(d, segmentQuality.getQuality(doc, rank));
+        }
+        else {
+            return mapDocument(d, getDocumentQuality(d, rank));
+        }
+    }
+
+    /**
+     * Returns a measure of the 'quality' of the document with the given segment-relative ID, read from the numeric and
+     * sorted set doc values written when the index was built.  No stored fields are loaded, so this is suitable for
+     * use whilst collecting hits.
+     *
+     * @param context the index segment containing the document
+     * @param doc     the ID of the document, relative to the segment
+     * @param rank    the rank (i.e. position) in a lucene search in which this document was returned
+     * @return a float indicating a quality score for this document
+     * @throws IOException if the doc values could not be read
+     */
+    public float getDocumentQuality(LeafReaderContext context, int doc, int rank) throws IOException {
+        SegmentQuality segmentQuality = getCachedSegmentQuality(context);
+        if (segmentQuality == null) {
+            segmentQuality = getSegmentQuality(context);
+        }
+        return segmentQuality.getQuality(doc, rank);
+    }
 
+    /**
+     * Returns an object that evaluates the quality of documents in the given index segment from its doc values.  Doc
+     * values and source ordinals are resolved once, so this should be used where many documents in the same segment
+     * are scored, such as in a collector.  The returned object is not thread-safe.
+     *
+     * @param context the index segment to read quality from
+     * @return the quality of documents in this segment
+     * @throws IOException if the doc values could not be read
+     */
+    public SegmentQuality getSegmentQuality(LeafReaderContext context) throws IOException {
+        return new SegmentQuality(context.reader());
+    }
+
+    /**
+     * Returns the quality of documents in the given index segment for the calling thread, creating it the first time
+     * the segment is seen by this thread.  Segments are weakly referenced, so closed segments can be reclaimed.
+     *
+     * @param context the index segment to read quality from
+     * @return the quality of documents in this segment, or null if the segment has no quality doc values
+     * @throws IOException if the doc values could not be read
+     */
+    private SegmentQuality getCachedSegmentQuality(LeafReaderContext context) throws IOException {
+        Map<LeafReader, SegmentQuality> qualities = segmentQualities.get();
+        LeafReader reader = context.reader();
+        if (qualities.containsKey(reader)) {
+            return qualities.get(reader);
+        }
+        SegmentQuality segmentQuality = hasQualityDocValues(reader) ? new SegmentQuality(reader) : null;
+        qualities.put(reader, segmentQuality);
+        return segmentQuality;
+    }
+
+    /**
+     * Evaluates the maximum quality score, assuming a rank of 1, of any annotation summary in the given index.  This is
+     * a single pass over the quality doc values of each segment, falling back to loading stored documents only for
+     * segments that were written without doc values.
+     *
+     * @param reader the reader over the annotation summary index
+     * @return the maximum quality score, or -1 if the index is empty
+     * @throws IOException if the index could not be read
+     */
+    public float getMaximumDocumentQuality(IndexReader reader) throws IOException {
+        float maxScore = -1;
+        for (LeafReaderContext context : reader.leaves()) {
+            LeafReader leafReader = context.reader();
+            Bits liveDocs = leafReader.getLiveDocs();
+            boolean useDocValues = hasQualityDocValues(leafReader);
+            if (!useDocValues) {
+                getLog().warn("No quality doc values in index segment " + context.ord + ", " +
+                                      "reading stored documents instead (the index may need rebuilding)");
+            }
+            SegmentQuality segmentQuality = useDocValues ? getSegmentQuality(context) : null;
+            for (int doc = 0; doc < leafReader.maxDoc(); doc++) {
+                if (liveDocs == null || liveDocs.get(doc)) {
+                    float score = useDocValues
+                            ? segmentQuality.getQuality(doc, 1)
+                            : getDocumentQuality(leafReader.document(doc), 1);
+                    maxScore = Math.max(maxScore, score);
+                }
+            }
+        }
+        return maxScore;
+    }
+
+    /**
+     * Returns a measure of the 'quality' of an annotation summary, given the values of each of the factors that
+     * contribute to it.
+     *
+     * @param topScore      the best quality score of any annotation in the summary
+     * @param veris         the number of times the summary has been verified (i.e. the number of sources)
+     * @param freq          the number of annotations in the summary
+     * @param sourceRanking the source ranking boost, as returned by {@link #getSourceRanking(java.util.Set)}
+     * @param rank          the rank (i.e. position) in a lucene search in which this summary was returned
+     * @return a float indicating a quality score for this summary
+     */
+    protected float getDocumentQuality(float topScore, int veris, int freq, float sourceRanking, int rank) {
         float annotationCount = (float) totalAnnotationCount;
         float annotationSummaryCount = (float) totalAnnotationSummaryCount;
-        float sourceRank = 0.05f * getSourceRanking(sources);
+        float sourceRank = 0.05f * sourceRanking;
 
         float normalizedFreq = 1.0f + (annotationCount > 0 ? (freq / annotationCount) : 0);
         float normalizedAnnotationRank = 1.0f - (annotationSummaryCount > 0 ? (rank / annotationSummaryCount) : 0);
@@ -221,6 +367,20 @@ public class AnnotationSummaryMapper implements LuceneDocumentMapper<AnnotationS
         }
     }
 
+    /**
+     * Returns true if the given index segment contains doc values for all of the summary quality fields.
+     *
+     * @param reader the segment reader
+     * @return true if quality can be read from doc values, false otherwise
+     * @throws IOException if the segment could not be read
+     */
+    public boolean hasQualityDocValues(LeafReader reader) throws IOException {
+        return reader.getNumericDocValues("topScore") != null &&
+                reader.getNumericDocValues("timesVerified") != null &&
+                reader.getNumericDocValues("frequency") != null &&
+                reader.getSortedSetDocValues("source") != null;
+    }
+
     /**
      * Evaluates a ranking for a set of sources.  If one of the supplied sources is set in the source rankings for this
      * mapper, the highest scoring source is used.  The score is a boost value between 0 and 1; a score of 0 is
@@ -248,4 +408,74 @@ public class AnnotationSummaryMapper implements LuceneDocumentMapper<AnnotationS
             return 0;
         }
     }
+
+    /**
+     * Evaluates the quality of documents in a single index segment using the doc values of that segment.  Ranked
+     * sources are looked up in the terms dictionary of the segment once, so no URIs are created for the sources of
+     * each document.
+     */
+    public class SegmentQuality {
+        private final NumericDocValues topScores;
+        private final NumericDocValues timesVerified;
+        private final NumericDocValues frequencies;
+        private final SortedSetDocValues sources;
+        private final long[] rankedSourceOrds;
+
+        private SegmentQuality(LeafReader reader) throws IOException {
+            this.topScores = DocValues.getNumeric(reader, "topScore");
+            this.timesVerified = DocValues.getNumeric(reader, "timesVerified");
+            this.frequencies = DocValues.getNumeric(reader, "frequency");
+            this.sources = DocValues.getSortedSet(reader, "source");
+            this.rankedSourceOrds = new long[sourceRanking.length];
+            for (int i = 0; i < sourceRanking.length; i++) {
+                rankedSourceOrds[i] = sources.lookupTerm(new BytesRef(sourceRanking[i].toString()));
+            }
+        }
+
+        /**
+         * Returns a measure of the 'quality' of the document with the given segment-relative ID.
+         *
+         * @param doc  the ID of the document, relative to this segment
+         * @param rank the rank (i.e. position) in a lucene search in which this document was returned
+         * @return a float indicating a quality score for this document
+         */
+        public float getQuality(int doc, int rank) {
+            float topScore = Float.intBitsToFloat((int) topScores.get(doc));
+            int veris = (int) timesVerified.get(doc);
+            int freq = (int) frequencies.get(doc);
+            return getDocumentQuality(topScore, veris, freq, getSourceRanking(doc), rank);
+        }
+
+        /**
+         * Evaluates a ranking for the sources of a document, as in {@link AnnotationSummaryMapper#getSourceRanking(Set)},
+         * but using the ordinals of the source doc values.
+         *
+         * @param doc the ID of the document, relative to this segment
+         * @return a boost score; 0 if none of the sources is ranked, 1 for best ranked match
+         */
+        private float getSourceRanking(int doc) {
+            if (rankedSourceOrds.length == 0) {
+                return 0;
+            }
+            int best = rankedSourceOrds.length;
+            sources.setDocument(doc);
+            for (long ord = sources.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = sources.nextOrd()) {
+                for (int i = 0; i < best; i++) {
+                    if (rankedSourceOrds[i] == ord) {
+                        best = i;
+                        break;
+                    }
+                }
+            }
+            if (best == rankedSourceOrds.length) {
+                return 0;
+            }
+            else if (rankedSourceOrds.length == 1) {
+                return 1f;
+            }
+            else {
+                return (((float) (rankedSourceOrds.length - best)) / (rankedSourceOrds.length));
+            }
+        }
+    }
 }
@@ -1,7 +1,12 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
 import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
 import uk.ac.ebi.fgpt.zooma.exception.SearchResourcesUnavailableException;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
@@ -11,10 +16,8 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Properties;
 
 /**
  * A service that allows searching over the set of {@link AnnotationSummary} objects known to ZOOMA.  Prefix-based and
@@ -30,6 +33,27 @@ public class LuceneAnnotationSummarySearchService extends ZoomaLuceneSearchServi
 
     private SearchStringProcessorProvider searchStringProcessorProvider;
 
+    private int maxResults = 0; // Default to collecting all hits
+    private float cutoffPercentage = 0;
+
+    /**
+     * Sets the configuration for this service.  In addition to the lucene configuration of {@link
+     * ZoomaLuceneSearchService}, if <code>zooma.search.max.results</code> is greater than zero, searches for property
+     * values only retain that many summaries, choosing those with the best combination of lucene score and summary
+     * quality and discarding any that fall outside <code>zooma.search.cutoff.score</code> of the best.
+     *
+     * @param configuration the configuration properties
+     */
+    @Override public void setConfigurationProperties(Properties configuration) {
+        super.setConfigurationProperties(configuration);
+        if (configuration.containsKey("zooma.search.max.results")) {
+            this.maxResults = Integer.parseInt(configuration.getProperty("zooma.search.max.results"));
+        }
+        if (configuration.containsKey("zooma.search.cutoff.score")) {
+            this.cutoffPercentage = Float.parseFloat(configuration.getProperty("zooma.search.cutoff.score"));
+        }
+    }
+
     public AnnotationDAO getAnnotationDAO() {
         return annotationDAO;
     }
@@ -52,23 +76,43 @@ public class LuceneAnnotationSummarySearchService extends ZoomaLuceneSearchServi
 
     @Override protected void doInitialization() throws IOException {
         super.doInitialization();
-        try (IndexReader reader = getReader()) {
+        DirectoryReader reader = acquireReader();
+        try {
             int numAnnotations = getAnnotationDAO().count();
             int numSummaries = reader.numDocs();
             getLog().debug("Total number of annotations in zooma: " + numAnnotations);
             getLog().debug("Total number of summaries in zooma: " + numSummaries);
             AnnotationSummaryMapper preMapper = new AnnotationSummaryMapper(numAnnotations, numSummaries);
-            Set<Float> allScores = new HashSet<>();
-            for (int i = 0; i < numSummaries; i++) {
-                allScores.add(preMapper.mapDocument(reader.document(i)).getQuality());
-            }
-            float maxScore = Collections.max(allScores);
+            float maxScore = preMapper.getMaximumDocumentQuality(reader);
             getLog().debug("Maximum summary quality score = " + maxScore);
             this.mapper = new AnnotationSummaryMapper(numAnnotations,
                                                       numSummaries,
                                                       maxScore);
             getLog().debug("Annotation Summary mapper calibration complete");
         }
+        finally {
+            releaseReader(reader);
+        }
+    }
+
+    /**
+     * Maps annotation summary hits using the doc values of the segment containing the hit to evaluate summary quality,
+     * rather than parsing stored fields.
+     */
+    @SuppressWarnings("unchecked")
+    @Override protected <T> T mapHit(IndexReader reader,
+                                     ScoreDoc hit,
+                                     Document doc,
+                                     LuceneDocumentMapper<T> mapper,
+                                     int rank) throws IOException {
+        if (mapper instanceof AnnotationSummaryMapper) {
+            List<LeafReaderContext> leaves = reader.leaves();
+            LeafReaderContext context = leaves.get(ReaderUtil.subIndex(hit.doc, leaves));
+            return (T) ((AnnotationSummaryMapper) mapper).mapDocument(doc, rank, context, hit.doc - context.docBase);
+        }
+        else {
+            return super.mapHit(reader, hit, doc, mapper, rank);
+        }
     }
 
     @Override public Collection<AnnotationSummary> search(String propertyValuePattern, URI[] sources, URI[] ontologySources) {
@@ -294,7 +338,7 @@ public class LuceneAnnotationSummarySearchService extends ZoomaLuceneSearchServi
         }
 
         // do the query
-        return doQuery(q, mapper);
+        return doSummaryQuery(q, mapper);
     }
 
     protected Collection<AnnotationSummary> doSearch(AnnotationSummaryMapper mapper,
@@ -342,6 +386,23 @@ public class LuceneAnnotationSummarySearchService extends ZoomaLuceneSearchServi
         }
 
         // do the query
-        return doQuery(q, mapper);
+        return doSummaryQuery(q, mapper);
+    }
+
+    /**
+     * Performs a query for annotation summaries, collecting only the best hits if a maximum number of results is
+     * configured, or all hits otherwise.
+     *
+     * @param q      the lucene query to perform
+     * @param mapper the mapper to use to convert documents into annotation summaries
+     * @return a collection of results
+     */
+    protected Collection<AnnotationSummary> doSummaryQuery(Query q, AnnotationSummaryMapper mapper) {
+        if (maxResults > 0) {
+            return doQuery(q, mapper, new TopQualityCollector(mapper, maxResults, cutoffPercentage));
+        }
+        else {
+            return doQuery(q, mapper);
+        }
     }
 }
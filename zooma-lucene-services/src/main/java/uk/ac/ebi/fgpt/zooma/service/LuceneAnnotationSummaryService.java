@@ -2,7 +2,6 @@ package uk.ac.ebi.fgpt.zooma.service;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.Query;
 import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
 import uk.ac.ebi.fgpt.zooma.exception.SearchResourcesUnavailableException;
@@ -11,9 +10,6 @@ import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * A service that allows retrieval of the set of {@link AnnotationSummary} objects known to ZOOMA.  This uses a Lucene
@@ -41,23 +37,23 @@ public class LuceneAnnotationSummaryService extends ZoomaLuceneSearchService
 
     @Override protected void doInitialization() throws IOException {
         super.doInitialization();
-        try (IndexReader reader = getReader()) {
+        DirectoryReader reader = acquireReader();
+        try {
             int numAnnotations = getAnnotationDAO().count();
             int numSummaries = reader.numDocs();
             getLog().debug("Total number of annotations in zooma: " + numAnnotations);
             getLog().debug("Total number of summaries in zooma: " + numSummaries);
             AnnotationSummaryMapper preMapper = new AnnotationSummaryMapper(numAnnotations, numSummaries);
-            Set<Float> allScores = new HashSet<>();
-            for (int i = 0; i < numSummaries; i++) {
-                allScores.add(preMapper.mapDocument(reader.document(i)).getQuality());
-            }
-            float maxScore = Collections.max(allScores);
+            float maxScore = preMapper.getMaximumDocumentQuality(reader);
             getLog().debug("Maximum summary quality score = " + maxScore);
             this.mapper = new AnnotationSummaryMapper(numAnnotations,
                                                       numSummaries,
                                                       maxScore);
             getLog().debug("Annotation Summary mapper calibration complete");
         }
+        finally {
+            releaseReader(reader);
+        }
     }
 
     @Override public Collection<AnnotationSummary> getAnnotationSummaries() {
@@ -65,7 +61,8 @@ public class LuceneAnnotationSummaryService extends ZoomaLuceneSearchService
     }
 
     @Override public Collection<AnnotationSummary> getAnnotationSummaries(int limit, int start) {
-        try (IndexReader reader = getReader()){
+        DirectoryReader reader = acquireReader();
+        try {
             initOrWait();
 
             Collection<AnnotationSummary> results = new ArrayList<>();
@@ -84,6 +81,9 @@ public class LuceneAnnotationSummaryService extends ZoomaLuceneSearchService
             throw new SearchResourcesUnavailableException("Failed to perform query - reading process was interrupted",
                                                           e);
         }
+        finally {
+            releaseReader(reader);
+        }
     }
 
     @Override public AnnotationSummary getAnnotationSummary(String annotationSummaryID) {
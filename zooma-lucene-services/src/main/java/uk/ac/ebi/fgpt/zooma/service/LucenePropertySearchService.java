@@ -1,14 +1,17 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
 import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
 import uk.ac.ebi.fgpt.zooma.datasource.PropertyDAO;
 import uk.ac.ebi.fgpt.zooma.exception.SearchResourcesUnavailableException;
 import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.util.PropertyValueSuggester;
 import uk.ac.ebi.fgpt.zooma.util.SearchStringProcessorProvider;
 
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -16,6 +19,12 @@ import java.util.List;
 /**
  * A service that allows searching over the set of {@link Property}s known to ZOOMA.  Prefix-based and pattern-based
  * matches are supported using a Lucene index to rapidly identify matching properties.
+ * <p/>
+ * If a property suggest index is set, suggestions are made by a {@link PropertyValueSuggester} built alongside the
+ * property index by the {@link ZoomaLuceneIndexer}, ranked by annotation frequency, without querying the property
+ * index.  The suggester is loaded when first needed, and reloaded whenever the {@link #getGeneration() generation} of
+ * the indices changes.  If no suggester has been built, suggestions fall back to prefix queries over the property
+ * index.
  *
  * @author Tony Burdett
  * @date 02/04/12
@@ -25,6 +34,13 @@ public class LucenePropertySearchService extends ZoomaLuceneSearchService implem
 
     private SearchStringProcessorProvider searchStringProcessorProvider;
 
+    private Directory suggestIndex;
+    private int suggestLimit = 20;
+
+    // the suggester loaded from the suggest index, and the generation it was loaded at
+    private volatile PropertyValueSuggester suggester;
+    private volatile long suggesterGeneration = -1;
+
     public PropertyDAO getPropertyDAO() {
         return propertyDAO;
     }
@@ -41,6 +57,22 @@ public class LucenePropertySearchService extends ZoomaLuceneSearchService implem
         this.searchStringProcessorProvider = searchStringProcessorProvider;
     }
 
+    public Directory getSuggestIndex() {
+        return suggestIndex;
+    }
+
+    public void setSuggestIndex(Directory suggestIndex) {
+        this.suggestIndex = suggestIndex;
+    }
+
+    public int getSuggestLimit() {
+        return suggestLimit;
+    }
+
+    public void setSuggestLimit(int suggestLimit) {
+        this.suggestLimit = suggestLimit;
+    }
+
     @Override public List<Property> search(String propertyValuePattern, URI... sources) {
         try {
             initOrWait();
@@ -227,6 +259,11 @@ public class LucenePropertySearchService extends ZoomaLuceneSearchService implem
         try {
             initOrWait();
 
+            PropertyValueSuggester suggester = getSuggester();
+            if (suggester != null) {
+                return suggester.suggest(propertyValuePrefix, null, getSuggestLimit(), sources);
+            }
+
             // first, formulate query for original propertyValuePattern
             Query pq = formulatePrefixQuery("name", propertyValuePrefix);
 
@@ -249,7 +286,7 @@ public class LucenePropertySearchService extends ZoomaLuceneSearchService implem
             }
 
             // do the query
-            List<String> nonUnique = doQuery(q, new SingleFieldStringMapper("name"), 20);
+            List<String> nonUnique = doQuery(q, new SingleFieldStringMapper("name"), getSuggestLimit());
             List<String> results = new ArrayList<>();
             for (String next : nonUnique) {
                 if (!results.contains(next)) {
@@ -263,4 +300,75 @@ public class LucenePropertySearchService extends ZoomaLuceneSearchService implem
                                                           e);
         }
     }
+
+    @Override public List<String> suggest(String propertyType, String propertyValuePrefix, URI... sources) {
+        if (propertyType.isEmpty()) {
+            return suggest(propertyValuePrefix, sources);
+        }
+        try {
+            initOrWait();
+
+            PropertyValueSuggester suggester = getSuggester();
+            if (suggester != null) {
+                return suggester.suggest(propertyValuePrefix, propertyType, getSuggestLimit(), sources);
+            }
+        }
+        catch (InterruptedException e) {
+            throw new SearchResourcesUnavailableException("Failed to perform query - indexing process was interrupted",
+                                                          e);
+        }
+
+        // no suggester, so use the values of matching properties
+        List<String> results = new ArrayList<>();
+        for (Property property : searchByPrefix(propertyType, propertyValuePrefix, sources)) {
+            if (!results.contains(property.getPropertyValue())) {
+                results.add(property.getPropertyValue());
+                if (results.size() == getSuggestLimit()) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the suggester saved in the suggest index, loading it if the generation of the indices has changed since
+     * it was last loaded.
+     *
+     * @return the current suggester, or null if there is no suggest index or no suggester has been saved to it
+     */
+    protected PropertyValueSuggester getSuggester() {
+        if (getSuggestIndex() == null) {
+            return null;
+        }
+        long generation = getGeneration();
+        if (generation != suggesterGeneration) {
+            synchronized (this) {
+                if (generation != suggesterGeneration) {
+                    suggester = loadSuggester();
+                    suggesterGeneration = generation;
+                }
+            }
+        }
+        return suggester;
+    }
+
+    private PropertyValueSuggester loadSuggester() {
+        try {
+            if (Arrays.asList(getSuggestIndex().listAll()).contains(ZoomaLuceneIndexer.PROPERTY_SUGGESTER)) {
+                PropertyValueSuggester loaded =
+                        PropertyValueSuggester.load(getSuggestIndex(), ZoomaLuceneIndexer.PROPERTY_SUGGESTER);
+                getLog().debug("Loaded property value suggester with " + loaded.getSize() + " keys " +
+                                       "(" + loaded.ramBytesUsed() + " bytes)");
+                return loaded;
+            }
+            else {
+                getLog().debug("No property value suggester has been built, suggestions will query the property index");
+            }
+        }
+        catch (IOException e) {
+            getLog().warn("Failed to load property value suggester, suggestions will query the property index", e);
+        }
+        return null;
+    }
 }
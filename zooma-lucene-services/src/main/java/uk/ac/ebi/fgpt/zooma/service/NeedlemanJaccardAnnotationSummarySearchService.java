@@ -9,6 +9,7 @@ import uk.ac.ebi.fgpt.zooma.datasource.PropertyDAO;
 import uk.ac.ebi.fgpt.zooma.exception.SearchTimeoutException;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
 import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.util.ApproximateMatchIndex;
 import uk.ac.ebi.fgpt.zooma.util.AnnotationSummarySearchCommand;
 import uk.ac.ebi.fgpt.zooma.util.ScoreBasedSorter;
 import uk.ac.ebi.fgpt.zooma.util.SearchStringProcessor;
@@ -26,6 +27,9 @@ import java.util.Map;
  * This class extends AnnotationSummarySearchServiceDecorator and adds fuzzy string searching, in other words,
  * functionality to find approximate matchings. Specifically, the metrics "Needleman-Wunsch"  and "Jaccard similarity"
  * are included. Implementations of simMetrics library are used. http://sourceforge.net/projects/simmetrics/
+ * <p/>
+ * Rather than comparing each query against the entire dictionary of property values, an {@link ApproximateMatchIndex}
+ * is built at initialization and used to shortlist candidate property values, which are then scored as normal.
  *
  * @author Jose Iglesias
  * @author Tony Burdett
@@ -35,6 +39,7 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
     private PropertyDAO propertyDAO;
 
     private Collection<String> propertyValueDictionary;
+    private ApproximateMatchIndex propertyValueIndex;
 
     private SearchStringProcessor searchStringProcessor;
 
@@ -62,6 +67,10 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
         return propertyValueDictionary;
     }
 
+    public ApproximateMatchIndex getPropertyValueIndex() {
+        return propertyValueIndex;
+    }
+
     @Override
     public Collection<AnnotationSummary> search(String propertyValuePattern, final URI[] sources, final URI[] ontologySources) {
         return doExpandedSearch(propertyValuePattern, new AnnotationSummarySearchCommand() {
@@ -181,7 +190,8 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
     }
 
     /**
-     * This methods finds matching properties using "Needleman-Wunsch" distance. Here, simmetrics library is used
+     * This methods finds matching properties using "Needleman-Wunsch" distance. Here, simmetrics library is used.  Only
+     * candidates shortlisted by the property value index are scored
      *
      * @param propertyValue       the property value to search for
      * @param min_score           the ZOOMA minimum score parameter
@@ -204,7 +214,8 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
         Map<String, Float> expandedPropertyMap = new HashMap<>();
         NeedlemanWunch nwSimilarity = new NeedlemanWunch();
         if (!getPropertyValueDictionary().isEmpty()) {
-            for (String comparedPropertyValue : getPropertyValueDictionary()) {
+            for (String comparedPropertyValue : getPropertyValueIndex().getNeedlemanWunschCandidates(propertyValue,
+                                                                                                     min_score)) {
                 float result = nwSimilarity.compare(propertyValue, comparedPropertyValue);
                 if (getLog().isTraceEnabled()) {
                     if (result > 0) {
@@ -228,7 +239,8 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
     }
 
     /**
-     * This methods finds matching properties using "Jaccard" similarity.  Here, simmetrics library is used
+     * This methods finds matching properties using "Jaccard" similarity.  Here, simmetrics library is used.  Only
+     * candidates shortlisted by the property value index are scored
      *
      * @param propertyValue       the property value to search for
      * @param min_score           the ZOOMA minimum score parameter
@@ -251,7 +263,8 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
         Map<String, Float> expandedPropertyMap = new HashMap<>();
         StringMetric jaccardSimilarity = StringMetricBuilder.with(new JaccardSimilarity<String>()).tokenize(new Whitespace()).build();
         if (!getPropertyValueDictionary().isEmpty()) {
-            for (String comparedPropertyValue : getPropertyValueDictionary()) {
+            for (String comparedPropertyValue : getPropertyValueIndex().getJaccardCandidates(propertyValue,
+                                                                                              min_score)) {
                 float result = jaccardSimilarity.compare(propertyValue, comparedPropertyValue);
                 if (getLog().isTraceEnabled()) {
                     if (result > 0) {
@@ -351,7 +364,8 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
 
     /**
      * Initializes this service.  At startup, a {@link PropertyDAO} is used to extract all properties known to ZOOMA.
-     * Returned properties are normalized and cached in a dictionary for future use.
+     * Returned properties are normalized and cached in a dictionary for future use, and indexed so that approximate
+     * matches can be found without scanning the whole dictionary.
      *
      * @throws IOException
      */
@@ -380,8 +394,9 @@ public class NeedlemanJaccardAnnotationSummarySearchService extends AnnotationSu
                 propertyValueDictionary.add(propertyValue);
             }
         }
+        propertyValueIndex = new ApproximateMatchIndex(propertyValueDictionary);
         time_end = System.currentTimeMillis();
-        getLog().debug("Loaded property value dictionary of " + propertyValueDictionary.size() + " entries in " +
-                               (time_end - time_start) + " milliseconds");
+        getLog().debug("Loaded and indexed property value dictionary of " + propertyValueDictionary.size() + " " +
+                               "entries in " + (time_end - time_start) + " milliseconds");
     }
 }
\ No newline at end of file
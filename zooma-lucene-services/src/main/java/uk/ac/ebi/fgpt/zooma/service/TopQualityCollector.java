@@ -0,0 +1,110 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopDocsCollector;
+import org.apache.lucene.util.PriorityQueue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A collector that retains only the best scoring annotation summary hits for a query, where the score of each hit is
+ * the lucene score of the hit multiplied by the quality of the summary.  Summary quality is read from the doc values
+ * of the index via an {@link AnnotationSummaryMapper}, so no stored documents are loaded whilst collecting.
+ * <p/>
+ * At most <code>maxResults</code> hits are retained.  Any hit scoring less than the cutoff percentage of the best score
+ * seen so far is discarded without being queued, and once collection is complete any remaining hits scoring less than
+ * the cutoff percentage of the top hit are removed from the results.
+ *
+ * @date 18/10/26
+ */
+public class TopQualityCollector extends TopDocsCollector<ScoreDoc> {
+    private final AnnotationSummaryMapper mapper;
+    private final int maxResults;
+    private final float cutoffPercentage;
+
+    private float bestScore;
+
+    /**
+     * Creates a new collector
+     *
+     * @param mapper           the mapper used to evaluate the quality of each summary
+     * @param maxResults       the maximum number of hits to retain
+     * @param cutoffPercentage the fraction of the best score that a hit must achieve to be retained, between 0 and 1
+     */
+    public TopQualityCollector(AnnotationSummaryMapper mapper, int maxResults, float cutoffPercentage) {
+        super(new ScoreDocQueue(maxResults));
+        this.mapper = mapper;
+        this.maxResults = maxResults;
+        this.cutoffPercentage = cutoffPercentage;
+        this.bestScore = 0;
+    }
+
+    @Override public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+        final int docBase = context.docBase;
+        final AnnotationSummaryMapper.SegmentQuality segmentQuality =
+                mapper.hasQualityDocValues(context.reader()) ? mapper.getSegmentQuality(context) : null;
+        return new LeafCollector() {
+            private Scorer scorer;
+
+            @Override public void setScorer(Scorer scorer) throws IOException {
+                this.scorer = scorer;
+            }
+
+            @Override public void collect(int doc) throws IOException {
+                totalHits++;
+                float score = scorer.score();
+                if (segmentQuality != null) {
+                    score *= segmentQuality.getQuality(doc, 1);
+                }
+                if (score > bestScore) {
+                    bestScore = score;
+                }
+                else if (score < bestScore * cutoffPercentage) {
+                    // this hit can never be within the cutoff of the top hit
+                    return;
+                }
+
+                if (pq.size() < maxResults) {
+                    pq.add(new ScoreDoc(docBase + doc, score));
+                }
+                else if (score > pq.top().score) {
+                    ScoreDoc worst = pq.top();
+                    worst.doc = docBase + doc;
+                    worst.score = score;
+                    pq.updateTop();
+                }
+            }
+        };
+    }
+
+    @Override public boolean needsScores() {
+        return true;
+    }
+
+    @Override protected TopDocs newTopDocs(ScoreDoc[] results, int start) {
+        if (results == null || results.length == 0) {
+            return EMPTY_TOPDOCS;
+        }
+        // results are in descending score order, so drop the tail that falls outside the cutoff
+        int retained = results.length;
+        while (retained > 0 && results[retained - 1].score < bestScore * cutoffPercentage) {
+            retained--;
+        }
+        return new TopDocs(totalHits, Arrays.copyOf(results, retained), bestScore);
+    }
+
+    private static class ScoreDocQueue extends PriorityQueue<ScoreDoc> {
+        private ScoreDocQueue(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override protected boolean lessThan(ScoreDoc a, ScoreDoc b) {
+            return a.score == b.score ? a.doc > b.doc : a.score < b.score;
+        }
+    }
+}
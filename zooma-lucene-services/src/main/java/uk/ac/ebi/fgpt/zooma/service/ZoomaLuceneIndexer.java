@@ -3,23 +3,42 @@ package uk.ac.ebi.fgpt.zooma.service;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FloatDocValuesField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexDeletionPolicy;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.Version;
 import uk.ac.ebi.fgpt.zooma.Initializable;
+import uk.ac.ebi.fgpt.zooma.concurrent.ZoomaThreadFactory;
 import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
 import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
 import uk.ac.ebi.fgpt.zooma.datasource.PropertyDAO;
 import uk.ac.ebi.fgpt.zooma.model.Annotation;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationSource;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationSummary;
 import uk.ac.ebi.fgpt.zooma.model.Property;
 import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+import uk.ac.ebi.fgpt.zooma.util.PropertyValueSuggester;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.security.MessageDigest;
@@ -29,10 +48,23 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Constructs a search index of annotations and properties using a Lucene implementation.  This enables fast text-based
@@ -44,9 +76,21 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ZoomaLuceneIndexer extends Initializable {
     public static final Version VERSION = Version.LUCENE_5_3_0;
 
+    // name of the file the property value suggester is saved as in the property suggest index
+    public static final String PROPERTY_SUGGESTER = "property-suggester.fst";
+
     private static final String ENCODING = "SHA-1";
     private static final String HEX_CHARACTERS = "0123456789ABCDEF";
 
+    // key used in place of the property type when generating IDs for summaries of untyped properties
+    private static final String UNTYPED = "##zooma.untyped.property.key##";
+
+    // number of annotations converted to documents by each indexing task
+    private static final int ANNOTATION_BATCH_SIZE = 1000;
+
+    // number of annotations read from the annotation DAO at a time when building indices from scratch
+    private static final int ANNOTATION_PAGE_SIZE = 10000;
+
     // lucene analyzer for producing indexed strings
     private Analyzer analyzer;
 
@@ -59,14 +103,37 @@ public class ZoomaLuceneIndexer extends Initializable {
 
     private PropertyDAO propertyDAO;
 
+    // if true, summaries are aggregated from the stream of annotations rather than read from the summary DAO
+    private boolean aggregateSummaries = false;
+    // approximate memory, in bytes, used to buffer annotations whilst aggregating summaries before spilling to disk
+    private long summaryMemoryBudget = 64 * 1024 * 1024;
+    // directory for spilled summary aggregation files, or null for the default temporary directory
+    private File summarySpillDirectory;
+
+    // number of threads used to build indices; 1 builds sequentially, 0 or less uses all available processors
+    private int indexThreads = 1;
+    // index writer tunables, applied to every index
+    private double ramBufferSizeMB = IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB;
+    private double segmentsPerTier = 10.0;
+
+    // number of annotations written to the annotation index by the current build, for progress reporting
+    private final AtomicLong indexedAnnotationCount = new AtomicLong();
+
     // index directories
     private Directory propertyIndex;
     private Directory propertyTypeIndex;
     private Directory annotationCountIndex;
     private Directory annotationIndex;
     private Directory annotationSummaryIndex;
+    private Directory propertySuggestIndex;
+
+    // manager of shared readers over the indices, refreshed whenever an index is rebuilt
+    private ZoomaLuceneSearcherManager searcherManager = ZoomaLuceneSearcherManager.getDefaultInstance();
+
     private Map<URI, Collection<URI>> propertyUriToSourcesMap = new HashMap<>();
     private Map<String, Collection<URI>> propertyTypeToSourcesMap = new HashMap<>();
+    // number of annotations of each property from each source (keyed by null for annotations without a source)
+    private Map<URI, Map<URI, Integer>> propertyUriToAnnotationCountsMap = new HashMap<>();
 
 
     public Analyzer getAnalyzer() {
@@ -141,6 +208,28 @@ public class ZoomaLuceneIndexer extends Initializable {
         this.annotationSummaryIndex = annotationSummaryIndex;
     }
 
+    public Directory getPropertySuggestIndex() {
+        return propertySuggestIndex;
+    }
+
+    /**
+     * Sets the directory to save the {@link PropertyValueSuggester} built alongside the property index in.  If this is
+     * not set, no suggester is built.
+     *
+     * @param propertySuggestIndex the directory for the property value suggester
+     */
+    public void setPropertySuggestIndex(Directory propertySuggestIndex) {
+        this.propertySuggestIndex = propertySuggestIndex;
+    }
+
+    public ZoomaLuceneSearcherManager getSearcherManager() {
+        return searcherManager;
+    }
+
+    public void setSearcherManager(ZoomaLuceneSearcherManager searcherManager) {
+        this.searcherManager = searcherManager;
+    }
+
     public AnnotationSummaryDAO getAnnotationSummaryDAO() {
         return annotationSummaryDAO;
     }
@@ -149,6 +238,102 @@ public class ZoomaLuceneIndexer extends Initializable {
         this.annotationSummaryDAO = annotationSummaryDAO;
     }
 
+    public boolean isAggregateSummaries() {
+        return aggregateSummaries;
+    }
+
+    /**
+     * Sets whether annotation summaries should be aggregated from annotations as they are indexed, in a single pass
+     * with bounded memory, rather than read from the annotation summary DAO.  Summaries are always aggregated if no
+     * annotation summary DAO is set.
+     *
+     * @param aggregateSummaries true to aggregate summaries from annotations
+     */
+    public void setAggregateSummaries(boolean aggregateSummaries) {
+        this.aggregateSummaries = aggregateSummaries;
+    }
+
+    public long getSummaryMemoryBudget() {
+        return summaryMemoryBudget;
+    }
+
+    /**
+     * Sets the approximate number of bytes of annotation data to buffer whilst aggregating summaries, beyond which
+     * buffered annotations are sorted and spilled to disk
+     *
+     * @param summaryMemoryBudget the memory budget for summary aggregation, in bytes
+     */
+    public void setSummaryMemoryBudget(long summaryMemoryBudget) {
+        this.summaryMemoryBudget = summaryMemoryBudget;
+    }
+
+    public File getSummarySpillDirectory() {
+        return summarySpillDirectory;
+    }
+
+    public void setSummarySpillDirectory(File summarySpillDirectory) {
+        this.summarySpillDirectory = summarySpillDirectory;
+    }
+
+    public int getIndexThreads() {
+        return indexThreads;
+    }
+
+    /**
+     * Sets the number of threads used to build indices.  With more than one thread, independent indices are built
+     * concurrently and annotation documents are produced by a pool of worker threads sharing one index writer.
+     *
+     * @param indexThreads the number of index threads, 1 to build sequentially or 0 to use all available processors
+     */
+    public void setIndexThreads(int indexThreads) {
+        this.indexThreads = indexThreads;
+    }
+
+    public double getRamBufferSizeMB() {
+        return ramBufferSizeMB;
+    }
+
+    public void setRamBufferSizeMB(double ramBufferSizeMB) {
+        this.ramBufferSizeMB = ramBufferSizeMB;
+    }
+
+    public double getSegmentsPerTier() {
+        return segmentsPerTier;
+    }
+
+    public void setSegmentsPerTier(double segmentsPerTier) {
+        this.segmentsPerTier = segmentsPerTier;
+    }
+
+    /**
+     * Configures index building from the zooma properties.  Supported keys are <code>zooma.index.threads</code>,
+     * <code>zooma.index.ram.buffer.mb</code> and <code>zooma.index.segments.per.tier</code>; any missing key leaves
+     * the current setting unchanged.
+     *
+     * @param configuration the zooma configuration properties
+     */
+    public void setConfigurationProperties(Properties configuration) {
+        if (configuration.containsKey("zooma.index.threads")) {
+            setIndexThreads(Integer.parseInt(configuration.getProperty("zooma.index.threads")));
+        }
+        if (configuration.containsKey("zooma.index.ram.buffer.mb")) {
+            setRamBufferSizeMB(Double.parseDouble(configuration.getProperty("zooma.index.ram.buffer.mb")));
+        }
+        if (configuration.containsKey("zooma.index.segments.per.tier")) {
+            setSegmentsPerTier(Double.parseDouble(configuration.getProperty("zooma.index.segments.per.tier")));
+        }
+    }
+
+    /**
+     * Returns the number of annotations written to the annotation index since indexing last started, which can be
+     * used to report progress whilst indices are being built.
+     *
+     * @return the number of annotations indexed so far
+     */
+    public long getIndexedAnnotationCount() {
+        return indexedAnnotationCount.get();
+    }
+
     /**
      * Returns a flag to indicate whether initialization of this indexer has already been successful or not
      *
@@ -165,11 +350,14 @@ public class ZoomaLuceneIndexer extends Initializable {
         // collect unique property types
         Set<String> uniquePropertyTypes = new HashSet<>();
 
+        // collect property values and annotation frequencies for the suggester
+        PropertyValueSuggester.SuggesterBuilder suggesterBuilder = new PropertyValueSuggester.SuggesterBuilder();
+
         // set up index
-        IndexWriterConfig propertyConfig = new IndexWriterConfig(getAnalyzer());
-        IndexWriter propertyIndexWriter = new IndexWriter(getPropertyIndex(), propertyConfig);
-        IndexWriterConfig propertyTypeConfig = new IndexWriterConfig(getAnalyzer());
-        IndexWriter propertyTypeIndexWriter = new IndexWriter(getPropertyTypeIndex(), propertyTypeConfig);
+        IndexWriter propertyIndexWriter =
+                obtainIndexWriter(getPropertyIndex(), IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        IndexWriter propertyTypeIndexWriter =
+                obtainIndexWriter(getPropertyTypeIndex(), IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
 
         // iterate over all properties
         for (Property property : properties) {
@@ -226,11 +414,38 @@ public class ZoomaLuceneIndexer extends Initializable {
 
             // add this document to the index
             propertyIndexWriter.addDocument(doc);
+
+            // and add the property value to the suggester, once for each source it was annotated by
+            String propertyType = property instanceof TypedProperty
+                    ? ((TypedProperty) property).getPropertyType()
+                    : null;
+            Map<URI, Integer> annotationCounts = propertyUriToAnnotationCountsMap.get(property.getURI());
+            if (annotationCounts == null || annotationCounts.isEmpty()) {
+                suggesterBuilder.add(property.getPropertyValue(), propertyType, null, 0);
+            }
+            else {
+                for (Map.Entry<URI, Integer> annotationCount : annotationCounts.entrySet()) {
+                    suggesterBuilder.add(property.getPropertyValue(),
+                                         propertyType,
+                                         annotationCount.getKey(),
+                                         annotationCount.getValue());
+                }
+            }
         }
 
         // now we have indexed all properties, close the index writer
         propertyIndexWriter.close();
         propertyTypeIndexWriter.close();
+
+        // save the suggester before refreshing, so services reloading on the next generation find the new suggester
+        if (getPropertySuggestIndex() != null) {
+            PropertyValueSuggester suggester = suggesterBuilder.build();
+            suggester.save(getPropertySuggestIndex(), PROPERTY_SUGGESTER);
+            getLog().debug("Built property value suggester with " + suggester.getSize() + " keys " +
+                                   "(" + suggester.ramBytesUsed() + " bytes)");
+        }
+        getSearcherManager().refresh(getPropertyIndex());
+        getSearcherManager().refresh(getPropertyTypeIndex());
         getLog().debug("Property lucene indexing complete!");
     }
 
@@ -250,6 +465,7 @@ public class ZoomaLuceneIndexer extends Initializable {
         IndexWriter indexWriter = obtainIndexWriter(getAnnotationCountIndex());
         indexWriter.addDocument(doc);
         indexWriter.close();
+        getSearcherManager().refresh(getAnnotationCountIndex());
         getLog().debug("Annotation count lucene indexing complete!");
     }
 
@@ -257,88 +473,306 @@ public class ZoomaLuceneIndexer extends Initializable {
 
     }
 
-    public Map<URI, AnnotationProvenance> createAnnotationIndex(List<Annotation> annotations) throws IOException {
-        getLog().info("Creating lucene index for " + annotations.size() + " annotations");
+    public Map<URI, AnnotationProvenance> createAnnotationIndex(Iterable<Annotation> annotations) throws IOException {
+        getLog().info("Creating annotation lucene index...");
         ConcurrentHashMap<URI, AnnotationProvenance> provenanceMap = new ConcurrentHashMap<>();
 
         IndexWriter annotationIndexWriter = obtainIndexWriter(getAnnotationIndex());
 
-        createAnnotationIndex(annotations, provenanceMap, annotationIndexWriter);
+        int count = writeAnnotationDocuments(annotations, annotationIndexWriter, provenanceMap, null);
 
         // now we have indexed all annotations, close the index writer
         annotationIndexWriter.close();
+        getSearcherManager().refresh(getAnnotationIndex());
 
-        getLog().debug("Annotation lucene indexing complete!");
+        getLog().debug("Annotation lucene indexing complete, indexed " + count + " annotations!");
         return provenanceMap;
     }
 
+    /**
+     * Creates the annotation and annotation summary indices in a single pass over the supplied annotations, without
+     * reading summaries from the annotation summary DAO.  Annotations are written to the annotation index as they are
+     * iterated, and summaries are aggregated using an {@link AnnotationSummaryAggregator} bounded by the summary memory
+     * budget, so summaries are never all held in memory.  Each summary is written to the summary index as soon as all
+     * of its annotations have been aggregated.
+     * <p/>
+     * This method iterates whatever it is given, so memory is only bounded if the annotations are too.  When indexing
+     * during initialization, annotations are read from the annotation DAO a page at a time with {@link
+     * AnnotationDAO#read(int, int)}, so only one page of annotations is held in memory at once.
+     *
+     * @param annotations the annotations to index
+     * @return the number of annotations indexed
+     * @throws IOException if the indices could not be written
+     */
+    public int createAnnotationIndices(Iterable<Annotation> annotations) throws IOException {
+        getLog().info("Creating annotation and annotation summary lucene indices by aggregating annotations...");
+
+        final IndexWriter annotationIndexWriter = obtainIndexWriter(getAnnotationIndex());
+        final IndexWriter summaryIndexWriter = obtainIndexWriter(getAnnotationSummaryIndex());
+        int count;
+        try (AnnotationSummaryAggregator aggregator =
+                     new AnnotationSummaryAggregator(getSummaryMemoryBudget(), getSummarySpillDirectory())) {
+            count = writeAnnotationDocuments(annotations, annotationIndexWriter, null, aggregator);
+            getLog().debug("Indexed " + count + " annotations, " +
+                                   "aggregating summaries from " + aggregator.getSpillCount() + " spilled runs...");
+
+            aggregator.aggregate(new AnnotationSummaryAggregator.SummaryHandler() {
+                @Override public void handleSummary(String propertyType,
+                                                    String propertyValue,
+                                                    URI propertyUri,
+                                                    List<URI> semanticTags,
+                                                    Set<URI> annotations,
+                                                    float topScore,
+                                                    Set<URI> sources) throws IOException {
+                    String summaryId = generateSummaryID(propertyType, propertyValue, semanticTags);
+                    summaryIndexWriter.addDocument(createAnnotationSummaryDocument(summaryId,
+                                                                                   propertyUri,
+                                                                                   propertyType,
+                                                                                   propertyValue,
+                                                                                   semanticTags,
+                                                                                   annotations,
+                                                                                   topScore,
+                                                                                   sources));
+                }
+            });
+        }
+        finally {
+            annotationIndexWriter.close();
+            summaryIndexWriter.close();
+        }
+        getSearcherManager().refresh(getAnnotationIndex());
+        getSearcherManager().refresh(getAnnotationSummaryIndex());
+
+        getLog().info("Annotation and annotation summary lucene indexing complete!");
+        return count;
+    }
+
     public void createAnnotationIndex(Collection<Annotation> annotations,
                                       Map<URI, AnnotationProvenance> provenanceMap,
                                       IndexWriter indexWriter) throws IOException {
         getLog().debug("Creating lucene index from " + annotations.size() + " annotations...");
+        writeAnnotationDocuments(annotations, indexWriter, provenanceMap, null);
+    }
 
-        // iterate over all annotations
-        for (Annotation annotation : annotations) {
-            Property property = annotation.getAnnotatedProperty();
-
-            // build the document to index text data and store URIs
-            Document doc = new Document();
-            doc.add(new Field("uri",
-                    annotation.getURI().toString(),
-                    Field.Store.YES,
-                    Field.Index.NOT_ANALYZED));
-            doc.add(new Field("property",
-                    property.getPropertyValue(),
-                    Field.Store.YES,
-                    Field.Index.ANALYZED));
-            if (property instanceof TypedProperty) {
-                String propertyType = ((TypedProperty) property).getPropertyType();
-                doc.add(new Field("propertytype",
-                        propertyType,
-                        Field.Store.YES,
-                        Field.Index.ANALYZED));
+    /**
+     * Writes a document for each annotation to the annotation index, recording the sources of each annotated property
+     * and property type for the property indices.  Annotations are processed in batches: if more than one index thread
+     * is configured, each batch is converted to documents and written by a pool of worker threads that share the index
+     * writer, with a bounded number of batches in flight so that the documents for all annotations are never held in
+     * memory at once.
+     *
+     * @param annotations   the annotations to index
+     * @param indexWriter   the writer for the annotation index
+     * @param provenanceMap a map to record the provenance of each annotation in, or null
+     * @param aggregator    an aggregator to add each annotation to, or null
+     * @return the number of annotations written
+     * @throws IOException if any annotation could not be indexed
+     */
+    private int writeAnnotationDocuments(Iterable<Annotation> annotations,
+                                         final IndexWriter indexWriter,
+                                         final Map<URI, AnnotationProvenance> provenanceMap,
+                                         final AnnotationSummaryAggregator aggregator) throws IOException {
+        int threads = getIndexThreadCount();
+        int count = 0;
+        List<Annotation> batch = new ArrayList<>();
+        if (threads == 1) {
+            for (Annotation annotation : annotations) {
+                batch.add(annotation);
+                count++;
+                if (batch.size() == ANNOTATION_BATCH_SIZE) {
+                    writeAnnotationBatch(batch, indexWriter, provenanceMap, aggregator);
+                    batch = new ArrayList<>();
+                }
+            }
+            writeAnnotationBatch(batch, indexWriter, provenanceMap, aggregator);
+            return count;
+        }
 
-                // keep a map of types to sources
-                if (!propertyTypeToSourcesMap.containsKey(propertyType)) {
-                    propertyTypeToSourcesMap.put(propertyType, new HashSet<URI>());
+        getLog().debug("Writing annotation documents with " + threads + " threads");
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ZoomaThreadFactory("ZOOMA-Indexer"));
+        final Semaphore inFlight = new Semaphore(threads * 2);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        try {
+            Iterator<Annotation> annotationIterator = annotations.iterator();
+            while (annotationIterator.hasNext() && failure.get() == null) {
+                batch.add(annotationIterator.next());
+                count++;
+                if (batch.size() == ANNOTATION_BATCH_SIZE || !annotationIterator.hasNext()) {
+                    final List<Annotation> nextBatch = batch;
+                    batch = new ArrayList<>();
+                    inFlight.acquire();
+                    executor.execute(new Runnable() {
+                        @Override public void run() {
+                            try {
+                                writeAnnotationBatch(nextBatch, indexWriter, provenanceMap, aggregator);
+                            }
+                            catch (Exception e) {
+                                failure.compareAndSet(null, e);
+                            }
+                            finally {
+                                inFlight.release();
+                            }
+                        }
+                    });
                 }
-                propertyTypeToSourcesMap.get(propertyType).add(annotation.getProvenance().getSource().getURI());
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted whilst writing annotation documents");
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw new IOException("Failed to index annotations", failure.get());
+        }
+        return count;
+    }
 
+    private void writeAnnotationBatch(List<Annotation> batch,
+                                      IndexWriter indexWriter,
+                                      Map<URI, AnnotationProvenance> provenanceMap,
+                                      AnnotationSummaryAggregator aggregator) throws IOException {
+        // collect sources for this batch, and merge into the shared maps once the batch is complete
+        Map<String, Set<URI>> typeSources = new HashMap<>();
+        Map<URI, Set<URI>> propertySources = new HashMap<>();
+        Map<URI, Map<URI, Integer>> propertyAnnotationCounts = new HashMap<>();
+        for (Annotation annotation : batch) {
+            Property property = annotation.getAnnotatedProperty();
+            URI source = annotation.getProvenance() != null && annotation.getProvenance().getSource() != null
+                    ? annotation.getProvenance().getSource().getURI()
+                    : null;
+            if (source != null) {
+                if (property instanceof TypedProperty) {
+                    String propertyType = ((TypedProperty) property).getPropertyType();
+                    if (!typeSources.containsKey(propertyType)) {
+                        typeSources.put(propertyType, new HashSet<URI>());
+                    }
+                    typeSources.get(propertyType).add(source);
+                }
+                if (!propertySources.containsKey(property.getURI())) {
+                    propertySources.put(property.getURI(), new HashSet<URI>());
+                }
+                propertySources.get(property.getURI()).add(source);
             }
-            if (annotation.getProvenance() != null && annotation.getProvenance().getSource() != null) {
-                doc.add(new Field("source",
-                        annotation.getProvenance().getSource().getURI().toString(),
-                        Field.Store.YES,
-                        Field.Index.NOT_ANALYZED));
+            if (!propertyAnnotationCounts.containsKey(property.getURI())) {
+                propertyAnnotationCounts.put(property.getURI(), new HashMap<URI, Integer>());
             }
-            for (URI target : annotation.getSemanticTags()) {
-                // allow for null semantic tags -
-                // "null" is a positive assertion of NO mapping, but shouldn't be indexed (not searchable)
-                if (target != null) {
-                    doc.add(new Field("target",
-                            target.toString(),
-                            Field.Store.YES,
-                            Field.Index.NOT_ANALYZED));
-                }
+            increment(propertyAnnotationCounts.get(property.getURI()), source, 1);
+            if (provenanceMap != null && annotation.getProvenance() != null) {
+                provenanceMap.put(annotation.getURI(), annotation.getProvenance());
             }
 
-            provenanceMap.put(annotation.getURI(), annotation.getProvenance());
-            doc.add(new Field("quality",
-                    Float.toString(scoreAnnotationQuality(annotation.getProvenance())),
-                    Field.Store.YES,
-                    Field.Index.ANALYZED));
+            // build the document to index text data and store URIs, and add it to the index
+            indexWriter.addDocument(createAnnotationDocument(annotation));
+        }
 
+        synchronized (propertyTypeToSourcesMap) {
+            for (Map.Entry<String, Set<URI>> entry : typeSources.entrySet()) {
+                if (!propertyTypeToSourcesMap.containsKey(entry.getKey())) {
+                    propertyTypeToSourcesMap.put(entry.getKey(), new HashSet<URI>());
+                }
+                propertyTypeToSourcesMap.get(entry.getKey()).addAll(entry.getValue());
+            }
+        }
+        synchronized (propertyUriToSourcesMap) {
+            for (Map.Entry<URI, Set<URI>> entry : propertySources.entrySet()) {
+                if (!propertyUriToSourcesMap.containsKey(entry.getKey())) {
+                    propertyUriToSourcesMap.put(entry.getKey(), new HashSet<URI>());
+                }
+                propertyUriToSourcesMap.get(entry.getKey()).addAll(entry.getValue());
+            }
+        }
+        synchronized (propertyUriToAnnotationCountsMap) {
+            for (Map.Entry<URI, Map<URI, Integer>> entry : propertyAnnotationCounts.entrySet()) {
+                if (!propertyUriToAnnotationCountsMap.containsKey(entry.getKey())) {
+                    propertyUriToAnnotationCountsMap.put(entry.getKey(), new HashMap<URI, Integer>());
+                }
+                for (Map.Entry<URI, Integer> count : entry.getValue().entrySet()) {
+                    increment(propertyUriToAnnotationCountsMap.get(entry.getKey()), count.getKey(), count.getValue());
+                }
+            }
+        }
+        if (aggregator != null) {
+            synchronized (aggregator) {
+                for (Annotation annotation : batch) {
+                    Property property = annotation.getAnnotatedProperty();
+                    URI source = annotation.getProvenance() != null && annotation.getProvenance().getSource() != null
+                            ? annotation.getProvenance().getSource().getURI()
+                            : null;
+                    aggregator.add(property instanceof TypedProperty
+                                           ? ((TypedProperty) property).getPropertyType()
+                                           : UNTYPED,
+                                   property.getPropertyValue(),
+                                   property.getURI(),
+                                   annotation.getSemanticTags(),
+                                   annotation.getURI(),
+                                   scoreAnnotationQuality(annotation.getProvenance()),
+                                   source);
+                }
+            }
+        }
+        indexedAnnotationCount.addAndGet(batch.size());
+    }
 
+    private void increment(Map<URI, Integer> counts, URI key, int amount) {
+        Integer count = counts.get(key);
+        counts.put(key, count == null ? amount : count + amount);
+    }
 
+    /**
+     * Builds the lucene document used to index a single annotation.
+     *
+     * @param annotation the annotation to index
+     * @return a document for the annotation index
+     */
+    protected Document createAnnotationDocument(Annotation annotation) {
+        Property property = annotation.getAnnotatedProperty();
 
-            // we want to keep a map of property uris to sources for the property index
-            if (!propertyUriToSourcesMap.containsKey(property.getURI())) {
-                propertyUriToSourcesMap.put(property.getURI(), new HashSet<URI>());
+        Document doc = new Document();
+        doc.add(new Field("uri",
+                annotation.getURI().toString(),
+                Field.Store.YES,
+                Field.Index.NOT_ANALYZED));
+        if (property.getURI() != null) {
+            doc.add(new Field("propertyuri",
+                    property.getURI().toString(),
+                    Field.Store.YES,
+                    Field.Index.NOT_ANALYZED));
+        }
+        doc.add(new Field("property",
+                property.getPropertyValue(),
+                Field.Store.YES,
+                Field.Index.ANALYZED));
+        if (property instanceof TypedProperty) {
+            doc.add(new Field("propertytype",
+                    ((TypedProperty) property).getPropertyType(),
+                    Field.Store.YES,
+                    Field.Index.ANALYZED));
+        }
+        if (annotation.getProvenance() != null && annotation.getProvenance().getSource() != null) {
+            doc.add(new Field("source",
+                    annotation.getProvenance().getSource().getURI().toString(),
+                    Field.Store.YES,
+                    Field.Index.NOT_ANALYZED));
+        }
+        for (URI target : annotation.getSemanticTags()) {
+            // allow for null semantic tags -
+            // "null" is a positive assertion of NO mapping, but shouldn't be indexed (not searchable)
+            if (target != null) {
+                doc.add(new Field("target",
+                        target.toString(),
+                        Field.Store.YES,
+                        Field.Index.NOT_ANALYZED));
             }
-            propertyUriToSourcesMap.get(property.getURI()).add(annotation.getProvenance().getSource().getURI());
-            // add this document to the index
-            indexWriter.addDocument(doc);
         }
+        doc.add(new Field("quality",
+                Float.toString(scoreAnnotationQuality(annotation.getProvenance())),
+                Field.Store.YES,
+                Field.Index.ANALYZED));
+        return doc;
     }
 
     public void clearAnnotationIndex() {
@@ -352,8 +786,6 @@ public class ZoomaLuceneIndexer extends Initializable {
 
         IndexWriter summaryIndexWriter = obtainIndexWriter(getAnnotationSummaryIndex());
 
-        final String UNTYPED = "##zooma.untyped.property.key##";
-
         Collection<AnnotationSummary> summaries = summaryDao.read();
         getLog().debug("Number of summaries to index: " + summaries.size());
 
@@ -373,27 +805,12 @@ public class ZoomaLuceneIndexer extends Initializable {
             Collection<URI> annotations = summary.getAnnotationURIs();
 
             // generate summary id
-            List<String> idContent = new ArrayList<>();
-            for (URI uri : semanticTags) {
-                if (uri != null) {
-                    // append URI to ID
-                    idContent.add(uri.toString());
-                }
-            }
+            summaryId = generateSummaryID(propertyType, propertyValue, semanticTags);
 
-            if (idContent.size() > 0) {
-                // add property type and value to id content
-                idContent.add(0, propertyValue);
-                idContent.add(0, propertyType);
-
-                summaryId = generateEncodedID(idContent.toArray(new String[idContent.size()]));
+            if (summaryId != null) {
                 getLog().trace("Found new unique combination - " +
                         "property value '" + propertyValue + "', type '" + propertyType + "' " +
                         "maps to " + semanticTags + " (" + summaryId + ")");
-
-            }
-
-            if (summaryId != null) {
                 summaryIdToSourcesMap.put(summaryId, new HashSet<URI>());
 
                 // check annotation score against current max - if no current max, or if greater, replace
@@ -413,87 +830,372 @@ public class ZoomaLuceneIndexer extends Initializable {
                 }
 
                 // build one document to index each summary combination
-                Document doc = new Document();
-                doc.add(new Field("id",
-                        summaryId,
-                        Field.Store.YES,
-                        Field.Index.NOT_ANALYZED));
-                doc.add(new Field("propertyuri",
-                        propertyUri.toString(),
-                        Field.Store.YES,
-                        Field.Index.NOT_ANALYZED));
-                doc.add(new Field("property",
-                        propertyValue,
+                Document doc = createAnnotationSummaryDocument(summaryId,
+                                                               propertyUri,
+                                                               propertyType,
+                                                               propertyValue,
+                                                               semanticTags,
+                                                               annotations,
+                                                               summaryIdToMaxScore.get(summaryId),
+                                                               summaryIdToSourcesMap.get(summaryId));
+
+                // add this document to the index
+                summaryIndexWriter.addDocument(doc);
+            }
+
+        }
+        getLog().info("Annotation summary lucene indexing complete!");
+        summaryIndexWriter.close();
+        getSearcherManager().refresh(getAnnotationSummaryIndex());
+    }
+
+    /**
+     * Builds the lucene document used to index a single annotation summary.
+     *
+     * @param summaryId     the ID of the summary, from {@link #generateSummaryID(String, String, Collection)}
+     * @param propertyUri   the URI of the annotated property, if known
+     * @param propertyType  the annotated property type, or the untyped key if the property has no type
+     * @param propertyValue the annotated property value
+     * @param semanticTags  the semantic tags of the summary
+     * @param annotations   the URIs of all annotations that make up the summary
+     * @param topScore      the best quality score of any annotation in the summary
+     * @param sources       the sources of all annotations in the summary
+     * @return a document for the annotation summary index
+     */
+    protected Document createAnnotationSummaryDocument(String summaryId,
+                                                       URI propertyUri,
+                                                       String propertyType,
+                                                       String propertyValue,
+                                                       Collection<URI> semanticTags,
+                                                       Collection<URI> annotations,
+                                                       float topScore,
+                                                       Set<URI> sources) {
+        Document doc = new Document();
+        doc.add(new Field("id",
+                summaryId,
+                Field.Store.YES,
+                Field.Index.NOT_ANALYZED));
+        doc.add(new Field("summarykey",
+                generateSummaryKey(propertyType, propertyValue, semanticTags),
+                Field.Store.YES,
+                Field.Index.NOT_ANALYZED));
+        if (propertyUri != null) {
+            doc.add(new Field("propertyuri",
+                    propertyUri.toString(),
+                    Field.Store.YES,
+                    Field.Index.NOT_ANALYZED));
+        }
+        doc.add(new Field("property",
+                propertyValue,
+                Field.Store.YES,
+                Field.Index.ANALYZED));
+        if (!propertyType.equals(UNTYPED)) {
+            doc.add(new Field("propertytype",
+                    propertyType,
+                    Field.Store.YES,
+                    Field.Index.ANALYZED));
+        }
+        // add field for each semantic tag
+        for (URI uri : semanticTags) {
+            if (uri != null) {
+                // add a field for this URI
+                getLog().trace("Next summary semantic tag: " + uri);
+                doc.add(new Field("semanticTag",
+                        uri.toString(),
                         Field.Store.YES,
                         Field.Index.ANALYZED));
-                if (!propertyType.equals(UNTYPED)) {
-                    doc.add(new Field("propertytype",
-                            propertyType,
-                            Field.Store.YES,
-                            Field.Index.ANALYZED));
+            }
+        }
+        // add field for each annotation
+        for (URI annotationUri : annotations) {
+            // add a field for this URI
+            getLog().trace("Next summary annotation: " + annotationUri.toString());
+            doc.add(new Field("annotation",
+                    annotationUri.toString(),
+                    Field.Store.YES,
+                    Field.Index.ANALYZED));
+        }
+        // add a field for the frequency of use of this pattern
+        getLog().trace("Summary frequency: " + annotations.size());
+        doc.add(new Field("frequency",
+                Integer.toString(annotations.size()),
+                Field.Store.YES,
+                Field.Index.ANALYZED));
+        doc.add(new NumericDocValuesField("frequency", annotations.size()));
+        getLog().trace("Best score: " + topScore);
+        doc.add(new Field("topScore",
+                Float.toString(topScore),
+                Field.Store.YES,
+                Field.Index.ANALYZED));
+        doc.add(new FloatDocValuesField("topScore", topScore));
+        for (URI source : sources) {
+            getLog().trace("Next source: " + source.toString());
+            doc.add(new Field("source",
+                    source.toString(),
+                    Field.Store.YES,
+                    Field.Index.NOT_ANALYZED));
+            doc.add(new SortedSetDocValuesField("source", new BytesRef(source.toString())));
+        }
+
+        getLog().trace("Number of times verified: " + sources.size());
+        doc.add(new Field("timesVerified",
+                Integer.toString(sources.size()),
+                Field.Store.YES,
+                Field.Index.ANALYZED));
+        doc.add(new NumericDocValuesField("timesVerified", sources.size()));
+
+        getLog().trace("Annotation Summary index entry:\n\t" +
+                "ID: " + summaryId + ",\n\t" +
+                "Property: " + propertyValue + ",\n\t" +
+                "Property Type: " + propertyType + ",\n\t" +
+                "Semantic Tags: " + semanticTags.toString() + ",\n\t" +
+                "Summary Frequency: " + annotations.size() + ",\n\t" +
+                "Best score: " + topScore + ",\n\t" +
+                "Times verified: " + sources.size());
+        return doc;
+    }
+
+    /**
+     * Updates the annotation, annotation summary and annotation count indices in place, rather than rebuilding them.
+     * Each supplied annotation replaces any indexed annotation with the same URI, or is added if it is new, and any
+     * annotation with one of the removed URIs is deleted.  Only the summaries that these annotations belonged to
+     * before or after the update are recomputed, from the annotations in the updated annotation index.
+     * <p/>
+     * Changes are only made visible to open searchers once both the annotation and annotation summary indices have
+     * been committed; if either commit fails, both are rolled back.  The property and property type indices are not
+     * updated, and services calibrated against the previous summary index are not recalibrated, until the indices are
+     * next rebuilt.
+     *
+     * @param annotations           the annotations that have been added or updated
+     * @param removedAnnotationURIs the URIs of annotations that have been removed
+     * @throws IOException if the indices could not be updated
+     */
+    public void updateAnnotationIndices(Collection<Annotation> annotations, Collection<URI> removedAnnotationURIs)
+            throws IOException {
+        getLog().info("Updating lucene indices with " + annotations.size() + " annotations, " +
+                              "removing " + removedAnnotationURIs.size() + " annotations...");
+
+        IndexWriter annotationIndexWriter =
+                obtainIndexWriter(getAnnotationIndex(), IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        IndexWriter summaryIndexWriter =
+                obtainIndexWriter(getAnnotationSummaryIndex(), IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        int annotationCount;
+        try {
+            // collect the summaries of annotations as currently indexed, and as updated
+            Set<SummaryKey> affectedSummaries = new HashSet<>();
+            DirectoryReader annotationReader = DirectoryReader.open(annotationIndexWriter, true);
+            try {
+                IndexSearcher searcher = new IndexSearcher(annotationReader);
+                for (URI annotationUri : removedAnnotationURIs) {
+                    for (Document doc : findDocuments(searcher, new TermQuery(new Term("uri",
+                                                                                        annotationUri.toString())))) {
+                        affectedSummaries.add(new SummaryKey(doc));
+                    }
                 }
-                // add field for each semantic tag
-                for (URI uri : semanticTags) {
-                    if (uri != null) {
-                        // add a field for this URI
-                        getLog().trace("Next summary semantic tag: " + uri);
-                        doc.add(new Field("semanticTag",
-                                uri.toString(),
-                                Field.Store.YES,
-                                Field.Index.ANALYZED));
+                for (Annotation annotation : annotations) {
+                    for (Document doc : findDocuments(searcher, new TermQuery(new Term("uri",
+                                                                                        annotation.getURI()
+                                                                                                .toString())))) {
+                        affectedSummaries.add(new SummaryKey(doc));
                     }
+                    affectedSummaries.add(new SummaryKey(annotation));
                 }
-                // add field for each annotation
-                for (URI annotationUri : annotations) {
-                    // add a field for this URI
-                    getLog().trace("Next summary annotation: " + annotationUri.toString());
-                    doc.add(new Field("annotation",
-                            annotationUri.toString(),
-                            Field.Store.YES,
-                            Field.Index.ANALYZED));
+            }
+            finally {
+                annotationReader.close();
+            }
+
+            // update annotation documents in place
+            for (URI annotationUri : removedAnnotationURIs) {
+                annotationIndexWriter.deleteDocuments(new Term("uri", annotationUri.toString()));
+            }
+            for (Annotation annotation : annotations) {
+                annotationIndexWriter.updateDocument(new Term("uri", annotation.getURI().toString()),
+                                                     createAnnotationDocument(annotation));
+            }
+
+            // recompute affected summaries from the updated annotations
+            annotationReader = DirectoryReader.open(annotationIndexWriter, true);
+            DirectoryReader summaryReader = DirectoryReader.open(summaryIndexWriter, true);
+            try {
+                IndexSearcher searcher = new IndexSearcher(annotationReader);
+                IndexSearcher summarySearcher = new IndexSearcher(summaryReader);
+                for (SummaryKey summaryKey : affectedSummaries) {
+                    updateAnnotationSummary(searcher, summarySearcher, summaryKey, summaryIndexWriter);
                 }
-                // add a field for the frequency of use of this pattern
-                getLog().trace("Summary frequency: " + annotations.size());
-                doc.add(new Field("frequency",
-                        Integer.toString(annotations.size()),
-                        Field.Store.YES,
-                        Field.Index.ANALYZED));
-                getLog().trace("Best score: " + summaryIdToMaxScore.get(summaryId));
-                doc.add(new Field("topScore",
-                        Float.toString(summaryIdToMaxScore.get(summaryId)),
-                        Field.Store.YES,
-                        Field.Index.ANALYZED));
-                for (URI source : summaryIdToSourcesMap.get(summaryId)) {
-                    getLog().trace("Next source: " + source.toString());
-                    doc.add(new Field("source",
-                            source.toString(),
-                            Field.Store.YES,
-                            Field.Index.NOT_ANALYZED));
+                annotationCount = annotationReader.numDocs();
+            }
+            finally {
+                annotationReader.close();
+                summaryReader.close();
+            }
+            getLog().debug("Updated " + affectedSummaries.size() + " annotation summaries");
+
+            annotationIndexWriter.commit();
+            summaryIndexWriter.commit();
+        }
+        catch (IOException | RuntimeException e) {
+            getLog().error("Failed to update lucene indices, rolling back changes", e);
+            annotationIndexWriter.rollback();
+            summaryIndexWriter.rollback();
+            getSearcherManager().refresh(getAnnotationIndex());
+            getSearcherManager().refresh(getAnnotationSummaryIndex());
+            throw e;
+        }
+        annotationIndexWriter.close();
+        summaryIndexWriter.close();
+
+        // both commits succeeded, so make changes visible to open searchers
+        getSearcherManager().refresh(getAnnotationIndex());
+        getSearcherManager().refresh(getAnnotationSummaryIndex());
+
+        createAnnotationCountIndex(annotationCount);
+        getLog().info("Lucene index update complete!");
+    }
+
+    /**
+     * Updates the annotation, annotation summary and annotation count indices in place with the complete, current set
+     * of annotations from a single datasource.  Any annotation currently indexed from this datasource that is not in
+     * the supplied collection is removed.
+     *
+     * @param source      the datasource that has changed
+     * @param annotations all of the annotations now available from this datasource
+     * @throws IOException if the indices could not be updated
+     * @see #updateAnnotationIndices(Collection, Collection)
+     */
+    public void updateAnnotationIndices(AnnotationSource source, Collection<Annotation> annotations)
+            throws IOException {
+        Set<URI> removedAnnotationURIs = new HashSet<>();
+        DirectoryReader annotationReader = DirectoryReader.open(getAnnotationIndex());
+        try {
+            IndexSearcher searcher = new IndexSearcher(annotationReader);
+            for (Document doc : findDocuments(searcher, new TermQuery(new Term("source",
+                                                                                source.getURI().toString())))) {
+                removedAnnotationURIs.add(URI.create(doc.get("uri")));
+            }
+        }
+        finally {
+            annotationReader.close();
+        }
+        for (Annotation annotation : annotations) {
+            removedAnnotationURIs.remove(annotation.getURI());
+        }
+        getLog().debug("Datasource <" + source.getURI() + "> has " + annotations.size() + " annotations, " +
+                               removedAnnotationURIs.size() + " annotations have been removed");
+        updateAnnotationIndices(annotations, removedAnnotationURIs);
+    }
+
+    /**
+     * Recomputes a single annotation summary from the annotations in the annotation index that share its property and
+     * semantic tags, replacing the indexed summary with the same property and semantic tags.  If no annotations
+     * remain, the summary is deleted.
+     * <p/>
+     * The ID of a summary depends on the order of its semantic tags, which is not known here, so an indexed summary is
+     * found by its order-independent summary key and keeps its ID and semantic tag order.  A new summary is given an ID
+     * generated from its semantic tags in sorted order.
+     */
+    private void updateAnnotationSummary(IndexSearcher annotationSearcher,
+                                         IndexSearcher summarySearcher,
+                                         SummaryKey summaryKey,
+                                         IndexWriter summaryIndexWriter) throws IOException {
+        if (summaryKey.semanticTags.isEmpty()) {
+            // no semantic tags, so there is no summary
+            return;
+        }
 
+        String summaryId;
+        List<URI> semanticTags = new ArrayList<>();
+        String key = generateSummaryKey(summaryKey.propertyType, summaryKey.propertyValue, summaryKey.semanticTags);
+        List<Document> indexedSummaries = findDocuments(summarySearcher, new TermQuery(new Term("summarykey", key)));
+        if (!indexedSummaries.isEmpty()) {
+            Document indexedSummary = indexedSummaries.get(0);
+            summaryId = indexedSummary.get("id");
+            for (String semanticTag : indexedSummary.getValues("semanticTag")) {
+                semanticTags.add(URI.create(semanticTag));
+            }
+        }
+        else {
+            // sort as summaries aggregated during initialization are sorted, so both get the same ID
+            Set<String> sortedTags = new TreeSet<>();
+            for (URI semanticTag : summaryKey.semanticTags) {
+                sortedTags.add(semanticTag.toString());
+            }
+            for (String semanticTag : sortedTags) {
+                semanticTags.add(URI.create(semanticTag));
+            }
+            summaryId = generateSummaryID(summaryKey.propertyType, summaryKey.propertyValue, semanticTags);
+        }
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (URI semanticTag : summaryKey.semanticTags) {
+            builder.add(new TermQuery(new Term("target", semanticTag.toString())), BooleanClause.Occur.MUST);
+        }
+
+        URI propertyUri = summaryKey.propertyUri;
+        List<URI> annotationURIs = new ArrayList<>();
+        Set<URI> sources = new HashSet<>();
+        float topScore = 0;
+        for (Document doc : findDocuments(annotationSearcher, builder.build())) {
+            if (summaryKey.equals(new SummaryKey(doc))) {
+                annotationURIs.add(URI.create(doc.get("uri")));
+                float annotationScore = Float.parseFloat(doc.get("quality"));
+                if (annotationURIs.size() == 1 || annotationScore > topScore) {
+                    topScore = annotationScore;
+                }
+                if (doc.get("source") != null) {
+                    sources.add(URI.create(doc.get("source")));
+                }
+                if (propertyUri == null && doc.get("propertyuri") != null) {
+                    propertyUri = URI.create(doc.get("propertyuri"));
                 }
+            }
+        }
 
-                getLog().trace("Number of times verified: " + summaryIdToSourcesMap.get(summaryId).size());
-                doc.add(new Field("timesVerified",
-                        Integer.toString(summaryIdToSourcesMap.get(summaryId).size()),
-                        Field.Store.YES,
-                        Field.Index.ANALYZED));
+        if (annotationURIs.isEmpty()) {
+            getLog().trace("Removing annotation summary " + summaryId);
+            summaryIndexWriter.deleteDocuments(new Term("id", summaryId));
+        }
+        else {
+            getLog().trace("Updating annotation summary " + summaryId);
+            summaryIndexWriter.updateDocument(new Term("id", summaryId),
+                                              createAnnotationSummaryDocument(summaryId,
+                                                                              propertyUri,
+                                                                              summaryKey.propertyType,
+                                                                              summaryKey.propertyValue,
+                                                                              semanticTags,
+                                                                              annotationURIs,
+                                                                              topScore,
+                                                                              sources));
+        }
+    }
 
-                getLog().trace("Annotation Summary index entry:\n\t" +
-                        "ID: " + summaryId + ",\n\t" +
-                        "Property: " + propertyValue + ",\n\t" +
-                        "Property Type: " + propertyType + ",\n\t" +
-                        "Semantic Tags: " + semanticTags.toString() + ",\n\t" +
-                        "Summary Frequency: " + annotations.size() + ",\n\t" +
-                        "Best score: " + summaryIdToMaxScore.get(summaryId) + ",\n\t" +
-                        "Times verified: " + summaryIdToSourcesMap.get(summaryId).size());
+    /**
+     * Retrieves every document matching the given query, in index order.  Matching doc ids are collected without
+     * scoring, so no priority queue is allocated for the hits.
+     */
+    private List<Document> findDocuments(IndexSearcher searcher, Query q) throws IOException {
+        final List<Integer> docIds = new ArrayList<>();
+        searcher.search(q, new SimpleCollector() {
+            private int docBase;
 
-                // add this document to the index
-                summaryIndexWriter.addDocument(doc);
+            @Override protected void doSetNextReader(LeafReaderContext context) {
+                docBase = context.docBase;
+            }
+
+            @Override public void collect(int doc) {
+                docIds.add(docBase + doc);
             }
 
+            @Override public boolean needsScores() {
+                return false;
+            }
+        });
+
+        List<Document> docs = new ArrayList<>(docIds.size());
+        for (int docId : docIds) {
+            docs.add(searcher.doc(docId));
         }
-        getLog().info("Annotation summary lucene indexing complete!");
-        summaryIndexWriter.close();
+        return docs;
     }
 
     public void clearAnnotationSummaryIndex() {
@@ -508,24 +1210,115 @@ public class ZoomaLuceneIndexer extends Initializable {
         clearAnnotationIndex();
         clearAnnotationCountIndex();
         clearPropertyIndices();
-        getLog().info("Querying underlying datasources for annotations to index...");
-        Collection<Annotation> annotations = getAnnotationDAO().read();
-        getLog().info("Total annotations:" + annotations.size());
-
-        int count = getMaxEntityCount() == -1 ? annotations.size() : getMaxEntityCount();
-        getLog().info("Total annotation to index:" + count);
-        createAnnotationCountIndex(count);
-        Map<URI, AnnotationProvenance> provenanceMap = createAnnotationIndex(new ArrayList<>(annotations));
-        createAnnotationSummaryIndex(getAnnotationSummaryDAO(), provenanceMap);
-
-        getLog().info("Querying underlying datasources for properties to index...");
-        Collection<Property> properties = getMaxEntityCount() == -1
+        indexedAnnotationCount.set(0);
+        propertyUriToAnnotationCountsMap.clear();
+        getLog().info("Reading annotations to index from underlying datasources, " +
+                              ANNOTATION_PAGE_SIZE + " at a time...");
+        PagedAnnotations annotations = new PagedAnnotations();
+        if (getIndexThreadCount() > 1) {
+            buildIndicesConcurrently(annotations);
+        }
+        else {
+            if (isAggregateSummaries() || getAnnotationSummaryDAO() == null) {
+                createAnnotationIndices(annotations);
+            }
+            else {
+                Map<URI, AnnotationProvenance> provenanceMap = createAnnotationIndex(annotations);
+                createAnnotationSummaryIndex(getAnnotationSummaryDAO(), provenanceMap);
+            }
+            createAnnotationCountIndex(getAnnotationCount(annotations));
+
+            getLog().info("Querying underlying datasources for properties to index...");
+            Collection<Property> properties = readProperties();
+            getLog().info("Building lucene indices...");
+            createPropertyIndices(properties);
+        }
+
+        getLog().info("Lucene indexing complete!");
+    }
+
+    /**
+     * Builds all indices, building independent indices concurrently.  Properties are read whilst annotations are
+     * indexed; the summary, property and annotation count indices all depend on the annotation index, and are then
+     * built concurrently once it is complete.
+     *
+     * @param annotations the annotations to index
+     * @throws Exception if any index could not be built
+     */
+    private void buildIndicesConcurrently(final PagedAnnotations annotations) throws Exception {
+        getLog().info("Building lucene indices concurrently with " + getIndexThreadCount() + " threads...");
+        ExecutorService executor = Executors.newFixedThreadPool(3, new ZoomaThreadFactory("ZOOMA-Index-Builder"));
+        try {
+            Future<Collection<Property>> properties = executor.submit(new Callable<Collection<Property>>() {
+                @Override public Collection<Property> call() throws Exception {
+                    getLog().info("Querying underlying datasources for properties to index...");
+                    return readProperties();
+                }
+            });
+
+            Future<Void> summaryIndex = null;
+            if (isAggregateSummaries() || getAnnotationSummaryDAO() == null) {
+                createAnnotationIndices(annotations);
+            }
+            else {
+                final Map<URI, AnnotationProvenance> provenanceMap = createAnnotationIndex(annotations);
+                summaryIndex = executor.submit(new Callable<Void>() {
+                    @Override public Void call() throws Exception {
+                        createAnnotationSummaryIndex(getAnnotationSummaryDAO(), provenanceMap);
+                        return null;
+                    }
+                });
+            }
+            Future<Void> countIndex = executor.submit(new Callable<Void>() {
+                @Override public Void call() throws Exception {
+                    createAnnotationCountIndex(getAnnotationCount(annotations));
+                    return null;
+                }
+            });
+
+            createPropertyIndices(awaitIndexTask(properties));
+            awaitIndexTask(countIndex);
+            if (summaryIndex != null) {
+                awaitIndexTask(summaryIndex);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private <T> T awaitIndexTask(Future<T> task) throws Exception {
+        try {
+            return task.get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            else {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of annotations to record in the annotation count index, once the supplied annotations have
+     * been indexed
+     */
+    private int getAnnotationCount(PagedAnnotations annotations) {
+        int count = getMaxEntityCount() == -1 ? annotations.getReadCount() : getMaxEntityCount();
+        getLog().info("Total annotations indexed: " + annotations.getReadCount() + ", annotation count: " + count);
+        return count;
+    }
+
+    private Collection<Property> readProperties() {
+        return getMaxEntityCount() == -1
                 ? getPropertyDAO().read()
                 : getPropertyDAO().read(getMaxEntityCount(), 0);
-        getLog().info("Building lucene indices...");
-        createPropertyIndices(properties);
+    }
 
-        getLog().info("Lucene indexing complete!");
+    private int getIndexThreadCount() {
+        return getIndexThreads() > 0 ? getIndexThreads() : Runtime.getRuntime().availableProcessors();
     }
 
     @Override
@@ -539,18 +1332,35 @@ public class ZoomaLuceneIndexer extends Initializable {
 
         // close all open resources
         getLog().info("Closing all open lucene indices...");
+        getSearcherManager().close(propertyIndex);
+        getSearcherManager().close(propertyTypeIndex);
+        getSearcherManager().close(annotationCountIndex);
+        getSearcherManager().close(annotationIndex);
+        getSearcherManager().close(annotationSummaryIndex);
         propertyIndex.close();
         propertyTypeIndex.close();
         annotationCountIndex.close();
         annotationIndex.close();
         annotationSummaryIndex.close();
+        if (propertySuggestIndex != null) {
+            propertySuggestIndex.close();
+        }
         analyzer.close();
         getLog().info(getClass().getSimpleName() + " shutdown OK.");
     }
 
     protected IndexWriter obtainIndexWriter(Directory directory) throws IOException {
+        return obtainIndexWriter(directory, IndexWriterConfig.OpenMode.CREATE);
+    }
+
+    protected IndexWriter obtainIndexWriter(Directory directory, IndexWriterConfig.OpenMode openMode)
+            throws IOException {
         IndexWriterConfig config = new IndexWriterConfig(getAnalyzer());
-        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        config.setOpenMode(openMode);
+        config.setRAMBufferSizeMB(getRamBufferSizeMB());
+        TieredMergePolicy mergePolicy = new TieredMergePolicy();
+        mergePolicy.setSegmentsPerTier(getSegmentsPerTier());
+        config.setMergePolicy(mergePolicy);
         return new IndexWriter(directory, config);
     }
 
@@ -575,6 +1385,65 @@ public class ZoomaLuceneIndexer extends Initializable {
         return score;
     }
 
+    /**
+     * Generates the ID of the summary of annotations with the given property and semantic tags.  Semantic tags are used
+     * in the order they are supplied, so summaries read from an {@link AnnotationSummaryDAO} keep the same IDs from one
+     * build to the next; use {@link #generateSummaryKey(String, String, Collection)} to identify a summary regardless
+     * of the order of its semantic tags.
+     *
+     * @param propertyType  the annotated property type, or the untyped key if the property has no type
+     * @param propertyValue the annotated property value
+     * @param semanticTags  the semantic tags of the summary
+     * @return the summary ID, or null if there are no (non-null) semantic tags
+     */
+    private String generateSummaryID(String propertyType, String propertyValue, Collection<URI> semanticTags) {
+        List<String> idContent = new ArrayList<>();
+        for (URI uri : semanticTags) {
+            if (uri != null) {
+                // append URI to ID
+                idContent.add(uri.toString());
+            }
+        }
+
+        if (idContent.size() > 0) {
+            // add property type and value to id content
+            idContent.add(0, propertyValue);
+            idContent.add(0, propertyType);
+            return generateEncodedID(idContent.toArray(new String[idContent.size()]));
+        }
+        else {
+            return null;
+        }
+    }
+
+    /**
+     * Generates a key that identifies the summary of annotations with the given property and semantic tags, regardless
+     * of the order of the semantic tags.  Every indexed summary records this key, so that incremental updates can find
+     * the indexed summary for a property and set of semantic tags without knowing its ID.
+     *
+     * @param propertyType  the annotated property type, or the untyped key if the property has no type
+     * @param propertyValue the annotated property value
+     * @param semanticTags  the semantic tags of the summary
+     * @return the summary key
+     */
+    private String generateSummaryKey(String propertyType, String propertyValue, Collection<URI> semanticTags) {
+        List<String> semanticTagStrings = new ArrayList<>();
+        for (URI uri : semanticTags) {
+            if (uri != null) {
+                semanticTagStrings.add(uri.toString());
+            }
+        }
+        Collections.sort(semanticTagStrings);
+
+        // separate contents, so that different properties and semantic tags can't produce the same key content
+        StringBuilder keyContent = new StringBuilder();
+        keyContent.append(propertyType).append('\n').append(propertyValue);
+        for (String semanticTag : semanticTagStrings) {
+            keyContent.append('\n').append(semanticTag);
+        }
+        return encode(keyContent.toString());
+    }
+
     private Map<String, String[]> idKeyContentMap = Collections.synchronizedMap(new HashMap<String, String[]>());
 
     private String generateEncodedID(String... contents) {
@@ -582,38 +1451,42 @@ public class ZoomaLuceneIndexer extends Initializable {
         for (String s : contents) {
             idContent.append(s);
         }
+        String idKey = encode(idContent.toString());
+        if (idKeyContentMap.containsKey(idKey)) {
+            // key collision, check contents
+            String[] collisionContents = idKeyContentMap.get(idKey);
+            if (contents.length != collisionContents.length) {
+                // mismatched key content length, genuine key collision
+                throw new RuntimeException(
+                        "Key collision (content length mismatch) trying to generate unique key for " + idContent);
+            }
+            else {
+                for (int i = 0; i < contents.length; i++) {
+                    // mismatched key content element, genuine key collision
+                    if (!contents[i].equals(collisionContents[i])) {
+                        throw new RuntimeException(
+                                "Key collision (content element mismatch at " + i + ") " +
+                                        "trying to generate unique key for " + idContent);
+                    }
+                }
+            }
+        }
+        else {
+            idKeyContentMap.put(idKey, contents);
+        }
+
+        getLog().trace("Generated new " + ENCODING + " based, hex encoded ID string: " + idKey);
+        return idKey;
+    }
+
+    private String encode(String content) {
         try {
             // encode the content using SHA-1
             MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
-            byte[] digest = messageDigest.digest(idContent.toString().getBytes("UTF-8"));
+            byte[] digest = messageDigest.digest(content.getBytes("UTF-8"));
 
             // now translate the resulting byte array to hex
-            String idKey = getHexRepresentation(digest);
-            if (idKeyContentMap.containsKey(idKey)) {
-                // key collision, check contents
-                String[] collisionContents = idKeyContentMap.get(idKey);
-                if (contents.length != collisionContents.length) {
-                    // mismatched key content length, genuine key collision
-                    throw new RuntimeException(
-                            "Key collision (content length mismatch) trying to generate unique key for " + idContent);
-                }
-                else {
-                    for (int i = 0; i < contents.length; i++) {
-                        // mismatched key content element, genuine key collision
-                        if (!contents[i].equals(collisionContents[i])) {
-                            throw new RuntimeException(
-                                    "Key collision (content element mismatch at " + i + ") " +
-                                            "trying to generate unique key for " + idContent);
-                        }
-                    }
-                }
-            }
-            else {
-                idKeyContentMap.put(idKey, contents);
-            }
-
-            getLog().trace("Generated new " + ENCODING + " based, hex encoded ID string: " + idKey);
-            return idKey;
+            return getHexRepresentation(digest);
         }
         catch (UnsupportedEncodingException e) {
             throw new IllegalStateException("UTF-8 not supported!");
@@ -633,4 +1506,113 @@ public class ZoomaLuceneIndexer extends Initializable {
         }
         return hex.toString();
     }
+
+    /**
+     * The property and semantic tags that identify an annotation summary
+     */
+    private static class SummaryKey {
+        private final String propertyType;
+        private final String propertyValue;
+        private final Set<URI> semanticTags;
+        // not part of the key, retained if known to avoid a lookup
+        private final URI propertyUri;
+
+        private SummaryKey(Annotation annotation) {
+            Property property = annotation.getAnnotatedProperty();
+            this.propertyType = property instanceof TypedProperty
+                    ? ((TypedProperty) property).getPropertyType()
+                    : UNTYPED;
+            this.propertyValue = property.getPropertyValue();
+            this.semanticTags = new HashSet<>();
+            for (URI semanticTag : annotation.getSemanticTags()) {
+                if (semanticTag != null) {
+                    semanticTags.add(semanticTag);
+                }
+            }
+            this.propertyUri = property.getURI();
+        }
+
+        private SummaryKey(Document annotationDocument) {
+            this.propertyType = annotationDocument.get("propertytype") != null
+                    ? annotationDocument.get("propertytype")
+                    : UNTYPED;
+            this.propertyValue = annotationDocument.get("property");
+            this.semanticTags = new HashSet<>();
+            for (String semanticTag : annotationDocument.getValues("target")) {
+                semanticTags.add(URI.create(semanticTag));
+            }
+            this.propertyUri = annotationDocument.get("propertyuri") != null
+                    ? URI.create(annotationDocument.get("propertyuri"))
+                    : null;
+        }
+
+        @Override public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SummaryKey that = (SummaryKey) o;
+            return propertyType.equals(that.propertyType) &&
+                    propertyValue.equals(that.propertyValue) &&
+                    semanticTags.equals(that.semanticTags);
+        }
+
+        @Override public int hashCode() {
+            int result = propertyType.hashCode();
+            result = 31 * result + propertyValue.hashCode();
+            result = 31 * result + semanticTags.hashCode();
+            return result;
+        }
+    }
+
+    /**
+     * The annotations available from the annotation DAO, read with {@link AnnotationDAO#read(int, int)} one page at a
+     * time as they are iterated, so that only one page of annotations is held in memory at once.  Paging stops at the
+     * first empty page.  Each iteration makes a new pass over the annotation DAO.
+     */
+    private class PagedAnnotations implements Iterable<Annotation> {
+        private volatile int readCount;
+
+        /**
+         * Returns the number of annotations read by the most recent pass over the annotation DAO
+         */
+        public int getReadCount() {
+            return readCount;
+        }
+
+        @Override public Iterator<Annotation> iterator() {
+            readCount = 0;
+            return new Iterator<Annotation>() {
+                private int start = 0;
+                private Iterator<Annotation> page = Collections.<Annotation>emptyList().iterator();
+                private boolean exhausted = false;
+
+                @Override public boolean hasNext() {
+                    while (!page.hasNext() && !exhausted) {
+                        List<Annotation> annotations = getAnnotationDAO().read(ANNOTATION_PAGE_SIZE, start);
+                        getLog().debug("Read " + annotations.size() + " annotations, " +
+                                               "starting from " + start);
+                        start += ANNOTATION_PAGE_SIZE;
+                        exhausted = annotations.isEmpty();
+                        page = annotations.iterator();
+                    }
+                    return page.hasNext();
+                }
+
+                @Override public Annotation next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    readCount++;
+                    return page.next();
+                }
+
+                @Override public void remove() {
+                    throw new UnsupportedOperationException("Annotations cannot be removed from the index build");
+                }
+            };
+        }
+    }
 }
@@ -9,7 +9,6 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.ExitableDirectoryReader;
 import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.QueryTimeoutImpl;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.BooleanClause;
@@ -20,6 +19,7 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TimeLimitingCollector;
+import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.search.spans.SpanFirstQuery;
@@ -42,8 +42,10 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
@@ -56,11 +58,14 @@ import java.util.Set;
  * Implementations are free to concentrate on the business of generating the queries without worrying about performing
  * them and collecting results.  The one stipulation is that you should always call {@link #init()} on this class once
  * the index has been set in order to
+ * <p/>
+ * Readers over the index are not opened per query, but are shared between all services searching the same index via a
+ * {@link ZoomaLuceneSearcherManager}.  Unless one is explicitly configured, the default shared manager is used.
  *
  * @author Tony Burdett
  * @date 03/04/12
  */
-public abstract class ZoomaLuceneSearchService extends Initializable {
+public abstract class ZoomaLuceneSearchService extends Initializable implements ReloadableService {
     // Max lucene query time - if zooma.search.timeout in properties, this is set to 1/5 of that value
     private long luceneQueryTimeout = 1000; // Default 1 second lucene query timeout
 
@@ -69,6 +74,8 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
     private Directory index;
     private Similarity similarity;
 
+    private ZoomaLuceneSearcherManager searcherManager = ZoomaLuceneSearcherManager.getDefaultInstance();
+
     protected enum QUERY_TYPE {
         EXACT,
         FULL,
@@ -95,15 +102,53 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
         this.similarity = similarity;
     }
 
-    protected IndexReader getReader() {
+    public ZoomaLuceneSearcherManager getSearcherManager() {
+        return searcherManager;
+    }
+
+    public void setSearcherManager(ZoomaLuceneSearcherManager searcherManager) {
+        this.searcherManager = searcherManager;
+    }
+
+    /**
+     * Acquires the current shared reader over the index searched by this service.  Readers obtained from this method
+     * must be returned by calling {@link #releaseReader(DirectoryReader)}, and must not be closed.
+     *
+     * @return the current reader over this service's index
+     * @throws SearchResourcesUnavailableException if the index could not be read
+     */
+    protected DirectoryReader acquireReader() {
         try {
-            return ExitableDirectoryReader.wrap(DirectoryReader.open(index), new QueryTimeoutImpl(luceneQueryTimeout));
+            return getSearcherManager().acquire(index);
         }
         catch (IOException e) {
             throw new SearchResourcesUnavailableException("Unable to read lucene index", e);
         }
     }
 
+    /**
+     * Releases a reader obtained from {@link #acquireReader()}
+     *
+     * @param reader the reader to release
+     */
+    protected void releaseReader(DirectoryReader reader) {
+        try {
+            getSearcherManager().release(index, reader);
+        }
+        catch (IOException e) {
+            getLog().warn("Failed to release lucene index reader", e);
+        }
+    }
+
+    /**
+     * Returns the generation of the readers shared by this service, which changes whenever an index is refreshed
+     *
+     * @return the current generation of the searcher manager used by this service
+     */
+    @Override public long getGeneration() {
+        return getSearcherManager().getGeneration();
+    }
+
     private IndexSearcher getSearcher(IndexReader reader) {
         IndexSearcher searcher = new IndexSearcher(reader);
         if (similarity != null) {
@@ -462,7 +507,9 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
      * @throws SearchResourcesUnavailableException if reading from the index failed
      */
     protected <T> List<T> doQuery(Query q, LuceneDocumentMapper<T> mapper, int limit) {
-        try (IndexReader reader = getReader()) {
+        DirectoryReader reader = acquireReader();
+        getSearcherManager().startQueryTimeout(luceneQueryTimeout);
+        try {
             // init, to make sure searcher is available
             initOrWait();
 
@@ -510,7 +557,7 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
                         lastScoreDoc = hit;
                         Document doc = searcher.doc(hit.doc);
                         if (limit == -1 || results.size() < limit) {
-                            results.add(mapper.mapDocument(doc, rank));
+                            results.add(mapHit(searcher.getIndexReader(), hit, doc, mapper, rank));
                         }
                         else {
                             complete = true;
@@ -538,6 +585,87 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
             throw new SearchTimeoutException("Failed to perform Lucene query [" + q + "] - " +
                                                      "timeout after " + luceneQueryTimeout + "ms.", e);
         }
+        finally {
+            getSearcherManager().clearQueryTimeout();
+            releaseReader(reader);
+        }
+    }
+
+    /**
+     * Performs a lucene query, using the supplied collector to select the hits to return, and uses the supplied mapper
+     * to convert the selected documents into the relevant object type.  Unlike {@link #doQuery(Query,
+     * LuceneDocumentMapper, int)}, the query is performed once and stored documents are only loaded for the hits that
+     * the collector retains.  Results are returned in the order given by the collector, and each is mapped with its
+     * position in that order as its rank, starting from 1.
+     *
+     * @param q         the lucene query to perform
+     * @param mapper    the mapper to use to convert retained documents
+     * @param collector the collector that selects which hits to retain
+     * @return a collection of results
+     * @throws SearchResourcesUnavailableException if reading from the index failed
+     */
+    protected <T> List<T> doQuery(Query q, LuceneDocumentMapper<T> mapper, TopDocsCollector<?> collector) {
+        DirectoryReader reader = acquireReader();
+        getSearcherManager().startQueryTimeout(luceneQueryTimeout);
+        try {
+            // init, to make sure searcher is available
+            initOrWait();
+
+            if (getLog().isTraceEnabled()) {
+                getLog().trace("Starting bounded query '" + q + "'");
+            }
+            IndexSearcher searcher = getSearcher(reader);
+            searcher.search(q, new TimeLimitingCollector(
+                    collector, TimeLimitingCollector.getGlobalCounter(), luceneQueryTimeout));
+            ScoreDoc[] hits = collector.topDocs().scoreDocs;
+
+            // only load stored documents for retained hits, ranked in the order they were collected
+            List<T> results = new ArrayList<>();
+            for (int i = 0; i < hits.length; i++) {
+                Document doc = searcher.doc(hits[i].doc);
+                results.add(mapHit(searcher.getIndexReader(), hits[i], doc, mapper, i + 1));
+            }
+            getLog().debug("Query '" + q.toString() + "' returned " + results.size() + " results " +
+                                   "(from " + collector.getTotalHits() + " hits)");
+            return results;
+        }
+        catch (IOException e) {
+            throw new SearchResourcesUnavailableException("Failed to read index", e);
+        }
+        catch (InterruptedException e) {
+            throw new SearchResourcesUnavailableException("Failed to perform query - indexing process was interrupted",
+                                                          e);
+        }
+        catch (TimeLimitingCollector.TimeExceededException e) {
+            throw new SearchTimeoutException("Failed to collect result of Lucene query [" + q + "] - " +
+                                                     "timeout after " + luceneQueryTimeout + "ms.", e);
+        }
+        catch (ExitableDirectoryReader.ExitingReaderException e) {
+            throw new SearchTimeoutException("Failed to perform Lucene query [" + q + "] - " +
+                                                     "timeout after " + luceneQueryTimeout + "ms.", e);
+        }
+        finally {
+            getSearcherManager().clearQueryTimeout();
+            releaseReader(reader);
+        }
+    }
+
+    /**
+     * Maps a single hit from a lucene query into the relevant object type.  By default this simply delegates to the
+     * mapper; subclasses may override this to make use of per-segment index data, such as doc values, for the hit.
+     *
+     * @param reader the reader that the query was performed against
+     * @param hit    the hit to map
+     * @param doc    the stored document for this hit
+     * @param mapper the mapper to use
+     * @param rank   the rank (i.e. position) of this hit in the query results
+     * @param <T>    the type of object to map to
+     * @return the mapped object
+     * @throws IOException if reading from the index failed
+     */
+    protected <T> T mapHit(IndexReader reader, ScoreDoc hit, Document doc, LuceneDocumentMapper<T> mapper, int rank)
+            throws IOException {
+        return mapper.mapDocument(doc, rank);
     }
 
     /**
@@ -566,10 +694,14 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
      * specified by supplying the fieldname.  All results that match the given query are iterated over, in batches of
      * 100, and put into a collection of objects that is returned.  This collection is typed by the type of DAO that is
      * supplied.
+     * <p/>
+     * The URIs of each batch of hits are resolved with a single call to {@link ZoomaDAO#read(Collection)}, rather than
+     * one lookup per hit, and results are returned in hit order.
      *
      * @param q      the lucene query to perform
      * @param mapper the document mapper to use to extract the URI from resulting lucene documents
      * @param dao    the zooma dao that can be used to do the lookup of matching objects
+     * @param limit  the maximum number of results to return, or -1 to return all results
      * @param <T>    the type of object to lookup - the ZoomaDAO supplied declares this type
      * @return a collection of results
      * @throws IOException if reading from the index failed
@@ -578,7 +710,9 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
                                                        LuceneDocumentMapper<URI> mapper,
                                                        ZoomaDAO<T> dao,
                                                        int limit) throws IOException {
-        try (IndexReader reader = getReader()) {
+        DirectoryReader reader = acquireReader();
+        getSearcherManager().startQueryTimeout(luceneQueryTimeout);
+        try {
             // init, to make sure searcher is available
             initOrWait();
 
@@ -620,12 +754,21 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
                     complete = true;
                 }
                 else {
-                    // get URI and readByProperty property, add to results
+                    // get URIs for this page of hits, and resolve them all with a single DAO lookup
+                    List<URI> uris = new ArrayList<>();
                     for (ScoreDoc hit : hits) {
                         lastScoreDoc = hit;
                         Document doc = searcher.doc(hit.doc);
-                        URI uri = mapper.mapDocument(doc, rank);
-                        T t = dao.read(uri);
+                        uris.add(mapper.mapDocument(doc, rank));
+                    }
+                    Map<URI, T> resolved = new HashMap<>();
+                    for (T t : dao.read(uris)) {
+                        resolved.put(t.getURI(), t);
+                    }
+
+                    // add to results in hit order
+                    for (URI uri : uris) {
+                        T t = resolved.get(uri);
                         if (t != null) {
                             if (limit == -1 || results.size() < limit) {
                                 results.add(t);
@@ -657,6 +800,10 @@ public abstract class ZoomaLuceneSearchService extends Initializable {
             throw new SearchTimeoutException("Failed to perform Lucene query [" + q + "] - " +
                                                      "timeout after " + luceneQueryTimeout + "ms.", e);
         }
+        finally {
+            getSearcherManager().clearQueryTimeout();
+            releaseReader(reader);
+        }
     }
 }
 
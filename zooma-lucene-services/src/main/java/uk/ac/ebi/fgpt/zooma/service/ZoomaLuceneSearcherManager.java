@@ -0,0 +1,314 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.ExitableDirectoryReader;
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.QueryTimeout;
+import org.apache.lucene.index.ReaderManager;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Manages long-lived, shared readers over the lucene indices used by ZOOMA.  Opening a {@link DirectoryReader} is
+ * expensive, as every segment of the index has to be opened, so rather than opening a reader for every query all {@link
+ * ZoomaLuceneSearchService}s that search the same {@link Directory} acquire and release a reference to a single reader
+ * held by this manager.
+ * <p/>
+ * Readers are refreshed explicitly, by calling {@link #refresh(Directory)} once an index has been rebuilt, or {@link
+ * #refresh(Directory, IndexWriter)} to make uncommitted changes from an open writer visible in near-real-time.  Readers
+ * are wrapped once, when they are first opened, in an {@link ExitableDirectoryReader} that consults a per-thread
+ * deadline, so individual queries can be timed out with {@link #startQueryTimeout(long)} without having to re-wrap the
+ * reader.
+ * <p/>
+ * Every time a refresh opens a new reader, or a reader is closed, this manager's {@link #getGeneration() generation}
+ * is incremented, so that anything caching search results can tell when they may be stale.
+ * <p/>
+ * Unless configured otherwise, all services and indexers in a single JVM share the instance returned by {@link
+ * #getDefaultInstance()}.
+ *
+ * @date 18/10/26
+ */
+public class ZoomaLuceneSearcherManager {
+    private static final ZoomaLuceneSearcherManager defaultInstance = new ZoomaLuceneSearcherManager();
+
+    private final Map<Directory, ReaderManager> readerManagers;
+    // indices whose current reader was opened from an index writer, rather than a commit
+    private final Set<Directory> nearRealTimeIndices;
+    private final ThreadLocalQueryTimeout queryTimeout;
+    private final AtomicLong generation;
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    /**
+     * Returns the searcher manager shared by all lucene services that have not been configured with their own
+     *
+     * @return the default, shared searcher manager
+     */
+    public static ZoomaLuceneSearcherManager getDefaultInstance() {
+        return defaultInstance;
+    }
+
+    public ZoomaLuceneSearcherManager() {
+        this.readerManagers = new ConcurrentHashMap<>();
+        this.nearRealTimeIndices = ConcurrentHashMap.newKeySet();
+        this.queryTimeout = new ThreadLocalQueryTimeout();
+        this.generation = new AtomicLong();
+    }
+
+    /**
+     * Returns the current generation of the readers held by this manager.  The generation is incremented whenever a
+     * refresh results in a new reader being opened over any index, or when any reader is closed.
+     *
+     * @return the current generation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Acquires a reference to the current reader over the given index, opening the index if this is the first time it
+     * has been requested.  Every reader acquired must be returned with a call to {@link #release(Directory,
+     * DirectoryReader)} once the caller is finished with it, and must never be closed directly.
+     *
+     * @param index the index to obtain a reader for
+     * @return the current reader for this index
+     * @throws IOException if the index could not be opened
+     */
+    public DirectoryReader acquire(Directory index) throws IOException {
+        while (true) {
+            ReaderManager readerManager = getReaderManager(index);
+            try {
+                return readerManager.acquire();
+            }
+            catch (AlreadyClosedException e) {
+                // the manager was replaced or closed after we obtained it, so retry with the current one
+                getLog().trace("Reader manager for " + index + " was closed concurrently, retrying");
+            }
+        }
+    }
+
+    /**
+     * Releases a reader previously obtained from {@link #acquire(Directory)}.
+     *
+     * @param index  the index the reader was acquired for
+     * @param reader the reader to release
+     * @throws IOException if the reader was the last reference to an outdated reader, and closing it failed
+     */
+    public void release(Directory index, DirectoryReader reader) throws IOException {
+        ReaderManager readerManager = readerManagers.get(index);
+        if (readerManager != null) {
+            readerManager.release(reader);
+        }
+        else {
+            // manager has been closed since this reader was acquired, so just decrement the reference
+            reader.decRef();
+        }
+    }
+
+    /**
+     * Refreshes the reader over the given index, if one is open, so that subsequent calls to {@link
+     * #acquire(Directory)} see any changes committed to the index.  Readers that are already in use remain valid until
+     * they are released.  If no reader has been opened for this index yet, this method does nothing.
+     *
+     * @param index the index to refresh
+     * @throws IOException if the refreshed index could not be opened
+     */
+    public void refresh(Directory index) throws IOException {
+        ReaderManager readerManager;
+        while ((readerManager = readerManagers.get(index)) != null) {
+            getLog().debug("Refreshing lucene reader for " + index);
+            if (nearRealTimeIndices.contains(index)) {
+                // the writer this reader came from may be closed, so reopen from the latest commit instead
+                synchronized (readerManagers) {
+                    if (nearRealTimeIndices.remove(index)) {
+                        List<IndexCommit> commits = DirectoryReader.listCommits(index);
+                        replaceReader(index, commits.get(commits.size() - 1), null);
+                        return;
+                    }
+                }
+            }
+            try {
+                readerManager.maybeRefreshBlocking();
+                return;
+            }
+            catch (AlreadyClosedException e) {
+                // the manager was replaced or closed after we obtained it, so retry with the current one
+                getLog().trace("Reader manager for " + index + " was closed concurrently, retrying");
+            }
+        }
+    }
+
+    /**
+     * Refreshes the reader over the given index, if one is open, so that subsequent calls to {@link
+     * #acquire(Directory)} see all changes made by the given writer, including those that have not yet been committed.
+     * Unchanged segments are shared with the previous reader.  Once the writer has been committed and closed, {@link
+     * #refresh(Directory)} should be called to release the reader's reference to the writer.  If no reader has been
+     * opened for this index yet, this method does nothing.
+     *
+     * @param index  the index to refresh
+     * @param writer an open writer over this index
+     * @throws IOException if the refreshed index could not be opened
+     */
+    public void refresh(Directory index, IndexWriter writer) throws IOException {
+        if (readerManagers.containsKey(index)) {
+            getLog().debug("Refreshing near-real-time lucene reader for " + index);
+            synchronized (readerManagers) {
+                replaceReader(index, null, writer);
+                nearRealTimeIndices.add(index);
+            }
+        }
+    }
+
+    /**
+     * Refreshes the readers over all indices that have been opened by this manager.
+     *
+     * @throws IOException if any of the refreshed indices could not be opened
+     */
+    public void refreshAll() throws IOException {
+        for (Directory index : new ArrayList<>(readerManagers.keySet())) {
+            refresh(index);
+        }
+    }
+
+    /**
+     * Closes the reader over the given index, if one is open.  Any readers currently in use will be closed once they
+     * are released.
+     *
+     * @param index the index to close
+     * @throws IOException if the reader could not be closed
+     */
+    public void close(Directory index) throws IOException {
+        nearRealTimeIndices.remove(index);
+        ReaderManager readerManager = readerManagers.remove(index);
+        if (readerManager != null) {
+            readerManager.close();
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * Closes all readers opened by this manager.
+     *
+     * @throws IOException if any reader could not be closed
+     */
+    public void closeAll() throws IOException {
+        for (Directory index : new ArrayList<>(readerManagers.keySet())) {
+            close(index);
+        }
+    }
+
+    /**
+     * Starts a timeout that will abort any query issued against readers from this manager by the calling thread, once
+     * the given number of milliseconds have elapsed.  Callers should always clear the timeout with {@link
+     * #clearQueryTimeout()} once their query completes.
+     *
+     * @param timeoutMillis the maximum time, in milliseconds, queries from the current thread may run for
+     */
+    public void startQueryTimeout(long timeoutMillis) {
+        queryTimeout.start(timeoutMillis);
+    }
+
+    /**
+     * Clears any timeout set for the calling thread by {@link #startQueryTimeout(long)}
+     */
+    public void clearQueryTimeout() {
+        queryTimeout.clear();
+    }
+
+    protected ReaderManager getReaderManager(Directory index) throws IOException {
+        ReaderManager readerManager = readerManagers.get(index);
+        if (readerManager == null) {
+            synchronized (readerManagers) {
+                readerManager = readerManagers.get(index);
+                if (readerManager == null) {
+                    getLog().debug("Opening shared lucene reader for " + index);
+                    readerManager = createReaderManager(ExitableDirectoryReader.wrap(DirectoryReader.open(index),
+                                                                                     queryTimeout));
+                    readerManagers.put(index, readerManager);
+                }
+            }
+        }
+        return readerManager;
+    }
+
+    private ReaderManager createReaderManager(DirectoryReader reader) throws IOException {
+        ReaderManager readerManager = new ReaderManager(reader);
+        readerManager.addListener(new ReferenceManager.RefreshListener() {
+            @Override public void beforeRefresh() {
+            }
+
+            @Override public void afterRefresh(boolean didRefresh) {
+                if (didRefresh) {
+                    generation.incrementAndGet();
+                }
+            }
+        });
+        return readerManager;
+    }
+
+    /**
+     * Reopens the current reader over an index, either from the given commit or from the given writer, and replaces
+     * the reader manager for the index with one holding the new reader.  Readers acquired from the old manager remain
+     * valid until they are released, and any thread that obtained the old manager before it was closed retries with
+     * the new one.  Callers must hold the lock on readerManagers.
+     */
+    private void replaceReader(Directory index, IndexCommit commit, IndexWriter writer) throws IOException {
+        ReaderManager readerManager = readerManagers.get(index);
+        DirectoryReader current = readerManager.acquire();
+        try {
+            DirectoryReader reader = writer != null
+                    ? DirectoryReader.openIfChanged(current, writer, true)
+                    : DirectoryReader.openIfChanged(current, commit);
+            if (reader != null) {
+                readerManagers.put(index, createReaderManager(reader));
+                readerManager.close();
+                generation.incrementAndGet();
+            }
+        }
+        finally {
+            readerManager.release(current);
+        }
+    }
+
+    /**
+     * A {@link QueryTimeout} that checks against a deadline held separately for each thread, so that a single shared
+     * reader can enforce different timeouts on concurrent queries.  Threads that have not set a deadline never time
+     * out.
+     */
+    private static class ThreadLocalQueryTimeout implements QueryTimeout {
+        private final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
+        public void start(long timeoutMillis) {
+            deadline.set(System.nanoTime() + timeoutMillis * 1000000L);
+        }
+
+        public void clear() {
+            deadline.remove();
+        }
+
+        @Override public boolean shouldExit() {
+            Long d = deadline.get();
+            return d != null && System.nanoTime() - d > 0;
+        }
+
+        @Override public String toString() {
+            return "ThreadLocalQueryTimeout (" + deadline.get() + ")";
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.simmetrics.tokenizers.Tokenizer;
+import org.simmetrics.tokenizers.Whitespace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable index over a dictionary of strings that can be used to quickly generate a shortlist of candidates that
+ * might be similar to a query string, without having to compare the query against every string in the dictionary.
+ * <p/>
+ * Candidate generation is lossless with respect to the default simmetrics {@link org.simmetrics.metrics.NeedlemanWunch}
+ * and whitespace tokenized {@link org.simmetrics.metrics.JaccardSimilarity} metrics: every dictionary entry that
+ * scores at or above the given minimum score is guaranteed to be amongst the candidates returned, although candidates
+ * may score below it.  Callers should therefore rescore the candidates with the original metric.
+ * <p/>
+ * Needleman-Wunsch candidates are generated from character bigram postings.  The default Needleman-Wunsch metric scores
+ * two strings as <code>1 - cost / (2 * max length)</code>, where every substitution or gap costs at least 1, so the
+ * cost is never less than the edit distance between the two strings.  This bounds the edit distance allowed by the
+ * minimum score, and so the difference in length and the minimum number of bigrams two strings must share.
+ * <p/>
+ * Jaccard candidates are generated from token postings.  Two token sets A and B with a similarity of at least t must
+ * share at least t|A| tokens, so candidates must contain at least one of the rarest |A| - t|A| + 1 tokens of the
+ * query.
+ *
+ * @date 18/10/26
+ */
+public class ApproximateMatchIndex {
+    private static final Tokenizer tokenizer = new Whitespace();
+
+    private final String[] strings;
+    private final int[] tokenCounts;
+
+    private final int[][] idsByLength;
+    private final Map<Integer, int[]> bigramPostings;
+
+    private final int[] emptyTokenSetIds;
+    private final Map<String, int[]> tokenPostings;
+
+    /**
+     * Builds a new index over the supplied dictionary.  Duplicate strings are indexed once.
+     *
+     * @param dictionary the strings to index
+     */
+    public ApproximateMatchIndex(Collection<String> dictionary) {
+        Set<String> uniqueStrings = new LinkedHashSet<>(dictionary);
+        this.strings = uniqueStrings.toArray(new String[uniqueStrings.size()]);
+        this.tokenCounts = new int[strings.length];
+
+        int maxLength = 0;
+        for (String s : strings) {
+            maxLength = Math.max(maxLength, s.length());
+        }
+
+        List<List<Integer>> lengthLists = new ArrayList<>();
+        for (int i = 0; i <= maxLength; i++) {
+            lengthLists.add(new ArrayList<Integer>());
+        }
+        Map<Integer, List<Integer>> bigramLists = new HashMap<>();
+        Map<String, List<Integer>> tokenLists = new HashMap<>();
+        List<Integer> emptyTokenSetList = new ArrayList<>();
+
+        for (int id = 0; id < strings.length; id++) {
+            String s = strings[id];
+            lengthLists.get(s.length()).add(id);
+
+            // bigram postings retain duplicates, so multiset intersections can be counted
+            for (int i = 0; i < s.length() - 1; i++) {
+                Integer bigram = bigram(s, i);
+                if (!bigramLists.containsKey(bigram)) {
+                    bigramLists.put(bigram, new ArrayList<Integer>());
+                }
+                bigramLists.get(bigram).add(id);
+            }
+
+            Set<String> tokens = tokenizer.tokenizeToSet(s);
+            tokenCounts[id] = tokens.size();
+            if (tokens.isEmpty()) {
+                emptyTokenSetList.add(id);
+            }
+            for (String token : tokens) {
+                if (!tokenLists.containsKey(token)) {
+                    tokenLists.put(token, new ArrayList<Integer>());
+                }
+                tokenLists.get(token).add(id);
+            }
+        }
+
+        this.idsByLength = new int[lengthLists.size()][];
+        for (int i = 0; i < lengthLists.size(); i++) {
+            idsByLength[i] = toArray(lengthLists.get(i));
+        }
+        this.bigramPostings = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> entry : bigramLists.entrySet()) {
+            bigramPostings.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        this.tokenPostings = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : tokenLists.entrySet()) {
+            tokenPostings.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        this.emptyTokenSetIds = toArray(emptyTokenSetList);
+    }
+
+    /**
+     * Returns the number of distinct strings in this index
+     *
+     * @return the size of the indexed dictionary
+     */
+    public int size() {
+        return strings.length;
+    }
+
+    /**
+     * Returns a shortlist of dictionary strings that may have a Needleman-Wunsch similarity to the query of at least
+     * the given minimum score.
+     *
+     * @param query    the string to find candidates for
+     * @param minScore the minimum Needleman-Wunsch similarity of interest
+     * @return a collection of candidate strings, a superset of those meeting the minimum score
+     */
+    public Collection<String> getNeedlemanWunschCandidates(String query, float minScore) {
+        if (minScore <= 0) {
+            return Arrays.asList(strings);
+        }
+
+        int n = query.length();
+        Collection<String> candidates = new ArrayList<>();
+
+        // count the bigrams each dictionary string shares with the query, respecting multiplicity
+        Map<Integer, Integer> queryBigrams = new HashMap<>();
+        for (int i = 0; i < n - 1; i++) {
+            Integer bigram = bigram(query, i);
+            queryBigrams.put(bigram, queryBigrams.containsKey(bigram) ? queryBigrams.get(bigram) + 1 : 1);
+        }
+        Map<Integer, Integer> sharedBigrams = new HashMap<>();
+        for (Map.Entry<Integer, Integer> entry : queryBigrams.entrySet()) {
+            int[] postings = bigramPostings.get(entry.getKey());
+            if (postings != null) {
+                int i = 0;
+                while (i < postings.length) {
+                    int id = postings[i];
+                    int occurrences = 0;
+                    while (i < postings.length && postings[i] == id) {
+                        occurrences++;
+                        i++;
+                    }
+                    if (isNeedlemanWunschLengthCandidate(n, strings[id].length(), minScore)) {
+                        int shared = Math.min(occurrences, entry.getValue());
+                        sharedBigrams.put(id, sharedBigrams.containsKey(id) ? sharedBigrams.get(id) + shared : shared);
+                    }
+                }
+            }
+        }
+
+        for (int m = 0; m < idsByLength.length; m++) {
+            if (isNeedlemanWunschLengthCandidate(n, m, minScore) &&
+                    getMinimumSharedBigrams(Math.max(n, m), minScore) <= 0) {
+                // strings this short are not constrained by shared bigrams, so all must be checked
+                for (int id : idsByLength[m]) {
+                    candidates.add(strings[id]);
+                }
+            }
+        }
+        for (Map.Entry<Integer, Integer> entry : sharedBigrams.entrySet()) {
+            int m = strings[entry.getKey()].length();
+            int minimumShared = getMinimumSharedBigrams(Math.max(n, m), minScore);
+            if (minimumShared > 0 && entry.getValue() >= minimumShared) {
+                candidates.add(strings[entry.getKey()]);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns a shortlist of dictionary strings that may have a whitespace tokenized Jaccard similarity to the query of
+     * at least the given minimum score.
+     *
+     * @param query    the string to find candidates for
+     * @param minScore the minimum Jaccard similarity of interest
+     * @return a collection of candidate strings, a superset of those meeting the minimum score
+     */
+    public Collection<String> getJaccardCandidates(String query, float minScore) {
+        if (minScore <= 0) {
+            return Arrays.asList(strings);
+        }
+
+        Set<String> queryTokens = tokenizer.tokenizeToSet(query);
+        if (queryTokens.isEmpty()) {
+            // only other empty token sets have a non-zero similarity to an empty token set
+            Collection<String> candidates = new ArrayList<>();
+            for (int id : emptyTokenSetIds) {
+                candidates.add(strings[id]);
+            }
+            return candidates;
+        }
+
+        // any candidate must share at least t|A| tokens; round down generously to allow for float precision
+        int a = queryTokens.size();
+        int minimumOverlap = Math.max(1, (int) Math.ceil(minScore * a) - 1);
+        int minimumSize = Math.max(1, (int) Math.ceil(minScore * a) - 1);
+        int maximumSize = (int) Math.floor(a / minScore) + 1;
+
+        // so must contain at least one of the rarest (|A| - minimumOverlap + 1) query tokens
+        List<String> sortedTokens = new ArrayList<>(queryTokens);
+        Collections.sort(sortedTokens, new Comparator<String>() {
+            @Override public int compare(String o1, String o2) {
+                return Integer.compare(getTokenFrequency(o1), getTokenFrequency(o2));
+            }
+        });
+        List<String> prefixTokens = sortedTokens.subList(0, a - minimumOverlap + 1);
+
+        Set<Integer> candidateIds = new LinkedHashSet<>();
+        for (String token : prefixTokens) {
+            int[] postings = tokenPostings.get(token);
+            if (postings != null) {
+                for (int id : postings) {
+                    if (tokenCounts[id] >= minimumSize && tokenCounts[id] <= maximumSize) {
+                        candidateIds.add(id);
+                    }
+                }
+            }
+        }
+
+        Collection<String> candidates = new ArrayList<>();
+        for (int id : candidateIds) {
+            candidates.add(strings[id]);
+        }
+        return candidates;
+    }
+
+    private boolean isNeedlemanWunschLengthCandidate(int n, int m, float minScore) {
+        return Math.abs(n - m) <= getMaximumEditDistance(Math.max(n, m), minScore);
+    }
+
+    private int getMinimumSharedBigrams(int maxLength, float minScore) {
+        // q-gram lemma: strings within edit distance k share at least (length - q + 1 - kq) q-grams
+        return maxLength - 1 - 2 * getMaximumEditDistance(maxLength, minScore);
+    }
+
+    private int getMaximumEditDistance(int maxLength, float minScore) {
+        // score = 1 - cost / (2 * maxLength), and cost >= edit distance; allow one extra for float precision
+        return (int) Math.floor((1.0 - minScore) * 2 * maxLength) + 1;
+    }
+
+    private int getTokenFrequency(String token) {
+        int[] postings = tokenPostings.get(token);
+        return postings == null ? 0 : postings.length;
+    }
+
+    private static Integer bigram(String s, int index) {
+        return (s.charAt(index) << 16) | s.charAt(index + 1);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            result[i] = list.get(i);
+        }
+        return result;
+    }
+}
@@ -17,6 +17,13 @@ import java.util.regex.Pattern;
  * @date 16/08/13
  */
 public class ChemicalCompoundProcessor extends AbstractDictionaryLoadingProcessor {
+    // space is important in order not to remove numbers within compounds.. (e.g indole-3-acetic acid)
+    private static final String SPACE = "\\s";
+    // pattern for number: int or float..
+    private static final Pattern NUMBER_FLOAT = Pattern.compile("\\d{1,10}.\\d{1,10}" + SPACE);
+    private static final Pattern NUMBER_INT = Pattern.compile("\\d{1,10}" + SPACE);
+    private static final Pattern MULTIPLE_SPACES = Pattern.compile(" +");
+
     // units dictionary contains all subclasses of "concentration unit" (UO_0000051).
     public ChemicalCompoundProcessor(String dictionaryResourceName) {
         super(dictionaryResourceName);
@@ -39,17 +46,8 @@ public class ChemicalCompoundProcessor extends AbstractDictionaryLoadingProcesso
     public List<String> processSearchString(String searchString) throws IllegalArgumentException {
         String processedString = searchString;
 
-        // space is important in order not to remove numbers within compounds.. (e.g indole-3-acetic acid)
-        String space = "\\s";
-        // pattern for number: int or float..
-        String number_float = "\\d{1,10}.\\d{1,10}" + space;
-        String number_int = "\\d{1,10}" + space;
-
-        Pattern pattern_number_float = Pattern.compile(number_float);
-        Pattern pattern_number_int = Pattern.compile(number_int);
-
-        Matcher matcher_number_float = pattern_number_float.matcher(searchString);
-        Matcher matcher_number_int = pattern_number_int.matcher(searchString);
+        Matcher matcher_number_float = NUMBER_FLOAT.matcher(searchString);
+        Matcher matcher_number_int = NUMBER_INT.matcher(searchString);
 
         String substring_number = null;
         if (matcher_number_float.find()) {
@@ -65,14 +63,10 @@ public class ChemicalCompoundProcessor extends AbstractDictionaryLoadingProcesso
         }
 
         // remove any units at the end of this string
-        boolean removed_unit = false;
-        for (String unit : getDictionary()) {
-            if (processedString.contains(" " + unit + " ") ||
-                    processedString.startsWith(unit + " ") ||
-                    processedString.endsWith(" " + unit)) {
-                processedString = processedString.replaceAll(unit, " ");
-                removed_unit = true;
-            }
+        String unitsRemoved = removeDictionaryTerms(processedString);
+        boolean removed_unit = unitsRemoved != null;
+        if (removed_unit) {
+            processedString = unitsRemoved;
         }
 
         //Sometimes units within compounds are in plural (e.g: metformin 50 milligrams per kilogram)
@@ -88,7 +82,7 @@ public class ChemicalCompoundProcessor extends AbstractDictionaryLoadingProcesso
         }
 
         // remove extraneous whitespace
-        processedString = processedString.trim().replaceAll(" +", " ");
+        processedString = MULTIPLE_SPACES.matcher(processedString.trim()).replaceAll(" ");
         // return processed string, only if it is different from the original
         if (!processedString.contentEquals(searchString)) {
             return Collections.singletonList(processedString);
@@ -0,0 +1,373 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable, in-memory autocomplete index over property values, that returns the most frequently annotated
+ * property values starting with a given prefix without searching a lucene index or reading from a DAO.
+ * <p/>
+ * Property values are held in a weighted finite state transducer (FST).  Each property value is keyed by its
+ * normalized form (lower case, with runs of whitespace collapsed) followed by the value itself, and weighted by the
+ * number of annotations of that value.  Prefixes are matched case insensitively against the start of the whole
+ * property value, in the same way as {@link String#startsWith(String)}, and the top N completions are found by a best
+ * first search of the paths leading from the prefix.  Every property value is also keyed within a context for each
+ * source, type, and type and source it has been annotated with, so that suggestions can be restricted to properties of
+ * a given type or from given sources and weighted by the number of annotations from those sources alone.
+ * <p/>
+ * Suggesters are created with a {@link SuggesterBuilder}, and can be saved to and loaded from a lucene {@link
+ * Directory}.
+ *
+ * @date 18/10/26
+ */
+public class PropertyValueSuggester {
+    private static final String CODEC = "ZoomaPropertyValueSuggester";
+    private static final int VERSION = 0;
+
+    // context tags, prefixed to every key
+    private static final char ALL = '\u0001';
+    private static final char SOURCE = '\u0002';
+    private static final char TYPE = '\u0003';
+    private static final char TYPE_AND_SOURCE = '\u0004';
+
+    // separators, stripped from all keys so that they can be used to delimit the parts of a key
+    private static final char CONTEXT_SEPARATOR = '\u001D';
+    private static final char KEY_SEPARATOR = '\u001E';
+    private static final char SURFACE_SEPARATOR = '\u001F';
+
+    // weights are inverted, as a path's output is the sum of its arc outputs and the search finds the lowest outputs
+    private static final long MAX_WEIGHT = Integer.MAX_VALUE;
+
+    private static final Comparator<Long> costComparator = new Comparator<Long>() {
+        @Override public int compare(Long left, Long right) {
+            return left.compareTo(right);
+        }
+    };
+
+    private final FST<Long> fst;
+    private final long size;
+
+    private PropertyValueSuggester(FST<Long> fst, long size) {
+        this.fst = fst;
+        this.size = size;
+    }
+
+    /**
+     * Loads a suggester previously saved to the given directory
+     *
+     * @param directory the directory to load the suggester from
+     * @param name      the name of the file the suggester was saved as
+     * @return the loaded suggester
+     * @throws IOException if the suggester could not be read, or the file is corrupt
+     */
+    public static PropertyValueSuggester load(Directory directory, String name) throws IOException {
+        try (ChecksumIndexInput in = directory.openChecksumInput(name, IOContext.READONCE)) {
+            CodecUtil.checkHeader(in, CODEC, VERSION, VERSION);
+            long size = in.readVLong();
+            FST<Long> fst = in.readByte() == 1 ? new FST<>(in, PositiveIntOutputs.getSingleton()) : null;
+            CodecUtil.checkFooter(in);
+            return new PropertyValueSuggester(fst, size);
+        }
+    }
+
+    /**
+     * Saves this suggester to the given directory.  The suggester is written to a temporary file which is then renamed,
+     * so that any suggester previously saved with the same name is replaced atomically.
+     *
+     * @param directory the directory to save the suggester to
+     * @param name      the name of the file to save the suggester as
+     * @throws IOException if the suggester could not be written
+     */
+    public void save(Directory directory, String name) throws IOException {
+        String tempName = name + ".tmp";
+        if (Arrays.asList(directory.listAll()).contains(tempName)) {
+            // left behind by a failed save
+            directory.deleteFile(tempName);
+        }
+        try (IndexOutput out = directory.createOutput(tempName, IOContext.DEFAULT)) {
+            CodecUtil.writeHeader(out, CODEC, VERSION);
+            out.writeVLong(size);
+            if (fst != null) {
+                out.writeByte((byte) 1);
+                fst.save(out);
+            }
+            else {
+                out.writeByte((byte) 0);
+            }
+            CodecUtil.writeFooter(out);
+        }
+        directory.sync(Collections.singleton(tempName));
+        directory.renameFile(tempName, name);
+    }
+
+    /**
+     * Returns the number of distinct keys, across all contexts, held by this suggester
+     *
+     * @return the number of keys in this suggester
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the estimated memory used by this suggester
+     *
+     * @return the size of this suggester in bytes
+     */
+    public long ramBytesUsed() {
+        return fst != null ? fst.ramBytesUsed() : 0;
+    }
+
+    /**
+     * Returns the most frequently annotated property values that start with the given prefix, most frequent first
+     *
+     * @param prefix the prefix to complete
+     * @param count  the maximum number of property values to return
+     * @return property values starting with the prefix
+     */
+    public List<String> suggest(String prefix, int count) {
+        return suggest(prefix, null, count);
+    }
+
+    /**
+     * Returns the most frequently annotated property values that start with the given prefix, most frequent first,
+     * optionally restricted to property values of a given type and to values annotated by any of the given sources.  If
+     * sources are supplied, property values are ranked by the total number of annotations from those sources.
+     *
+     * @param prefix       the prefix to complete
+     * @param propertyType the type of property to restrict suggestions to, or null or empty for any type
+     * @param count        the maximum number of property values to return
+     * @param sources      the sources to restrict suggestions to, if any
+     * @return property values starting with the prefix
+     */
+    public List<String> suggest(String prefix, String propertyType, int count, URI... sources) {
+        if (fst == null || count < 1) {
+            return Collections.emptyList();
+        }
+        boolean typed = propertyType != null && !propertyType.isEmpty();
+        try {
+            if (sources.length == 0) {
+                String context = typed ? TYPE + clean(propertyType) : String.valueOf(ALL);
+                return new ArrayList<>(lookup(context, prefix, count).keySet());
+            }
+
+            // collect top completions from each source, and rank by total frequency over all sources
+            final Map<String, Long> weights = new HashMap<>();
+            for (URI source : sources) {
+                String context = typed
+                        ? TYPE_AND_SOURCE + clean(propertyType) + CONTEXT_SEPARATOR + clean(source.toString())
+                        : SOURCE + clean(source.toString());
+                for (Map.Entry<String, Long> completion : lookup(context, prefix, count).entrySet()) {
+                    Long weight = weights.get(completion.getKey());
+                    weights.put(completion.getKey(),
+                                weight == null ? completion.getValue() : weight + completion.getValue());
+                }
+            }
+            List<String> results = new ArrayList<>(weights.keySet());
+            Collections.sort(results, new Comparator<String>() {
+                @Override public int compare(String left, String right) {
+                    int comparison = weights.get(right).compareTo(weights.get(left));
+                    return comparison != 0 ? comparison : left.compareTo(right);
+                }
+            });
+            return results.size() > count ? results.subList(0, count) : results;
+        }
+        catch (IOException e) {
+            // the FST is held in memory, so this should never happen
+            throw new IllegalStateException("Failed to read property value suggester", e);
+        }
+    }
+
+    /**
+     * Finds the top completions of a prefix within a single context, returning a map of property value to weight in
+     * descending order of weight
+     */
+    private Map<String, Long> lookup(String context, String prefix, int count) throws IOException {
+        BytesRef key = new BytesRef(context + KEY_SEPARATOR + normalize(prefix, false));
+
+        // follow the prefix from the root of the FST, accumulating output as we go
+        FST.BytesReader reader = fst.getBytesReader();
+        FST.Arc<Long> arc = fst.getFirstArc(new FST.Arc<Long>());
+        Long output = fst.outputs.getNoOutput();
+        for (int i = 0; i < key.length; i++) {
+            if (fst.findTargetArc(key.bytes[key.offset + i] & 0xFF, arc, arc, reader) == null) {
+                return Collections.emptyMap();
+            }
+            output = fst.outputs.add(output, arc.output);
+        }
+
+        // then search for the cheapest (i.e. heaviest) paths from the end of the prefix
+        IntsRefBuilder input = new IntsRefBuilder();
+        Util.toIntsRef(key, input);
+        Util.TopNSearcher<Long> searcher = new Util.TopNSearcher<>(fst, count, count, costComparator);
+        searcher.addStartPaths(arc, output, true, input);
+
+        Map<String, Long> completions = new LinkedHashMap<>();
+        BytesRefBuilder bytes = new BytesRefBuilder();
+        for (Util.Result<Long> result : searcher.search()) {
+            completions.put(surface(result.input, bytes), MAX_WEIGHT - result.output);
+        }
+        return completions;
+    }
+
+    /**
+     * Extracts the property value from a key, which is everything after the first surface separator
+     */
+    private static String surface(IntsRef input, BytesRefBuilder bytes) {
+        bytes.clear();
+        boolean surface = false;
+        for (int i = 0; i < input.length; i++) {
+            int label = input.ints[input.offset + i];
+            if (surface) {
+                bytes.append((byte) label);
+            }
+            else if (label == SURFACE_SEPARATOR) {
+                surface = true;
+            }
+        }
+        return new String(bytes.bytes(), 0, bytes.length(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Removes separator characters from a string
+     */
+    private static String clean(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < CONTEXT_SEPARATOR || c > SURFACE_SEPARATOR) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Normalizes a property value or prefix by removing leading whitespace, collapsing all other runs of whitespace
+     * into a single space and lower casing.  Trailing whitespace is removed from property values but kept in
+     * prefixes, so that a prefix ending in a space only completes to multi-word values.
+     */
+    private static String normalize(String s, boolean trimEnd) {
+        String cleaned = clean(s);
+        StringBuilder sb = new StringBuilder(cleaned.length());
+        boolean whitespace = false;
+        for (int i = 0; i < cleaned.length(); i++) {
+            char c = cleaned.charAt(i);
+            if (Character.isWhitespace(c)) {
+                whitespace = true;
+            }
+            else {
+                if (whitespace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(c);
+                whitespace = false;
+            }
+        }
+        if (whitespace && !trimEnd && sb.length() > 0) {
+            sb.append(' ');
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Collects property values and their annotation frequencies in order to build a {@link PropertyValueSuggester}.
+     * Builders are not thread-safe.
+     */
+    public static class SuggesterBuilder {
+        private final Map<String, Long> weights = new HashMap<>();
+
+        /**
+         * Adds annotations of a property value.  This may be called several times for the same property value, type
+         * and source, in which case the frequencies are summed.
+         *
+         * @param propertyValue the property value
+         * @param propertyType  the type of the property, or null if the property is untyped
+         * @param source        the source of the annotations, or null if they have no source
+         * @param frequency     the number of annotations of this property value, which may be zero
+         */
+        public void add(String propertyValue, String propertyType, URI source, long frequency) {
+            String value = clean(propertyValue);
+            String normalized = normalize(value, true);
+            if (normalized.isEmpty()) {
+                return;
+            }
+            String suffix = KEY_SEPARATOR + normalized + SURFACE_SEPARATOR + value;
+            add(ALL + suffix, frequency);
+            if (propertyType != null) {
+                add(TYPE + clean(propertyType) + suffix, frequency);
+            }
+            if (source != null) {
+                add(SOURCE + clean(source.toString()) + suffix, frequency);
+                if (propertyType != null) {
+                    add(TYPE_AND_SOURCE + clean(propertyType) + CONTEXT_SEPARATOR + clean(source.toString()) + suffix,
+                        frequency);
+                }
+            }
+        }
+
+        private void add(String key, long frequency) {
+            Long weight = weights.get(key);
+            weights.put(key, weight == null ? frequency : weight + frequency);
+        }
+
+        /**
+         * Builds a suggester over all of the property values added to this builder
+         *
+         * @return a new suggester
+         * @throws IOException if the FST could not be built
+         */
+        public PropertyValueSuggester build() throws IOException {
+            // FST inputs must be added in byte order
+            BytesRef[] keys = new BytesRef[weights.size()];
+            long[] costs = new long[weights.size()];
+            int i = 0;
+            for (Map.Entry<String, Long> entry : weights.entrySet()) {
+                keys[i] = new BytesRef(entry.getKey());
+                costs[i] = MAX_WEIGHT - Math.min(Math.max(entry.getValue(), 0), MAX_WEIGHT);
+                i++;
+            }
+            Integer[] order = new Integer[keys.length];
+            for (int j = 0; j < order.length; j++) {
+                order[j] = j;
+            }
+            final BytesRef[] sortKeys = keys;
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override public int compare(Integer left, Integer right) {
+                    return sortKeys[left].compareTo(sortKeys[right]);
+                }
+            });
+
+            Builder<Long> builder = new Builder<>(FST.INPUT_TYPE.BYTE1, PositiveIntOutputs.getSingleton());
+            IntsRefBuilder scratch = new IntsRefBuilder();
+            for (int index : order) {
+                builder.add(Util.toIntsRef(keys[index], scratch), costs[index]);
+            }
+            return new PropertyValueSuggester(builder.finish(), keys.length);
+        }
+    }
+}
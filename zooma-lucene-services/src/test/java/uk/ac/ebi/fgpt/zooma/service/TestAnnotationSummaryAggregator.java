@@ -0,0 +1,82 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that the {@link AnnotationSummaryAggregator} produces the same summaries whether or not it spills to disk.
+ *
+ * @date 18/10/26
+ */
+public class TestAnnotationSummaryAggregator {
+    private Map<String, String> aggregate(long memoryBudget, int[] spillCount) throws IOException {
+        final Map<String, String> summaries = new HashMap<>();
+        Random random = new Random(7);
+        String[] values = {"liver", "lung", "heart", "blood", "skin"};
+        try (AnnotationSummaryAggregator aggregator = new AnnotationSummaryAggregator(memoryBudget, null)) {
+            for (int i = 0; i < 2000; i++) {
+                URI tag1 = URI.create("http://www.test.com/tag" + random.nextInt(4));
+                URI tag2 = URI.create("http://www.test.com/tag" + random.nextInt(4));
+                aggregator.add(random.nextBoolean() ? "organism part" : "tissue",
+                               values[random.nextInt(values.length)],
+                               URI.create("http://www.test.com/property"),
+                               random.nextBoolean() ? Collections.singleton(tag1) : Arrays.asList(tag2, tag1),
+                               URI.create("http://www.test.com/annotation" + i),
+                               random.nextFloat(),
+                               URI.create("http://www.test.com/source" + random.nextInt(3)));
+            }
+            // annotations without semantic tags are not summarized
+            aggregator.add("tissue", "liver", null, Collections.<URI>singleton(null),
+                           URI.create("http://www.test.com/unmapped"), 1f, null);
+            aggregator.aggregate(new AnnotationSummaryAggregator.SummaryHandler() {
+                @Override public void handleSummary(String propertyType,
+                                                    String propertyValue,
+                                                    URI propertyUri,
+                                                    List<URI> semanticTags,
+                                                    Set<URI> annotations,
+                                                    float topScore,
+                                                    Set<URI> sources) {
+                    String key = propertyType + "|" + propertyValue + "|" + new TreeSet<>(semanticTags);
+                    assertTrue(!summaries.containsKey(key), "Summary " + key + " was emitted more than once");
+                    summaries.put(key, propertyUri + "|" + new TreeSet<>(annotations) + "|" + topScore + "|" +
+                            new TreeSet<>(sources));
+                }
+            });
+            spillCount[0] = aggregator.getSpillCount();
+        }
+        return summaries;
+    }
+
+    @Test
+    public void testSpilledAggregation() {
+        try {
+            int[] inMemorySpills = new int[1];
+            int[] spills = new int[1];
+            Map<String, String> inMemory = aggregate(Long.MAX_VALUE, inMemorySpills);
+            Map<String, String> spilled = aggregate(16 * 1024, spills);
+
+            assertEquals(0, inMemorySpills[0], "Aggregation should not spill within budget");
+            assertTrue(spills[0] > 1, "Aggregation should spill when over budget");
+            assertEquals(inMemory, spilled, "Spilled aggregation should produce the same summaries");
+            assertTrue(inMemory.size() > 20, "Test should create plenty of summaries");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Couldn't aggregate annotations");
+        }
+    }
+}
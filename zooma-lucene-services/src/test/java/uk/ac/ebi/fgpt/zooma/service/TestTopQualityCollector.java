@@ -0,0 +1,172 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FloatDocValuesField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that the {@link TopQualityCollector} retains the same hits as scoring every hit of a query.
+ *
+ * @date 18/10/26
+ */
+public class TestTopQualityCollector {
+    private static final String[] sources = {"http://www.test.com/source1",
+            "http://www.test.com/source2",
+            "http://www.test.com/source3"};
+
+    private Directory index;
+    private DirectoryReader reader;
+    private AnnotationSummaryMapper mapper;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            index = new RAMDirectory();
+            IndexWriter writer = new IndexWriter(index, new IndexWriterConfig(new EnglishAnalyzer(CharArraySet.EMPTY_SET)));
+            Random random = new Random(42);
+            String[] words = {"cell", "line", "liver", "lung", "t", "blood", "cancer"};
+            for (int i = 0; i < 1000; i++) {
+                Document doc = new Document();
+                StringBuilder property = new StringBuilder();
+                int length = 1 + random.nextInt(3);
+                for (int w = 0; w < length; w++) {
+                    property.append(w > 0 ? " " : "").append(words[random.nextInt(words.length)]);
+                }
+                float topScore = 10 + random.nextInt(20);
+                int timesVerified = 1 + random.nextInt(3);
+                int frequency = 1 + random.nextInt(50);
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+                doc.add(new TextField("property", property.toString(), Field.Store.YES));
+                doc.add(new StoredField("topScore", Float.toString(topScore)));
+                doc.add(new FloatDocValuesField("topScore", topScore));
+                doc.add(new StoredField("timesVerified", Integer.toString(timesVerified)));
+                doc.add(new NumericDocValuesField("timesVerified", timesVerified));
+                doc.add(new StoredField("frequency", Integer.toString(frequency)));
+                doc.add(new NumericDocValuesField("frequency", frequency));
+                for (int s = 0; s < timesVerified; s++) {
+                    String source = sources[(i + s) % sources.length];
+                    doc.add(new StoredField("source", source));
+                    doc.add(new SortedSetDocValuesField("source", new BytesRef(source)));
+                }
+                writer.addDocument(doc);
+                if (i % 300 == 0) {
+                    // create a few segments
+                    writer.commit();
+                }
+            }
+            writer.close();
+            reader = DirectoryReader.open(index);
+            mapper = new AnnotationSummaryMapper(5000, reader.numDocs(), URI.create(sources[2]));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Couldn't create test index");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        try {
+            reader.close();
+            index.close();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Test
+    public void testCollectsBestHits() {
+        try {
+            Query q = new TermQuery(new Term("property", "cell"));
+            IndexSearcher searcher = new IndexSearcher(reader);
+
+            // score every hit in the same way as the collector
+            List<ScoreDoc> all = new ArrayList<>();
+            for (ScoreDoc hit : searcher.search(q, reader.maxDoc()).scoreDocs) {
+                LeafReaderContext context = reader.leaves().get(ReaderUtil.subIndex(hit.doc, reader.leaves()));
+                float quality = mapper.getDocumentQuality(context, hit.doc - context.docBase, 1);
+                all.add(new ScoreDoc(hit.doc, hit.score * quality));
+            }
+            Collections.sort(all, new Comparator<ScoreDoc>() {
+                @Override public int compare(ScoreDoc sd1, ScoreDoc sd2) {
+                    return sd1.score == sd2.score
+                            ? Integer.compare(sd1.doc, sd2.doc)
+                            : Float.compare(sd2.score, sd1.score);
+                }
+            });
+            assertTrue(all.size() > 100, "Test query should match plenty of documents");
+
+            for (float cutoff : new float[]{0f, 0.7f, 0.9f}) {
+                TopQualityCollector collector = new TopQualityCollector(mapper, 50, cutoff);
+                searcher.search(q, collector);
+                ScoreDoc[] collected = collector.topDocs().scoreDocs;
+
+                List<Integer> expected = new ArrayList<>();
+                for (ScoreDoc sd : all) {
+                    if (expected.size() < 50 && sd.score >= all.get(0).score * cutoff) {
+                        expected.add(sd.doc);
+                    }
+                }
+                List<Integer> actual = new ArrayList<>();
+                for (ScoreDoc sd : collected) {
+                    actual.add(sd.doc);
+                }
+                assertEquals(expected, actual, "Wrong hits collected with cutoff " + cutoff);
+                assertEquals(all.size(), collector.getTotalHits(), "Wrong total hit count");
+            }
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Couldn't search test index");
+        }
+    }
+
+    @Test
+    public void testNoHits() {
+        try {
+            TopQualityCollector collector = new TopQualityCollector(mapper, 10, 0.9f);
+            new IndexSearcher(reader).search(new TermQuery(new Term("property", "heart")), collector);
+            assertEquals(0, collector.topDocs().scoreDocs.length, "Wrong number of hits");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Couldn't search test index");
+        }
+    }
+}
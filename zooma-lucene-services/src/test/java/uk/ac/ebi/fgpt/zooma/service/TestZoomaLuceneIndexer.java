@@ -3,6 +3,9 @@ package uk.ac.ebi.fgpt.zooma.service;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.en.EnglishAnalyzer;
 import org.apache.lucene.analysis.util.CharArraySet;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.NIOFSDirectory;
 import org.apache.lucene.store.RAMDirectory;
@@ -10,6 +13,8 @@ import org.apache.lucene.util.Version;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.AfterEach;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import uk.ac.ebi.fgpt.zooma.datasource.AnnotationDAO;
 import uk.ac.ebi.fgpt.zooma.datasource.AnnotationSummaryDAO;
 import uk.ac.ebi.fgpt.zooma.datasource.PropertyDAO;
@@ -24,6 +29,7 @@ import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationSummary;
 import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
 import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
 import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+import uk.ac.ebi.fgpt.zooma.util.PropertyValueSuggester;
 
 import java.io.IOException;
 import java.net.URI;
@@ -34,6 +40,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -41,13 +48,18 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class TestZoomaLuceneIndexer {
@@ -361,4 +373,462 @@ public class TestZoomaLuceneIndexer {
         assertTrue(verifiedSummary.getQuality() > unverifiedSummary.getQuality(),
                 "Verified summary should score higher than unverified summary");
     }
+
+    @Test
+    public void testAnnotationSummaryQualityDocValues() {
+        Directory summaryDir = new RAMDirectory();
+
+        ZoomaLuceneIndexer indexer = new ZoomaLuceneIndexer();
+        indexer.setAnalyzer(analyzer);
+        indexer.setAnnotationDAO(verifiedAnnotationDAO);
+        indexer.setPropertyDAO(propertyDAO);
+        indexer.setPropertyIndex(new RAMDirectory());
+        indexer.setPropertyTypeIndex(new RAMDirectory());
+        indexer.setAnnotationCountIndex(new RAMDirectory());
+        indexer.setAnnotationIndex(new RAMDirectory());
+        indexer.setAnnotationSummaryIndex(summaryDir);
+
+        try {
+            indexer.createAnnotationSummaryIndex(verifiedSummaryAnnotationDAO, verifiedProvenanceMap);
+
+            DirectoryReader reader = DirectoryReader.open(summaryDir);
+            try {
+                AnnotationSummaryMapper mapper = new AnnotationSummaryMapper(4, reader.numDocs());
+                AnnotationSummaryMapper rankedMapper = mapper.withRankings(new URI("http://www.test.com/source3"),
+                                                                           new URI("http://www.test.com/source2"));
+                float maxScore = -1;
+                for (LeafReaderContext context : reader.leaves()) {
+                    for (int doc = 0; doc < context.reader().maxDoc(); doc++) {
+                        float storedQuality = mapper.getDocumentQuality(context.reader().document(doc), 2);
+                        assertEquals(storedQuality, mapper.getDocumentQuality(context, doc, 2), 0.0001f,
+                                     "Doc values quality should match stored field quality");
+                        assertEquals(rankedMapper.getDocumentQuality(context.reader().document(doc), 2),
+                                     rankedMapper.getDocumentQuality(context, doc, 2), 0.0001f,
+                                     "Doc values quality should match stored field quality with source rankings");
+                        AnnotationSummary summary = rankedMapper.mapDocument(context.reader().document(doc), 2,
+                                                                             context, doc);
+                        assertEquals(rankedMapper.getDocumentQuality(context, doc, 2), summary.getQuality(), 0.0001f,
+                                     "Mapped summary should have doc values quality");
+                        assertEquals(context.reader().document(doc).get("id"), summary.getID(), "Wrong summary ID");
+                        maxScore = Math.max(maxScore, mapper.getDocumentQuality(context.reader().document(doc)));
+                    }
+                }
+                assertEquals(maxScore, mapper.getMaximumDocumentQuality(reader), 0.0001f, "Wrong maximum quality");
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail("Couldn't read annotation summary quality");
+        }
+        finally {
+            indexer.destroy();
+        }
+    }
+
+    @Test
+    public void testUpdateAnnotationIndices() {
+        Directory summaryDir = new RAMDirectory();
+        ZoomaLuceneSearcherManager searcherManager = new ZoomaLuceneSearcherManager();
+
+        ZoomaLuceneIndexer indexer = new ZoomaLuceneIndexer();
+        indexer.setAnalyzer(analyzer);
+        indexer.setAnnotationDAO(verifiedAnnotationDAO);
+        indexer.setPropertyDAO(propertyDAO);
+        indexer.setPropertyIndex(new RAMDirectory());
+        indexer.setPropertyTypeIndex(new RAMDirectory());
+        indexer.setAnnotationCountIndex(new RAMDirectory());
+        indexer.setAnnotationIndex(new RAMDirectory());
+        indexer.setAnnotationSummaryIndex(summaryDir);
+        indexer.setSearcherManager(searcherManager);
+
+        LuceneAnnotationSummarySearchService searchService = new LuceneAnnotationSummarySearchService();
+        searchService.setIndex(summaryDir);
+        searchService.setAnnotationDAO(verifiedAnnotationDAO);
+        searchService.setSearcherManager(searcherManager);
+
+        URI[] emptySources = new URI[0];
+        try {
+            indexer.createAnnotationIndex(new ArrayList<>(verifiedAnnotationDAO.read()));
+            indexer.createAnnotationSummaryIndex(verifiedSummaryAnnotationDAO, verifiedProvenanceMap);
+            searchService.init();
+            assertEquals(2, searchService.search("value1", emptySources, emptySources).size(),
+                         "Wrong number of results before update");
+            long generation = searchService.getGeneration();
+
+            // source3 no longer provides any annotations, so the unverified summary should be removed
+            indexer.updateAnnotationIndices(
+                    new SimpleDatabaseAnnotationSource(new URI("http://www.test.com/source3"), "source3"),
+                    Collections.<Annotation>emptySet());
+            Collection<AnnotationSummary> results = searchService.search("value1", emptySources, emptySources);
+            assertEquals(1, results.size(), "Wrong number of results after removing annotations");
+            assertTrue(results.iterator().next().getSemanticTags().contains(verifiableSemanticTag),
+                       "Wrong summary removed");
+            assertTrue(searchService.getGeneration() > generation, "Update should refresh open searchers");
+
+            // a new annotation with a new semantic tag for value2 should create a new summary
+            AnnotationProvenance prov6 = new SimpleAnnotationProvenance(
+                    new SimpleDatabaseAnnotationSource(new URI("http://www.test.com/source1"), "source1"),
+                    AnnotationProvenance.Evidence.MANUAL_CURATED,
+                    "TEST",
+                    new Date());
+            Annotation anno6 = new SimpleAnnotation(new URI("http://www.test.com/annotation6"),
+                    Collections.<BiologicalEntity>emptySet(),
+                    new SimpleTypedProperty(new URI("http://www.test.com/property"), "type2", "value2"),
+                    prov6,
+                    verifiableSemanticTag);
+            indexer.updateAnnotationIndices(Collections.singleton(anno6), Collections.<URI>emptySet());
+            results = searchService.search("value2", emptySources, emptySources);
+            assertEquals(2, results.size(), "Wrong number of results after adding annotation");
+            AnnotationSummary added = null;
+            for (AnnotationSummary as : results) {
+                if (as.getSemanticTags().contains(verifiableSemanticTag)) {
+                    added = as;
+                }
+            }
+            assertNotNull(added, "Could not find the added annotation summary");
+            assertEquals(Collections.singleton(anno6.getURI()), new HashSet<>(added.getAnnotationURIs()));
+            assertEquals(new URI("http://www.test.com/property"), added.getAnnotatedPropertyUri());
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail("Couldn't update annotation indices");
+        }
+        finally {
+            searchService.destroy();
+            indexer.destroy();
+        }
+    }
+
+    @Test
+    public void testUpdateKeepsSummaryIDs() {
+        Directory summaryDir = new RAMDirectory();
+        ZoomaLuceneIndexer indexer = createIndexer(summaryDir);
+        try {
+            URI semanticTag1 = new URI("http://www.test.com/semantic-tag-1");
+            URI semanticTag3 = new URI("http://www.test.com/semantic-tag-3");
+            Property property = new SimpleTypedProperty(new URI("http://www.test.com/property"), "type1", "value3");
+            AnnotationProvenance prov = new SimpleAnnotationProvenance(
+                    new SimpleDatabaseAnnotationSource(new URI("http://www.test.com/source1"), "source1"),
+                    AnnotationProvenance.Evidence.MANUAL_CURATED,
+                    "TEST",
+                    new Date());
+            Annotation anno7 = new SimpleAnnotation(new URI("http://www.test.com/annotation7"),
+                    Collections.<BiologicalEntity>emptySet(),
+                    property,
+                    prov,
+                    semanticTag3, semanticTag1);
+            AnnotationSummary summary = new SimpleAnnotationSummary(
+                    null,
+                    property.getURI(),
+                    "type1",
+                    "value3",
+                    Arrays.asList(semanticTag3, semanticTag1),
+                    Collections.singleton(anno7.getURI()),
+                    0,
+                    new HashSet<URI>());
+            AnnotationSummaryDAO summaryDAO = mock(AnnotationSummaryDAO.class);
+            when(summaryDAO.read()).thenReturn(Collections.singleton(summary));
+
+            Map<URI, AnnotationProvenance> provenanceMap =
+                    indexer.createAnnotationIndex(Collections.singletonList(anno7));
+            indexer.createAnnotationSummaryIndex(summaryDAO, provenanceMap);
+
+            // summaries read from a DAO are identified by their semantic tags in the order the DAO gives them
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+            byte[] digest = messageDigest.digest(("type1value3" + semanticTag3 + semanticTag1).getBytes("UTF-8"));
+            StringBuilder expectedId = new StringBuilder();
+            for (byte b : digest) {
+                expectedId.append(String.format("%02X", b));
+            }
+            assertEquals(Collections.singleton(expectedId.toString()), readSummaryDocuments(summaryDir).keySet(),
+                         "Wrong summary ID");
+
+            // an annotation with the same semantic tags in another order updates the same summary
+            Annotation anno8 = new SimpleAnnotation(new URI("http://www.test.com/annotation8"),
+                    Collections.<BiologicalEntity>emptySet(),
+                    property,
+                    prov,
+                    semanticTag1, semanticTag3);
+            indexer.updateAnnotationIndices(Collections.singleton(anno8), Collections.<URI>emptySet());
+            Map<String, Document> summaries = readSummaryDocuments(summaryDir);
+            assertEquals(Collections.singleton(expectedId.toString()), summaries.keySet(),
+                         "Updated summary should keep its ID");
+            Document updated = summaries.get(expectedId.toString());
+            assertEquals("2", updated.get("frequency"), "Wrong frequency");
+            assertEquals(Arrays.asList(semanticTag3.toString(), semanticTag1.toString()),
+                         Arrays.asList(updated.getValues("semanticTag")),
+                         "Updated summary should keep its semantic tag order");
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail("Couldn't update annotation summary");
+        }
+        finally {
+            indexer.destroy();
+        }
+    }
+
+    @Test
+    public void testAggregatedAnnotationIndices() {
+        Directory summaryDir = new RAMDirectory();
+        Directory aggregatedSummaryDir = new RAMDirectory();
+
+        ZoomaLuceneIndexer indexer = createIndexer(summaryDir);
+        ZoomaLuceneIndexer aggregatingIndexer = createIndexer(aggregatedSummaryDir);
+        // spill every annotation to disk
+        aggregatingIndexer.setSummaryMemoryBudget(1);
+
+        try {
+            indexer.createAnnotationIndex(new ArrayList<>(verifiedAnnotationDAO.read()));
+            indexer.createAnnotationSummaryIndex(verifiedSummaryAnnotationDAO, verifiedProvenanceMap);
+            assertEquals(4, aggregatingIndexer.createAnnotationIndices(verifiedAnnotationDAO.read()),
+                         "Wrong number of annotations indexed");
+
+            Map<String, Document> expected = readSummaryDocuments(summaryDir);
+            Map<String, Document> actual = readSummaryDocuments(aggregatedSummaryDir);
+            // the summary DAO also supplies a summary for an annotation that is not read by the annotation DAO
+            assertEquals(3, expected.size(), "Wrong number of summaries read from DAO");
+            assertEquals(2, actual.size(), "Wrong number of aggregated summaries");
+            for (Map.Entry<String, Document> entry : actual.entrySet()) {
+                Document expectedDoc = expected.get(entry.getKey());
+                assertNotNull(expectedDoc, "Aggregated summary " + entry.getKey() + " has the wrong ID");
+                for (String field : new String[]{"propertyuri", "property", "propertytype", "frequency",
+                        "topScore", "timesVerified"}) {
+                    assertEquals(expectedDoc.get(field), entry.getValue().get(field), "Wrong " + field);
+                }
+                for (String field : new String[]{"semanticTag", "annotation", "source"}) {
+                    assertEquals(new HashSet<>(Arrays.asList(expectedDoc.getValues(field))),
+                                 new HashSet<>(Arrays.asList(entry.getValue().getValues(field))),
+                                 "Wrong " + field + " values");
+                }
+            }
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail("Couldn't aggregate annotation summaries");
+        }
+        finally {
+            indexer.destroy();
+            aggregatingIndexer.destroy();
+        }
+    }
+
+    @Test
+    public void testParallelIndexBuild() {
+        Directory summaryDir = new RAMDirectory();
+        Directory parallelSummaryDir = new RAMDirectory();
+
+        ZoomaLuceneIndexer indexer = createIndexer(summaryDir);
+        ZoomaLuceneIndexer parallelIndexer = createIndexer(parallelSummaryDir);
+        Properties configuration = new Properties();
+        configuration.setProperty("zooma.index.threads", "4");
+        configuration.setProperty("zooma.index.ram.buffer.mb", "32");
+        configuration.setProperty("zooma.index.segments.per.tier", "5");
+        parallelIndexer.setConfigurationProperties(configuration);
+        assertEquals(4, parallelIndexer.getIndexThreads(), "Wrong number of index threads");
+        assertEquals(32, parallelIndexer.getRamBufferSizeMB(), 0.001, "Wrong RAM buffer size");
+
+        try {
+            // enough annotations for several batches
+            Collection<Annotation> annotations = new ArrayList<>();
+            String[] values = {"liver", "lung", "heart", "blood", "skin"};
+            for (int i = 0; i < 5500; i++) {
+                AnnotationProvenance prov = new SimpleAnnotationProvenance(
+                        new SimpleDatabaseAnnotationSource(new URI("http://www.test.com/source" + (i % 3)),
+                                                           "source" + (i % 3)),
+                        AnnotationProvenance.Evidence.MANUAL_CURATED,
+                        "TEST",
+                        new Date(1000000L * (i % 7)));
+                annotations.add(new SimpleAnnotation(new URI("http://www.test.com/annotation" + i),
+                        Collections.<BiologicalEntity>emptySet(),
+                        new SimpleTypedProperty(new URI("http://www.test.com/property" + (i % 5)),
+                                                "type" + (i % 2),
+                                                values[i % 5]),
+                        prov,
+                        new URI("http://www.test.com/semantic-tag-" + (i % 11))));
+            }
+
+            assertEquals(5500, indexer.createAnnotationIndices(annotations));
+            assertEquals(5500, parallelIndexer.createAnnotationIndices(annotations));
+            assertEquals(5500, parallelIndexer.getIndexedAnnotationCount(), "Wrong progress count");
+
+            DirectoryReader reader = DirectoryReader.open(parallelIndexer.getAnnotationIndex());
+            try {
+                assertEquals(5500, reader.numDocs(), "Wrong number of annotation documents");
+            }
+            finally {
+                reader.close();
+            }
+
+            Map<String, Document> expected = readSummaryDocuments(summaryDir);
+            Map<String, Document> actual = readSummaryDocuments(parallelSummaryDir);
+            assertEquals(expected.keySet(), actual.keySet(), "Wrong summaries built in parallel");
+            for (Map.Entry<String, Document> entry : actual.entrySet()) {
+                for (String field : new String[]{"frequency", "topScore", "timesVerified"}) {
+                    assertEquals(expected.get(entry.getKey()).get(field), entry.getValue().get(field),
+                                 "Wrong " + field);
+                }
+            }
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail("Couldn't build indices in parallel");
+        }
+        finally {
+            indexer.destroy();
+            parallelIndexer.destroy();
+        }
+    }
+
+    @Test
+    public void testPagedInitialization() {
+        AnnotationProvenance prov = new SimpleAnnotationProvenance(
+                new SimpleDatabaseAnnotationSource(URI.create("http://www.test.com/source"), "source"),
+                AnnotationProvenance.Evidence.MANUAL_CURATED,
+                "TEST",
+                new Date());
+        List<Property> properties = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            properties.add(new SimpleTypedProperty(URI.create("http://www.test.com/property" + i),
+                                                   "type" + (i % 2),
+                                                   "value" + i));
+        }
+        final List<Annotation> annotations = new ArrayList<>();
+        for (int i = 0; i < 25000; i++) {
+            annotations.add(new SimpleAnnotation(URI.create("http://www.test.com/annotation" + i),
+                    Collections.<BiologicalEntity>emptySet(),
+                    properties.get(i % 5),
+                    prov,
+                    URI.create("http://www.test.com/semantic-tag-" + (i % 11))));
+        }
+        AnnotationDAO pagedAnnotationDAO = mock(AnnotationDAO.class);
+        when(pagedAnnotationDAO.read(anyInt(), anyInt())).thenAnswer(new Answer<List<Annotation>>() {
+            @Override public List<Annotation> answer(InvocationOnMock invocation) throws Throwable {
+                int size = (Integer) invocation.getArguments()[0];
+                int start = Math.min((Integer) invocation.getArguments()[1], annotations.size());
+                return annotations.subList(start, Math.min(start + size, annotations.size()));
+            }
+        });
+
+        PropertyDAO pagedPropertyDAO = mock(PropertyDAO.class);
+        when(pagedPropertyDAO.read()).thenReturn(properties);
+
+        ZoomaLuceneIndexer indexer = createIndexer(new RAMDirectory());
+        indexer.setAnnotationDAO(pagedAnnotationDAO);
+        indexer.setPropertyDAO(pagedPropertyDAO);
+        try {
+            indexer.init();
+            indexer.waitUntilReady();
+            verify(pagedAnnotationDAO, never()).read();
+
+            DirectoryReader reader = DirectoryReader.open(indexer.getAnnotationIndex());
+            try {
+                assertEquals(25000, reader.numDocs(), "Wrong number of annotation documents");
+            }
+            finally {
+                reader.close();
+            }
+            reader = DirectoryReader.open(indexer.getAnnotationCountIndex());
+            try {
+                assertEquals("25000", reader.document(0).get("count"), "Wrong annotation count");
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail("Couldn't build indices from paged annotations");
+        }
+        finally {
+            indexer.destroy();
+        }
+    }
+
+    @Test
+    public void testPropertySuggester() {
+        Directory suggestDir = new RAMDirectory();
+        ZoomaLuceneIndexer indexer = createIndexer(new RAMDirectory());
+        indexer.setPropertySuggestIndex(suggestDir);
+
+        try {
+            URI source1 = new URI("http://www.test.com/source1");
+            URI source2 = new URI("http://www.test.com/source2");
+            Property liver = new SimpleTypedProperty(new URI("http://www.test.com/property/liver"),
+                                                     "organism part", "liver");
+            Property liverCancer = new SimpleTypedProperty(new URI("http://www.test.com/property/liver-cancer"),
+                                                           "disease", "liver cancer");
+            Property lung = new SimpleTypedProperty(new URI("http://www.test.com/property/lung"),
+                                                    "organism part", "lung");
+
+            // liver annotated 3 times by source1, liver cancer 4 times by source2 and once by source1
+            Collection<Annotation> annotations = new ArrayList<>();
+            Property[] properties = {liver, liver, liver, liverCancer, liverCancer, liverCancer, liverCancer,
+                    liverCancer, lung};
+            URI[] sources = {source1, source1, source1, source2, source2, source2, source2, source1, source1};
+            for (int i = 0; i < properties.length; i++) {
+                AnnotationProvenance prov = new SimpleAnnotationProvenance(
+                        new SimpleDatabaseAnnotationSource(sources[i], "source"),
+                        AnnotationProvenance.Evidence.MANUAL_CURATED,
+                        "TEST",
+                        new Date());
+                annotations.add(new SimpleAnnotation(new URI("http://www.test.com/annotation" + i),
+                        Collections.<BiologicalEntity>emptySet(),
+                        properties[i],
+                        prov,
+                        new URI("http://www.test.com/semantic-tag")));
+            }
+
+            indexer.createAnnotationIndices(annotations);
+            indexer.createPropertyIndices(Arrays.asList(liver, liverCancer, lung));
+
+            PropertyValueSuggester suggester =
+                    PropertyValueSuggester.load(suggestDir, ZoomaLuceneIndexer.PROPERTY_SUGGESTER);
+            assertEquals(Arrays.asList("liver cancer", "liver", "lung"), suggester.suggest("l", 10),
+                         "Wrong suggestions, or suggestions not ranked by annotation frequency");
+            assertEquals(Arrays.asList("liver", "lung"), suggester.suggest("l", "organism part", 10),
+                         "Wrong suggestions for type");
+            assertEquals(Arrays.asList("liver", "liver cancer"), suggester.suggest("liv", null, 10, source1),
+                         "Wrong suggestions for source");
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail("Couldn't build property suggester");
+        }
+        finally {
+            indexer.destroy();
+        }
+    }
+
+    private ZoomaLuceneIndexer createIndexer(Directory summaryDir) {
+        ZoomaLuceneIndexer indexer = new ZoomaLuceneIndexer();
+        indexer.setAnalyzer(analyzer);
+        indexer.setAnnotationDAO(verifiedAnnotationDAO);
+        indexer.setPropertyDAO(propertyDAO);
+        indexer.setPropertyIndex(new RAMDirectory());
+        indexer.setPropertyTypeIndex(new RAMDirectory());
+        indexer.setAnnotationCountIndex(new RAMDirectory());
+        indexer.setAnnotationIndex(new RAMDirectory());
+        indexer.setAnnotationSummaryIndex(summaryDir);
+        indexer.setSearcherManager(new ZoomaLuceneSearcherManager());
+        return indexer;
+    }
+
+    private Map<String, Document> readSummaryDocuments(Directory summaryDir) throws IOException {
+        Map<String, Document> documents = new HashMap<>();
+        DirectoryReader reader = DirectoryReader.open(summaryDir);
+        try {
+            for (int doc = 0; doc < reader.maxDoc(); doc++) {
+                Document document = reader.document(doc);
+                documents.put(document.get("id"), document);
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return documents;
+    }
 }
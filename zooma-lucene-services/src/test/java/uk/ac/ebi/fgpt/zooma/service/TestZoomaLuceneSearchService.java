@@ -22,6 +22,8 @@ import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.util.Version;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import uk.ac.ebi.fgpt.zooma.datasource.ZoomaDAO;
 import uk.ac.ebi.fgpt.zooma.model.Identifiable;
 
@@ -38,7 +40,10 @@ import java.util.Map;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class TestZoomaLuceneSearchService {
@@ -80,12 +85,27 @@ public class TestZoomaLuceneSearchService {
             foo = mock(Identifiable.class);
             bar = mock(Identifiable.class);
             baz = mock(Identifiable.class);
+            when(foo.getURI()).thenReturn(convertToURI("foo"));
+            when(bar.getURI()).thenReturn(convertToURI("bar"));
+            when(baz.getURI()).thenReturn(convertToURI("baz"));
 
             // create a mocked zooma dao
             dao = (ZoomaDAO<Identifiable>) mock(ZoomaDAO.class);
             when(dao.read(convertToURI("foo"))).thenReturn(foo);
             when(dao.read(convertToURI("bar"))).thenReturn(bar);
             when(dao.read(convertToURI("baz"))).thenReturn(baz);
+            when(dao.read(anyCollectionOf(URI.class))).thenAnswer(new Answer<Collection<Identifiable>>() {
+                @Override public Collection<Identifiable> answer(InvocationOnMock invocation) throws Throwable {
+                    List<Identifiable> results = new ArrayList<>();
+                    for (Object uri : (Collection<?>) invocation.getArguments()[0]) {
+                        Identifiable identifiable = dao.read((URI) uri);
+                        if (identifiable != null) {
+                            results.add(identifiable);
+                        }
+                    }
+                    return results;
+                }
+            });
         }
         catch (IOException e) {
             e.printStackTrace();
@@ -179,6 +199,26 @@ public class TestZoomaLuceneSearchService {
         }
     }
 
+    @Test
+    public void testDoQueryObjectBatchesLookups() {
+        try {
+            Query q = new QueryParser("name", analyzer).parse("foo");
+            Collection<Identifiable> results = searchService.doQuery(q, new SingleFieldURIMapper("uri"), dao);
+            assertEquals(1, results.size(), "Wrong number of results");
+            assertTrue(results.contains(foo), "Identifiable 'foo' not found");
+            // all four hits should be resolved with one lookup
+            verify(dao, times(1)).read(anyCollectionOf(URI.class));
+        }
+        catch (ParseException e) {
+            e.printStackTrace();
+            fail();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
     @Test
     public void testDoQueryForSubstring() {
         String field = "name";
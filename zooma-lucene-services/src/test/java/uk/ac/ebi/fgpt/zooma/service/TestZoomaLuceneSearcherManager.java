@@ -0,0 +1,280 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.ExitableDirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class TestZoomaLuceneSearcherManager {
+    private Analyzer analyzer;
+    private Directory index;
+
+    private ZoomaLuceneSearcherManager searcherManager;
+
+    private ZoomaLuceneSearchService searchService1;
+    private ZoomaLuceneSearchService searchService2;
+
+    @BeforeEach
+    public void setUp() {
+        try {
+            analyzer = new EnglishAnalyzer();
+            index = new RAMDirectory();
+            writeIndex("foo", "bar");
+
+            searcherManager = new ZoomaLuceneSearcherManager();
+
+            searchService1 = new ZoomaLuceneSearchService() {
+            };
+            searchService1.setIndex(index);
+            searchService1.setSearcherManager(searcherManager);
+            searchService1.init();
+
+            searchService2 = new ZoomaLuceneSearchService() {
+            };
+            searchService2.setIndex(index);
+            searchService2.setSearcherManager(searcherManager);
+            searchService2.init();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        try {
+            searcherManager.closeAll();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void writeIndex(String... names) throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        IndexWriter w = new IndexWriter(index, config);
+        for (String name : names) {
+            Document doc = new Document();
+            doc.add(new Field("name", name, Field.Store.YES, Field.Index.ANALYZED));
+            w.addDocument(doc);
+        }
+        w.close();
+    }
+
+    @Test
+    public void testReaderIsShared() {
+        DirectoryReader reader1 = searchService1.acquireReader();
+        DirectoryReader reader2 = searchService2.acquireReader();
+        try {
+            assertSame(reader1, reader2, "Services searching the same index should share a reader");
+        }
+        finally {
+            searchService1.releaseReader(reader1);
+            searchService2.releaseReader(reader2);
+        }
+        assertTrue(reader1.getRefCount() > 0, "Shared reader should remain open after release");
+    }
+
+    @Test
+    public void testRefresh() {
+        try {
+            Query q = new TermQuery(new Term("name", "baz"));
+            Collection<String> results = searchService1.doQuery(q, new SingleFieldStringMapper("name"));
+            assertEquals(0, results.size(), "Wrong number of results before rebuild");
+
+            long generation = searchService1.getGeneration();
+            writeIndex("foo", "bar", "baz");
+
+            results = searchService1.doQuery(q, new SingleFieldStringMapper("name"));
+            assertEquals(0, results.size(), "Index changes should not be visible until refresh");
+            assertEquals(generation, searchService1.getGeneration(), "Generation should not change until refresh");
+
+            searcherManager.refresh(index);
+            assertTrue(searchService1.getGeneration() > generation, "Generation should change after refresh");
+            assertEquals(searchService1.getGeneration(), searchService2.getGeneration());
+
+            results = searchService1.doQuery(q, new SingleFieldStringMapper("name"));
+            assertEquals(1, results.size(), "Wrong number of results after refresh");
+            results = searchService2.doQuery(q, new SingleFieldStringMapper("name"));
+            assertEquals(1, results.size(), "Wrong number of results after refresh");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testNearRealTimeRefresh() {
+        try {
+            Query q = new TermQuery(new Term("name", "baz"));
+            DirectoryReader before = searchService1.acquireReader();
+
+            IndexWriterConfig config = new IndexWriterConfig(analyzer);
+            config.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
+            IndexWriter w = new IndexWriter(index, config);
+            Document doc = new Document();
+            doc.add(new Field("name", "baz", Field.Store.YES, Field.Index.ANALYZED));
+            w.addDocument(doc);
+
+            // uncommitted changes are visible after a near-real-time refresh
+            searcherManager.refresh(index, w);
+            Collection<String> results = searchService1.doQuery(q, new SingleFieldStringMapper("name"));
+            assertEquals(1, results.size(), "Wrong number of results after near-real-time refresh");
+            assertEquals(2, before.numDocs(), "Readers in use should be unaffected by refresh");
+            searchService1.releaseReader(before);
+
+            // once the writer is closed, refreshing reopens from the commit and later refreshes still work
+            w.close();
+            searcherManager.refresh(index);
+            writeIndex("foo", "bar", "baz", "baz");
+            searcherManager.refresh(index);
+            results = searchService2.doQuery(q, new SingleFieldStringMapper("name"));
+            assertEquals(2, results.size(), "Wrong number of results after refresh");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testBoundedQueryRanksHits() {
+        LuceneDocumentMapper<Integer> rankMapper = new LuceneDocumentMapper<Integer>() {
+            @Override public Integer mapDocument(Document d) {
+                return mapDocument(d, 1);
+            }
+
+            @Override public Integer mapDocument(Document d, int rank) {
+                return rank;
+            }
+
+            @Override public float getDocumentQuality(Document d) {
+                return 1;
+            }
+
+            @Override public float getDocumentQuality(Document d, int rank) {
+                return 1;
+            }
+        };
+        Query q = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("name", "foo")), BooleanClause.Occur.SHOULD)
+                .add(new TermQuery(new Term("name", "bar")), BooleanClause.Occur.SHOULD)
+                .build();
+        List<Integer> ranks = searchService1.doQuery(q, rankMapper, TopScoreDocCollector.create(10));
+        assertEquals(Arrays.asList(1, 2), ranks, "Hits should be mapped with their position in the results");
+    }
+
+    @Test
+    public void testAcquireDuringNearRealTimeRefresh() {
+        try {
+            IndexWriterConfig config = new IndexWriterConfig(analyzer);
+            config.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
+            final IndexWriter w = new IndexWriter(index, config);
+            final AtomicReference<Exception> failure = new AtomicReference<>();
+            Thread refresher = new Thread(new Runnable() {
+                @Override public void run() {
+                    try {
+                        for (int i = 0; i < 200; i++) {
+                            Document doc = new Document();
+                            doc.add(new Field("name", "baz", Field.Store.YES, Field.Index.ANALYZED));
+                            w.addDocument(doc);
+                            searcherManager.refresh(index, w);
+                        }
+                    }
+                    catch (IOException e) {
+                        failure.set(e);
+                    }
+                }
+            });
+            refresher.start();
+
+            // readers are acquired whilst the manager holding them is repeatedly replaced
+            int lastNumDocs = 0;
+            while (refresher.isAlive()) {
+                DirectoryReader reader = searcherManager.acquire(index);
+                try {
+                    assertTrue(reader.numDocs() >= lastNumDocs, "Acquired reader should never go backwards");
+                    lastNumDocs = reader.numDocs();
+                }
+                finally {
+                    searcherManager.release(index, reader);
+                }
+            }
+            refresher.join();
+            assertNull(failure.get(), "Refresh failed");
+
+            w.close();
+            searcherManager.refresh(index);
+            DirectoryReader reader = searcherManager.acquire(index);
+            try {
+                assertEquals(202, reader.numDocs(), "Wrong number of documents after final refresh");
+            }
+            finally {
+                searcherManager.release(index, reader);
+            }
+        }
+        catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            fail();
+        }
+    }
+
+    @Test
+    public void testQueryTimeoutIsPerThread() {
+        DirectoryReader reader = searchService1.acquireReader();
+        try {
+            searcherManager.startQueryTimeout(-1);
+            try {
+                reader.leaves().get(0).reader().terms("name").iterator().next();
+                fail("Expired timeout should abort term enumeration");
+            }
+            catch (ExitableDirectoryReader.ExitingReaderException e) {
+                // expected
+            }
+            finally {
+                searcherManager.clearQueryTimeout();
+            }
+
+            // once cleared, the same shared reader can be used without timing out
+            assertNotNull(reader.leaves().get(0).reader().terms("name").iterator().next());
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail();
+        }
+        finally {
+            searchService1.releaseReader(reader);
+        }
+    }
+}
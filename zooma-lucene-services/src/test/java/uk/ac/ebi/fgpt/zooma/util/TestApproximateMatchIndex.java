@@ -0,0 +1,134 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.simmetrics.StringMetric;
+import org.simmetrics.StringMetricBuilder;
+import org.simmetrics.metrics.JaccardSimilarity;
+import org.simmetrics.metrics.NeedlemanWunch;
+import org.simmetrics.tokenizers.Whitespace;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that candidates generated by the {@link ApproximateMatchIndex} never miss a dictionary entry that a full scan
+ * of the dictionary would find.
+ *
+ * @date 18/10/26
+ */
+public class TestApproximateMatchIndex {
+    private static final String[] words = {"cell", "line", "liver", "lung", "heart", "brain", "tissue", "cancer",
+            "carcinoma", "adenocarcinoma", "breast", "homo", "sapiens", "mus", "musculus", "male", "female", "adult",
+            "embryo", "stage", "blood", "t", "b", "cd4", "positive", "negative", "of", "the", "left", "right", "a"};
+
+    private List<String> dictionary;
+    private List<String> queries;
+    private ApproximateMatchIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        Random random = new Random(42);
+        dictionary = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            dictionary.add(randomPhrase(random));
+        }
+        dictionary.add("");
+        dictionary.add("x");
+        dictionary.add("xy");
+        dictionary.add(" leading space");
+
+        queries = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            // mutate existing entries so that there are plenty of near matches
+            queries.add(mutate(dictionary.get(random.nextInt(dictionary.size())), random));
+            queries.add(randomPhrase(random));
+        }
+        queries.add("");
+        queries.add("x");
+        queries.add("yx");
+        queries.add("leading space");
+
+        index = new ApproximateMatchIndex(dictionary);
+    }
+
+    @Test
+    public void testNeedlemanWunschCandidates() {
+        StringMetric metric = new NeedlemanWunch();
+        int shortlisted = 0;
+        for (String query : queries) {
+            Collection<String> candidates = index.getNeedlemanWunschCandidates(query, 0.90f);
+            shortlisted += candidates.size();
+            assertEquals(scan(metric, query, dictionary, 0.90f), scan(metric, query, candidates, 0.90f),
+                         "Wrong Needleman-Wunsch matches for '" + query + "'");
+        }
+        assertTrue(shortlisted < queries.size() * dictionary.size() / 10,
+                   "Needleman-Wunsch candidates should be a small fraction of the dictionary");
+    }
+
+    @Test
+    public void testJaccardCandidates() {
+        StringMetric metric = StringMetricBuilder.with(new JaccardSimilarity<String>()).tokenize(new Whitespace()).build();
+        int shortlisted = 0;
+        for (String query : queries) {
+            Collection<String> candidates = index.getJaccardCandidates(query, 0.525f);
+            shortlisted += candidates.size();
+            assertEquals(scan(metric, query, dictionary, 0.525f), scan(metric, query, candidates, 0.525f),
+                         "Wrong Jaccard matches for '" + query + "'");
+        }
+        assertTrue(shortlisted < queries.size() * dictionary.size() / 2,
+                   "Jaccard candidates should be a fraction of the dictionary");
+    }
+
+    private Map<String, Float> scan(StringMetric metric, String query, Collection<String> strings, float minScore) {
+        Map<String, Float> results = new HashMap<>();
+        for (String s : strings) {
+            float score = metric.compare(query, s);
+            if (score >= minScore) {
+                results.put(s, score);
+            }
+        }
+        return results;
+    }
+
+    private String randomPhrase(Random random) {
+        int length = 1 + random.nextInt(4);
+        StringBuilder sb = new StringBuilder();
+        Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < length; i++) {
+            int w = random.nextInt(words.length);
+            if (used.add(w)) {
+                sb.append(sb.length() > 0 ? " " : "").append(words[w]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private String mutate(String s, Random random) {
+        StringBuilder sb = new StringBuilder(s);
+        int edits = random.nextInt(3);
+        for (int i = 0; i < edits && sb.length() > 0; i++) {
+            int pos = random.nextInt(sb.length());
+            switch (random.nextInt(3)) {
+                case 0:
+                    sb.deleteCharAt(pos);
+                    break;
+                case 1:
+                    sb.insert(pos, (char) ('a' + random.nextInt(26)));
+                    break;
+                default:
+                    sb.setCharAt(pos, (char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that the compiled dictionary matching used by {@link AnatomyProcessor} and {@link ChemicalCompoundProcessor}
+ * behaves exactly as testing every dictionary term in turn.
+ *
+ * @date 18/10/26
+ */
+public class TestDictionaryLoadingProcessors {
+    @Test
+    public void testAnatomyProcessor() {
+        try {
+            AnatomyProcessor processor = new AnatomyProcessor("EFO_Dictionary/efo_dictionary_qualifier_OrgPart.txt");
+            processor.init();
+            assertEquals("lobe of liver", processor.processSearchString("Left Lateral lobe of liver").get(0),
+                         "Unexpected processed string");
+            checkDictionaryRemoval(processor, new String[]{"liver", "lobe", "cleft", "palate", "of", "heart"});
+
+            processor = new AnatomyProcessor("EFO_Dictionary/pato_dictionary_qualifier_OrgPart.txt");
+            processor.init();
+            checkDictionaryRemoval(processor, new String[]{"liver", "lobe", "cleft", "palate", "of", "heart"});
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Couldn't load dictionary");
+        }
+    }
+
+    @Test
+    public void testChemicalCompoundProcessor() {
+        try {
+            ChemicalCompoundProcessor processor =
+                    new ChemicalCompoundProcessor("EFO_Dictionary/efo_dictionary_concentrationUnit.txt");
+            processor.init();
+            assertEquals("metformin", processor.processSearchString("metformin 50 micromolar").get(0),
+                         "Unexpected processed string");
+            checkDictionaryRemoval(processor, new String[]{"metformin", "50", "2.5", "per", "indole-3-acetic acid"});
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Couldn't load dictionary");
+        }
+    }
+
+    private void checkDictionaryRemoval(AbstractDictionaryLoadingProcessor processor, String[] words) {
+        List<String> terms = new ArrayList<>(processor.getDictionary());
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt(5);
+            for (int w = 0; w < length; w++) {
+                sb.append(w > 0 ? " " : "");
+                sb.append(random.nextBoolean()
+                                  ? terms.get(random.nextInt(terms.size()))
+                                  : words[random.nextInt(words.length)]);
+            }
+            String searchString = sb.toString();
+            assertEquals(scanCanProcess(processor, searchString), processor.canProcess(searchString),
+                         "Unexpected canProcess result for '" + searchString + "'");
+            assertEquals(scanRemoval(processor, searchString), processor.removeDictionaryTerms(searchString),
+                         "Unexpected removal result for '" + searchString + "'");
+        }
+    }
+
+    private boolean scanCanProcess(AbstractDictionaryLoadingProcessor processor, String searchString) {
+        for (String term : processor.getDictionary()) {
+            if (searchString.contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String scanRemoval(AbstractDictionaryLoadingProcessor processor, String processedString) {
+        boolean removed = false;
+        for (String term : processor.getDictionary()) {
+            if (processedString.contains(" " + term + " ") ||
+                    processedString.startsWith(term + " ") ||
+                    processedString.endsWith(" " + term)) {
+                processedString = processedString.replaceAll(term, " ");
+                removed = true;
+            }
+        }
+        return removed ? processedString : null;
+    }
+}
@@ -0,0 +1,155 @@
+package uk.ac.ebi.fgpt.zooma.util;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Tests that a {@link PropertyValueSuggester} completes prefixes with the most frequently annotated property values,
+ * within each context.
+ *
+ * @date 18/10/26
+ */
+public class TestPropertyValueSuggester {
+    private URI source1;
+    private URI source2;
+
+    private PropertyValueSuggester suggester;
+
+    @BeforeEach
+    public void setUp() {
+        source1 = URI.create("http://www.test.com/source1");
+        source2 = URI.create("http://www.test.com/source2");
+
+        PropertyValueSuggester.SuggesterBuilder builder = new PropertyValueSuggester.SuggesterBuilder();
+        builder.add("liver", "organism part", source1, 3);
+        builder.add("liver cancer", "disease", source2, 5);
+        builder.add("liver cancer", "disease", source1, 1);
+        builder.add("Liver  Fluke", null, source2, 2);
+        builder.add("lung", "organism part", source1, 2);
+        builder.add("lung", "organism part", source1, 2);
+        builder.add("Größe", "size", null, 0);
+        builder.add("  ", "organism part", source1, 10);
+        try {
+            suggester = builder.build();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Failed to build suggester");
+        }
+    }
+
+    @Test
+    public void testSuggest() {
+        assertEquals(Arrays.asList("liver cancer", "liver", "Liver  Fluke"), suggester.suggest("liv", 10),
+                     "Wrong suggestions, or suggestions not ranked by frequency");
+        assertEquals(Arrays.asList("liver cancer", "lung", "liver"), suggester.suggest("l", 3),
+                     "Wrong suggestions, or frequencies not summed");
+        assertEquals(Arrays.asList("liver cancer", "Liver  Fluke"), suggester.suggest("  LIVER ", 10),
+                     "Prefix should be matched ignoring case and leading whitespace");
+        assertEquals(Collections.singletonList("Liver  Fluke"), suggester.suggest("liver f", 10),
+                     "Prefix should be matched against normalized whitespace");
+        assertEquals(Collections.singletonList("Größe"), suggester.suggest("grö", 10),
+                     "Wrong non-ASCII suggestions");
+        assertEquals(Collections.<String>emptyList(), suggester.suggest("kidney", 10),
+                     "Unexpected suggestions");
+        assertEquals(5, suggester.suggest("", 10).size(), "Blank property values should not be suggested");
+    }
+
+    @Test
+    public void testSuggestWithContexts() {
+        assertEquals(Arrays.asList("lung", "liver"), suggester.suggest("l", "organism part", 10),
+                     "Wrong suggestions for type");
+        assertEquals(Arrays.asList("liver", "liver cancer"), suggester.suggest("liv", null, 10, source1),
+                     "Wrong suggestions for source");
+        assertEquals(Arrays.asList("liver cancer", "liver", "Liver  Fluke"),
+                     suggester.suggest("liv", null, 10, source1, source2),
+                     "Wrong suggestions for sources");
+        assertEquals(Collections.singletonList("liver cancer"),
+                     suggester.suggest("liv", "disease", 10, source1, source2),
+                     "Wrong suggestions for type and sources");
+        assertEquals(Collections.singletonList("liver cancer"), suggester.suggest("liv", null, 1, source1, source2),
+                     "Wrong number of suggestions for sources");
+        assertEquals(Collections.<String>emptyList(), suggester.suggest("liv", "size", 10),
+                     "Unexpected suggestions for type");
+        assertEquals(Collections.<String>emptyList(),
+                     suggester.suggest("liv", null, 10, URI.create("http://www.test.com/source3")),
+                     "Unexpected suggestions for source");
+    }
+
+    @Test
+    public void testSaveAndLoad() {
+        try {
+            Directory directory = new RAMDirectory();
+            suggester.save(directory, "suggester.fst");
+            PropertyValueSuggester loaded = PropertyValueSuggester.load(directory, "suggester.fst");
+            assertEquals(suggester.getSize(), loaded.getSize(), "Wrong number of keys loaded");
+            assertEquals(suggester.suggest("l", 10), loaded.suggest("l", 10), "Wrong suggestions once loaded");
+            assertEquals(suggester.suggest("l", null, 10, source1, source2),
+                         loaded.suggest("l", null, 10, source1, source2),
+                         "Wrong suggestions for sources once loaded");
+
+            PropertyValueSuggester empty = new PropertyValueSuggester.SuggesterBuilder().build();
+            empty.save(directory, "suggester.fst");
+            assertEquals(Collections.<String>emptyList(),
+                         PropertyValueSuggester.load(directory, "suggester.fst").suggest("l", 10),
+                         "Saved suggester should have been replaced");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Failed to save and load suggester");
+        }
+    }
+
+    @Test
+    public void testMatchesScan() {
+        Random random = new Random(42);
+        String[] words = {"cell", "line", "liver", "lung", "cancer", "carcinoma", "blood", "brain", "b", "c"};
+        List<String> values = new ArrayList<>();
+        List<Integer> frequencies = new ArrayList<>();
+        PropertyValueSuggester.SuggesterBuilder builder = new PropertyValueSuggester.SuggesterBuilder();
+        for (int i = 0; i < 2000; i++) {
+            String value = words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)] + " " + i;
+            // distinct frequencies, so the ranking is unambiguous
+            values.add(value);
+            frequencies.add(i);
+            builder.add(value, null, null, i);
+        }
+        try {
+            PropertyValueSuggester randomSuggester = builder.build();
+            for (String prefix : new String[]{"c", "ca", "cell l", "liver", "b", "blood brain", "x"}) {
+                List<Integer> matches = new ArrayList<>();
+                for (int i = 0; i < values.size(); i++) {
+                    if (values.get(i).toLowerCase(Locale.ROOT).startsWith(prefix)) {
+                        matches.add(frequencies.get(i));
+                    }
+                }
+                Collections.sort(matches, Collections.reverseOrder());
+                List<String> expected = new ArrayList<>();
+                for (int frequency : matches.subList(0, Math.min(20, matches.size()))) {
+                    expected.add(values.get(frequency));
+                }
+                assertEquals(expected, randomSuggester.suggest(prefix, 20), "Wrong suggestions for '" + prefix + "'");
+            }
+            assertTrue(randomSuggester.ramBytesUsed() > 0, "Suggester should use some memory");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Failed to build suggester");
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.client.RestClientException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs requests to OLS on a pool of threads, and waits for their results within a latency budget.
+ * <p/>
+ * Every request is identified by a key describing the query it makes.  Results are cached against this key for {@link
+ * #getTimeToLive()} seconds, and a request for a key that is already in flight waits for the running request rather
+ * than making the same query again.  Failed requests are not cached.  Callers that run out of time get a fallback value
+ * instead of a result, but the request carries on in the background, so its result is cached for later callers.  Once
+ * {@link #getMaxCacheSize()} results are cached, the least recently used results are discarded first.
+ * <p/>
+ * Requests that fail or take longer than the latency budget count towards a circuit breaker.  After {@link
+ * #getFailureThreshold()} consecutive failures the circuit opens, and requests that are not already cached fail fast
+ * until {@link #getResetTimeout()} milliseconds have passed.  A single trial request is then let through, and the
+ * circuit closes again if it succeeds.
+ *
+ * @date 18/10/26
+ */
+public class OLSRequestExecutor {
+    private final ExecutorService executor;
+    // access ordered, so that the least recently used requests are evicted first; guarded by itself
+    private final LinkedHashMap<String, CachedRequest<?>> cache;
+
+    private final long requestTimeout;
+    private int timeToLive = 3600;
+    private int maxCacheSize = 10000;
+    private int failureThreshold = 5;
+    private long resetTimeout = 30000;
+
+    private final AtomicInteger consecutiveFailures;
+    private final AtomicLong circuitOpenUntil;
+
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+    private final AtomicLong rejectedCount;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    /**
+     * Creates a new executor that makes requests to OLS on the given number of threads
+     *
+     * @param threads        the number of requests that can be made to OLS at once
+     * @param requestTimeout the time, in milliseconds, that callers wait for the results of their requests
+     */
+    public OLSRequestExecutor(int threads, long requestTimeout) {
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(1);
+
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "ols-request-" + count.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.cache = new LinkedHashMap<String, CachedRequest<?>>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, CachedRequest<?>> eldest) {
+                evictIfFull();
+                return false;
+            }
+        };
+        this.requestTimeout = requestTimeout;
+        this.consecutiveFailures = new AtomicInteger();
+        this.circuitOpenUntil = new AtomicLong();
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.rejectedCount = new AtomicLong();
+    }
+
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public int getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Sets the time after which cached results are discarded
+     *
+     * @param timeToLive the time to live of a cached result, in seconds
+     */
+    public void setTimeToLive(int timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    public int getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of results that will be cached
+     *
+     * @param maxCacheSize the maximum number of results to cache
+     */
+    public void setMaxCacheSize(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * Sets the number of consecutive failed or slow requests that will open the circuit breaker
+     *
+     * @param failureThreshold the number of consecutive failures that open the circuit
+     */
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public long getResetTimeout() {
+        return resetTimeout;
+    }
+
+    /**
+     * Sets the time after which an open circuit breaker lets a trial request through
+     *
+     * @param resetTimeout the time an open circuit rejects requests for, in milliseconds
+     */
+    public void setResetTimeout(long resetTimeout) {
+        this.resetTimeout = resetTimeout;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Returns true if the circuit breaker is currently open, or waiting on the result of a trial request
+     *
+     * @return true if requests that are not already cached will be rejected
+     */
+    public boolean isCircuitOpen() {
+        return consecutiveFailures.get() >= failureThreshold;
+    }
+
+    /**
+     * Makes a request, or joins an identical request that is already in flight or cached, and waits for the result
+     * within the latency budget.
+     *
+     * @param key      a key describing the query this request makes
+     * @param request  the request to make if there is no result for this key yet
+     * @param fallback the value to return if the request fails, is rejected, or does not complete in time
+     * @param <T>      the type of result
+     * @return the result of the request, or the fallback value
+     */
+    public <T> T get(String key, Callable<T> request, T fallback) {
+        return await(submit(key, request), System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestTimeout), fallback);
+    }
+
+    /**
+     * Makes several requests at once and waits for all of their results within a single latency budget.  Results are
+     * returned in the iteration order of the supplied map, with the fallback value in place of any request that fails,
+     * is rejected, or does not complete in time.
+     *
+     * @param requests the requests to make, keyed by a description of the query each makes
+     * @param fallback the value to use for any request that does not return a result
+     * @param <T>      the type of result
+     * @return the results of the requests
+     */
+    public <T> List<T> getAll(LinkedHashMap<String, Callable<T>> requests, T fallback) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(requestTimeout);
+        List<Future<T>> futures = new ArrayList<>();
+        for (Map.Entry<String, Callable<T>> request : requests.entrySet()) {
+            futures.add(submit(request.getKey(), request.getValue()));
+        }
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(await(future, deadline, fallback));
+        }
+        return results;
+    }
+
+    /**
+     * Discards all cached results.  Requests that are in flight will still complete, but their results will not be
+     * seen by new requests.
+     */
+    public void clear() {
+        getLog().debug("Clearing cached OLS results");
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Stops making requests to OLS.  Requests that are in flight are interrupted.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Future<T> submit(final String key, final Callable<T> request) {
+        while (true) {
+            CachedRequest<T> existing;
+            synchronized (cache) {
+                existing = (CachedRequest<T>) cache.get(key);
+            }
+            if (existing != null && !existing.isExpired()) {
+                hitCount.incrementAndGet();
+                return existing.getFuture();
+            }
+
+            if (!allowRequest()) {
+                rejectedCount.incrementAndGet();
+                return rejected(key);
+            }
+
+            final CachedRequest<T> entry = new CachedRequest<>();
+            FutureTask<T> task = new FutureTask<>(new Callable<T>() {
+                @Override public T call() throws Exception {
+                    long start = System.currentTimeMillis();
+                    try {
+                        T result = request.call();
+                        long elapsed = System.currentTimeMillis() - start;
+                        if (elapsed > requestTimeout) {
+                            getLog().debug("OLS request '" + key + "' took " + elapsed + "ms");
+                            recordFailure();
+                        }
+                        else {
+                            recordSuccess();
+                        }
+                        return result;
+                    }
+                    catch (Exception e) {
+                        getLog().debug("OLS request '" + key + "' failed", e);
+                        remove(key, entry);
+                        recordFailure();
+                        throw e;
+                    }
+                }
+            });
+            entry.setFuture(task, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeToLive));
+
+            boolean installed;
+            synchronized (cache) {
+                installed = cache.get(key) == existing;
+                if (installed) {
+                    cache.put(key, entry);
+                }
+            }
+            if (installed) {
+                missCount.incrementAndGet();
+                try {
+                    executor.execute(task);
+                }
+                catch (RejectedExecutionException e) {
+                    remove(key, entry);
+                    return rejected(key);
+                }
+                return task;
+            }
+            // another thread installed a request for this key first, so use that one instead
+        }
+    }
+
+    private <T> T await(Future<T> future, long deadline, T fallback) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e) {
+            return fallback;
+        }
+        catch (ExecutionException e) {
+            return fallback;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback;
+        }
+    }
+
+    private <T> Future<T> rejected(final String key) {
+        FutureTask<T> task = new FutureTask<>(new Callable<T>() {
+            @Override public T call() throws Exception {
+                throw new RestClientException("OLS request '" + key + "' was rejected");
+            }
+        });
+        task.run();
+        return task;
+    }
+
+    private boolean allowRequest() {
+        if (consecutiveFailures.get() < failureThreshold) {
+            return true;
+        }
+        // the circuit is open - once the reset timeout has passed, let a single trial request through
+        long openUntil = circuitOpenUntil.get();
+        long now = System.currentTimeMillis();
+        return now >= openUntil && circuitOpenUntil.compareAndSet(openUntil, now + resetTimeout);
+    }
+
+    private void recordSuccess() {
+        if (consecutiveFailures.getAndSet(0) >= failureThreshold) {
+            getLog().info("OLS is responding again, closing circuit");
+        }
+    }
+
+    private void recordFailure() {
+        if (consecutiveFailures.incrementAndGet() == failureThreshold) {
+            circuitOpenUntil.set(System.currentTimeMillis() + resetTimeout);
+            getLog().warn(failureThreshold + " consecutive OLS requests failed or were too slow, " +
+                                  "rejecting requests for " + resetTimeout + "ms");
+        }
+    }
+
+    private void remove(String key, CachedRequest<?> entry) {
+        synchronized (cache) {
+            if (cache.get(key) == entry) {
+                cache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Discards the least recently used completed requests until the cache is no longer over its maximum size.
+     * Requests still in flight are kept, so that identical requests keep joining them.  Must be called whilst holding
+     * the lock on the cache.
+     */
+    private void evictIfFull() {
+        Iterator<CachedRequest<?>> it = cache.values().iterator();
+        while (cache.size() > maxCacheSize && it.hasNext()) {
+            if (it.next().isDone()) {
+                it.remove();
+            }
+        }
+    }
+
+    private static class CachedRequest<T> {
+        private Future<T> future;
+        private long expires;
+
+        private void setFuture(Future<T> future, long expires) {
+            this.future = future;
+            this.expires = expires;
+        }
+
+        private Future<T> getFuture() {
+            return future;
+        }
+
+        private boolean isDone() {
+            return future.isDone();
+        }
+
+        private boolean isExpired() {
+            // requests still in flight never expire, so that identical requests keep joining them
+            return future.isDone() && System.currentTimeMillis() > expires;
+        }
+    }
+}
@@ -1,25 +1,42 @@
 package uk.ac.ebi.fgpt.zooma.service;
 
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestClientException;
 import uk.ac.ebi.fgpt.zooma.Initializable;
 import uk.ac.ebi.fgpt.zooma.util.URIUtils;
 import uk.ac.ebi.pride.utilities.ols.web.service.client.OLSClient;
 import uk.ac.ebi.pride.utilities.ols.web.service.config.OLSWsConfig;
 import uk.ac.ebi.pride.utilities.ols.web.service.model.*;
+import uk.ac.ebi.pride.utilities.ols.web.service.utils.Constants;
 
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  *
  * Uses the PRIDE ols-client, modified to the SPOT needs (https://github.com/EBISPOT/ols-client)
  *
+ * Requests to OLS go through an {@link OLSRequestExecutor}, so searches over several ontologies are made in parallel
+ * within a latency budget, results are cached and shared by identical concurrent requests, and OLS is not called at
+ * all while it is failing.  Search parameters are passed along with each request, so the client is never modified and
+ * this service can be used from several threads at once.
+ *
  * Created by olgavrou on 20/05/2016.
  */
 public class OLSSearchService extends Initializable {
 
+    //page number and page size used for exact and partial searches
+    private static final int EXACT_PAGE_NUM = 0;
+    protected static final int EXACT_PAGE_SIZE = 20;
+    private static final int PARTIAL_PAGE_NUM = 0;
+    protected static final int PARTIAL_PAGE_SIZE = 2;
+
     private OLSClient olsClient;
 
+    private OLSRequestExecutor requestExecutor;
+
     private Properties configuration;
 
     public Properties getConfiguration() {
@@ -31,10 +48,7 @@ public class OLSSearchService extends Initializable {
     }
 
     //holds all the ontology <namespace, Ontology> mappings
-    private Map<String, Ontology> ontologyMappings;
-
-    private Map<URI, URI> originalToReplacementCache = new HashMap<>();
-    private Map<URI, Boolean> replaceableCache = new HashMap<>();
+    private Map<String, Ontology> ontologyMappings = new ConcurrentHashMap<>();
 
     //default parameters of search page number and search page size
     private int defaultPageNum;
@@ -44,17 +58,31 @@ public class OLSSearchService extends Initializable {
     @Override
     protected void doInitialization() throws Exception {
 
-        String olsServer = this.configuration.getProperty("ols.server");
-        if (olsServer != null) {
-            this.olsClient = new OLSClient(new OLSWsConfig(olsServer));
-        } else {
-            this.olsClient = new OLSClient(new OLSWsConfig());
-        }
+        String olsServer = this.configuration.getProperty("ols.server", Constants.OLS_SERVER);
+        String olsProtocol = this.configuration.getProperty("ols.protocol", Constants.OLS_PROTOCOL);
+        this.olsClient = new OLSClient(new OLSWsConfig(olsProtocol, olsServer));
+
+        int threads = Integer.parseInt(this.configuration.getProperty("ols.search.threads", "8"));
+        int timeout = Integer.parseInt(this.configuration.getProperty("ols.search.timeout", "5000"));
+        this.requestExecutor = new OLSRequestExecutor(threads, timeout);
+        this.requestExecutor.setTimeToLive(
+                Integer.parseInt(this.configuration.getProperty("ols.cache.ttl", "3600")));
+        this.requestExecutor.setMaxCacheSize(
+                Integer.parseInt(this.configuration.getProperty("ols.cache.max.entries", "10000")));
+        this.requestExecutor.setFailureThreshold(
+                Integer.parseInt(this.configuration.getProperty("ols.circuit.failures", "5")));
+        this.requestExecutor.setResetTimeout(
+                Long.parseLong(this.configuration.getProperty("ols.circuit.reset", "30000")));
+
+        // don't let a hung connection hold on to a request thread for longer than the latency budget
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeout);
+        requestFactory.setReadTimeout(timeout);
+        this.olsClient.getRestTemplate().setRequestFactory(requestFactory);
 
         this.defaultPageNum = this.olsClient.getSearchPageNum();
         this.defaultPageSize = this.olsClient.getSearchPageSize();
 
-        this.ontologyMappings = new HashMap<>();
         populateOntologyMappings();
 
     }
@@ -70,115 +98,117 @@ public class OLSSearchService extends Initializable {
 
     @Override
     protected void doTermination() throws Exception {
+        if (this.requestExecutor != null) {
+            this.requestExecutor.shutdown();
+        }
+    }
 
+    public OLSRequestExecutor getRequestExecutor() {
+        return requestExecutor;
     }
 
     public List<Term> getExactTermsByName(String value){
-        specificSearchParams(0, 20);
-        return filterDefiningOntology(getExactTermsByName(value, ""));
+        return filterDefiningOntology(getExactTermsByName(value, "", null));
     }
 
     public List<Term> getTermsByName(String value){
-        specificSearchParams(0, 2);
-        return filterDefiningOntology(getTermsByName(value, ""));
+        return filterDefiningOntology(getTermsByName(value, "", null));
     }
 
     public List<Term> getExactTermsByName(String value, ArrayList<String> sources){
-        specificSearchParams(0, 20);
-        List<Term> terms = new ArrayList<>();
-        for (String source : sources) {
-            terms.addAll(getExactTermsByName(value, source));
-        }
-        return filterDefiningOntology(terms);
+        return getExactTermsByNameFromParent(value, sources, null);
     }
 
     public List<Term> getTermsByName(String value, ArrayList<String> sources){
-        specificSearchParams(0, 2);
-        List<Term> terms = new ArrayList<>();
-        for (String source : sources) {
-            terms.addAll(getTermsByName(value, source));
-        }
-        return filterDefiningOntology(terms);
+        return getTermsByNameFromParent(value, sources, null);
     }
 
-    private List<Term> getExactTermsByName(String value, String source){
-        try {
-            specificSearchParams(0, 20);
-            return olsClient.getExactTermsByName(value, source);
-        } catch (RestClientException e){
-            return new ArrayList<>();
-        }
-    }
-
-    private List<Term> getTermsByName(String value, String source){
-        try {
-            specificSearchParams(0, 2);
-            return olsClient.getTermsByName(value, source, false);
-        } catch (RestClientException e){
-            return new ArrayList<>();
-        }
-    }
-
-
     public List<Term> getExactTermsByNameFromParent(String value, String childrenOf){
-        specificSearchParams(0, 20);
-        return filterDefiningOntology(getExactTermsByNameFromParent(value, "", childrenOf));
+        return filterDefiningOntology(getExactTermsByName(value, "", childrenOf));
     }
 
 
     public List<Term> getTermsByNameFromParent(String value, String childrenOf){
-        specificSearchParams(0, 2);
-        return filterDefiningOntology(getTermsByNameFromParent(value, "", childrenOf));
+        return filterDefiningOntology(getTermsByName(value, "", childrenOf));
     }
 
     public List<Term> getExactTermsByNameFromParent(String value, ArrayList<String> sources, String childrenOf){
-        specificSearchParams(0, 20);
-        List<Term> terms = new ArrayList<>();
-        for (String source : sources) {
-            terms.addAll(getExactTermsByNameFromParent(value, source, childrenOf));
-        }
-        return filterDefiningOntology(terms);
+        return filterDefiningOntology(getExactTermsBySources(value, sources, childrenOf));
     }
 
     public List<Term> getTermsByNameFromParent(String value, ArrayList<String> sources, String childrenOf){
-        specificSearchParams(0, 2);
-        List<Term> terms = new ArrayList<>();
+        return filterDefiningOntology(getTermsBySources(value, sources, childrenOf));
+    }
+
+    /*
+     * The lookups below return terms exactly as OLS gives them, before any filtering on the defining ontology.
+     * Subclasses may override them to answer some lookups without calling OLS.
+     */
+
+    protected List<Term> getExactTermsBySources(String value, List<String> sources, String childrenOf){
+        LinkedHashMap<String, Callable<List<Term>>> requests = new LinkedHashMap<>();
         for (String source : sources) {
-            terms.addAll(getTermsByNameFromParent(value, source, childrenOf));
+            requests.put(searchKey("exact", value, source, childrenOf),
+                         exactSearch(value, source, childrenOf));
         }
-        return filterDefiningOntology(terms);
+        return flatten(requestExecutor.getAll(requests, Collections.<Term>emptyList()));
     }
 
-    private List<Term> getExactTermsByNameFromParent(String value, String source, String childrenOf){
-        try {
-            specificSearchParams(0, 20);
-            return olsClient.getExactTermsByNameFromParent(value, source, childrenOf);
-        } catch (RestClientException e){
-            return new ArrayList<>();
+    protected List<Term> getTermsBySources(String value, List<String> sources, String childrenOf){
+        LinkedHashMap<String, Callable<List<Term>>> requests = new LinkedHashMap<>();
+        for (String source : sources) {
+            requests.put(searchKey("partial", value, source, childrenOf),
+                         partialSearch(value, source, childrenOf));
         }
+        return flatten(requestExecutor.getAll(requests, Collections.<Term>emptyList()));
     }
 
-    private List<Term> getTermsByNameFromParent(String value, String source, String childrenOf){
-        try {
-            specificSearchParams(0, 2);
-            return olsClient.getTermsByNameFromParent(value, source, false, childrenOf);
-        } catch (RestClientException e){
-            return new ArrayList<>();
-        }
+    protected List<Term> getExactTermsByName(String value, String source, String childrenOf){
+        return requestExecutor.get(searchKey("exact", value, source, childrenOf),
+                                   exactSearch(value, source, childrenOf),
+                                   Collections.<Term>emptyList());
     }
 
-    public String getExactLabelByIri(String iri){
-        try {
-            defaultSearchParams();
-            List<Term> terms = olsClient.getExactTermsByIriString(iri);
+    protected List<Term> getTermsByName(String value, String source, String childrenOf){
+        return requestExecutor.get(searchKey("partial", value, source, childrenOf),
+                                   partialSearch(value, source, childrenOf),
+                                   Collections.<Term>emptyList());
+    }
+
+    private Callable<List<Term>> exactSearch(final String value, final String source, final String childrenOf) {
+        return new Callable<List<Term>>() {
+            @Override public List<Term> call() throws RestClientException {
+                return unmodifiable(
+                        olsClient.getExactTermsByName(value, source, childrenOf, EXACT_PAGE_NUM, EXACT_PAGE_SIZE));
+            }
+        };
+    }
+
+    private Callable<List<Term>> partialSearch(final String value, final String source, final String childrenOf) {
+        return new Callable<List<Term>>() {
+            @Override public List<Term> call() throws RestClientException {
+                return unmodifiable(
+                        olsClient.getTermsByName(value, source, childrenOf, PARTIAL_PAGE_NUM, PARTIAL_PAGE_SIZE));
+            }
+        };
+    }
+
+    protected List<Term> getTermsByIri(final String iri) {
+        return requestExecutor.get("iri|" + iri, new Callable<List<Term>>() {
+            @Override public List<Term> call() throws RestClientException {
+                return unmodifiable(olsClient.getExactTermsByIriString(iri, defaultPageNum, defaultPageSize));
+            }
+        }, null);
+    }
 
+    public String getExactLabelByIri(String iri){
+        List<Term> terms = getTermsByIri(iri);
+        if (terms != null) {
             for (Term term : terms){
                 if (term.isDefinedOntology()){
                     return term.getLabel();
                 }
             }
-        } catch (RestClientException e){
-            return  URIUtils.extractFragment(URI.create(iri));
         }
 
         return  URIUtils.extractFragment(URI.create(iri));
@@ -186,37 +216,33 @@ public class OLSSearchService extends Initializable {
 
 
     public boolean isReplaceable(URI semanticTag){
-        Boolean replaceable = replaceableCache.get(semanticTag);
-
-        if (replaceable == null) {
-            URI replacement = this.tryToReplaceSemanticTag(semanticTag);
-            if (replacement != null){
-                replaceableCache.put(semanticTag, true);
-                originalToReplacementCache.put(semanticTag, replacement);
-            } else {
-                replaceableCache.put(semanticTag, false);
-            }
-        }
-
-        return replaceableCache.get(semanticTag);
+        return getReplacement(semanticTag) != null;
     }
 
     public URI replaceSemanticTag(URI semanticTag){
-        if (isReplaceable(semanticTag)){
-            return originalToReplacementCache.get(semanticTag);
+        URI replacement = getReplacement(semanticTag);
+        if (replacement != null){
+            return replacement;
         } else {
             throw new IllegalArgumentException("Term is either not obsolete, or doesn't have a replacement.");
         }
     }
 
+    protected URI getReplacement(final URI semanticTag){
+        return requestExecutor.get("replacedBy|" + semanticTag, new Callable<URI>() {
+            @Override public URI call() throws RestClientException {
+                return tryToReplaceSemanticTag(semanticTag);
+            }
+        }, null);
+    }
+
     private URI tryToReplaceSemanticTag(URI semanticTag){
-        defaultSearchParams();
-        Term replaceBy = null;
+        Term replaceBy;
         try {
             replaceBy = olsClient.getReplacedBy(semanticTag.toString());
         } catch (RestClientException e){
             getLog().debug(semanticTag + " something went wrong when we tried to find a replacement in OLS!");
-            replaceBy = null;
+            throw e;
         }
         if(replaceBy != null && replaceBy.getIri() != null && replaceBy.getIri().getIdentifier() != null) {
             return URI.create(replaceBy.getIri().getIdentifier());
@@ -224,11 +250,30 @@ public class OLSSearchService extends Initializable {
         return null;
     }
 
+    private String searchKey(String type, String value, String source, String childrenOf) {
+        return type + "|" + source + "|" + (childrenOf == null ? "" : childrenOf) + "|" + value;
+    }
+
+    private List<Term> flatten(List<List<Term>> results) {
+        List<Term> terms = new ArrayList<>();
+        for (List<Term> result : results) {
+            if (result != null) {
+                terms.addAll(result);
+            }
+        }
+        return terms;
+    }
+
+    private List<Term> unmodifiable(List<Term> terms) {
+        return terms == null ? Collections.<Term>emptyList() : Collections.unmodifiableList(terms);
+    }
+
     /*
      * If at least one result has "is_defining_ontology = true" then return only those ones.
      * If no terms have "is_defining_ontology = true", then return them all.
+     * Terms may be cached and shared with other searches, so boosted terms are copies.
      */
-    private List<Term> filterDefiningOntology(List<Term> terms){
+    protected List<Term> filterDefiningOntology(List<Term> terms){
 
         if (terms == null || terms.isEmpty()){
             return new ArrayList<>();
@@ -240,8 +285,10 @@ public class OLSSearchService extends Initializable {
         for (Term term : terms){
             if (term.isDefinedOntology()){
                 if (term.getScore() != null) {
-                    term.setScore(String.valueOf(Float.valueOf(term.getScore()) + 1));
-                    termsWithDefiningOntologyTrue.add(term);
+                    termsWithDefiningOntologyTrue.add(new Term(term.getIri(), term.getLabel(), term.getDescription(),
+                            term.getShortForm(), term.getOboId(), term.getOntologyName(),
+                            String.valueOf(Float.valueOf(term.getScore()) + 1),
+                            term.getOntologyIri(), term.isDefinedOntology(), term.getOboDefinitionCitation()));
                 }
             } else {
                 if (term.getScore() != null) {
@@ -260,7 +307,6 @@ public class OLSSearchService extends Initializable {
 
     public List<Ontology> getAllOntologies(){
         try {
-            defaultSearchParams();
             if (this.ontologyMappings != null && !this.ontologyMappings.isEmpty()) {
                 return (new ArrayList<>(ontologyMappings.values()));
             }
@@ -273,7 +319,7 @@ public class OLSSearchService extends Initializable {
     /*
      * Returns the ontology for a given ontology name
      */
-    public Ontology getOntology(String name){
+    public Ontology getOntology(final String name){
 
         if (ontologyMappings.containsValue(name)){
             for (String key : ontologyMappings.keySet()){
@@ -282,59 +328,40 @@ public class OLSSearchService extends Initializable {
                 }
             }
         }
-        try {
-            defaultSearchParams();
-            Ontology ontology = olsClient.getOntology(name);
+        Ontology ontology = requestExecutor.get("ontology|" + name, new Callable<Ontology>() {
+            @Override public Ontology call() throws RestClientException {
+                return olsClient.getOntology(name);
+            }
+        }, null);
+        if (ontology != null){
             ontologyMappings.put(ontology.getId(), ontology);
-            return ontology;
-        } catch (RestClientException e ){
-            return null;
         }
+        return ontology;
     }
 
-    public String getOntologyNamespaceFromId(String uri){
+    public String getOntologyNamespaceFromId(final String uri){
 
         if (ontologyMappings.containsKey(uri)){
             return ontologyMappings.get(uri).getNamespace();
         }
 
-        try {
-            defaultSearchParams();
-            Ontology ontology = olsClient.getOntologyFromId(URI.create(uri));
-            if (ontology != null){
-                ontologyMappings.put(ontology.getId(), ontology);
-                return ontology.getConfig().getNamespace();
+        Ontology ontology = requestExecutor.get("ontologyId|" + uri, new Callable<Ontology>() {
+            @Override public Ontology call() throws RestClientException {
+                return olsClient.getOntologyFromId(URI.create(uri));
             }
-        } catch (RestClientException e){
-            return null;
+        }, null);
+        if (ontology != null){
+            ontologyMappings.put(ontology.getId(), ontology);
+            return ontology.getConfig().getNamespace();
         }
         return null;
     }
 
     public boolean inOLS(URI uri) {
-        defaultSearchParams();
-         List<Term> terms = olsClient.getExactTermsByIriString(uri.toString());
-         if (terms.isEmpty()){
+         List<Term> terms = getTermsByIri(uri.toString());
+         if (terms == null || terms.isEmpty()){
              return false;
          }
          return true;
     }
-
-    /**
-     * Restrics OLS client search to a page number and a page size
-     * @param pageNum
-     * @param pageSize
-     */
-    private void specificSearchParams(int pageNum, int pageSize){
-        this.olsClient.setSearchPageNum(pageNum);
-        this.olsClient.setSearchPageSize(pageSize);
-    }
-
-    /**
-     * Sets OLS client search page number and search page size to the defaults it had when initialized
-     */
-    private void defaultSearchParams(){
-        this.olsClient.setSearchPageNum(this.defaultPageNum);
-        this.olsClient.setSearchPageSize(this.defaultPageSize);
-    }
 }
@@ -0,0 +1,352 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import uk.ac.ebi.fgpt.zooma.Initializable;
+import uk.ac.ebi.fgpt.zooma.exception.SearchResourcesUnavailableException;
+import uk.ac.ebi.fgpt.zooma.util.URIUtils;
+import uk.ac.ebi.pride.utilities.ols.web.service.model.Identifier;
+import uk.ac.ebi.pride.utilities.ols.web.service.model.Term;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A read-only view of a local Lucene index of ontology terms, built by an {@link OLSTermSnapshotIndexer}, that can
+ * answer the same term lookups as OLS without leaving the machine.  Terms are returned as ols-client {@link Term}s, so
+ * they can be used wherever terms from OLS are.
+ * <p/>
+ * Lookups for terms or ontologies that are not in the snapshot return empty results; callers can use {@link
+ * #containsTerm(URI)} and {@link #containsOntology(String)} to decide whether to ask OLS instead.  If the index does not
+ * exist, the snapshot is simply empty.
+ *
+ * @date 18/10/26
+ */
+public class OLSTermSnapshot extends Initializable {
+    // document types
+    static final String TYPE = "type";
+    static final String TERM_TYPE = "term";
+    static final String ONTOLOGY_TYPE = "ontology";
+
+    // term and ontology fields
+    static final String TERM_IRI = "iri";
+    static final String ONTOLOGY = "ontology";
+    static final String ONTOLOGY_IRI = "ontology_iri";
+    static final String LABEL = "label";
+    static final String SYNONYM = "synonym";
+    static final String DESCRIPTION = "description";
+    static final String SHORT_FORM = "short_form";
+    static final String OBO_ID = "obo_id";
+    static final String PARENT = "parent";
+    static final String ANCESTOR = "ancestor";
+    static final String OBSOLETE = "obsolete";
+    static final String REPLACED_BY = "replaced_by";
+    static final String DEFINING = "is_defining_ontology";
+
+    // fields used for exact (lower-cased, unanalyzed) and partial (analyzed) matches on labels and synonyms
+    static final String NAME_EXACT = "name_exact";
+    static final String NAME = "name";
+
+    private Directory termIndex;
+    private Analyzer analyzer;
+
+    private IndexReader reader;
+    private IndexSearcher searcher;
+
+    // ontology IRIs to namespaces, for every ontology in the snapshot
+    private Map<String, String> ontologyNamespaces;
+
+    public Directory getTermIndex() {
+        return termIndex;
+    }
+
+    public void setTermIndex(Directory termIndex) {
+        this.termIndex = termIndex;
+    }
+
+    public Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    /**
+     * Sets the analyzer used for partial matches.  This should be the same analyzer that the snapshot was indexed
+     * with, and defaults to a {@link StandardAnalyzer}.
+     *
+     * @param analyzer the analyzer used to tokenize search strings
+     */
+    public void setAnalyzer(Analyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Returns true if the snapshot contains no ontologies, either because it has not been built yet or because it was
+     * built without any
+     *
+     * @return true if every lookup in this snapshot will return no results
+     */
+    public boolean isEmpty() {
+        waitForSnapshot();
+        return ontologyNamespaces.isEmpty();
+    }
+
+    /**
+     * Returns true if the snapshot contains the terms of the ontology with the given namespace
+     *
+     * @param namespace the namespace of the ontology, e.g. "efo"
+     * @return true if the ontology is in the snapshot
+     */
+    public boolean containsOntology(String namespace) {
+        waitForSnapshot();
+        return namespace != null && ontologyNamespaces.containsValue(namespace.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the namespace of the ontology with the given IRI, or null if it is not in the snapshot
+     *
+     * @param ontologyIri the IRI of the ontology
+     * @return the namespace of the ontology, e.g. "efo"
+     */
+    public String getOntologyNamespace(String ontologyIri) {
+        waitForSnapshot();
+        return ontologyNamespaces.get(ontologyIri);
+    }
+
+    /**
+     * Returns true if the term with the given IRI is in the snapshot, in any ontology
+     *
+     * @param iri the IRI of the term
+     * @return true if the term is in the snapshot
+     */
+    public boolean containsTerm(URI iri) {
+        return !getTermsByIri(iri.toString(), 1).isEmpty();
+    }
+
+    /**
+     * Returns the term with the given IRI from every ontology in the snapshot that contains it
+     *
+     * @param iri the IRI of the term
+     * @return the matching terms, or an empty list if the term is not in the snapshot
+     */
+    public List<Term> getTermsByIri(String iri) {
+        return getTermsByIri(iri, 100);
+    }
+
+    /**
+     * Returns the replacement of an obsolete term, or null if the term is not obsolete, has no replacement, or is not
+     * in the snapshot.  Replacements that were given as an OBO id (e.g. "EFO:0000001") are resolved against the
+     * namespace of the obsolete term.
+     *
+     * @param iri the IRI of an obsolete term
+     * @return the IRI of the term that replaces it
+     */
+    public URI getReplacement(URI iri) {
+        waitForSnapshot();
+        for (Document document : search(termQuery(TERM_IRI, iri.toString()), 100)) {
+            if (Boolean.parseBoolean(document.get(OBSOLETE)) && document.get(REPLACED_BY) != null) {
+                String replacedBy = document.get(REPLACED_BY).trim();
+                if (replacedBy.contains("://")) {
+                    return URI.create(replacedBy);
+                }
+                else {
+                    return URI.create(URIUtils.extractNamespace(iri).toString() + replacedBy.replace(':', '_'));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Searches for terms with a label or synonym that exactly matches the given name, ignoring case
+     *
+     * @param name       the name to search for
+     * @param ontology   the namespace of the ontology to search in, or null or empty to search all ontologies
+     * @param childrenOf a list of IRI for the terms that you want to search under, comma separated, or null
+     * @param maxResults the maximum number of terms to return
+     * @return the matching terms
+     */
+    public List<Term> getExactTermsByName(String name, String ontology, String childrenOf, int maxResults) {
+        if (name == null || name.isEmpty()) {
+            return Collections.emptyList();
+        }
+        BooleanQuery.Builder builder = termSearch(ontology, childrenOf);
+        builder.add(new TermQuery(new org.apache.lucene.index.Term(NAME_EXACT, name.toLowerCase(Locale.ROOT))),
+                    BooleanClause.Occur.MUST);
+        return toTerms(builder.build(), maxResults);
+    }
+
+    /**
+     * Searches for terms with a label or synonym that contains any of the words in the given name
+     *
+     * @param name       the name to search for
+     * @param ontology   the namespace of the ontology to search in, or null or empty to search all ontologies
+     * @param childrenOf a list of IRI for the terms that you want to search under, comma separated, or null
+     * @param maxResults the maximum number of terms to return
+     * @return the matching terms, best first
+     */
+    public List<Term> getTermsByName(String name, String ontology, String childrenOf, int maxResults) {
+        if (name == null || name.isEmpty()) {
+            return Collections.emptyList();
+        }
+        BooleanQuery.Builder words = new BooleanQuery.Builder();
+        int wordCount = 0;
+        try (TokenStream tokens = analyzer.tokenStream(NAME, name)) {
+            CharTermAttribute word = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                words.add(new TermQuery(new org.apache.lucene.index.Term(NAME, word.toString())),
+                          BooleanClause.Occur.SHOULD);
+                wordCount++;
+            }
+            tokens.end();
+        }
+        catch (IOException e) {
+            throw new SearchResourcesUnavailableException("Failed to tokenize '" + name + "'", e);
+        }
+        if (wordCount == 0) {
+            return Collections.emptyList();
+        }
+        BooleanQuery.Builder builder = termSearch(ontology, childrenOf);
+        builder.add(words.build(), BooleanClause.Occur.MUST);
+        return toTerms(builder.build(), maxResults);
+    }
+
+    @Override
+    protected void doInitialization() throws Exception {
+        if (analyzer == null) {
+            analyzer = new StandardAnalyzer();
+        }
+        ontologyNamespaces = new HashMap<>();
+        if (termIndex != null && DirectoryReader.indexExists(termIndex)) {
+            reader = DirectoryReader.open(termIndex);
+            searcher = new IndexSearcher(reader);
+            for (Document document : search(termQuery(TYPE, ONTOLOGY_TYPE), Math.max(1, reader.maxDoc()))) {
+                ontologyNamespaces.put(document.get(ONTOLOGY_IRI), document.get(ONTOLOGY));
+            }
+            getLog().info("OLS term snapshot contains " + reader.numDocs() + " documents " +
+                                  "from ontologies " + ontologyNamespaces.values());
+        }
+        else {
+            getLog().info("No OLS term snapshot found in " + termIndex + ", all ontology lookups will use OLS");
+        }
+    }
+
+    @Override
+    protected void doTermination() throws Exception {
+        if (reader != null) {
+            reader.close();
+        }
+    }
+
+    private void waitForSnapshot() {
+        try {
+            initOrWait();
+        }
+        catch (InterruptedException e) {
+            throw new SearchResourcesUnavailableException("Failed to read OLS term snapshot - " +
+                                                                  "opening the index was interrupted", e);
+        }
+    }
+
+    private List<Term> getTermsByIri(String iri, int maxResults) {
+        if (iri == null || iri.isEmpty()) {
+            return Collections.emptyList();
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(termQuery(TYPE, TERM_TYPE), BooleanClause.Occur.FILTER);
+        builder.add(termQuery(TERM_IRI, iri), BooleanClause.Occur.FILTER);
+        return toTerms(builder.build(), maxResults);
+    }
+
+    private BooleanQuery.Builder termSearch(String ontology, String childrenOf) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(termQuery(TYPE, TERM_TYPE), BooleanClause.Occur.FILTER);
+        builder.add(termQuery(OBSOLETE, "false"), BooleanClause.Occur.FILTER);
+        if (ontology != null && !ontology.isEmpty()) {
+            builder.add(termQuery(ONTOLOGY, ontology.toLowerCase(Locale.ROOT)), BooleanClause.Occur.FILTER);
+        }
+        if (childrenOf != null && !childrenOf.isEmpty()) {
+            BooleanQuery.Builder parents = new BooleanQuery.Builder();
+            for (String parent : childrenOf.split(",")) {
+                if (!parent.trim().isEmpty()) {
+                    parents.add(termQuery(ANCESTOR, parent.trim()), BooleanClause.Occur.SHOULD);
+                }
+            }
+            builder.add(parents.build(), BooleanClause.Occur.FILTER);
+        }
+        return builder;
+    }
+
+    private TermQuery termQuery(String field, String value) {
+        return new TermQuery(new org.apache.lucene.index.Term(field, value));
+    }
+
+    private List<Term> toTerms(Query query, int maxResults) {
+        waitForSnapshot();
+        List<Term> terms = new ArrayList<>();
+        if (searcher == null) {
+            return terms;
+        }
+        try {
+            TopDocs results = searcher.search(query, maxResults);
+            for (ScoreDoc result : results.scoreDocs) {
+                terms.add(toTerm(searcher.doc(result.doc), result.score));
+            }
+            return terms;
+        }
+        catch (IOException e) {
+            throw new SearchResourcesUnavailableException("Failed to read OLS term snapshot", e);
+        }
+    }
+
+    private List<Document> search(Query query, int maxResults) {
+        List<Document> documents = new ArrayList<>();
+        if (searcher == null) {
+            return documents;
+        }
+        try {
+            for (ScoreDoc result : searcher.search(query, maxResults).scoreDocs) {
+                documents.add(searcher.doc(result.doc));
+            }
+            return documents;
+        }
+        catch (IOException e) {
+            throw new SearchResourcesUnavailableException("Failed to read OLS term snapshot", e);
+        }
+    }
+
+    private Term toTerm(Document document, float score) {
+        String shortForm = document.get(SHORT_FORM);
+        String oboId = document.get(OBO_ID);
+        Term term = new Term(new Identifier(document.get(TERM_IRI), Identifier.IdentifierType.IRI),
+                             document.get(LABEL),
+                             document.getValues(DESCRIPTION),
+                             shortForm != null ? new Identifier(shortForm, Identifier.IdentifierType.OWL) : null,
+                             oboId != null ? new Identifier(oboId, Identifier.IdentifierType.OBO) : null,
+                             document.get(ONTOLOGY),
+                             String.valueOf(score),
+                             document.get(ONTOLOGY_IRI),
+                             Boolean.parseBoolean(document.get(DEFINING)),
+                             null);
+        term.setSynonyms(document.getValues(SYNONYM));
+        return term;
+    }
+}
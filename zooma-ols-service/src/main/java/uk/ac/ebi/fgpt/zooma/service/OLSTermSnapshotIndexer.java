@@ -0,0 +1,346 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotation;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLAnnotationValue;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.model.OWLOntology;
+import uk.ac.ebi.fgpt.zooma.Initializable;
+import uk.ac.ebi.fgpt.zooma.owl.OntologyLoader;
+import uk.ac.ebi.fgpt.zooma.util.URIUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static uk.ac.ebi.fgpt.zooma.service.OLSTermSnapshot.*;
+
+/**
+ * Builds the local Lucene index of ontology terms read by an {@link OLSTermSnapshot}, from ontologies loaded by {@link
+ * OntologyLoader}s.  For every class in each ontology this indexes the label, synonyms and definitions, the asserted
+ * parents and all their ancestors, whether the class is obsolete and what replaces it, and whether the ontology is the
+ * defining ontology of the class.
+ * <p/>
+ * OLS considers an ontology to define a term when the term is in the ontology's own namespace.  Here, a class is
+ * defined by an ontology if its IRI ends in the upper case ontology name and an underscore, followed by an id (e.g.
+ * EFO_0000001 in efo), or - for ontologies that do not name their classes this way - if its IRI is in the namespace of
+ * the ontology IRI.
+ * <p/>
+ * The index is rebuilt from scratch every time this indexer is initialized.
+ *
+ * @date 18/10/26
+ */
+public class OLSTermSnapshotIndexer extends Initializable {
+    private Collection<OntologyLoader> ontologyLoaders;
+    private Directory termIndex;
+    private Analyzer analyzer;
+
+    private Collection<URI> definitionURIs = Arrays.asList(
+            URI.create("http://purl.obolibrary.org/obo/IAO_0000115"),
+            URI.create("http://www.ebi.ac.uk/efo/definition"));
+    private Collection<URI> replacedByURIs = Arrays.asList(
+            URI.create("http://purl.obolibrary.org/obo/IAO_0100001"),
+            URI.create("http://www.geneontology.org/formats/oboInOwl#replacedBy"));
+    private URI obsoleteClassURI = URI.create("http://www.geneontology.org/formats/oboInOwl#ObsoleteClass");
+
+    private final AtomicLong indexedTermCount = new AtomicLong();
+
+    public Collection<OntologyLoader> getOntologyLoaders() {
+        return ontologyLoaders;
+    }
+
+    public void setOntologyLoaders(Collection<OntologyLoader> ontologyLoaders) {
+        this.ontologyLoaders = ontologyLoaders;
+    }
+
+    public Directory getTermIndex() {
+        return termIndex;
+    }
+
+    public void setTermIndex(Directory termIndex) {
+        this.termIndex = termIndex;
+    }
+
+    public Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    /**
+     * Sets the analyzer used to tokenize labels and synonyms for partial matches, which defaults to a {@link
+     * StandardAnalyzer}.  The {@link OLSTermSnapshot} reading this index must use the same analyzer.
+     *
+     * @param analyzer the analyzer used to tokenize labels and synonyms
+     */
+    public void setAnalyzer(Analyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    public Collection<URI> getDefinitionURIs() {
+        return definitionURIs;
+    }
+
+    /**
+     * Sets the annotation properties that give the definition of a class
+     *
+     * @param definitionURIs the URIs of the definition annotation properties
+     */
+    public void setDefinitionURIs(Collection<URI> definitionURIs) {
+        this.definitionURIs = definitionURIs;
+    }
+
+    public Collection<URI> getReplacedByURIs() {
+        return replacedByURIs;
+    }
+
+    /**
+     * Sets the annotation properties that give the replacement of an obsolete class.  Values may be IRIs, or OBO ids in
+     * the namespace of the obsolete class.
+     *
+     * @param replacedByURIs the URIs of the "replaced by" annotation properties
+     */
+    public void setReplacedByURIs(Collection<URI> replacedByURIs) {
+        this.replacedByURIs = replacedByURIs;
+    }
+
+    public URI getObsoleteClassURI() {
+        return obsoleteClassURI;
+    }
+
+    /**
+     * Sets the class that obsolete classes are asserted to be subclasses of, in ontologies that do not mark them as
+     * owl:deprecated
+     *
+     * @param obsoleteClassURI the URI of the obsolete class
+     */
+    public void setObsoleteClassURI(URI obsoleteClassURI) {
+        this.obsoleteClassURI = obsoleteClassURI;
+    }
+
+    public long getIndexedTermCount() {
+        return indexedTermCount.get();
+    }
+
+    @Override
+    protected void doInitialization() throws Exception {
+        if (analyzer == null) {
+            analyzer = new StandardAnalyzer();
+        }
+        indexedTermCount.set(0);
+
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        try (IndexWriter writer = new IndexWriter(termIndex, config)) {
+            for (OntologyLoader loader : ontologyLoaders) {
+                indexOntology(loader, writer);
+            }
+        }
+        getLog().info("Indexed " + getIndexedTermCount() + " terms from " + ontologyLoaders.size() + " ontologies");
+    }
+
+    @Override
+    protected void doTermination() throws Exception {
+        // nothing to do
+    }
+
+    protected void indexOntology(OntologyLoader loader, IndexWriter writer) throws IOException {
+        OWLOntology ontology = loader.getOntology();
+        String ontologyName = loader.getOntologyName().toLowerCase(Locale.ROOT);
+        String ontologyIri = loader.getOntologyIRI().toString();
+        getLog().debug("Indexing terms from " + ontologyIri);
+
+        Document ontologyDocument = new Document();
+        ontologyDocument.add(new StringField(TYPE, ONTOLOGY_TYPE, Field.Store.YES));
+        ontologyDocument.add(new StringField(ONTOLOGY, ontologyName, Field.Store.YES));
+        ontologyDocument.add(new StringField(ONTOLOGY_IRI, ontologyIri, Field.Store.YES));
+        writer.addDocument(ontologyDocument);
+
+        OWLDataFactory factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+        OWLAnnotationProperty rdfsLabel = factory.getRDFSLabel();
+        List<OWLAnnotationProperty> definitions = annotationProperties(factory, definitionURIs);
+        List<OWLAnnotationProperty> replacedBy = annotationProperties(factory, replacedByURIs);
+        IRI obsoleteClass = obsoleteClassURI != null ? IRI.create(obsoleteClassURI) : null;
+
+        Map<IRI, String> labels = loader.getOntologyClassLabels();
+        Map<IRI, Set<String>> synonyms = loader.getOntologyClassSynonyms();
+
+        // collect asserted named parents first, so ancestors can be found for every class
+        Set<OWLClass> classes = ontology.getClassesInSignature(false);
+        Map<IRI, Set<IRI>> parents = new HashMap<>();
+        boolean oboNaming = false;
+        String idPrefix = ontologyName.toUpperCase(Locale.ROOT) + "_";
+        for (OWLClass cls : classes) {
+            Set<IRI> clsParents = new HashSet<>();
+            for (OWLClassExpression parent : cls.getSuperClasses(ontology)) {
+                if (!parent.isAnonymous()) {
+                    clsParents.add(parent.asOWLClass().getIRI());
+                }
+            }
+            parents.put(cls.getIRI(), clsParents);
+            oboNaming = oboNaming || URIUtils.extractFragment(cls.getIRI().toURI()).startsWith(idPrefix);
+        }
+        String ontologyNamespace = URIUtils.extractNamespace(URI.create(ontologyIri)).toString();
+
+        for (OWLClass cls : classes) {
+            IRI iri = cls.getIRI();
+            if (cls.isOWLThing() || cls.isOWLNothing()) {
+                continue;
+            }
+
+            // the loader may have excluded obsolete classes, so fall back to the label in the ontology
+            String label = labels.get(iri);
+            if (label == null) {
+                Set<String> ontologyLabels = literalValues(ontology, cls, Collections.singletonList(rdfsLabel));
+                if (ontologyLabels.isEmpty()) {
+                    continue;
+                }
+                label = ontologyLabels.iterator().next();
+            }
+
+            String shortForm = URIUtils.extractFragment(iri.toURI());
+            boolean defining = oboNaming ? shortForm.startsWith(idPrefix) : iri.toString().startsWith(ontologyNamespace);
+
+            Document document = new Document();
+            document.add(new StringField(TYPE, TERM_TYPE, Field.Store.YES));
+            document.add(new StringField(TERM_IRI, iri.toString(), Field.Store.YES));
+            document.add(new StringField(ONTOLOGY, ontologyName, Field.Store.YES));
+            document.add(new StringField(ONTOLOGY_IRI, ontologyIri, Field.Store.YES));
+            document.add(new StringField(DEFINING, Boolean.toString(defining), Field.Store.YES));
+            document.add(new StoredField(SHORT_FORM, shortForm));
+            if (shortForm.matches("[A-Za-z]+_[0-9]+")) {
+                document.add(new StoredField(OBO_ID, shortForm.replaceFirst("_", ":")));
+            }
+
+            document.add(new StoredField(LABEL, label));
+            addName(document, label);
+            if (synonyms.containsKey(iri)) {
+                for (String synonym : synonyms.get(iri)) {
+                    document.add(new StoredField(SYNONYM, synonym));
+                    addName(document, synonym);
+                }
+            }
+            for (String definition : literalValues(ontology, cls, definitions)) {
+                document.add(new StoredField(DESCRIPTION, definition));
+            }
+
+            Set<IRI> clsParents = parents.get(iri);
+            for (IRI parent : clsParents) {
+                document.add(new StringField(PARENT, parent.toString(), Field.Store.YES));
+            }
+            for (IRI ancestor : ancestors(iri, parents)) {
+                document.add(new StringField(ANCESTOR, ancestor.toString(), Field.Store.NO));
+            }
+
+            boolean obsolete = isDeprecated(ontology, cls, factory) ||
+                    (obsoleteClass != null && clsParents.contains(obsoleteClass));
+            document.add(new StringField(OBSOLETE, Boolean.toString(obsolete), Field.Store.YES));
+            if (obsolete) {
+                for (OWLAnnotation annotation : annotations(ontology, cls, replacedBy)) {
+                    String replacement = annotationValue(annotation.getValue());
+                    if (replacement != null) {
+                        document.add(new StringField(REPLACED_BY, replacement, Field.Store.YES));
+                        break;
+                    }
+                }
+            }
+
+            writer.addDocument(document);
+            indexedTermCount.incrementAndGet();
+        }
+    }
+
+    private void addName(Document document, String name) {
+        document.add(new StringField(NAME_EXACT, name.toLowerCase(Locale.ROOT), Field.Store.NO));
+        document.add(new TextField(NAME, name, Field.Store.NO));
+    }
+
+    private Set<IRI> ancestors(IRI iri, Map<IRI, Set<IRI>> parents) {
+        Set<IRI> ancestors = new HashSet<>();
+        Deque<IRI> unvisited = new ArrayDeque<>(parents.get(iri));
+        while (!unvisited.isEmpty()) {
+            IRI next = unvisited.pop();
+            if (ancestors.add(next) && parents.containsKey(next)) {
+                unvisited.addAll(parents.get(next));
+            }
+        }
+        return ancestors;
+    }
+
+    private boolean isDeprecated(OWLOntology ontology, OWLClass cls, OWLDataFactory factory) {
+        for (OWLAnnotation annotation : cls.getAnnotations(ontology, factory.getOWLDeprecated())) {
+            if (annotation.getValue() instanceof OWLLiteral &&
+                    Boolean.parseBoolean(((OWLLiteral) annotation.getValue()).getLiteral())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<OWLAnnotationProperty> annotationProperties(OWLDataFactory factory, Collection<URI> uris) {
+        List<OWLAnnotationProperty> properties = new ArrayList<>();
+        if (uris != null) {
+            for (URI uri : uris) {
+                properties.add(factory.getOWLAnnotationProperty(IRI.create(uri)));
+            }
+        }
+        return properties;
+    }
+
+    private List<OWLAnnotation> annotations(OWLOntology ontology,
+                                            OWLClass cls,
+                                            Collection<OWLAnnotationProperty> properties) {
+        List<OWLAnnotation> annotations = new ArrayList<>();
+        for (OWLAnnotationProperty property : properties) {
+            annotations.addAll(cls.getAnnotations(ontology, property));
+        }
+        return annotations;
+    }
+
+    private Set<String> literalValues(OWLOntology ontology,
+                                      OWLClass cls,
+                                      Collection<OWLAnnotationProperty> properties) {
+        Set<String> values = new HashSet<>();
+        for (OWLAnnotation annotation : annotations(ontology, cls, properties)) {
+            if (annotation.getValue() instanceof OWLLiteral) {
+                values.add(((OWLLiteral) annotation.getValue()).getLiteral());
+            }
+        }
+        return values;
+    }
+
+    private String annotationValue(OWLAnnotationValue value) {
+        if (value instanceof IRI) {
+            return value.toString();
+        }
+        if (value instanceof OWLLiteral) {
+            String literal = ((OWLLiteral) value).getLiteral().trim();
+            return literal.isEmpty() ? null : literal;
+        }
+        return null;
+    }
+}
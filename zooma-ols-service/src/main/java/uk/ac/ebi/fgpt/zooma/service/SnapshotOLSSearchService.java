@@ -0,0 +1,180 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import uk.ac.ebi.pride.utilities.ols.web.service.model.Term;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An {@link OLSSearchService} that answers lookups from a local {@link OLSTermSnapshot} wherever it can, and only calls
+ * OLS for terms and ontologies that are not in the snapshot.
+ * <p/>
+ * The snapshot is treated as the authority for the ontologies it contains: searches restricted to those ontologies
+ * never call OLS, even if they find nothing.  Searches over all ontologies are answered locally if the snapshot has any
+ * matching terms, and lookups of a single term are answered locally if the snapshot contains that term.  If the
+ * snapshot is empty, this behaves exactly like an {@link OLSSearchService}.
+ * <p/>
+ * Snapshot terms are scored by the local Lucene index, and these scores are on a different scale from the Solr scores
+ * OLS returns.  When a search over several ontologies finds terms both in the snapshot and in OLS, snapshot scores are
+ * rescaled so that the best snapshot term scores the same as the best OLS term, keeping the relative scores within
+ * each set of results.  Neither set of results then outranks the other just because it was scored on a different scale.
+ *
+ * @date 18/10/26
+ */
+public class SnapshotOLSSearchService extends OLSSearchService {
+    private OLSTermSnapshot termSnapshot;
+
+    public OLSTermSnapshot getTermSnapshot() {
+        return termSnapshot;
+    }
+
+    public void setTermSnapshot(OLSTermSnapshot termSnapshot) {
+        this.termSnapshot = termSnapshot;
+    }
+
+    @Override
+    protected void doInitialization() throws Exception {
+        super.doInitialization();
+        if (termSnapshot == null) {
+            getLog().warn("No OLS term snapshot was supplied, all ontology lookups will use OLS");
+        }
+    }
+
+    @Override
+    protected List<Term> getExactTermsByName(String value, String source, String childrenOf) {
+        if (isLocal(source)) {
+            return termSnapshot.getExactTermsByName(value, source, childrenOf, EXACT_PAGE_SIZE);
+        }
+        if (isAllOntologies(source)) {
+            List<Term> terms = termSnapshot.getExactTermsByName(value, null, childrenOf, EXACT_PAGE_SIZE);
+            if (!terms.isEmpty()) {
+                return terms;
+            }
+        }
+        return super.getExactTermsByName(value, source, childrenOf);
+    }
+
+    @Override
+    protected List<Term> getTermsByName(String value, String source, String childrenOf) {
+        if (isLocal(source)) {
+            return termSnapshot.getTermsByName(value, source, childrenOf, PARTIAL_PAGE_SIZE);
+        }
+        if (isAllOntologies(source)) {
+            List<Term> terms = termSnapshot.getTermsByName(value, null, childrenOf, PARTIAL_PAGE_SIZE);
+            if (!terms.isEmpty()) {
+                return terms;
+            }
+        }
+        return super.getTermsByName(value, source, childrenOf);
+    }
+
+    @Override
+    protected List<Term> getExactTermsBySources(String value, List<String> sources, String childrenOf) {
+        List<Term> localTerms = new ArrayList<>();
+        List<String> remoteSources = new ArrayList<>();
+        for (String source : sources) {
+            if (isLocal(source)) {
+                localTerms.addAll(termSnapshot.getExactTermsByName(value, source, childrenOf, EXACT_PAGE_SIZE));
+            }
+            else {
+                remoteSources.add(source);
+            }
+        }
+        if (remoteSources.isEmpty()) {
+            return localTerms;
+        }
+        return mergeTerms(localTerms, super.getExactTermsBySources(value, remoteSources, childrenOf));
+    }
+
+    @Override
+    protected List<Term> getTermsBySources(String value, List<String> sources, String childrenOf) {
+        List<Term> localTerms = new ArrayList<>();
+        List<String> remoteSources = new ArrayList<>();
+        for (String source : sources) {
+            if (isLocal(source)) {
+                localTerms.addAll(termSnapshot.getTermsByName(value, source, childrenOf, PARTIAL_PAGE_SIZE));
+            }
+            else {
+                remoteSources.add(source);
+            }
+        }
+        if (remoteSources.isEmpty()) {
+            return localTerms;
+        }
+        return mergeTerms(localTerms, super.getTermsBySources(value, remoteSources, childrenOf));
+    }
+
+    @Override
+    protected List<Term> getTermsByIri(String iri) {
+        if (termSnapshot != null) {
+            List<Term> terms = termSnapshot.getTermsByIri(iri);
+            if (!terms.isEmpty()) {
+                return terms;
+            }
+        }
+        return super.getTermsByIri(iri);
+    }
+
+    @Override
+    protected URI getReplacement(URI semanticTag) {
+        if (termSnapshot != null && termSnapshot.containsTerm(semanticTag)) {
+            return termSnapshot.getReplacement(semanticTag);
+        }
+        return super.getReplacement(semanticTag);
+    }
+
+    @Override
+    public String getOntologyNamespaceFromId(String uri) {
+        if (termSnapshot != null) {
+            String namespace = termSnapshot.getOntologyNamespace(uri);
+            if (namespace != null) {
+                return namespace;
+            }
+        }
+        return super.getOntologyNamespaceFromId(uri);
+    }
+
+    /**
+     * Merges terms found in the snapshot with terms found in OLS, rescaling the scores of the snapshot terms so that
+     * the best snapshot term scores the same as the best OLS term.  Snapshot terms are created for each search, so
+     * their scores are updated in place; OLS terms may be cached and are left unchanged.
+     *
+     * @param localTerms  the terms found in the snapshot
+     * @param remoteTerms the terms found in OLS
+     * @return the snapshot terms followed by the OLS terms
+     */
+    List<Term> mergeTerms(List<Term> localTerms, List<Term> remoteTerms) {
+        float localTopScore = getTopScore(localTerms);
+        float remoteTopScore = getTopScore(remoteTerms);
+        if (localTopScore > 0 && remoteTopScore > 0) {
+            for (Term term : localTerms) {
+                if (term.getScore() != null) {
+                    float score = Float.valueOf(term.getScore()) * remoteTopScore / localTopScore;
+                    term.setScore(String.valueOf(score));
+                }
+            }
+        }
+        List<Term> terms = new ArrayList<>(localTerms);
+        terms.addAll(remoteTerms);
+        return terms;
+    }
+
+    private float getTopScore(List<Term> terms) {
+        float topScore = 0;
+        for (Term term : terms) {
+            if (term.getScore() != null) {
+                topScore = Math.max(topScore, Float.valueOf(term.getScore()));
+            }
+        }
+        return topScore;
+    }
+
+    private boolean isLocal(String source) {
+        return termSnapshot != null && source != null && !source.isEmpty() && termSnapshot.containsOntology(source);
+    }
+
+    private boolean isAllOntologies(String source) {
+        return termSnapshot != null && (source == null || source.isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that an {@link OLSRequestExecutor} caches results and discards the least recently used results once its cache
+ * is full.
+ *
+ * @date 18/10/26
+ */
+public class TestOLSRequestExecutor {
+    private AtomicInteger requestCount;
+    private OLSRequestExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        requestCount = new AtomicInteger();
+        executor = new OLSRequestExecutor(2, 5000);
+        executor.setMaxCacheSize(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testResultsAreCached() {
+        assertEquals("a", executor.get("a", request("a"), "fallback"), "Wrong result");
+        assertEquals("a", executor.get("a", request("a"), "fallback"), "Wrong result");
+        assertEquals(1, requestCount.get(), "Cached result should be reused");
+        assertEquals(1, executor.getHitCount(), "Wrong number of cache hits");
+        assertEquals(1, executor.getMissCount(), "Wrong number of cache misses");
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResultIsEvicted() {
+        executor.get("a", request("a"), "fallback");
+        executor.get("b", request("b"), "fallback");
+        // use "a" again, so "b" is the least recently used
+        executor.get("a", request("a"), "fallback");
+        executor.get("c", request("c"), "fallback");
+        assertEquals(2, executor.getSize(), "Cache should not grow beyond its maximum size");
+        assertEquals(3, requestCount.get(), "Wrong number of requests");
+
+        executor.get("a", request("a"), "fallback");
+        assertEquals(3, requestCount.get(), "Recently used result should still be cached");
+        executor.get("b", request("b"), "fallback");
+        assertEquals(4, requestCount.get(), "Least recently used result should have been evicted");
+    }
+
+    private Callable<String> request(final String result) {
+        return new Callable<String>() {
+            @Override public String call() throws Exception {
+                requestCount.incrementAndGet();
+                return result;
+            }
+        };
+    }
+}
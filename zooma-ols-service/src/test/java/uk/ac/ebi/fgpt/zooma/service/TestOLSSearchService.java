@@ -0,0 +1,238 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.pride.utilities.ols.web.service.model.Term;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Tests {@link OLSSearchService} against a local stub of the OLS search API, checking that searches over several
+ * ontologies are made in parallel, that identical searches are cached and coalesced, and that a failing OLS is not
+ * called once the circuit breaker has opened.
+ *
+ * @date 18/10/26
+ */
+public class TestOLSSearchService {
+    private static final List<String> ONTOLOGIES = Arrays.asList("efo", "uberon", "cl", "chebi");
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ConcurrentMap<String, AtomicInteger> searchCounts;
+    private volatile long delay;
+    private volatile boolean failing;
+
+    private OLSSearchService olsSearchService;
+
+    @BeforeEach
+    public void setUp() {
+        searchCounts = new ConcurrentHashMap<>();
+        delay = 0;
+        failing = false;
+        try {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/ols/api/ontologies", new HttpHandler() {
+                @Override public void handle(HttpExchange exchange) throws IOException {
+                    respond(exchange, 200, "{\"_embedded\":{\"ontologies\":[" +
+                            "{\"config\":{\"id\":\"http://www.ebi.ac.uk/efo\",\"namespace\":\"efo\"}}]}," +
+                            "\"page\":{\"size\":100,\"totalElements\":1,\"totalPages\":1,\"number\":0}}");
+                }
+            });
+            server.createContext("/ols/api/search", new HttpHandler() {
+                @Override public void handle(HttpExchange exchange) throws IOException {
+                    search(exchange);
+                }
+            });
+            serverExecutor = Executors.newCachedThreadPool();
+            server.setExecutor(serverExecutor);
+            server.start();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Failed to start stub OLS server");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (olsSearchService != null) {
+            olsSearchService.destroy();
+        }
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testSearchesOntologiesInParallel() {
+        createService(5000, 5, 60000);
+        delay = 300;
+        long start = System.currentTimeMillis();
+        List<Term> terms = olsSearchService.getExactTermsByName("liver", new ArrayList<>(ONTOLOGIES));
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(ONTOLOGIES.size(), terms.size(), "Wrong number of terms");
+        for (int i = 0; i < ONTOLOGIES.size(); i++) {
+            assertEquals(ONTOLOGIES.get(i), terms.get(i).getOntologyName(), "Terms are out of order");
+            assertEquals(1, searchCount(ONTOLOGIES.get(i)), "Wrong number of searches of " + ONTOLOGIES.get(i));
+        }
+        assertTrue(elapsed < ONTOLOGIES.size() * delay, "Ontologies were searched one after another");
+    }
+
+    @Test
+    public void testIdenticalSearchesAreCoalescedAndCached() {
+        createService(5000, 5, 60000);
+        delay = 300;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Term>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(new Callable<List<Term>>() {
+                    @Override public List<Term> call() {
+                        return olsSearchService.getExactTermsByName("liver", new ArrayList<>(ONTOLOGIES.subList(0, 1)));
+                    }
+                }));
+            }
+            for (Future<List<Term>> result : results) {
+                assertEquals(1, result.get().size(), "Wrong number of terms");
+            }
+            assertEquals(1, searchCount("efo"), "Concurrent identical searches were not coalesced");
+
+            List<Term> terms = olsSearchService.getExactTermsByName("liver", new ArrayList<>(ONTOLOGIES.subList(0, 1)));
+            assertEquals(1, searchCount("efo"), "Repeated search was not cached");
+            // defining ontology terms are boosted on every search, but the cached term must not be
+            assertEquals("2.0", terms.get(0).getScore(), "Cached term score was modified");
+
+            olsSearchService.getTermsByName("liver", new ArrayList<>(ONTOLOGIES.subList(0, 1)));
+            assertEquals(2, searchCount("efo"), "Partial search should not share exact search results");
+        }
+        catch (InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            fail("Concurrent search failed");
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSlowSearchesReturnWithinBudget() {
+        createService(200, 5, 60000);
+        delay = 1000;
+        long start = System.currentTimeMillis();
+        List<Term> terms = olsSearchService.getExactTermsByName("liver", new ArrayList<>(ONTOLOGIES));
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(0, terms.size(), "Slow searches should return no terms");
+        assertTrue(elapsed < delay, "Search did not return within its latency budget");
+    }
+
+    @Test
+    public void testCircuitBreakerStopsRequests() {
+        createService(5000, 2, 300);
+        failing = true;
+        assertEquals(0, olsSearchService.getExactTermsByName("liver").size(), "Failed search should return no terms");
+        assertEquals(0, olsSearchService.getExactTermsByName("heart").size(), "Failed search should return no terms");
+        assertEquals(2, searchCount(""), "Wrong number of searches");
+        assertTrue(olsSearchService.getRequestExecutor().isCircuitOpen(), "Circuit should be open");
+
+        failing = false;
+        assertEquals(0, olsSearchService.getExactTermsByName("lung").size(), "Open circuit should return no terms");
+        assertEquals(2, searchCount(""), "Open circuit should not search OLS");
+
+        // once the reset timeout passes, a trial request closes the circuit again
+        try {
+            Thread.sleep(400);
+        }
+        catch (InterruptedException e) {
+            fail("Interrupted whilst waiting for circuit to reset");
+        }
+        assertEquals(1, olsSearchService.getExactTermsByName("lung").size(), "Trial search should find terms");
+        assertFalse(olsSearchService.getRequestExecutor().isCircuitOpen(), "Circuit should be closed");
+    }
+
+    private void createService(int timeout, int failures, int reset) {
+        Properties configuration = new Properties();
+        configuration.setProperty("ols.protocol", "http");
+        configuration.setProperty("ols.server", "localhost:" + server.getAddress().getPort() + "/ols/");
+        configuration.setProperty("ols.search.threads", "8");
+        configuration.setProperty("ols.search.timeout", Integer.toString(timeout));
+        configuration.setProperty("ols.circuit.failures", Integer.toString(failures));
+        configuration.setProperty("ols.circuit.reset", Integer.toString(reset));
+        olsSearchService = new OLSSearchService();
+        olsSearchService.setConfiguration(configuration);
+        olsSearchService.init();
+        try {
+            olsSearchService.waitUntilReady();
+        }
+        catch (InterruptedException e) {
+            fail("Interrupted whilst initializing OLS search service");
+        }
+    }
+
+    private int searchCount(String ontology) {
+        AtomicInteger count = searchCounts.get(ontology);
+        return count == null ? 0 : count.get();
+    }
+
+    private void search(HttpExchange exchange) throws IOException {
+        String ontology = "";
+        for (String parameter : exchange.getRequestURI().getRawQuery().split("&")) {
+            if (parameter.startsWith("ontology=")) {
+                ontology = URLDecoder.decode(parameter.substring("ontology=".length()), "UTF-8");
+            }
+        }
+        searchCounts.putIfAbsent(ontology, new AtomicInteger());
+        searchCounts.get(ontology).incrementAndGet();
+
+        try {
+            Thread.sleep(delay);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failing) {
+            respond(exchange, 500, "{}");
+        }
+        else {
+            String ontologyName = ontology.isEmpty() ? "efo" : ontology;
+            respond(exchange, 200, "{\"response\":{\"numFound\":1,\"start\":0,\"docs\":[" +
+                    "{\"iri\":\"http://www.ebi.ac.uk/efo/EFO_0000887\",\"label\":\"liver\"," +
+                    "\"ontology_name\":\"" + ontologyName + "\",\"score\":\"1.0\"," +
+                    "\"is_defining_ontology\":true}]}}");
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import uk.ac.ebi.fgpt.zooma.owl.AssertedOntologyLoader;
+import uk.ac.ebi.fgpt.zooma.owl.OntologyLoader;
+import uk.ac.ebi.pride.utilities.ols.web.service.model.Identifier;
+import uk.ac.ebi.pride.utilities.ols.web.service.model.Term;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Tests that an {@link OLSTermSnapshotIndexer} indexes the terms of an ontology so that an {@link OLSTermSnapshot} can
+ * answer the same lookups as OLS, and that a {@link SnapshotOLSSearchService} answers lookups for ontologies in the
+ * snapshot without calling OLS.
+ *
+ * @date 18/10/26
+ */
+public class TestOLSTermSnapshot {
+    private static final String EFO = "http://www.ebi.ac.uk/efo/";
+    private static final String ORGAN = "http://purl.obolibrary.org/obo/UBERON_0000062";
+
+    private RAMDirectory termIndex;
+    private OLSTermSnapshotIndexer indexer;
+    private OLSTermSnapshot snapshot;
+
+    @BeforeEach
+    public void setUp() {
+        AssertedOntologyLoader loader = new AssertedOntologyLoader();
+        loader.setOntologyURI(URI.create("http://www.ebi.ac.uk/efo/efo.owl"));
+        loader.setOntologyResource(new ClassPathResource("efo_snapshot_test.owl"));
+        loader.setOntologyName("efo");
+        loader.setSynonymURIs(Collections.singleton(URI.create(EFO + "alternative_term")));
+
+        termIndex = new RAMDirectory();
+        indexer = new OLSTermSnapshotIndexer();
+        indexer.setOntologyLoaders(Collections.<OntologyLoader>singleton(loader));
+        indexer.setTermIndex(termIndex);
+
+        snapshot = new OLSTermSnapshot();
+        snapshot.setTermIndex(termIndex);
+        try {
+            loader.init();
+            loader.waitUntilReady();
+            indexer.init();
+            indexer.waitUntilReady();
+            snapshot.init();
+            snapshot.waitUntilReady();
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            fail("Failed to build OLS term snapshot");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        snapshot.destroy();
+        termIndex.close();
+    }
+
+    @Test
+    public void testIndexedTerms() {
+        assertEquals(7, indexer.getIndexedTermCount(), "Wrong number of terms indexed");
+        assertFalse(snapshot.isEmpty(), "Snapshot should not be empty");
+        assertTrue(snapshot.containsOntology("EFO"), "Snapshot should contain efo");
+        assertFalse(snapshot.containsOntology("uberon"), "Snapshot should not contain uberon");
+        assertEquals("efo", snapshot.getOntologyNamespace("http://www.ebi.ac.uk/efo/efo.owl"), "Wrong namespace");
+        assertTrue(snapshot.containsTerm(URI.create(EFO + "EFO_0000887")), "Snapshot should contain liver");
+        assertFalse(snapshot.containsTerm(URI.create(EFO + "EFO_9999999")), "Snapshot should not contain term");
+    }
+
+    @Test
+    public void testExactSearch() {
+        List<Term> terms = snapshot.getExactTermsByName("Liver", "efo", null, 20);
+        assertEquals(1, terms.size(), "Wrong number of terms");
+        Term liver = terms.get(0);
+        assertEquals(EFO + "EFO_0000887", liver.getIri().getIdentifier(), "Wrong term");
+        assertEquals("liver", liver.getLabel(), "Wrong label");
+        assertEquals("EFO:0000887", liver.getOboId().getIdentifier(), "Wrong OBO id");
+        assertEquals("A large organ that secretes bile.", liver.getDescription()[0], "Wrong description");
+        assertTrue(liver.isDefinedOntology(), "efo should define liver");
+
+        terms = snapshot.getExactTermsByName("hepar", null, null, 20);
+        assertEquals(1, terms.size(), "Synonym should match exactly");
+        assertEquals(EFO + "EFO_0000887", terms.get(0).getIri().getIdentifier(), "Wrong term for synonym");
+
+        terms = snapshot.getExactTermsByName("organ", "efo", null, 20);
+        assertEquals(1, terms.size(), "Wrong number of terms");
+        assertFalse(terms.get(0).isDefinedOntology(), "efo should not define an uberon term");
+
+        assertEquals(0, snapshot.getExactTermsByName("liver", "uberon", null, 20).size(), "Wrong ontology matched");
+    }
+
+    @Test
+    public void testPartialSearch() {
+        List<Term> terms = snapshot.getTermsByName("liver", "efo", null, 20);
+        assertEquals(2, terms.size(), "Obsolete terms should not be found");
+        assertEquals(1, snapshot.getTermsByName("liver", "efo", null, 1).size(), "Too many terms returned");
+    }
+
+    @Test
+    public void testSearchChildrenOf() {
+        assertEquals(1, snapshot.getTermsByName("liver", "efo", ORGAN, 20).size(),
+                     "Only organs should match");
+        assertEquals(1, snapshot.getExactTermsByName("liver", "efo", EFO + "EFO_0000635", 20).size(),
+                     "Liver should be found under its ancestors");
+        assertEquals(0, snapshot.getExactTermsByName("liver", "efo", EFO + "EFO_0000408", 20).size(),
+                     "Liver is not a disease");
+    }
+
+    @Test
+    public void testReplacement() {
+        assertEquals(URI.create(EFO + "EFO_0000887"), snapshot.getReplacement(URI.create(EFO + "EFO_0000001")),
+                     "Wrong replacement for obsolete term");
+        assertNull(snapshot.getReplacement(URI.create(EFO + "EFO_0000887")), "Current term should not be replaced");
+    }
+
+    @Test
+    public void testSnapshotScoresAreRescaled() {
+        List<Term> localTerms = new ArrayList<>(snapshot.getTermsByName("liver", "efo", null, 20));
+        localTerms.addAll(snapshot.getExactTermsByName("organ", "efo", null, 20));
+        Term kidney = new Term(new Identifier("http://purl.obolibrary.org/obo/UBERON_0002113",
+                                              Identifier.IdentifierType.IRI),
+                               "kidney", null, null, null, "uberon", "42.0", null, true, null);
+        Term renal = new Term(new Identifier("http://purl.obolibrary.org/obo/UBERON_0001224",
+                                             Identifier.IdentifierType.IRI),
+                              "renal pelvis", null, null, null, "uberon", "21.0", null, true, null);
+
+        float localTopScore = 0;
+        for (Term term : localTerms) {
+            localTopScore = Math.max(localTopScore, Float.valueOf(term.getScore()));
+        }
+        float firstScore = Float.valueOf(localTerms.get(0).getScore());
+
+        List<Term> terms = new SnapshotOLSSearchService().mergeTerms(localTerms, Arrays.asList(kidney, renal));
+        assertEquals(localTerms.size() + 2, terms.size(), "Wrong number of terms");
+        float topScore = 0;
+        for (Term term : terms.subList(0, localTerms.size())) {
+            topScore = Math.max(topScore, Float.valueOf(term.getScore()));
+        }
+        assertEquals(42.0f, topScore, 0.001f, "Best snapshot term should score the same as the best OLS term");
+        assertEquals(firstScore * 42.0f / localTopScore, Float.valueOf(terms.get(0).getScore()), 0.001f,
+                     "Snapshot scores should keep their relative order");
+        assertEquals("42.0", kidney.getScore(), "OLS scores should not change");
+        assertEquals("21.0", renal.getScore(), "OLS scores should not change");
+    }
+
+    @Test
+    public void testSnapshotAnswersWithoutOLS() {
+        Properties configuration = new Properties();
+        configuration.setProperty("ols.protocol", "http");
+        // nothing is listening here, so any request to OLS would fail
+        configuration.setProperty("ols.server", "localhost:1/ols/");
+        SnapshotOLSSearchService olsSearchService = new SnapshotOLSSearchService();
+        olsSearchService.setConfiguration(configuration);
+        olsSearchService.setTermSnapshot(snapshot);
+        try {
+            olsSearchService.init();
+            olsSearchService.waitUntilReady();
+            long misses = olsSearchService.getRequestExecutor().getMissCount();
+
+            List<Term> terms = olsSearchService.getExactTermsByName("liver", new ArrayList<>(Arrays.asList("efo")));
+            assertEquals(1, terms.size(), "Wrong number of terms");
+            assertEquals(EFO + "EFO_0000887", terms.get(0).getIri().getIdentifier(), "Wrong term");
+            assertEquals(1, olsSearchService.getExactTermsByNameFromParent("liver", ORGAN).size(),
+                         "Wrong number of terms under organ");
+            assertEquals("liver", olsSearchService.getExactLabelByIri(EFO + "EFO_0000887"), "Wrong label");
+            assertTrue(olsSearchService.inOLS(URI.create(EFO + "EFO_0000887")), "Liver should be found");
+            assertTrue(olsSearchService.isReplaceable(URI.create(EFO + "EFO_0000001")), "Term should be replaceable");
+            assertEquals("efo", olsSearchService.getOntologyNamespaceFromId("http://www.ebi.ac.uk/efo/efo.owl"),
+                         "Wrong namespace");
+            assertEquals(misses, olsSearchService.getRequestExecutor().getMissCount(),
+                         "Terms in the snapshot should not be looked up in OLS");
+
+            assertEquals(0, olsSearchService.getExactTermsByName("kidney", new ArrayList<>(Arrays.asList("uberon")))
+                    .size(), "Unavailable OLS should return no terms");
+            assertEquals(misses + 1, olsSearchService.getRequestExecutor().getMissCount(),
+                         "Ontologies not in the snapshot should be looked up in OLS");
+        }
+        catch (InterruptedException e) {
+            fail("Interrupted whilst initializing OLS search service");
+        }
+        finally {
+            olsSearchService.destroy();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package uk.ac.ebi.fgpt.zooma.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.fgpt.zooma.Namespaces;
+import uk.ac.ebi.fgpt.zooma.exception.ZoomaSerializationException;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.Study;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+import uk.ac.ebi.fgpt.zooma.util.URIBindingUtils;
+import uk.ac.ebi.fgpt.zooma.util.URIUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A ZOOMA serializer that streams annotations straight to N-Triples, without building an intermediate {@link
+ * org.semanticweb.owlapi.model.OWLOntology}.
+ * <p/>
+ * This writes the same graph as {@link OWLAPIAnnotationSerializer}, including the declarations of classes, properties
+ * and individuals that the OWL API writes when saving an ontology, but only holds the set of entities it has already
+ * written in memory.  Output can optionally be gzip compressed.  This serializer is stateless, so can be shared by
+ * several threads.
+ *
+ * @date 18/10/26
+ */
+public class NTriplesAnnotationSerializer implements ZoomaSerializer<Annotation, NTriplesWriter, URI> {
+    private final URI ontologyClassURI = URI.create(Namespaces.OWL.getURI() + "Ontology");
+    private final URI classClassURI = URI.create(Namespaces.OWL.getURI() + "Class");
+    private final URI objectPropertyClassURI = URI.create(Namespaces.OWL.getURI() + "ObjectProperty");
+    private final URI annotationPropertyClassURI = URI.create(Namespaces.OWL.getURI() + "AnnotationProperty");
+    private final URI namedIndividualClassURI = URI.create(Namespaces.OWL.getURI() + "NamedIndividual");
+
+    private final URI labelPropertyURI = URI.create(Namespaces.RDFS.getURI() + "label");
+    private final URI stringDatatypeURI = URI.create(Namespaces.XSD.getURI() + "string");
+    private final URI dateTimeDatatypeURI = URI.create(Namespaces.XSD.getURI() + "dateTime");
+
+    private final URI annotationClassURI = URI.create(Namespaces.OAC.getURI() + "DataAnnotation");
+    private final URI hasBodyPropertyURI = URI.create(Namespaces.OAC.getURI() + "hasBody");
+    private final URI hasTargetPropertyURI = URI.create(Namespaces.OAC.getURI() + "hasTarget");
+    private final URI semanticTagClassURI = URI.create(Namespaces.OAC.getURI() + "SemanticTag");
+
+    private final URI replacesPropertyURI = URI.create(Namespaces.ZOOMA_TERMS.getURI() + "replaces");
+    private final URI replacedByPropertyURI = URI.create(Namespaces.ZOOMA_TERMS.getURI() + "isReplacedBy");
+
+    private final URI hasDBPropertyURI = URI.create(Namespaces.DC.getURI() + "source");
+    private final URI hasEvidencePropertyURI = URI.create(Namespaces.ZOOMA_TERMS.getURI() + "hasEvidence");
+    private final URI hasShortNamePropertyURI = URI.create(Namespaces.ZOOMA_TERMS.getURI() + "shortName");
+    private final URI generationDatePropertyURI = URI.create(Namespaces.OAC.getURI() + "generated");
+    private final URI generatorPropertyURI = URI.create(Namespaces.OAC.getURI() + "generator");
+    private final URI annotatedDatePropertyURI = URI.create(Namespaces.OAC.getURI() + "annotated");
+    private final URI annotatorPropertyURI = URI.create(Namespaces.OAC.getURI() + "annotator");
+
+    private final URI propertyClassURI = URI.create(Namespaces.ZOOMA_TERMS.getURI() + "Property");
+    private final URI propertyNamePropertyURI = URI.create(Namespaces.ZOOMA_TERMS.getURI() + "propertyName");
+    private final URI propertyValuePropertyURI = URI.create(Namespaces.ZOOMA_TERMS.getURI() + "propertyValue");
+
+    private final URI biologicalEntityClassURI = URI.create(Namespaces.ZOOMA_TERMS.getURI() + "Target");
+    private final URI isPartOfPropertyURI = URI.create(Namespaces.DC.getURI() + "isPartOf");
+    private final URI studyClassURI = URI.create(Namespaces.ZOOMA_TERMS.getURI() + "DatabaseEntrySource");
+
+    // localized cache to avoid repeatedly looking up the URIs of source types and evidence codes
+    private final Map<String, URI> boundURIs = new ConcurrentHashMap<>();
+
+    private boolean compressed;
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Sets whether serialized annotations should be gzip compressed
+     *
+     * @param compressed true if output should be gzip compressed
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    @Override public void serialize(String datasourceName, Collection<Annotation> annotations, File file)
+            throws ZoomaSerializationException {
+        getLog().info("Writing " + annotations.size() + " annotations from " + datasourceName + " to " +
+                              file.getAbsolutePath());
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(file));
+            serialize(datasourceName, annotations, out);
+        }
+        catch (IOException e) {
+            throw new ZoomaSerializationException("Unable to write to '" + file + "'", e);
+        }
+        finally {
+            if (out != null) {
+                try {
+                    out.close();
+                }
+                catch (IOException e) {
+                    // tried our best!
+                    getLog().error("Failed to close a stream for serializing annotations to " + file.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    @Override public void serialize(String datasourceName, Collection<Annotation> annotations, OutputStream out)
+            throws ZoomaSerializationException {
+        URI datasetURI = URI.create(
+                Namespaces.ZOOMA.getURI() + datasourceName + "/dataset/" + System.currentTimeMillis());
+        getLog().debug("URI for newly created annotation dataset is '" + datasetURI.toString() + "'");
+        try {
+            GZIPOutputStream gzipOut = isCompressed() ? new GZIPOutputStream(out, 65536) : null;
+            NTriplesWriter writer = new NTriplesWriter(gzipOut != null ? gzipOut : out);
+            writer.writeType(datasetURI, ontologyClassURI);
+            for (Annotation annotation : annotations) {
+                serialize(annotation, writer);
+            }
+            writer.flush();
+            if (gzipOut != null) {
+                gzipOut.finish();
+            }
+            getLog().debug("Wrote " + writer.getTripleCount() + " triples to dataset '" + datasetURI + "'");
+        }
+        catch (IOException e) {
+            throw new ZoomaSerializationException("Failed to write data for dataset '" + datasetURI + "'", e);
+        }
+    }
+
+    @Override public URI serialize(Annotation annotation, NTriplesWriter writer)
+            throws ZoomaSerializationException {
+        try {
+            // write the annotation
+            URI annotationURI = annotation.getURI();
+            writeIndividual(annotationURI, annotationClassURI, writer);
+            String annotationLabel = OWLAPIAnnotationSerializer.getAnnotationLabel(
+                    annotation.getAnnotatedProperty(),
+                    annotation.getAnnotatedBiologicalEntities(),
+                    annotation.getSemanticTags());
+            if (!"".equals(annotationLabel)) {
+                writeAnnotationProperty(annotationURI, labelPropertyURI, annotationLabel, stringDatatypeURI, writer);
+            }
+
+            // write the annotated property, and associate it with the annotation
+            URI propertyURI = writeProperty(annotation.getAnnotatedProperty(), writer);
+            writeObjectProperty(annotationURI, hasBodyPropertyURI, propertyURI, writer);
+
+            for (BiologicalEntity biologicalEntity : annotation.getAnnotatedBiologicalEntities()) {
+                URI biologicalEntityURI = writeBiologicalEntity(biologicalEntity, writer);
+                writeObjectProperty(annotationURI, hasTargetPropertyURI, biologicalEntityURI, writer);
+            }
+
+            for (URI semanticTag : annotation.getSemanticTags()) {
+                if (semanticTag != null) {
+                    if (writer.describe(semanticTag, semanticTagClassURI)) {
+                        writeIndividual(semanticTag, semanticTagClassURI, writer);
+                    }
+                    writeObjectProperty(annotationURI, hasBodyPropertyURI, semanticTag, writer);
+                }
+                else {
+                    getLog().trace("The semantic tag for annotation '" + annotation + "' was null," +
+                                           " and will not annotated to anything in ZOOMA");
+                }
+            }
+
+            for (URI replaces : annotation.getReplaces()) {
+                writeIndividual(replaces, annotationClassURI, writer);
+                writeObjectProperty(annotationURI, replacesPropertyURI, replaces, writer);
+            }
+
+            for (URI replacedBy : annotation.getReplacedBy()) {
+                writeIndividual(replacedBy, annotationClassURI, writer);
+                writeObjectProperty(annotationURI, replacedByPropertyURI, replacedBy, writer);
+            }
+
+            writeProvenance(annotationURI, annotation.getProvenance(), writer);
+            return annotationURI;
+        }
+        catch (IOException e) {
+            throw new ZoomaSerializationException("Failed to write annotation '" + annotation.getURI() + "'", e);
+        }
+    }
+
+    private URI writeProperty(Property property, NTriplesWriter writer) throws IOException {
+        URI propertyURI = property.getURI();
+        if (writer.describe(propertyURI, propertyClassURI)) {
+            writeIndividual(propertyURI, propertyClassURI, writer);
+            String label = "";
+            if (property instanceof TypedProperty) {
+                String propertyType = ((TypedProperty) property).getPropertyType();
+                label = propertyType + ":";
+                writeAnnotationProperty(propertyURI, propertyNamePropertyURI, propertyType, stringDatatypeURI, writer);
+            }
+            String propertyValue = property.getPropertyValue();
+            writeAnnotationProperty(propertyURI, propertyValuePropertyURI, propertyValue, stringDatatypeURI, writer);
+            writeAnnotationProperty(propertyURI, labelPropertyURI, label + propertyValue, stringDatatypeURI, writer);
+        }
+        return propertyURI;
+    }
+
+    private URI writeBiologicalEntity(BiologicalEntity biologicalEntity, NTriplesWriter writer) throws IOException {
+        URI biologicalEntityURI = biologicalEntity.getURI();
+        if (writer.describe(biologicalEntityURI, biologicalEntityClassURI)) {
+            for (URI type : biologicalEntity.getTypes()) {
+                writeIndividual(biologicalEntityURI, type, writer);
+            }
+            writeIndividual(biologicalEntityURI, biologicalEntityClassURI, writer);
+            if (biologicalEntity.getName() != null) {
+                writeAnnotationProperty(biologicalEntityURI,
+                                        labelPropertyURI,
+                                        biologicalEntity.getName(),
+                                        stringDatatypeURI,
+                                        writer);
+            }
+            for (Study study : biologicalEntity.getStudies()) {
+                URI studyURI = writeStudy(study, writer);
+                writeObjectProperty(biologicalEntityURI, isPartOfPropertyURI, studyURI, writer);
+            }
+        }
+        return biologicalEntityURI;
+    }
+
+    private URI writeStudy(Study study, NTriplesWriter writer) throws IOException {
+        URI studyURI = study.getURI();
+        if (writer.describe(studyURI, studyClassURI)) {
+            for (URI type : study.getTypes()) {
+                writeIndividual(studyURI, type, writer);
+            }
+            writeIndividual(studyURI, studyClassURI, writer);
+            if (study.getAccession() != null) {
+                writeAnnotationProperty(studyURI, labelPropertyURI, study.getAccession(), stringDatatypeURI, writer);
+            }
+        }
+        return studyURI;
+    }
+
+    private void writeProvenance(URI annotationURI, AnnotationProvenance provenance, NTriplesWriter writer)
+            throws IOException {
+        // write the datasource
+        URI datasourceURI = provenance.getSource().getURI();
+        URI datasourceTypeURI = getBoundURI(provenance.getSource().getType().name());
+        if (writer.describe(datasourceURI, datasourceTypeURI)) {
+            writeIndividual(datasourceURI, datasourceTypeURI, writer);
+            String shortName = provenance.getSource().getName();
+            if (shortName == null) {
+                shortName = URIUtils.getShortform(datasourceURI);
+                if (shortName == null) {
+                    shortName = datasourceURI.toString();
+                }
+            }
+            writeAnnotationProperty(datasourceURI, hasShortNamePropertyURI, shortName, stringDatatypeURI, writer);
+        }
+        writeObjectProperty(annotationURI, hasDBPropertyURI, datasourceURI, writer);
+
+        // write the evidence
+        URI evidenceURI = getBoundURI(provenance.getEvidence().name());
+        writer.declare(evidenceURI, namedIndividualClassURI);
+        writeObjectProperty(annotationURI, hasEvidencePropertyURI, evidenceURI, writer);
+
+        // write annotation generation and provenance data, if available
+        SimpleDateFormat dateformat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        writeAnnotationProperty(annotationURI,
+                                generationDatePropertyURI,
+                                dateformat.format(provenance.getGeneratedDate()),
+                                dateTimeDatatypeURI,
+                                writer);
+        writeAnnotationProperty(annotationURI,
+                                generatorPropertyURI,
+                                provenance.getGenerator(),
+                                stringDatatypeURI,
+                                writer);
+        if (provenance.getAnnotationDate() != null) {
+            writeAnnotationProperty(annotationURI,
+                                    annotatedDatePropertyURI,
+                                    dateformat.format(provenance.getAnnotationDate()),
+                                    dateTimeDatatypeURI,
+                                    writer);
+        }
+        if (provenance.getAnnotator() != null) {
+            writeAnnotationProperty(annotationURI,
+                                    annotatorPropertyURI,
+                                    provenance.getAnnotator(),
+                                    stringDatatypeURI,
+                                    writer);
+        }
+    }
+
+    private void writeIndividual(URI individual, URI type, NTriplesWriter writer) throws IOException {
+        writer.declare(individual, namedIndividualClassURI);
+        writer.declare(type, classClassURI);
+        writer.writeType(individual, type);
+    }
+
+    private void writeObjectProperty(URI subject, URI property, URI object, NTriplesWriter writer)
+            throws IOException {
+        writer.declare(property, objectPropertyClassURI);
+        writer.writeTriple(subject, property, object);
+    }
+
+    private void writeAnnotationProperty(URI subject,
+                                         URI property,
+                                         String literal,
+                                         URI datatype,
+                                         NTriplesWriter writer) throws IOException {
+        // rdfs:label is built in, so is never declared
+        if (!property.equals(labelPropertyURI)) {
+            writer.declare(property, annotationPropertyClassURI);
+        }
+        writer.writeTriple(subject, property, literal, datatype);
+    }
+
+    private URI getBoundURI(String name) {
+        URI uri = boundURIs.get(name);
+        if (uri == null) {
+            uri = URIBindingUtils.getURI(name);
+            boundURIs.put(name, uri);
+        }
+        return uri;
+    }
+}
@@ -0,0 +1,226 @@
+package uk.ac.ebi.fgpt.zooma.io;
+
+import uk.ac.ebi.fgpt.zooma.Namespaces;
+
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes RDF triples to an output stream in N-Triples format as soon as they are generated, one line per triple.
+ * <p/>
+ * All non-ASCII characters are written as unicode escapes, so the output can be read by both older, ASCII only,
+ * N-Triples parsers and by Turtle parsers.  Because nothing is held in memory except the set of entities that have
+ * already been declared or described, this is a lightweight container for serializing large numbers of zooma objects
+ * at once.  Writers are not thread-safe, and should be used to write a single stream from a single thread.
+ *
+ * @date 18/10/26
+ */
+public class NTriplesWriter implements Flushable {
+    private static final URI RDF_TYPE = URI.create(Namespaces.RDF.getURI() + "type");
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Writer writer;
+    private final StringBuilder line;
+
+    // the entities declared, and individuals described, so far, indexed by type
+    private final Map<URI, Set<URI>> declaredEntities;
+    private final Map<URI, Set<URI>> describedIndividuals;
+
+    private long tripleCount;
+
+    /**
+     * Creates a new writer that writes triples to the given stream.  Triples are buffered, so {@link #flush()} must be
+     * called once all triples have been written.
+     *
+     * @param out the stream to write triples to
+     */
+    public NTriplesWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII), 65536);
+        this.line = new StringBuilder(256);
+        this.declaredEntities = new HashMap<>();
+        this.describedIndividuals = new HashMap<>();
+    }
+
+    /**
+     * Writes a triple with a resource as its object
+     *
+     * @param subject   the subject of the triple
+     * @param predicate the predicate of the triple
+     * @param object    the object of the triple
+     * @throws IOException if the triple could not be written
+     */
+    public void writeTriple(URI subject, URI predicate, URI object) throws IOException {
+        line.setLength(0);
+        appendURI(subject).append(' ');
+        appendURI(predicate).append(' ');
+        appendURI(object).append(" .\n");
+        writeLine();
+    }
+
+    /**
+     * Writes a triple with a typed literal as its object
+     *
+     * @param subject   the subject of the triple
+     * @param predicate the predicate of the triple
+     * @param literal   the lexical form of the literal
+     * @param datatype  the datatype of the literal
+     * @throws IOException if the triple could not be written
+     */
+    public void writeTriple(URI subject, URI predicate, String literal, URI datatype) throws IOException {
+        line.setLength(0);
+        appendURI(subject).append(' ');
+        appendURI(predicate).append(' ');
+        appendLiteral(literal).append("^^");
+        appendURI(datatype).append(" .\n");
+        writeLine();
+    }
+
+    /**
+     * Writes a triple asserting the type of a resource
+     *
+     * @param subject the resource
+     * @param type    the type of the resource
+     * @throws IOException if the triple could not be written
+     */
+    public void writeType(URI subject, URI type) throws IOException {
+        writeTriple(subject, RDF_TYPE, type);
+    }
+
+    /**
+     * Declares an entity (for example, a class or a property) by writing a triple asserting its type, unless it has
+     * already been declared as that type of entity by this writer.
+     *
+     * @param entity     the entity to declare
+     * @param entityType the type of entity, for example <code>owl:Class</code>
+     * @throws IOException if the triple could not be written
+     */
+    public void declare(URI entity, URI entityType) throws IOException {
+        if (add(declaredEntities, entityType, entity)) {
+            writeType(entity, entityType);
+        }
+    }
+
+    /**
+     * Records that the triples describing an individual of the given type are about to be written.  This returns true
+     * the first time it is called for an individual and type, and false thereafter, so that individuals shared by many
+     * serialized objects are only described once.
+     *
+     * @param individual the individual to describe
+     * @param type       the type of individual being described
+     * @return true if the individual has not been described as this type by this writer before
+     */
+    public boolean describe(URI individual, URI type) {
+        return add(describedIndividuals, type, individual);
+    }
+
+    /**
+     * Returns the number of triples written so far
+     *
+     * @return the number of triples written
+     */
+    public long getTripleCount() {
+        return tripleCount;
+    }
+
+    @Override public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private boolean add(Map<URI, Set<URI>> entitiesByType, URI type, URI entity) {
+        Set<URI> entities = entitiesByType.get(type);
+        if (entities == null) {
+            entities = new HashSet<>();
+            entitiesByType.put(type, entities);
+        }
+        return entities.add(entity);
+    }
+
+    private void writeLine() throws IOException {
+        writer.append(line);
+        tripleCount++;
+    }
+
+    private StringBuilder appendURI(URI uri) {
+        String s = uri.toString();
+        line.append('<');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c <= 0x20 || c >= 0x7F || c == '<' || c == '>' || c == '"' || c == '{' || c == '}' || c == '|' ||
+                    c == '^' || c == '`' || c == '\\') {
+                i = appendEscape(s, i);
+            }
+            else {
+                line.append(c);
+            }
+        }
+        return line.append('>');
+    }
+
+    private StringBuilder appendLiteral(String s) {
+        line.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c >= 0x7F) {
+                        i = appendEscape(s, i);
+                    }
+                    else {
+                        line.append(c);
+                    }
+            }
+        }
+        return line.append('"');
+    }
+
+    /**
+     * Appends the unicode escape for the character (or surrogate pair) at the given index
+     *
+     * @return the index of the last character escaped
+     */
+    private int appendEscape(String s, int index) {
+        int codePoint = s.codePointAt(index);
+        if (Character.isSupplementaryCodePoint(codePoint)) {
+            line.append("\\U");
+            appendHex(codePoint, 8);
+            return index + 1;
+        }
+        else {
+            line.append("\\u");
+            appendHex(codePoint, 4);
+            return index;
+        }
+    }
+
+    private void appendHex(int value, int digits) {
+        for (int shift = 4 * (digits - 1); shift >= 0; shift -= 4) {
+            line.append(HEX[(value >>> shift) & 0xF]);
+        }
+    }
+}
@@ -146,9 +146,17 @@ public class OWLAPIAnnotationSerializer extends OWLAPIZoomaSerializer<Annotation
         return annotationIndividual;
     }
 
-    private String getAnnotationLabel(Property annotatedProperty,
-                                      Collection<BiologicalEntity> annotatedBiologicalEntities,
-                                      Collection<URI> semanticTags) {
+    /**
+     * Generates a human readable label for an annotation, from its property, semantic tags and biological entities
+     *
+     * @param annotatedProperty           the annotated property
+     * @param annotatedBiologicalEntities the annotated biological entities
+     * @param semanticTags                the semantic tags
+     * @return a label for the annotation
+     */
+    static String getAnnotationLabel(Property annotatedProperty,
+                                     Collection<BiologicalEntity> annotatedBiologicalEntities,
+                                     Collection<URI> semanticTags) {
 
         StringBuilder sb = new StringBuilder();
 
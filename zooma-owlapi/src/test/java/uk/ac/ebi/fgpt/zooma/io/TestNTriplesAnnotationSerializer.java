@@ -0,0 +1,214 @@
+package uk.ac.ebi.fgpt.zooma.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import uk.ac.ebi.fgpt.zooma.exception.ZoomaSerializationException;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.BiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleBiologicalEntity;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleStudy;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.SimpleUntypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.Study;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Tests that a {@link NTriplesAnnotationSerializer} writes the same graph as an {@link OWLAPIAnnotationSerializer}.
+ *
+ * @date 18/10/26
+ */
+public class TestNTriplesAnnotationSerializer {
+    private List<Annotation> annotations;
+
+    @BeforeEach
+    public void setUp() {
+        URL url = getClass().getClassLoader().getResource("config/naming/types.properties");
+        String path = url != null ? url.toString().replace("file:", "").replace("config/naming/types.properties", "") : "";
+        System.setProperty("zooma.home", new File(path).getAbsolutePath());
+
+        Study study = new SimpleStudy(URI.create("http://www.test.com/study/S1"), "S1",
+                                      URI.create("http://www.test.com/StudyType"));
+        BiologicalEntity sample = new SimpleBiologicalEntity(URI.create("http://www.test.com/sample/B1"),
+                                                             "sample \"1\"",
+                                                             URI.create("http://www.test.com/SampleType"),
+                                                             study);
+        BiologicalEntity unnamed = new SimpleBiologicalEntity(URI.create("http://www.test.com/sample/B2"), null);
+        Property liver = new SimpleTypedProperty(URI.create("http://www.test.com/property/P1"),
+                                                 "organism part",
+                                                 "liver");
+        Property odd = new SimpleUntypedProperty(URI.create("http://www.test.com/property/P2"),
+                                                 "Größe \\ 10µm");
+
+        AnnotationProvenance curated = new SimpleAnnotationProvenance(
+                new SimpleDatabaseAnnotationSource(URI.create("http://www.test.com/db"), "db"),
+                AnnotationProvenance.Evidence.MANUAL_CURATED,
+                AnnotationProvenance.Accuracy.PRECISE,
+                "generator",
+                new Date(0),
+                "annotator",
+                new Date(1000));
+        AnnotationProvenance computed = new SimpleAnnotationProvenance(
+                new SimpleDatabaseAnnotationSource(URI.create("http://www.ebi.ac.uk/gxa"), null),
+                AnnotationProvenance.Evidence.COMPUTED_FROM_TEXT_MATCH,
+                AnnotationProvenance.Accuracy.NOT_SPECIFIED,
+                "generator",
+                new Date(2000),
+                null,
+                null);
+
+        annotations = new ArrayList<>();
+        annotations.add(new SimpleAnnotation(URI.create("http://www.test.com/annotation/A1"),
+                                             Collections.singleton(sample),
+                                             liver,
+                                             curated,
+                                             new URI[]{URI.create("http://www.ebi.ac.uk/efo/EFO_0000887")},
+                                             new URI[]{URI.create("http://www.test.com/annotation/A2")},
+                                             new URI[]{URI.create("http://www.test.com/annotation/A0")}));
+        annotations.add(new SimpleAnnotation(URI.create("http://www.test.com/annotation/A2"),
+                                             Arrays.asList(sample, unnamed),
+                                             liver,
+                                             computed,
+                                             URI.create("http://www.ebi.ac.uk/efo/EFO_0000887"),
+                                             URI.create("http://purl.obolibrary.org/obo/UBERON_0002107")));
+        annotations.add(new SimpleAnnotation(URI.create("http://www.test.com/annotation/A3"),
+                                             Collections.singleton(unnamed),
+                                             odd,
+                                             computed));
+    }
+
+    @Test
+    public void testSameGraphAsOWLAPI() {
+        try {
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            new OWLAPIAnnotationSerializer().serialize("test", annotations, expected);
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            new NTriplesAnnotationSerializer().serialize("test", annotations, actual);
+
+            Set<OWLAxiom> expectedAxioms = load(new ByteArrayInputStream(expected.toByteArray())).getAxioms();
+            Set<OWLAxiom> actualAxioms = load(new ByteArrayInputStream(actual.toByteArray())).getAxioms();
+            assertFalse(expectedAxioms.isEmpty(), "No axioms serialized");
+            assertEquals(expectedAxioms, actualAxioms, "N-Triples graph differs from OWL API graph");
+        }
+        catch (ZoomaSerializationException | OWLOntologyCreationException e) {
+            e.printStackTrace();
+            fail("Failed to serialize annotations");
+        }
+    }
+
+    @Test
+    public void testCompressed() {
+        try {
+            ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+            new NTriplesAnnotationSerializer().serialize("test", annotations, uncompressed);
+
+            NTriplesAnnotationSerializer serializer = new NTriplesAnnotationSerializer();
+            serializer.setCompressed(true);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            serializer.serialize("test", annotations, compressed);
+
+            InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+            assertEquals(load(new ByteArrayInputStream(uncompressed.toByteArray())).getAxioms(),
+                         load(in).getAxioms(),
+                         "Compressed graph differs from uncompressed graph");
+        }
+        catch (ZoomaSerializationException | OWLOntologyCreationException | IOException e) {
+            e.printStackTrace();
+            fail("Failed to serialize annotations");
+        }
+    }
+
+    @Test
+    public void testSharedIndividualsWrittenOnce() {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new NTriplesAnnotationSerializer().serialize("test", annotations, out);
+            String triples = new String(out.toByteArray(), StandardCharsets.US_ASCII);
+
+            assertEquals(1, count(triples, "<http://www.test.com/sample/B1> " +
+                                 "<http://www.w3.org/1999/02/22-rdf-syntax-ns#type> " +
+                                 "<http://rdf.ebi.ac.uk/terms/zooma/Target> .\n"), "Sample should be typed once");
+            assertEquals(1, count(triples, "<http://www.test.com/property/P1> " +
+                                 "<http://www.w3.org/2000/01/rdf-schema#label> "), "Property should be labelled once");
+            assertEquals(1, count(triples, "<http://www.openannotation.org/ns/hasBody> " +
+                                 "<http://www.w3.org/1999/02/22-rdf-syntax-ns#type> " +
+                                 "<http://www.w3.org/2002/07/owl#ObjectProperty> .\n"),
+                         "Object property should be declared once");
+            assertEquals(1, count(triples, "\"liver\"^^"), "Property value should be written once");
+        }
+        catch (ZoomaSerializationException e) {
+            e.printStackTrace();
+            fail("Failed to serialize annotations");
+        }
+    }
+
+    @Test
+    public void testEscaping() {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            NTriplesWriter writer = new NTriplesWriter(out);
+            writer.writeTriple(URI.create("http://www.test.com/a%20b"),
+                               URI.create("http://www.test.com/label"),
+                               "\"Größe\"\t\\\n🐭\u0001",
+                               URI.create("http://www.w3.org/2001/XMLSchema#string"));
+            writer.writeTriple(URI.create("http://www.test.com/Größe"),
+                               URI.create("http://www.test.com/related"),
+                               URI.create("http://www.test.com/b"));
+            writer.flush();
+
+            assertEquals("<http://www.test.com/a%20b> <http://www.test.com/label> " +
+                                 "\"\\\"Gr\\u00F6\\u00DFe\\\"\\t\\\\\\n\\U0001F42D\\u0001\"" +
+                                 "^^<http://www.w3.org/2001/XMLSchema#string> .\n" +
+                                 "<http://www.test.com/Gr\\u00F6\\u00DFe> <http://www.test.com/related> " +
+                                 "<http://www.test.com/b> .\n",
+                         new String(out.toByteArray(), StandardCharsets.US_ASCII),
+                         "Wrong N-Triples");
+            assertEquals(2, writer.getTripleCount(), "Wrong number of triples");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Failed to write triples");
+        }
+    }
+
+    private OWLOntology load(InputStream in) throws OWLOntologyCreationException {
+        return OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(in);
+    }
+
+    private int count(String s, String substring) {
+        int count = 0;
+        int index = s.indexOf(substring);
+        while (index != -1) {
+            count++;
+            index = s.indexOf(substring, index + substring.length());
+        }
+        return count;
+    }
+}
@@ -58,6 +58,16 @@ public class ZOOMAReportRenderer {
         return log;
     }
 
+    /**
+     * Creates a renderer with no output streams, that can only render to the writers supplied to {@link
+     * #renderReportHeader(PrintWriter)} and {@link #renderAnnotations(PrintWriter, PrintWriter, Property, List, List)}
+     *
+     * @param labelMapper the mapper used to lookup ontology term labels and synonyms
+     */
+    public ZOOMAReportRenderer(OntologyLabelMapper labelMapper) {
+        this(labelMapper, (OutputStream) null, (OutputStream) null);
+    }
+
     public ZOOMAReportRenderer(OntologyLabelMapper labelMapper, String outputFile, String errorsFile)
             throws FileNotFoundException {
         this(labelMapper, new File(outputFile), new File(errorsFile));
@@ -100,57 +110,89 @@ public class ZOOMAReportRenderer {
         // now iterate over properties and write all annotations found for each one
         getLog().debug("Writing report of property mappings...");
         for (Property property : properties) {
-            try {
-                if (annotationPredictionMap.containsKey(property) && annotationPredictionMap.get(property).size() > 0) {
-                    List<AnnotationPrediction> annotationPredictions = annotationPredictionMap.get(property);
-                    getLog().debug(
-                            "There are " + annotationPredictions.size() + " annotations for property '" + property +
-                                    "'");
-
-                    for (AnnotationPrediction annotationPrediction : annotationPredictions) {
-                        // render one line per experiment, if known
-                        if (propertyContextMap.containsKey(property)) {
-                            for (String expt : propertyContextMap.get(property)) {
-                                writeReportLine(writer,
-                                                property,
-                                                annotationPrediction.getAnnotatedProperty().getPropertyValue(),
-                                                expt,
-                                                annotationPrediction.getDerivedFrom().getProvenance().getSource().getURI().toString(),
-                                                annotationPrediction.getSemanticTags(),
-                                                annotationPrediction.getConfidence());
-                            }
-                        }
-                        else {
+            renderAnnotations(writer,
+                              errorWriter,
+                              property,
+                              propertyContextMap.get(property),
+                              annotationPredictionMap.get(property));
+        }
+
+        // flush the writer
+        writer.flush();
+        errorWriter.flush();
+    }
+
+    /**
+     * Writes the report header, as written at the start of {@link #renderAnnotations(List, Map, Map)}, to the given
+     * writer.
+     *
+     * @param writer the writer to write the header to
+     */
+    public void renderReportHeader(PrintWriter writer) {
+        writeReportHeader(writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the report lines for a single property to the given writers, without any header.  This allows reports to
+     * be rendered one property at a time, as results become available.  Properties with no predictions are written to
+     * the error writer.
+     *
+     * @param writer                the writer to write mapped properties to
+     * @param errorWriter           the writer to write unmapped properties to
+     * @param property              the searched property
+     * @param propertyContexts      the studies the property was found in, or null if unknown
+     * @param annotationPredictions the predictions for the property, or null if there were none
+     */
+    public void renderAnnotations(PrintWriter writer,
+                                  PrintWriter errorWriter,
+                                  Property property,
+                                  List<String> propertyContexts,
+                                  List<AnnotationPrediction> annotationPredictions) {
+        try {
+            if (annotationPredictions != null && annotationPredictions.size() > 0) {
+                getLog().debug(
+                        "There are " + annotationPredictions.size() + " annotations for property '" + property + "'");
+
+                for (AnnotationPrediction annotationPrediction : annotationPredictions) {
+                    // render one line per experiment, if known
+                    if (propertyContexts != null) {
+                        for (String expt : propertyContexts) {
                             writeReportLine(writer,
                                             property,
                                             annotationPrediction.getAnnotatedProperty().getPropertyValue(),
-                                            "[UNKNOWN EXPERIMENTS]",
+                                            expt,
                                             annotationPrediction.getDerivedFrom().getProvenance().getSource().getURI().toString(),
                                             annotationPrediction.getSemanticTags(),
                                             annotationPrediction.getConfidence());
                         }
                     }
-                }
-                else {
-                    if (propertyContextMap.containsKey(property)) {
-                        for (String expt : propertyContextMap.get(property)) {
-                            writeUnmappedReportLine(errorWriter, property, expt);
-                        }
-                    }
                     else {
-                        writeUnmappedReportLine(errorWriter, property, "[UNKNOWN EXPERIMENTS]");
+                        writeReportLine(writer,
+                                        property,
+                                        annotationPrediction.getAnnotatedProperty().getPropertyValue(),
+                                        "[UNKNOWN EXPERIMENTS]",
+                                        annotationPrediction.getDerivedFrom().getProvenance().getSource().getURI().toString(),
+                                        annotationPrediction.getSemanticTags(),
+                                        annotationPrediction.getConfidence());
                     }
                 }
             }
-            catch (Exception e) {
-                getLog().error("Failed to write report line for property " + property + ".  Error was:", e);
-                writeUnmappedReportLine(errorWriter, property, "[UNKNOWN EXPERIMENTS]");
+            else {
+                if (propertyContexts != null) {
+                    for (String expt : propertyContexts) {
+                        writeUnmappedReportLine(errorWriter, property, expt);
+                    }
+                }
+                else {
+                    writeUnmappedReportLine(errorWriter, property, "[UNKNOWN EXPERIMENTS]");
+                }
             }
         }
-
-        // flush the writer
-        writer.flush();
-        errorWriter.flush();
+        catch (Exception e) {
+            getLog().error("Failed to write report line for property " + property + ".  Error was:", e);
+            writeUnmappedReportLine(errorWriter, property, "[UNKNOWN EXPERIMENTS]");
+        }
     }
 
     public void renderAnnotationSummaries(List<Property> properties,
@@ -249,8 +291,12 @@ public class ZOOMAReportRenderer {
     }
 
     public void close() throws IOException {
-        out.close();
-        err.close();
+        if (out != null) {
+            out.close();
+        }
+        if (err != null) {
+            err.close();
+        }
     }
 
     protected void writeReportLine(PrintWriter writer,
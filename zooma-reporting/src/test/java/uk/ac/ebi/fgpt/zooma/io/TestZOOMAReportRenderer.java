@@ -0,0 +1,133 @@
+package uk.ac.ebi.fgpt.zooma.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationPrediction;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.util.AnnotationPredictionBuilder;
+import uk.ac.ebi.fgpt.zooma.util.OntologyLabelMapper;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a {@link ZOOMAReportRenderer} renders report headers and property mappings one property at a time.
+ *
+ * @date 18/10/26
+ */
+public class TestZOOMAReportRenderer {
+    private URI source;
+    private URI liver;
+
+    private Property property;
+    private AnnotationPrediction prediction;
+
+    private ZOOMAReportRenderer renderer;
+
+    @BeforeEach
+    public void setUp() {
+        source = URI.create("http://www.test.com/source");
+        liver = URI.create("http://www.test.com/ontology/UBERON_0002107");
+
+        property = new SimpleTypedProperty("organism part", "liver");
+        Annotation annotation = new SimpleAnnotation(
+                URI.create("http://www.test.com/annotation1"),
+                null,
+                property,
+                new SimpleAnnotationProvenance(new SimpleDatabaseAnnotationSource(source, "test"),
+                                               AnnotationProvenance.Evidence.MANUAL_CURATED,
+                                               "test",
+                                               new Date()),
+                liver);
+        prediction = AnnotationPredictionBuilder.predictFromAnnotation(annotation)
+                .derivedFrom(annotation)
+                .confidenceIs(AnnotationPrediction.Confidence.HIGH)
+                .build();
+
+        renderer = new ZOOMAReportRenderer(new OntologyLabelMapper() {
+            @Override public String getLabel(URI uri) {
+                return uri.equals(liver) ? "liver" : null;
+            }
+
+            @Override public Collection<String> getSynonyms(URI uri) {
+                return uri.equals(liver) ? Arrays.asList("hepar", "jecur") : Collections.<String>emptyList();
+            }
+
+            @Override public URI getURI(String label) {
+                return label.equals("liver") ? liver : null;
+            }
+        });
+    }
+
+    @Test
+    public void testRenderReportHeader() {
+        StringWriter out = new StringWriter();
+        renderer.renderReportHeader(new PrintWriter(out));
+        String[] lines = out.toString().split("\\r?\\n", -1);
+        assertEquals(8, lines.length, "Header should be 7 lines, each terminated");
+        assertTrue(lines[0].startsWith("Application Name:"), "Wrong first header line");
+        assertTrue(lines[6].startsWith("PROPERTY TYPE\tPROPERTY VALUE"), "Wrong column header line");
+    }
+
+    @Test
+    public void testRenderMappedProperty() {
+        StringWriter out = new StringWriter();
+        StringWriter err = new StringWriter();
+        PrintWriter writer = new PrintWriter(out);
+        PrintWriter errorWriter = new PrintWriter(err);
+        renderer.renderAnnotations(writer,
+                                   errorWriter,
+                                   property,
+                                   Arrays.asList("E-TEST-1", "E-TEST-2"),
+                                   Collections.singletonList(prediction));
+        writer.flush();
+        errorWriter.flush();
+
+        String[] lines = out.toString().trim().split("\\r?\\n");
+        assertEquals(2, lines.length, "There should be one line per study");
+        assertEquals("organism part\tliver\tliver\thepar, jecur\tHigh\tUBERON_0002107\t" +
+                             "http://www.test.com/ontology/\t" + source + "\tE-TEST-1",
+                     lines[0],
+                     "Wrong report line");
+        assertTrue(lines[1].endsWith("\tE-TEST-2"), "Wrong study for second report line");
+        assertEquals("", err.toString(), "Mapped property should not be reported as an error");
+    }
+
+    @Test
+    public void testRenderUnmappedProperty() {
+        StringWriter out = new StringWriter();
+        StringWriter err = new StringWriter();
+        PrintWriter writer = new PrintWriter(out);
+        PrintWriter errorWriter = new PrintWriter(err);
+        renderer.renderAnnotations(writer, errorWriter, new SimpleTypedProperty("disease", "gout"), null, null);
+        renderer.renderAnnotations(writer,
+                                   errorWriter,
+                                   new SimpleTypedProperty("disease", "scurvy"),
+                                   null,
+                                   Collections.<AnnotationPrediction>emptyList());
+        writer.flush();
+        errorWriter.flush();
+
+        assertEquals("", out.toString(), "Unmapped properties should only be reported as errors");
+        String[] lines = err.toString().trim().split("\\r?\\n");
+        assertEquals(2, lines.length, "There should be one line per unmapped property");
+        assertEquals("disease\tgout\tN/A\tN/A\tDid not map\tN/A\tN/A\tN/A\t[UNKNOWN EXPERIMENTS]",
+                     lines[0],
+                     "Wrong unmapped report line");
+        assertTrue(lines[1].startsWith("disease\tscurvy\t"), "Wrong second unmapped report line");
+    }
+}
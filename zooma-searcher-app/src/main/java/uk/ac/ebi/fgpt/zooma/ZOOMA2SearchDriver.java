@@ -16,6 +16,7 @@ import uk.ac.ebi.fgpt.zooma.io.ZOOMAInputParser;
 import uk.ac.ebi.fgpt.zooma.io.ZOOMAReportRenderer;
 import uk.ac.ebi.fgpt.zooma.model.AnnotationPrediction;
 import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.search.ZOOMAHttpTransport;
 import uk.ac.ebi.fgpt.zooma.search.ZOOMASearchClient;
 import uk.ac.ebi.fgpt.zooma.search.ZOOMASearchTimer;
 import uk.ac.ebi.fgpt.zooma.util.OntologyLabelMapper;
@@ -58,6 +59,9 @@ import java.util.concurrent.TimeUnit;
  * @date 08/08/12
  */
 public class ZOOMA2SearchDriver {
+    // number of properties annotated by each search request
+    private static final int SEARCH_BATCH_SIZE = 100;
+
     private static File _inputFile;
     private static OutputStream _out;
     private static OutputStream _err;
@@ -393,28 +397,39 @@ public class ZOOMA2SearchDriver {
 
         // create a timer to time search tasks
         final ZOOMASearchTimer timer = new ZOOMASearchTimer(properties.size()).start();
-        final ZOOMASearchClient zoomaClient = new ZOOMASearchClient(zoomaLocation);
+        // share one connection per search thread, so connections are kept alive between searches
+        final ZOOMAHttpTransport transport = new ZOOMAHttpTransport(concurrency,
+                                                                    ZOOMAHttpTransport.DEFAULT_CONNECT_TIMEOUT,
+                                                                    ZOOMAHttpTransport.DEFAULT_READ_TIMEOUT,
+                                                                    true);
+        final ZOOMASearchClient zoomaClient = new ZOOMASearchClient(zoomaLocation, transport);
         final Map<Property, List<AnnotationPrediction>> annotationPredictions =
                 Collections.synchronizedMap(new HashMap<Property, List<AnnotationPrediction>>());
 
-        // start searching - use 'concurrent' parallel threads
+        // start searching - use 'concurrent' parallel threads, each annotating a batch of properties at a time
         Deque<Future<Integer>> jobQueue = new ConcurrentLinkedDeque<>();
+        Map<Future<Integer>, Integer> jobSizes = new HashMap<>();
         ExecutorService service = Executors.newFixedThreadPool(concurrency);
-        for (final Property property : properties) {
+        for (int i = 0; i < properties.size(); i += SEARCH_BATCH_SIZE) {
+            final List<Property> batch = properties.subList(i, Math.min(i + SEARCH_BATCH_SIZE, properties.size()));
             // simple unit of work to perform the zooma search and update annotations with results
-            jobQueue.add(service.submit(new Callable<Integer>() {
+            Future<Integer> job = service.submit(new Callable<Integer>() {
                 @Override public Integer call() throws Exception {
-                    // first, grab annotation summaries
-                    List<AnnotationPrediction> predictions = zoomaClient.annotate(property);
-                    if (!predictions.isEmpty()) {
-                        // and add predictions to the annotations map
-                        synchronized (annotationPredictions) {
-                            annotationPredictions.put(property, predictions);
+                    // first, grab annotation summaries for the whole batch
+                    Map<Property, List<AnnotationPrediction>> batchPredictions = zoomaClient.annotateAll(batch);
+                    for (Map.Entry<Property, List<AnnotationPrediction>> predictions : batchPredictions.entrySet()) {
+                        if (!predictions.getValue().isEmpty()) {
+                            // and add predictions to the annotations map
+                            synchronized (annotationPredictions) {
+                                annotationPredictions.put(predictions.getKey(), predictions.getValue());
+                            }
                         }
                     }
 
                     // update timing stats
-                    timer.completedNext();
+                    for (int j = 0; j < batch.size(); j++) {
+                        timer.completedNext();
+                    }
                     float estimatedTime = ((float) timer.getCurrentEstimate()) / 1000;
                     boolean showInMins = false;
                     if (estimatedTime > 60) {
@@ -428,7 +443,9 @@ public class ZOOMA2SearchDriver {
                                              estimate + (showInMins ? " mins." : " s.") + "     \r");
                     return timer.getCompletedCount();
                 }
-            }));
+            });
+            jobQueue.add(job);
+            jobSizes.put(job, batch.size());
         }
 
         // pop elements from the jobQueue, make sure they're done, then discard
@@ -440,12 +457,12 @@ public class ZOOMA2SearchDriver {
                 getLog().trace("There are " + total + " searches are now complete");
             }
             catch (InterruptedException e) {
-                failedCount++;
+                failedCount += jobSizes.get(f);
                 getLog().error("Job " + f + " was interrupted whilst waiting for completion - " +
                                        "there are " + failedCount + " fails now");
             }
             catch (ExecutionException e) {
-                failedCount++;
+                failedCount += jobSizes.get(f);
                 getLog().error("A job failed to execute - there are " + failedCount + " fails now.  Error was:\n",
                                e.getCause());
             }
@@ -468,6 +485,7 @@ public class ZOOMA2SearchDriver {
             ZOOMAReportRenderer renderer = new ZOOMAReportRenderer(new ZOOMALabelMapper(zoomaClient), out, err);
             renderer.renderAnnotations(properties, propertyContexts, annotationPredictions);
             renderer.close();
+            transport.close();
             System.out.println("done.");
             getLog().info("ZOOMA report complete");
 
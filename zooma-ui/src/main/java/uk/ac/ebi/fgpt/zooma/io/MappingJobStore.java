@@ -0,0 +1,498 @@
+package uk.ac.ebi.fgpt.zooma.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.fgpt.zooma.exception.ZoomaStorageException;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.SimpleUntypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+import uk.ac.ebi.fgpt.zooma.service.MappingJob;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Stores {@link MappingJob}s on the local filesystem, so that the properties and results of large jobs do not have to
+ * be held in memory, and jobs survive a restart.
+ * <p/>
+ * Each job is stored in its own directory, containing:
+ * <ul>
+ *     <li><code>job.properties</code> - the job settings and state</li>
+ *     <li><code>properties.dat</code> - the properties to map, in order</li>
+ *     <li><code>results.dat</code> - the rendered report lines for each searched property, appended in the order the
+ *     searches complete</li>
+ *     <li><code>report.tsv</code> - the finished report, with results in the same order as the properties</li>
+ * </ul>
+ * Each result is flushed as soon as it is written, so the searches a job completed before a restart can be recovered
+ * with {@link #recoverResults(MappingJob)}.
+ *
+ * @date 18/10/26
+ */
+public class MappingJobStore {
+    private static final String JOB_FILE = "job.properties";
+    private static final String PROPERTIES_FILE = "properties.dat";
+    private static final String RESULTS_FILE = "results.dat";
+    private static final String REPORT_FILE = "report.tsv";
+
+    private final File directory;
+    private final ConcurrentMap<String, DataOutputStream> resultWriters;
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    public MappingJobStore(File directory) {
+        this.directory = directory;
+        this.resultWriters = new ConcurrentHashMap<>();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Stores a new job along with the properties it should map
+     *
+     * @param job        the job to store
+     * @param properties the properties to map, in order
+     * @throws ZoomaStorageException if the job could not be stored
+     */
+    public void createJob(MappingJob job, List<Property> properties) throws ZoomaStorageException {
+        File jobDirectory = getJobDirectory(job);
+        if (!jobDirectory.mkdirs()) {
+            throw new ZoomaStorageException("Unable to create directory '" + jobDirectory + "' for mapping job");
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(new File(jobDirectory, PROPERTIES_FILE))))) {
+            for (Property property : properties) {
+                if (property instanceof TypedProperty) {
+                    out.writeBoolean(true);
+                    out.writeUTF(((TypedProperty) property).getPropertyType());
+                }
+                else {
+                    out.writeBoolean(false);
+                }
+                out.writeUTF(property.getPropertyValue());
+            }
+        }
+        catch (IOException e) {
+            throw new ZoomaStorageException("Unable to store properties for mapping job " + job.getId(), e);
+        }
+        saveJob(job);
+    }
+
+    /**
+     * Saves the settings and current state of the given job, replacing the previously saved state
+     *
+     * @param job the job to save
+     * @throws ZoomaStorageException if the job could not be saved
+     */
+    public void saveJob(MappingJob job) throws ZoomaStorageException {
+        Properties properties = new Properties();
+        properties.setProperty("id", job.getId());
+        properties.setProperty("owner", job.getOwner());
+        properties.setProperty("created", Long.toString(job.getCreated().getTime()));
+        properties.setProperty("total", Integer.toString(job.getTotal()));
+        properties.setProperty("state", job.getState().name());
+        properties.setProperty("completed", Integer.toString(job.getCompleted()));
+        properties.setProperty("failed", Integer.toString(job.getFailed()));
+        if (job.getMessage() != null) {
+            properties.setProperty("message", job.getMessage());
+        }
+        properties.setProperty("sources.required", join(Arrays.asList(job.getRequiredSources())));
+        properties.setProperty("sources.preferred", join(job.getPreferredSources()));
+        properties.setProperty("sources.ontologies", join(Arrays.asList(job.getOntologySources())));
+
+        // write to a temporary file and move into place, so a crash never leaves a partially written file
+        File jobDirectory = getJobDirectory(job);
+        File tempFile = new File(jobDirectory, JOB_FILE + ".tmp");
+        try {
+            try (OutputStream out = new FileOutputStream(tempFile)) {
+                properties.store(out, "ZOOMA mapping job");
+            }
+            Files.move(tempFile.toPath(),
+                       new File(jobDirectory, JOB_FILE).toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            throw new ZoomaStorageException("Unable to save mapping job " + job.getId(), e);
+        }
+    }
+
+    /**
+     * Loads every job in this store.  The searches already completed by unfinished jobs are not recovered until {@link
+     * #recoverResults(MappingJob)} is called.
+     *
+     * @return the stored jobs
+     */
+    public Collection<MappingJob> loadJobs() {
+        List<MappingJob> jobs = new ArrayList<>();
+        File[] jobDirectories = directory.listFiles();
+        if (jobDirectories != null) {
+            for (File jobDirectory : jobDirectories) {
+                File jobFile = new File(jobDirectory, JOB_FILE);
+                if (jobFile.exists()) {
+                    try {
+                        jobs.add(loadJob(jobFile));
+                    }
+                    catch (IOException | RuntimeException e) {
+                        getLog().error("Unable to load mapping job from '" + jobFile + "', it will be ignored", e);
+                    }
+                }
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Opens the properties of the given job for reading, in order
+     *
+     * @param job the job to read properties for
+     * @return a reader over the properties of the job
+     * @throws ZoomaStorageException if the properties could not be read
+     */
+    public PropertyReader openProperties(MappingJob job) throws ZoomaStorageException {
+        try {
+            return new PropertyReader(new File(getJobDirectory(job), PROPERTIES_FILE));
+        }
+        catch (IOException e) {
+            throw new ZoomaStorageException("Unable to read properties for mapping job " + job.getId(), e);
+        }
+    }
+
+    /**
+     * Appends the rendered report lines for one searched property to the results of the given job.  Results may be
+     * appended in any order, and are flushed before this method returns.
+     *
+     * @param job       the job the property belongs to
+     * @param index     the position of the property in the job
+     * @param succeeded whether the search for the property succeeded
+     * @param lines     the rendered report lines for the property
+     * @throws ZoomaStorageException if the result could not be stored
+     */
+    public void appendResult(MappingJob job, int index, boolean succeeded, String lines) throws ZoomaStorageException {
+        byte[] bytes = lines.getBytes(StandardCharsets.UTF_8);
+        try {
+            DataOutputStream out = getResultWriter(job);
+            synchronized (out) {
+                out.writeInt(index);
+                out.writeBoolean(succeeded);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                out.flush();
+            }
+        }
+        catch (IOException e) {
+            throw new ZoomaStorageException("Unable to store result for mapping job " + job.getId(), e);
+        }
+    }
+
+    /**
+     * Reads back the results of the given job that were stored before it was interrupted, and records them against the
+     * job.  Any partially written result at the end of the results file is discarded.
+     *
+     * @param job the job to recover results for
+     * @return the positions of the properties that have already been searched
+     * @throws ZoomaStorageException if the results could not be read
+     */
+    public BitSet recoverResults(MappingJob job) throws ZoomaStorageException {
+        BitSet searched = new BitSet(job.getTotal());
+        File resultsFile = new File(getJobDirectory(job), RESULTS_FILE);
+        if (!resultsFile.exists()) {
+            return searched;
+        }
+
+        long validLength = 0;
+        try (RandomAccessFile results = new RandomAccessFile(resultsFile, "rw")) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(results.getFD())));
+            try {
+                while (true) {
+                    int index = in.readInt();
+                    boolean succeeded = in.readBoolean();
+                    int length = in.readInt();
+                    in.readFully(new byte[length]);
+                    validLength += 9 + length;
+                    if (!searched.get(index)) {
+                        searched.set(index);
+                        job.recordSearch(succeeded);
+                    }
+                }
+            }
+            catch (EOFException e) {
+                // reached the end of the complete results
+            }
+            if (validLength < results.length()) {
+                getLog().debug("Discarding a partially written result for mapping job " + job.getId());
+                results.setLength(validLength);
+            }
+        }
+        catch (IOException e) {
+            throw new ZoomaStorageException("Unable to recover results for mapping job " + job.getId(), e);
+        }
+        return searched;
+    }
+
+    /**
+     * Writes the finished report for the given job, by writing the supplied header followed by the stored results in
+     * the same order as the job properties.  The unordered results are discarded once the report is written.
+     *
+     * @param job    the job to write the report for
+     * @param header the report header
+     * @throws ZoomaStorageException if the report could not be written
+     */
+    public void writeReport(MappingJob job, String header) throws ZoomaStorageException {
+        File jobDirectory = getJobDirectory(job);
+        File resultsFile = new File(jobDirectory, RESULTS_FILE);
+        closeResultWriter(job);
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(new File(jobDirectory, REPORT_FILE)))) {
+            out.write(header.getBytes(StandardCharsets.UTF_8));
+            if (resultsFile.exists()) {
+                try (RandomAccessFile results = new RandomAccessFile(resultsFile, "r")) {
+                    // index the position of each result, then copy results in property order
+                    long[] offsets = new long[job.getTotal()];
+                    Arrays.fill(offsets, -1);
+                    long offset = 0;
+                    DataInputStream in = new DataInputStream(
+                            new BufferedInputStream(new FileInputStream(results.getFD())));
+                    while (offset < results.length()) {
+                        int index = in.readInt();
+                        in.readBoolean();
+                        int length = in.readInt();
+                        if (in.skipBytes(length) != length) {
+                            throw new EOFException("Truncated result for property " + index);
+                        }
+                        offsets[index] = offset;
+                        offset += 9 + length;
+                    }
+
+                    byte[] buffer = new byte[8192];
+                    for (long resultOffset : offsets) {
+                        if (resultOffset >= 0) {
+                            results.seek(resultOffset + 5);
+                            int length = results.readInt();
+                            while (length > 0) {
+                                int read = results.read(buffer, 0, Math.min(buffer.length, length));
+                                if (read < 0) {
+                                    throw new EOFException("Truncated result at offset " + resultOffset);
+                                }
+                                out.write(buffer, 0, read);
+                                length -= read;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new ZoomaStorageException("Unable to write report for mapping job " + job.getId(), e);
+        }
+        if (resultsFile.exists() && !resultsFile.delete()) {
+            getLog().warn("Unable to delete results file '" + resultsFile + "'");
+        }
+    }
+
+    /**
+     * Opens the finished report for the given job
+     *
+     * @param job the job to read the report of
+     * @return a stream over the report
+     * @throws ZoomaStorageException if the report has not been written or could not be read
+     */
+    public InputStream openReport(MappingJob job) throws ZoomaStorageException {
+        try {
+            return new FileInputStream(getReportFile(job));
+        }
+        catch (IOException e) {
+            throw new ZoomaStorageException("Unable to read report for mapping job " + job.getId(), e);
+        }
+    }
+
+    /**
+     * Returns the size of the finished report for the given job, in bytes
+     *
+     * @param job the job to get the report size of
+     * @return the size of the report, or 0 if it has not been written
+     */
+    public long getReportSize(MappingJob job) {
+        return getReportFile(job).length();
+    }
+
+    /**
+     * Deletes the given job and all its data from this store
+     *
+     * @param job the job to delete
+     */
+    public void deleteJob(MappingJob job) {
+        closeResultWriter(job);
+        File jobDirectory = getJobDirectory(job);
+        File[] files = jobDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.delete()) {
+                    getLog().warn("Unable to delete mapping job file '" + file + "'");
+                }
+            }
+        }
+        if (jobDirectory.exists() && !jobDirectory.delete()) {
+            getLog().warn("Unable to delete mapping job directory '" + jobDirectory + "'");
+        }
+    }
+
+    /**
+     * Closes any files held open for the given job
+     *
+     * @param job the job to close files for
+     */
+    public void closeResultWriter(MappingJob job) {
+        DataOutputStream out = resultWriters.remove(job.getId());
+        if (out != null) {
+            synchronized (out) {
+                try {
+                    out.close();
+                }
+                catch (IOException e) {
+                    getLog().warn("Unable to close results file for mapping job " + job.getId(), e);
+                }
+            }
+        }
+    }
+
+    private File getJobDirectory(MappingJob job) {
+        return new File(directory, job.getId());
+    }
+
+    private File getReportFile(MappingJob job) {
+        return new File(getJobDirectory(job), REPORT_FILE);
+    }
+
+    private DataOutputStream getResultWriter(MappingJob job) throws IOException {
+        DataOutputStream out = resultWriters.get(job.getId());
+        if (out == null) {
+            synchronized (resultWriters) {
+                out = resultWriters.get(job.getId());
+                if (out == null) {
+                    File resultsFile = new File(getJobDirectory(job), RESULTS_FILE);
+                    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(resultsFile, true)));
+                    resultWriters.put(job.getId(), out);
+                }
+            }
+        }
+        return out;
+    }
+
+    private MappingJob loadJob(File jobFile) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(jobFile)) {
+            properties.load(in);
+        }
+
+        MappingJob job = new MappingJob(properties.getProperty("id"),
+                                        properties.getProperty("owner"),
+                                        new Date(Long.parseLong(properties.getProperty("created"))),
+                                        Integer.parseInt(properties.getProperty("total")),
+                                        split(properties.getProperty("sources.required")).toArray(new URI[0]),
+                                        split(properties.getProperty("sources.preferred")),
+                                        split(properties.getProperty("sources.ontologies")).toArray(new URI[0]));
+        job.setState(MappingJob.State.valueOf(properties.getProperty("state")));
+        job.setMessage(properties.getProperty("message"));
+        if (job.isFinished()) {
+            // only finished jobs have final counts, unfinished jobs are counted as their results are recovered
+            int failed = Integer.parseInt(properties.getProperty("failed"));
+            int completed = Integer.parseInt(properties.getProperty("completed"));
+            for (int i = 0; i < completed; i++) {
+                job.recordSearch(i >= failed);
+            }
+        }
+        return job;
+    }
+
+    private String join(Collection<URI> uris) {
+        StringBuilder sb = new StringBuilder();
+        for (URI uri : uris) {
+            if (sb.length() > 0) {
+                sb.append(" ");
+            }
+            sb.append(uri.toString());
+        }
+        return sb.toString();
+    }
+
+    private List<URI> split(String uris) {
+        List<URI> results = new ArrayList<>();
+        if (uris != null) {
+            for (String uri : uris.trim().split("\\s+")) {
+                if (!uri.isEmpty()) {
+                    results.add(URI.create(uri));
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Reads the properties of a stored job, in order
+     */
+    public static class PropertyReader implements Closeable {
+        private final DataInputStream in;
+
+        private PropertyReader(File propertiesFile) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(propertiesFile)));
+        }
+
+        /**
+         * Returns the next property, or null if there are no more properties
+         *
+         * @return the next property
+         * @throws IOException if the properties could not be read
+         */
+        public Property next() throws IOException {
+            boolean typed;
+            try {
+                typed = in.readBoolean();
+            }
+            catch (EOFException e) {
+                return null;
+            }
+            if (typed) {
+                String propertyType = in.readUTF();
+                return new SimpleTypedProperty(propertyType, in.readUTF());
+            }
+            else {
+                return new SimpleUntypedProperty(in.readUTF());
+            }
+        }
+
+        @Override public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import uk.ac.ebi.fgpt.zooma.io.MappingJobStore;
+
+import java.net.URI;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A request to map a list of properties to ontology terms, run in the background by a {@link MappingJobService}.
+ * <p/>
+ * The properties and results of a job are kept in a {@link MappingJobStore} rather than in memory, so a job only holds
+ * its search settings and progress.  Jobs are identified by an ID, and belong to an owner (usually an HTTP session) so
+ * that jobs from different owners can be scheduled fairly.
+ *
+ * @date 18/10/26
+ */
+public class MappingJob {
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETE,
+        FAILED,
+        CANCELLED
+    }
+
+    private final String id;
+    private final String owner;
+    private final Date created;
+    private final int total;
+
+    private final URI[] requiredSources;
+    private final List<URI> preferredSources;
+    private final URI[] ontologySources;
+
+    private volatile State state;
+    private volatile String message;
+    private final AtomicInteger completed;
+    private final AtomicInteger failed;
+
+    // scheduling state, guarded by the owning service
+    private MappingJobStore.PropertyReader propertyReader;
+    private BitSet recovered;
+    private int nextIndex;
+
+    public MappingJob(String id,
+                      String owner,
+                      Date created,
+                      int total,
+                      URI[] requiredSources,
+                      List<URI> preferredSources,
+                      URI[] ontologySources) {
+        this.id = id;
+        this.owner = owner;
+        this.created = created;
+        this.total = total;
+        this.requiredSources = requiredSources;
+        this.preferredSources = preferredSources;
+        this.ontologySources = ontologySources;
+
+        this.state = State.QUEUED;
+        this.completed = new AtomicInteger();
+        this.failed = new AtomicInteger();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the owner of this job.  Owners are usually HTTP session IDs, so they are never rendered.
+     *
+     * @return the owner of this job
+     */
+    @JsonIgnore
+    public String getOwner() {
+        return owner;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    /**
+     * Returns the number of properties to be mapped by this job
+     *
+     * @return the number of properties
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the number of properties that have been searched so far, including those whose search failed
+     *
+     * @return the number of completed searches
+     */
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * Returns the number of properties that could not be searched
+     *
+     * @return the number of failed searches
+     */
+    public int getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Returns the fraction of properties that have been searched so far, between 0 and 1
+     *
+     * @return the progress of this job
+     */
+    public float getProgress() {
+        return total == 0 ? 1f : (float) getCompleted() / total;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns true if this job has stopped running, whether or not it ran successfully
+     *
+     * @return true if this job is complete, failed or cancelled
+     */
+    public boolean isFinished() {
+        return state == State.COMPLETE || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    /**
+     * Returns a description of any problems this job encountered, or null if there were none
+     *
+     * @return a message describing problems with this job
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public URI[] getRequiredSources() {
+        return requiredSources;
+    }
+
+    public List<URI> getPreferredSources() {
+        return preferredSources;
+    }
+
+    public URI[] getOntologySources() {
+        return ontologySources;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Records the outcome of the search for one property
+     *
+     * @param succeeded whether the search succeeded
+     * @return the number of completed searches, including this one
+     */
+    public int recordSearch(boolean succeeded) {
+        if (!succeeded) {
+            failed.incrementAndGet();
+        }
+        return completed.incrementAndGet();
+    }
+
+    MappingJobStore.PropertyReader getPropertyReader() {
+        return propertyReader;
+    }
+
+    void setPropertyReader(MappingJobStore.PropertyReader propertyReader) {
+        this.propertyReader = propertyReader;
+    }
+
+    BitSet getRecovered() {
+        return recovered;
+    }
+
+    void setRecovered(BitSet recovered) {
+        this.recovered = recovered;
+    }
+
+    int nextIndex() {
+        return nextIndex++;
+    }
+
+    @Override public String toString() {
+        return "MappingJob {" +
+                "id='" + id + '\'' +
+                ", state=" + state +
+                ", completed=" + getCompleted() + "/" + total +
+                '}';
+    }
+}
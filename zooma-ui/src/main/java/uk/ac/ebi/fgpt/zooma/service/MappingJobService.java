@@ -0,0 +1,495 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.ebi.fgpt.zooma.access.Zooma;
+import uk.ac.ebi.fgpt.zooma.exception.NoSuchResourceException;
+import uk.ac.ebi.fgpt.zooma.exception.ZoomaStorageException;
+import uk.ac.ebi.fgpt.zooma.io.MappingJobStore;
+import uk.ac.ebi.fgpt.zooma.io.ZOOMAReportRenderer;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationPrediction;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+import uk.ac.ebi.fgpt.zooma.util.OntologyLabelMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link MappingJob}s on a fixed pool of worker threads, keeping job properties and results in a {@link
+ * MappingJobStore}.
+ * <p/>
+ * Work is scheduled one property at a time, taking turns between the owners of queued jobs, so a large job submitted
+ * by one owner does not hold up the jobs of others.  Each owner's jobs run in the order they were submitted.  Jobs that
+ * were interrupted by a shutdown are resumed from the store when this service is initialized, and finished jobs are
+ * deleted once they are older than the configured expiry.
+ * <p/>
+ * This service is configured as a bean in the ZOOMA servlet context, which calls {@link #init()} once it is created
+ * and {@link #destroy()} on shutdown.
+ *
+ * @date 18/10/26
+ */
+public class MappingJobService {
+    private final Zooma zooma;
+    private final ZOOMAReportRenderer renderer;
+    private final MappingJobStore store;
+    private final int workerCount;
+    private final long expiry;
+
+    private final ConcurrentMap<String, MappingJob> jobs;
+
+    // queued jobs by owner, and owners in the order they next get a turn; guarded by 'this'
+    private final Map<String, Deque<MappingJob>> queuedJobs;
+    private final Deque<String> owners;
+
+    private final List<Thread> workers;
+    private volatile boolean running;
+
+    private Logger log = LoggerFactory.getLogger(getClass());
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    /**
+     * Creates a new mapping job service.  Call {@link #init()} to resume stored jobs and start the workers.
+     *
+     * @param zooma           the ZOOMA instance to search
+     * @param ontologyService the service used to lookup ontology term labels and synonyms when rendering reports
+     * @param store           the store that holds job data
+     * @param workerCount     the number of properties to search concurrently
+     * @param expiry          the time to keep finished jobs for, in hours
+     */
+    public MappingJobService(Zooma zooma,
+                             OntologyService ontologyService,
+                             MappingJobStore store,
+                             int workerCount,
+                             int expiry) {
+        this.zooma = zooma;
+        this.renderer = new ZOOMAReportRenderer(new LabelMapper(ontologyService));
+        this.store = store;
+        this.workerCount = workerCount;
+        this.expiry = TimeUnit.HOURS.toMillis(expiry);
+
+        this.jobs = new ConcurrentHashMap<>();
+        this.queuedJobs = new HashMap<>();
+        this.owners = new ArrayDeque<>();
+        this.workers = new ArrayList<>();
+    }
+
+    /**
+     * Loads the jobs in the store, resumes any that are unfinished, and starts the worker threads
+     */
+    public synchronized void init() {
+        if (!store.getDirectory().exists() && !store.getDirectory().mkdirs()) {
+            throw new IllegalStateException("Unable to create mapping job directory '" + store.getDirectory() + "'");
+        }
+
+        for (MappingJob job : store.loadJobs()) {
+            jobs.put(job.getId(), job);
+            if (!job.isFinished()) {
+                try {
+                    job.setRecovered(store.recoverResults(job));
+                    getLog().info("Resuming " + job + ", " + job.getCompleted() + " properties were already searched");
+                    if (job.getCompleted() == job.getTotal()) {
+                        finish(job);
+                    }
+                    else {
+                        enqueue(job);
+                    }
+                }
+                catch (ZoomaStorageException e) {
+                    fail(job, e);
+                }
+            }
+        }
+        deleteExpiredJobs();
+
+        running = true;
+        for (int i = 1; i <= workerCount; i++) {
+            Thread worker = new Thread(new Runnable() {
+                @Override public void run() {
+                    work();
+                }
+            }, "ui-search-thread-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * Stops the worker threads, waiting for searches in progress to finish.  Unfinished jobs are resumed the next time
+     * a service is initialized with the same store.
+     */
+    public void destroy() {
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.MINUTES.toMillis(2));
+            }
+            catch (InterruptedException e) {
+                getLog().error("Interrupted whilst waiting for mapping workers to stop", e);
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (MappingJob job : jobs.values()) {
+            store.closeResultWriter(job);
+        }
+    }
+
+    /**
+     * Submits a new job to map the given properties
+     *
+     * @param owner            the owner of the job, used to share workers fairly between owners
+     * @param properties       the properties to map
+     * @param requiredSources  the sources to restrict searches to
+     * @param preferredSources the sources to prefer results from, in order of preference
+     * @param ontologySources  the ontologies to search
+     * @return the new job
+     * @throws ZoomaStorageException if the job could not be stored
+     */
+    public MappingJob submit(String owner,
+                             List<Property> properties,
+                             URI[] requiredSources,
+                             List<URI> preferredSources,
+                             URI[] ontologySources) throws ZoomaStorageException {
+        deleteExpiredJobs();
+
+        MappingJob job = new MappingJob(UUID.randomUUID().toString(),
+                                        owner,
+                                        new Date(),
+                                        properties.size(),
+                                        requiredSources,
+                                        preferredSources,
+                                        ontologySources);
+        store.createJob(job, properties);
+        jobs.put(job.getId(), job);
+        getLog().debug("Submitted " + job);
+
+        synchronized (this) {
+            if (job.getTotal() == 0) {
+                finish(job);
+            }
+            else {
+                enqueue(job);
+            }
+        }
+        return job;
+    }
+
+    /**
+     * Returns the job with the given ID
+     *
+     * @param jobId the ID of the job
+     * @return the job
+     * @throws NoSuchResourceException if there is no job with this ID
+     */
+    public MappingJob getJob(String jobId) {
+        MappingJob job = jobId == null ? null : jobs.get(jobId);
+        if (job == null) {
+            throw new NoSuchResourceException("There is no mapping job with ID '" + jobId + "'");
+        }
+        return job;
+    }
+
+    /**
+     * Opens the report of the given job.  Reports are only available once a job has finished.
+     *
+     * @param jobId the ID of the job
+     * @return a stream over the report
+     * @throws ZoomaStorageException if the report could not be read
+     * @throws IllegalStateException if the job has not finished yet
+     */
+    public InputStream openReport(String jobId) throws ZoomaStorageException {
+        MappingJob job = getJob(jobId);
+        if (!job.isFinished() || job.getState() == MappingJob.State.CANCELLED) {
+            throw new IllegalStateException("The report for mapping job " + jobId + " is not available");
+        }
+        return store.openReport(job);
+    }
+
+    /**
+     * Returns the size of the report of the given job, in bytes
+     *
+     * @param jobId the ID of the job
+     * @return the size of the report
+     */
+    public long getReportSize(String jobId) {
+        return store.getReportSize(getJob(jobId));
+    }
+
+    /**
+     * Cancels the given job, if it is still running, and deletes it
+     *
+     * @param jobId the ID of the job
+     */
+    public void cancel(String jobId) {
+        MappingJob job = getJob(jobId);
+        synchronized (this) {
+            if (!job.isFinished()) {
+                job.setState(MappingJob.State.CANCELLED);
+            }
+            Deque<MappingJob> ownerJobs = queuedJobs.get(job.getOwner());
+            if (ownerJobs != null) {
+                ownerJobs.remove(job);
+            }
+            closePropertyReader(job);
+        }
+        jobs.remove(jobId);
+        store.deleteJob(job);
+        getLog().debug("Cancelled " + job);
+    }
+
+    private void enqueue(MappingJob job) throws ZoomaStorageException {
+        job.setPropertyReader(store.openProperties(job));
+        Deque<MappingJob> ownerJobs = queuedJobs.get(job.getOwner());
+        if (ownerJobs == null) {
+            ownerJobs = new ArrayDeque<>();
+            queuedJobs.put(job.getOwner(), ownerJobs);
+            owners.add(job.getOwner());
+        }
+        ownerJobs.add(job);
+        notifyAll();
+    }
+
+    private void work() {
+        while (true) {
+            Search search = nextSearch();
+            if (search == null) {
+                return;
+            }
+            search.run();
+        }
+    }
+
+    /**
+     * Waits for the next property to search, taking the next owner in turn.  Returns null when this service stops.
+     */
+    private synchronized Search nextSearch() {
+        while (running) {
+            String owner = owners.poll();
+            if (owner == null) {
+                try {
+                    wait();
+                }
+                catch (InterruptedException e) {
+                    return null;
+                }
+                continue;
+            }
+
+            Deque<MappingJob> ownerJobs = queuedJobs.get(owner);
+            while (!ownerJobs.isEmpty()) {
+                MappingJob job = ownerJobs.peek();
+                try {
+                    Property property;
+                    int index;
+                    do {
+                        property = job.getPropertyReader().next();
+                        index = job.nextIndex();
+                    }
+                    while (property != null && job.getRecovered() != null && job.getRecovered().get(index));
+
+                    if (property != null) {
+                        if (job.getState() == MappingJob.State.QUEUED) {
+                            job.setState(MappingJob.State.RUNNING);
+                        }
+                        // this owner goes to the back of the queue
+                        owners.add(owner);
+                        return new Search(job, index, property);
+                    }
+                }
+                catch (IOException e) {
+                    fail(job, e);
+                }
+                // every property of this job has been dispatched
+                closePropertyReader(job);
+                ownerJobs.poll();
+            }
+            queuedJobs.remove(owner);
+        }
+        return null;
+    }
+
+    private void complete(MappingJob job, int index, Property property, List<AnnotationPrediction> predictions) {
+        if (job.isFinished()) {
+            // cancelled or failed whilst searching
+            return;
+        }
+
+        StringWriter lines = new StringWriter();
+        PrintWriter writer = new PrintWriter(lines);
+        renderer.renderAnnotations(writer, writer, property, null, predictions);
+        writer.flush();
+
+        try {
+            store.appendResult(job, index, predictions != null, lines.toString());
+            // only the last search to complete finishes the job, outside the lock as writing the report is slow
+            if (job.recordSearch(predictions != null) == job.getTotal()) {
+                finish(job);
+            }
+        }
+        catch (ZoomaStorageException e) {
+            synchronized (this) {
+                fail(job, e);
+            }
+        }
+    }
+
+    private void finish(MappingJob job) {
+        if (job.isFinished()) {
+            return;
+        }
+        try {
+            StringWriter header = new StringWriter();
+            renderer.renderReportHeader(new PrintWriter(header));
+            store.writeReport(job, header.toString());
+            if (job.getFailed() > 0) {
+                job.setMessage("There were " + job.getFailed() + " ZOOMA searches that encountered problems");
+            }
+            job.setState(MappingJob.State.COMPLETE);
+            job.setRecovered(null);
+            store.saveJob(job);
+            getLog().info("Successfully generated ZOOMA report for " + job);
+        }
+        catch (ZoomaStorageException e) {
+            fail(job, e);
+        }
+    }
+
+    private void fail(MappingJob job, Exception e) {
+        if (job.getState() == MappingJob.State.CANCELLED) {
+            return;
+        }
+        getLog().error("Mapping job " + job.getId() + " failed", e);
+        job.setState(MappingJob.State.FAILED);
+        job.setMessage(e.getMessage());
+        job.setRecovered(null);
+        closePropertyReader(job);
+        store.closeResultWriter(job);
+        try {
+            store.saveJob(job);
+        }
+        catch (ZoomaStorageException se) {
+            getLog().error("Unable to save failed mapping job " + job.getId(), se);
+        }
+    }
+
+    private void closePropertyReader(MappingJob job) {
+        if (job.getPropertyReader() != null) {
+            try {
+                job.getPropertyReader().close();
+            }
+            catch (IOException e) {
+                getLog().warn("Unable to close properties of mapping job " + job.getId(), e);
+            }
+            job.setPropertyReader(null);
+        }
+    }
+
+    private void deleteExpiredJobs() {
+        long cutoff = System.currentTimeMillis() - expiry;
+        Collection<MappingJob> expired = new ArrayList<>();
+        for (MappingJob job : jobs.values()) {
+            if (job.isFinished() && job.getCreated().getTime() < cutoff) {
+                expired.add(job);
+            }
+        }
+        for (MappingJob job : expired) {
+            getLog().debug("Deleting expired " + job);
+            jobs.remove(job.getId());
+            store.deleteJob(job);
+        }
+    }
+
+    private static class LabelMapper implements OntologyLabelMapper {
+        private final OntologyService ontologyService;
+
+        private LabelMapper(OntologyService ontologyService) {
+            this.ontologyService = ontologyService;
+        }
+
+        @Override
+        public String getLabel(URI uri) {
+            return ontologyService.getLabel(uri);
+        }
+
+        @Override
+        public Collection<String> getSynonyms(URI uri) {
+            return ontologyService.getSynonyms(uri);
+        }
+
+        @Override
+        public URI getURI(String label) {
+            throw new UnsupportedOperationException("This mapper does not support URI lookup from labels");
+        }
+    }
+
+    /**
+     * A search for a single property of a job
+     */
+    private class Search implements Runnable {
+        private final MappingJob job;
+        private final int index;
+        private final Property property;
+
+        private Search(MappingJob job, int index, Property property) {
+            this.job = job;
+            this.index = index;
+            this.property = property;
+        }
+
+        @Override public void run() {
+            List<AnnotationPrediction> predictions;
+            try {
+                String propertyValue = property.getPropertyValue();
+                String propertyType =
+                        property instanceof TypedProperty ? ((TypedProperty) property).getPropertyType() : null;
+                URI[] requiredSources = job.getRequiredSources();
+                List<URI> preferredSources = job.getPreferredSources();
+                URI[] ontologySources = job.getOntologySources();
+                if (preferredSources.isEmpty() && requiredSources.length == 0) {
+                    predictions = propertyType != null
+                            ? zooma.annotate(propertyValue, propertyType, requiredSources, ontologySources)
+                            : zooma.annotate(propertyValue, requiredSources, ontologySources);
+                }
+                else {
+                    predictions = propertyType != null
+                            ? zooma.annotate(propertyValue,
+                                             propertyType,
+                                             preferredSources,
+                                             requiredSources,
+                                             ontologySources)
+                            : zooma.annotate(propertyValue, preferredSources, requiredSources, ontologySources);
+                }
+            }
+            catch (Exception e) {
+                getLog().error("Problems annotating '" + property + "' " +
+                                       "(" + e.getClass().getSimpleName() + ": " + e.getMessage() + ")");
+                getLog().debug("Exception processing query '" + property + "'", e);
+                predictions = null;
+            }
+            complete(job, index, property, predictions);
+        }
+    }
+}
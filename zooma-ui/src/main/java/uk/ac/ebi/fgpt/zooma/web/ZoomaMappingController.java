@@ -1,12 +1,15 @@
 package uk.ac.ebi.fgpt.zooma.web;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -14,52 +17,38 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import uk.ac.ebi.fgpt.zooma.access.SourceFilteredEndpoint;
-import uk.ac.ebi.fgpt.zooma.access.Zooma;
+import uk.ac.ebi.fgpt.zooma.exception.NoSuchResourceException;
 import uk.ac.ebi.fgpt.zooma.exception.SearchException;
 import uk.ac.ebi.fgpt.zooma.exception.SearchResourcesUnavailableException;
 import uk.ac.ebi.fgpt.zooma.exception.SearchTimeoutException;
-import uk.ac.ebi.fgpt.zooma.io.ZOOMAReportRenderer;
-import uk.ac.ebi.fgpt.zooma.model.AnnotationPrediction;
 import uk.ac.ebi.fgpt.zooma.model.Property;
 import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
 import uk.ac.ebi.fgpt.zooma.model.SimpleUntypedProperty;
-import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
-import uk.ac.ebi.fgpt.zooma.search.ZOOMASearchTimer;
-import uk.ac.ebi.fgpt.zooma.service.OntologyService;
-import uk.ac.ebi.fgpt.zooma.util.OntologyLabelMapper;
+import uk.ac.ebi.fgpt.zooma.service.MappingJob;
+import uk.ac.ebi.fgpt.zooma.service.MappingJobService;
 
-import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Properties;
-import java.util.concurrent.Callable;
-import java.util.concurrent.CompletionService;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A controller stereotype that provides a REST-API endpoint to run a ZOOMA search over a series of properties.
  * <p/>
  * This class is essentially an alternative to {@link uk.ac.ebi.fgpt.zooma.search.ZOOMASearchClient}, optimized to run
  * searches in a web-application context instead of standalone application.
+ * <p/>
+ * Each request is run as a {@link MappingJob} by a {@link MappingJobService}, which stores properties and results on
+ * disk rather than in the HTTP session.  Jobs can be followed using the ID returned from <code>/jobs</code>, or via the
+ * session using the original endpoints, which only keep the ID of the latest job in the session.
  *
  * @author Tony Burdett
  * @date 02/04/13
@@ -67,12 +56,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 @Controller
 @RequestMapping("/services/map")
 public class ZoomaMappingController extends SourceFilteredEndpoint {
-    private final Zooma zooma;
-    private final OntologyService ontologyService;
-
-    private final ExecutorService searchExecutorService;
+    private static final String SESSION_JOB_ATTRIBUTE = "mappingJob";
 
-    private final float searchTimeout;
+    private final MappingJobService mappingJobService;
+    private final JsonFactory jsonFactory = new JsonFactory();
 
     private Logger log = LoggerFactory.getLogger(getClass());
 
@@ -81,20 +68,8 @@ public class ZoomaMappingController extends SourceFilteredEndpoint {
     }
 
     @Autowired
-    public ZoomaMappingController(Zooma zooma,
-                                  OntologyService ontologyService,
-                                  @Qualifier("configurationProperties") Properties configuration) {
-        this.zooma = zooma;
-        this.ontologyService = ontologyService;
-        this.searchTimeout = Float.parseFloat(configuration.getProperty("zooma.search.timeout")) * 1000;
-
-        int concurrency = Integer.parseInt(configuration.getProperty("zooma.search.concurrent.threads"));
-        final AtomicInteger integer = new AtomicInteger(1);
-        this.searchExecutorService = Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
-            @Override public Thread newThread(Runnable r) {
-                return new Thread(r, "ui-search-thread-" + integer.getAndIncrement());
-            }
-        });
+    public ZoomaMappingController(MappingJobService mappingJobService) {
+        this.mappingJobService = mappingJobService;
     }
 
     @RequestMapping(method = RequestMethod.POST, consumes = "application/json")
@@ -102,15 +77,33 @@ public class ZoomaMappingController extends SourceFilteredEndpoint {
                                                @RequestBody ZoomaMappingRequest request,
                                                HttpSession session)
             throws IOException {
-        List<Property> properties = parseMappingRequest(request);
-        session.setAttribute("properties", properties);
-        session.setAttribute("progress", 0);
+        MappingJob job = submitMappingJob(filter, request, session);
+        session.setAttribute(SESSION_JOB_ATTRIBUTE, job.getId());
+        return "Mapping request of " + job.getTotal() + " properties was successfully received";
+    }
 
-        URI[] requiredSources = parseRequiredSourcesFromFilter(filter);
-        List<URI> preferredSources = parsePreferredSourcesFromFilter(filter);
-        URI[] ontologySources = parseOntologySourcesFromFilter(filter);
-        searchZOOMA(properties, requiredSources, preferredSources, ontologySources, session);
-        return "Mapping request of " + properties.size() + " properties was successfully received";
+    @RequestMapping(value = "/jobs", method = RequestMethod.POST, consumes = "application/json")
+    public @ResponseBody MappingJob requestMappingJob(@RequestParam(required = false, defaultValue = "") String filter,
+                                                      @RequestBody ZoomaMappingRequest request,
+                                                      HttpSession session)
+            throws IOException {
+        return submitMappingJob(filter, request, session);
+    }
+
+    @RequestMapping(value = "/jobs/{jobId}", method = RequestMethod.GET)
+    public @ResponseBody MappingJob getMappingJob(@PathVariable String jobId) {
+        return mappingJobService.getJob(jobId);
+    }
+
+    @RequestMapping(value = "/jobs/{jobId}/report", method = RequestMethod.GET, produces = "text/plain")
+    public void getMappingJobReport(@PathVariable String jobId, HttpServletResponse response) throws IOException {
+        writeMappingReport(jobId, response);
+    }
+
+    @RequestMapping(value = "/jobs/{jobId}", method = RequestMethod.DELETE)
+    public @ResponseBody String cancelMappingJob(@PathVariable String jobId) {
+        mappingJobService.cancel(jobId);
+        return "Mapping job " + jobId + " was cancelled";
     }
 
     @RequestMapping(value = "/sample", method = RequestMethod.GET)
@@ -124,30 +117,23 @@ public class ZoomaMappingController extends SourceFilteredEndpoint {
 
     @RequestMapping(value = "/test", method = RequestMethod.GET)
     public @ResponseBody String test(HttpSession session) throws IOException {
-        List<Property> properties = getSampleData();
-        URI[] requiredSources = new URI[]{};
-        URI[] ontologySources = new URI[]{};
-        List<URI> preferredSources = new ArrayList<>();
-        session.setAttribute("properties", properties);
-        session.setAttribute("progress", 0f);
-
-        searchZOOMA(properties, requiredSources, preferredSources, ontologySources, session);
+        MappingJob job = mappingJobService.submit(session.getId(),
+                                                  getSampleData(),
+                                                  new URI[]{},
+                                                  new ArrayList<URI>(),
+                                                  new URI[]{});
+        session.setAttribute(SESSION_JOB_ATTRIBUTE, job.getId());
         return "Doing ZOOMA search";
     }
 
     @RequestMapping(value = "/status", method = RequestMethod.GET)
     public @ResponseBody float checkMappingStatus(HttpSession session) {
         float progress;
-        if (session.getAttribute("progress") != null) {
-            //noinspection RedundantCast
-            float done = (float) ((Integer) session.getAttribute("progress"));
-            float total = (float) ((List) session.getAttribute("properties")).size();
-            if (done > 0) {
-                progress = done / total;
-            }
-            else {
-                progress = 0;
-            }
+        String jobId = (String) session.getAttribute(SESSION_JOB_ATTRIBUTE);
+        if (jobId != null) {
+            MappingJob job = mappingJobService.getJob(jobId);
+            // only report completion once the report is ready to be fetched
+            progress = job.isFinished() ? 1f : Math.min(job.getProgress(), 0.99f);
         }
         else {
             progress = 0;
@@ -157,53 +143,56 @@ public class ZoomaMappingController extends SourceFilteredEndpoint {
     }
 
     @RequestMapping(method = RequestMethod.GET, produces = "text/plain")
-    public @ResponseBody String getMappingReport(HttpSession session) {
+    public void getMappingReport(HttpSession session, HttpServletResponse response) throws IOException {
         getLog().debug("Getting result");
-        Object result = session.getAttribute("result");
-        if (checkMappingStatus(session) == 1f) {
-            while (result == null) {
-                getLog().debug("Pending result, report rendering?");
-                synchronized (this) {
-                    try {
-                        this.wait(500);
-                    }
-                    catch (InterruptedException e) {
-                        getLog().error("Interrupted", e);
-                    }
-                }
-                result = session.getAttribute("result");
-            }
-        }
-        if (result != null && !result.toString().isEmpty()) {
-            getLog().debug("Result: " + result);
-            return result.toString();
+        String jobId = (String) session.getAttribute(SESSION_JOB_ATTRIBUTE);
+        if (jobId != null && mappingJobService.getJob(jobId).getState() == MappingJob.State.COMPLETE) {
+            writeMappingReport(jobId, response);
         }
         else {
             getLog().debug("Result is empty");
-            return "";
+            response.setContentType("text/plain");
+            response.setContentLength(0);
         }
     }
 
+    /**
+     * Writes the report of the latest job in the session as JSON, with a status message and an array of rows, each of
+     * which is an array of the columns of a report line.  Rows are streamed from the stored report as they are read,
+     * so large reports are never held in memory.
+     *
+     * @param session  the session of the user that submitted the job
+     * @param response the response to write to
+     * @throws IOException if the report could not be read, or the response could not be written
+     */
     @RequestMapping(method = RequestMethod.GET, produces = "application/json", params = "json")
-    public @ResponseBody Map<String, Object> getMappingResult(HttpSession session) {
-        Map<String, Object> response = new HashMap<>();
-
-        Exception exception = (Exception) session.getAttribute("exception");
-        if (exception == null) {
-            response.put("status", "OK");
-        }
-        else {
-            response.put("status", exception.getMessage());
+    public void getMappingResult(HttpSession session, HttpServletResponse response) throws IOException {
+        String jobId = (String) session.getAttribute(SESSION_JOB_ATTRIBUTE);
+        MappingJob job = jobId != null ? mappingJobService.getJob(jobId) : null;
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        JsonGenerator generator = jsonFactory.createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeStringField("status", job == null || job.getMessage() == null ? "OK" : job.getMessage());
+        generator.writeArrayFieldStart("data");
+        if (job != null && job.getState() == MappingJob.State.COMPLETE) {
+            try (InputStream in = mappingJobService.openReport(jobId)) {
+                writeMappingReport(in, generator);
+            }
         }
-
-        String report = getMappingReport(session);
-        response.put("data", parseMappingReport(report));
-        return response;
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.flush();
     }
 
     @RequestMapping(value = "/reset", method = RequestMethod.GET)
     public @ResponseBody String resetSession(HttpSession session) {
         try {
+            String jobId = (String) session.getAttribute(SESSION_JOB_ATTRIBUTE);
+            if (jobId != null) {
+                mappingJobService.cancel(jobId);
+            }
             session.invalidate();
             return "Your mapping session was cleared successfully";
         }
@@ -227,6 +216,13 @@ public class ZoomaMappingController extends SourceFilteredEndpoint {
                 e.getMessage() + ")";
     }
 
+    @ExceptionHandler(NoSuchResourceException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ResponseBody String handleNoSuchResourceException(NoSuchResourceException e) {
+        getLog().error("Tried to access a mapping job that does not exist", e);
+        return "The results for your search cannot be found; they may have expired (" + e.getMessage() + ")";
+    }
+
     @ExceptionHandler(RejectedExecutionException.class)
     @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
     @ResponseBody String handleRejectedExecutionException(RejectedExecutionException e) {
@@ -257,26 +253,6 @@ public class ZoomaMappingController extends SourceFilteredEndpoint {
                 "(" + e.getMessage() + ")";
     }
 
-    @PreDestroy
-    public void destroy() {
-        // and cleanup
-        getLog().debug("Shutting down executor service...");
-        searchExecutorService.shutdown();
-        try {
-            if (searchExecutorService.awaitTermination(2, TimeUnit.MINUTES)) {
-                getLog().debug("Executor service shutdown gracefully.");
-            }
-            else {
-                int abortedTasks = searchExecutorService.shutdownNow().size();
-                getLog().warn("Executor service forcibly shutdown. " + abortedTasks + " tasks were aborted");
-            }
-        }
-        catch (InterruptedException e) {
-            getLog().error("Executor service failed to shutdown cleanly", e);
-            throw new RuntimeException("Unable to cleanly shutdown ZOOMA.", e);
-        }
-    }
-
     private List<Property> parseMappingRequest(ZoomaMappingRequest request) {
         List<Property> result = new ArrayList<>();
         for (ZoomaMappingRequestItem item : request) {
@@ -290,236 +266,45 @@ public class ZoomaMappingController extends SourceFilteredEndpoint {
         return result;
     }
 
-    private List<String[]> parseMappingReport(String report) {
-        // create results
-        List<String[]> results = new ArrayList<>();
-
-        // read and parse mapping report
-        BufferedReader reader = new BufferedReader(new StringReader(report));
-        String line;
-        try {
-            int lineNumber = 1;
-            while ((line = reader.readLine()) != null) {
-                // skip first 6 lines, they're header
-                if (lineNumber > 7) {
-                    String[] values = line.split("\\t", -1);
-                    results.add(values);
-                }
-                lineNumber++;
-            }
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-        }
-        return results;
+    private MappingJob submitMappingJob(String filter, ZoomaMappingRequest request, HttpSession session)
+            throws IOException {
+        List<Property> properties = parseMappingRequest(request);
+        URI[] requiredSources = parseRequiredSourcesFromFilter(filter);
+        List<URI> preferredSources = parsePreferredSourcesFromFilter(filter);
+        URI[] ontologySources = parseOntologySourcesFromFilter(filter);
+        getLog().info("Submitting ZOOMA mapping job for " + properties.size() + " properties...");
+        return mappingJobService.submit(session.getId(), properties, requiredSources, preferredSources, ontologySources);
     }
 
-    private void searchZOOMA(final List<Property> properties,
-                             final URI[] requiredSources,
-                             final List<URI> preferredSources,
-                             final URI[] ontologySources,
-                             final HttpSession session) {
-        getLog().info("Searching ZOOMA for mappings...");
-
-        // create a timer to time search tasks
-        final ZOOMASearchTimer timer = new ZOOMASearchTimer(properties.size()).start();
-
-        // create a map to hold results
-        final Map<Property, List<AnnotationPrediction>> annotationPredictions =
-                Collections.synchronizedMap(new HashMap<Property, List<AnnotationPrediction>>());
-
-        // start searching using a single thread executor, a completion service, and our Zooma instance
-        final CompletionService<Property> completionService = new ExecutorCompletionService<>(searchExecutorService);
-
-        // build callable tasks to identify each property
-        Collection<Future<Property>> searches = new ArrayList<>();
-        for (final Property property : properties) {
-            // simple unit of work to perform the zooma search and update annotations with results
-            if (getLog().isTraceEnabled()) {
-                getLog().trace("Submitting next search, for " + property);
+    private void writeMappingReport(String jobId, HttpServletResponse response) throws IOException {
+        try (InputStream in = mappingJobService.openReport(jobId)) {
+            response.setContentType("text/plain");
+            response.setHeader("Content-Length", Long.toString(mappingJobService.getReportSize(jobId)));
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
             }
-
-            searches.add(completionService.submit(new Callable<Property>() {
-                @Override
-                public Property call() throws Exception {
-                    try {
-                        if (property instanceof TypedProperty) {
-                            String propertyType = ((TypedProperty) property).getPropertyType();
-                            String propertyValue = property.getPropertyValue();
-                            if (preferredSources.isEmpty() && requiredSources.length == 0) {
-                                annotationPredictions.put(property, zooma.annotate(propertyValue, propertyType, requiredSources, ontologySources));
-                            }
-                            else {
-                                annotationPredictions.put(property, zooma.annotate(propertyValue,
-                                                                                   propertyType,
-                                                                                   preferredSources,
-                                                                                   requiredSources, ontologySources));
-                            }
-                        }
-                        else {
-                            String propertyValue = property.getPropertyValue();
-                            if (preferredSources.isEmpty() && requiredSources.length == 0) {
-                                annotationPredictions.put(property, zooma.annotate(propertyValue, requiredSources, ontologySources));
-                            }
-                            else {
-                                annotationPredictions.put(property, zooma.annotate(propertyValue,
-                                                                                   preferredSources,
-                                                                                   requiredSources, ontologySources));
-                            }
-                        }
-                        return property;
-                    }
-                    catch (Exception e) {
-                        getLog().error("Problems annotating '" + property + "' " +
-                                               "(" + e.getClass().getSimpleName() + ": " + e.getMessage() + ")");
-                        getLog().debug("Exception processing query '" + property + "'", e);
-                        throw e;
-                    }
-                }
-            }));
+            out.flush();
         }
-
-        // monitor searches for completion
-        monitorSearchCompletion(searches,
-                                completionService,
-                                timer,
-                                properties,
-                                annotationPredictions,
-                                session);
     }
 
-    private void monitorSearchCompletion(final Collection<Future<Property>> searches,
-                                         final CompletionService<Property> completionService,
-                                         final ZOOMASearchTimer timer,
-                                         final List<Property> properties,
-                                         final Map<Property, List<AnnotationPrediction>> annotationPredictions,
-                                         final HttpSession session) {
-        // create a thread to run until all ZOOMA searches have finished, then update session
-        String threadNumber = Long.toString(System.currentTimeMillis());
-        threadNumber = threadNumber.length() > 6 ? threadNumber.substring(threadNumber.length() - 6) : threadNumber;
-        new Thread(new Runnable() {
-            @Override public void run() {
-                // collate results
-                int failedCount = 0;
-                for (int i = 0; i < properties.size(); i++) {
-                    if (getLog().isTraceEnabled()) {
-                        getLog().trace("Attempting to get search result " + i + "/" + properties.size() + "...");
-                    }
-
-                    try {
-                        // wait for next task to complete - each search gets timeout seconds max to prevent stalling
-                        Future<Property> f = completionService.poll((long) searchTimeout, TimeUnit.MILLISECONDS);
-                        if (f == null) {
-                            getLog().error("A UI request failed to complete in " + searchTimeout + " seconds - " +
-                                                   "there are " + failedCount + " fails now.");
-                            failedCount++;
-                        }
-                        else {
-                            try {
-                                f.get((long) searchTimeout, TimeUnit.MILLISECONDS);
-                            }
-                            catch (TimeoutException e) {
-                                failedCount++;
-                                getLog().error("A UI request was scheduled but results were not available " +
-                                                       "in " + searchTimeout + "ms. - " +
-                                                       "there are " + failedCount + " fails now.");
-                            }
-                        }
-                    }
-                    catch (InterruptedException e) {
-                        failedCount++;
-                        getLog().error("A job was interrupted whilst waiting for completion - " +
-                                               "there are " + failedCount + " fails now.  Error was:\n", e);
-                    }
-                    catch (ExecutionException e) {
-                        failedCount++;
-                        getLog().error("A job failed to execute - there are " + failedCount + " fails now.  " +
-                                               "Error was:\n", e.getCause());
-                    }
-                    catch (Exception e) {
-                        failedCount++;
-                        getLog().error("A job failed with an unexpected exception - " +
-                                               "there are " + failedCount + " fails now.  Error was:\n", e);
-                    }
-                    finally {
-                        // update timing stats
-                        timer.completedNext();
-                        try {
-                            session.setAttribute("progress", timer.getCompletedCount());
-                        }
-                        catch (IllegalStateException e) {
-                            getLog().debug("Failed to update session '" + session + "' - client may have gone away", e);
-                        }
-                        if (getLog().isTraceEnabled()) {
-                            getLog().trace(timer.getCompletedCount() + " searches have now completed");
-                        }
-                    }
-                }
-
-                // iterated over all searches and waited max allowed time, so now cancel the rest
-                for (Future<Property> search : searches) {
-                    search.cancel(true);
+    private void writeMappingReport(InputStream report, JsonGenerator generator) throws IOException {
+        // read and parse mapping report, writing each line as soon as it is read
+        BufferedReader reader = new BufferedReader(new InputStreamReader(report, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 1;
+        while ((line = reader.readLine()) != null) {
+            // skip first 7 lines, they're header
+            if (lineNumber > 7) {
+                generator.writeStartArray();
+                for (String value : line.split("\\t", -1)) {
+                    generator.writeString(value);
                 }
-
-                renderReport(properties, annotationPredictions, failedCount, timer, session);
-
-                getLog().info("All search tasks completed, monitoring thread exiting now");
-            }
-        }, "search-completion-monitor-" + threadNumber).start();
-    }
-
-    private void renderReport(List<Property> properties,
-                              Map<Property, List<AnnotationPrediction>> annotationPredictions,
-                              int failedCount,
-                              ZOOMASearchTimer timer,
-                              HttpSession session) {
-        // render the report
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        ZOOMAReportRenderer renderer =
-                new ZOOMAReportRenderer(new LabelMapper(ontologyService),
-                                        out,
-                                        out); // unmapped elements go in same report
-        Map<Property, List<String>> propertyContexts = new HashMap<>();
-        renderer.renderAnnotations(properties, propertyContexts, annotationPredictions);
-        try {
-            renderer.close();
-            getLog().debug("ZOOMA search complete, results will be stored in a session attribute");
-            session.setAttribute("progress", timer.getCompletedCount());
-            session.setAttribute("result", out.toString());
-
-            if (failedCount > 0) {
-                session.setAttribute("exception", new RuntimeException(
-                        "There were " + failedCount + " ZOOMA searches that encountered problems"));
+                generator.writeEndArray();
             }
-        }
-        catch (IOException e) {
-            session.setAttribute("exception", e);
-        }
-        getLog().info(
-                "Successfully generated ZOOMA report for " + timer.getCompletedCount() + " searches," +
-                        " HTTP session '" + session.getId() + "'");
-    }
-
-    private class LabelMapper implements OntologyLabelMapper {
-        private OntologyService ontologyService;
-
-        private LabelMapper(OntologyService ontologyService) {
-            this.ontologyService = ontologyService;
-        }
-
-        @Override
-        public String getLabel(URI uri) {
-            return ontologyService.getLabel(uri);
-        }
-
-        @Override
-        public Collection<String> getSynonyms(URI uri) {
-            return ontologyService.getSynonyms(uri);
-        }
-
-        @Override
-        public URI getURI(String label) {
-            throw new UnsupportedOperationException("This mapper does not support URI lookup from labels");
+            lineNumber++;
         }
     }
 }
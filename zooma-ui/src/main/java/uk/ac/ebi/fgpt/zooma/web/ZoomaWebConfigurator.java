@@ -13,7 +13,8 @@ import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandl
 /**
  * A custom configurator that performs some Spring config tweaks required by the ZOOMA web application.  This class
  * prevents URLs that are passed as web requests being decoded, and registers a {@link ZoomaModule} to customize aspects
- * of JSON serialization
+ * of JSON serialization.  The object mapper it configures is the shared application object mapper, so that endpoints
+ * that write JSON directly serialize it in the same way as the message converters
  *
  * @author Tony Burdett
  * @date 15/07/13
@@ -21,6 +22,8 @@ import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandl
 @Component
 public class ZoomaWebConfigurator implements BeanPostProcessor {
     private ZoomaModule zoomaModule;
+    private ObjectMapper objectMapper;
+    private boolean zoomaModuleRegistered = false;
 
     private Logger log = LoggerFactory.getLogger(getClass());
 
@@ -37,13 +40,27 @@ public class ZoomaWebConfigurator implements BeanPostProcessor {
         this.zoomaModule = zoomaModule;
     }
 
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    @Autowired
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
     @Override
     public Object postProcessBeforeInitialization(Object o, String s) throws BeansException {
         // configure jackson JSON setup
         if (o instanceof MappingJackson2HttpMessageConverter) {
-            // create object mapper
-            ObjectMapper objectMapper = new ObjectMapper();
-            objectMapper.registerModule(getZoomaModule());
+            // configure the shared object mapper
+            ObjectMapper objectMapper = getObjectMapper();
+            synchronized (this) {
+                if (!zoomaModuleRegistered) {
+                    objectMapper.registerModule(getZoomaModule());
+                    zoomaModuleRegistered = true;
+                }
+            }
 
             // customize the HttpMessageConverter
             getLog().debug("Customizing HttpMessageConverter '" + s + "' to perform custom JSON serialization");
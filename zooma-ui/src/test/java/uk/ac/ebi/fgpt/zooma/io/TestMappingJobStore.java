@@ -0,0 +1,192 @@
+package uk.ac.ebi.fgpt.zooma.io;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.ac.ebi.fgpt.zooma.exception.ZoomaStorageException;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.SimpleUntypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+import uk.ac.ebi.fgpt.zooma.service.MappingJob;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Tests that a {@link MappingJobStore} stores jobs, recovers the results of interrupted jobs and writes reports in
+ * property order.
+ *
+ * @date 18/10/26
+ */
+public class TestMappingJobStore {
+    @TempDir
+    File directory;
+
+    private List<Property> properties;
+    private MappingJob job;
+
+    private MappingJobStore store;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new ArrayList<>();
+        properties.add(new SimpleTypedProperty("organism part", "liver"));
+        properties.add(new SimpleUntypedProperty("lung"));
+        properties.add(new SimpleTypedProperty("disease", "gout"));
+
+        job = new MappingJob("job1",
+                             "owner1",
+                             new Date(),
+                             properties.size(),
+                             new URI[]{URI.create("http://www.test.com/source1")},
+                             Collections.singletonList(URI.create("http://www.test.com/source2")),
+                             new URI[0]);
+
+        store = new MappingJobStore(directory);
+    }
+
+    @Test
+    public void testCreateAndLoadJob() {
+        try {
+            store.createJob(job, properties);
+
+            Collection<MappingJob> jobs = new MappingJobStore(directory).loadJobs();
+            assertEquals(1, jobs.size(), "Wrong number of jobs loaded");
+            MappingJob loaded = jobs.iterator().next();
+            assertEquals(job.getId(), loaded.getId(), "Wrong job ID");
+            assertEquals(job.getOwner(), loaded.getOwner(), "Wrong job owner");
+            assertEquals(job.getCreated(), loaded.getCreated(), "Wrong job creation date");
+            assertEquals(job.getTotal(), loaded.getTotal(), "Wrong job total");
+            assertEquals(MappingJob.State.QUEUED, loaded.getState(), "Wrong job state");
+            assertArrayEquals(job.getRequiredSources(), loaded.getRequiredSources(), "Wrong required sources");
+            assertEquals(job.getPreferredSources(), loaded.getPreferredSources(), "Wrong preferred sources");
+            assertArrayEquals(job.getOntologySources(), loaded.getOntologySources(), "Wrong ontology sources");
+
+            try (MappingJobStore.PropertyReader reader = store.openProperties(loaded)) {
+                for (Property property : properties) {
+                    Property read = reader.next();
+                    assertEquals(property.getPropertyValue(), read.getPropertyValue(), "Wrong property value");
+                    if (property instanceof TypedProperty) {
+                        assertEquals(((TypedProperty) property).getPropertyType(),
+                                     ((TypedProperty) read).getPropertyType(),
+                                     "Wrong property type");
+                    }
+                    else {
+                        assertFalse(read instanceof TypedProperty, "Untyped property read with a type");
+                    }
+                }
+                assertNull(reader.next(), "Properties should be exhausted");
+            }
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Failed to store and load job");
+        }
+    }
+
+    @Test
+    public void testLoadFinishedJob() {
+        try {
+            store.createJob(job, properties);
+            job.recordSearch(true);
+            job.recordSearch(false);
+            job.recordSearch(true);
+            job.setState(MappingJob.State.COMPLETE);
+            job.setMessage("There were 1 ZOOMA searches that encountered problems");
+            store.saveJob(job);
+
+            MappingJob loaded = new MappingJobStore(directory).loadJobs().iterator().next();
+            assertEquals(MappingJob.State.COMPLETE, loaded.getState(), "Wrong job state");
+            assertEquals(3, loaded.getCompleted(), "Wrong number of completed searches");
+            assertEquals(1, loaded.getFailed(), "Wrong number of failed searches");
+            assertEquals(job.getMessage(), loaded.getMessage(), "Wrong job message");
+        }
+        catch (ZoomaStorageException e) {
+            e.printStackTrace();
+            fail("Failed to store and load finished job");
+        }
+    }
+
+    @Test
+    public void testRecoverResultsAndWriteReport() {
+        try {
+            store.createJob(job, properties);
+            store.appendResult(job, 2, true, "gout\n");
+            store.appendResult(job, 0, false, "liver\n");
+            store.closeResultWriter(job);
+
+            // simulate a crash whilst writing a result
+            try (OutputStream out = new FileOutputStream(new File(new File(directory, "job1"), "results.dat"), true)) {
+                out.write(new byte[]{0, 0, 0, 1, 1, 0});
+            }
+
+            MappingJob restored = new MappingJobStore(directory).loadJobs().iterator().next();
+            MappingJobStore restoredStore = new MappingJobStore(directory);
+            BitSet searched = restoredStore.recoverResults(restored);
+            BitSet expected = new BitSet();
+            expected.set(0);
+            expected.set(2);
+            assertEquals(expected, searched, "Wrong searches recovered");
+            assertEquals(2, restored.getCompleted(), "Wrong number of completed searches recovered");
+            assertEquals(1, restored.getFailed(), "Wrong number of failed searches recovered");
+
+            restoredStore.appendResult(restored, 1, true, "lung\n");
+            restoredStore.writeReport(restored, "header\n");
+            assertEquals("header\nliver\nlung\ngout\n", readReport(restoredStore, restored),
+                         "Report should contain results in property order");
+            assertEquals("header\nliver\nlung\ngout\n".length(), restoredStore.getReportSize(restored),
+                         "Wrong report size");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Failed to recover results");
+        }
+    }
+
+    @Test
+    public void testDeleteJob() {
+        try {
+            store.createJob(job, properties);
+            store.appendResult(job, 0, true, "liver\n");
+            store.deleteJob(job);
+            assertFalse(new File(directory, job.getId()).exists(), "Job directory should have been deleted");
+            assertTrue(store.loadJobs().isEmpty(), "Deleted job should not be loaded");
+        }
+        catch (ZoomaStorageException e) {
+            e.printStackTrace();
+            fail("Failed to delete job");
+        }
+    }
+
+    private String readReport(MappingJobStore store, MappingJob job) throws ZoomaStorageException, IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = store.openReport(job)) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,281 @@
+package uk.ac.ebi.fgpt.zooma.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import uk.ac.ebi.fgpt.zooma.access.Zooma;
+import uk.ac.ebi.fgpt.zooma.exception.NoSuchResourceException;
+import uk.ac.ebi.fgpt.zooma.io.MappingJobStore;
+import uk.ac.ebi.fgpt.zooma.model.Annotation;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationPrediction;
+import uk.ac.ebi.fgpt.zooma.model.AnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotation;
+import uk.ac.ebi.fgpt.zooma.model.SimpleAnnotationProvenance;
+import uk.ac.ebi.fgpt.zooma.model.SimpleDatabaseAnnotationSource;
+import uk.ac.ebi.fgpt.zooma.model.SimpleTypedProperty;
+import uk.ac.ebi.fgpt.zooma.model.SimpleUntypedProperty;
+import uk.ac.ebi.fgpt.zooma.util.AnnotationPredictionBuilder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that a {@link MappingJobService} runs submitted jobs to completion, reports on their status, cancels them and
+ * resumes interrupted jobs from its store after a restart.
+ *
+ * @date 18/10/26
+ */
+public class TestMappingJobService {
+    @TempDir
+    File directory;
+
+    private List<Property> properties;
+
+    private Zooma zooma;
+    private OntologyService ontologyService;
+    private MappingJobService service;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new ArrayList<>();
+        properties.add(new SimpleTypedProperty("organism part", "liver"));
+        properties.add(new SimpleUntypedProperty("lung"));
+        properties.add(new SimpleTypedProperty("disease", "gout"));
+
+        zooma = mock(Zooma.class);
+        when(zooma.annotate(eq("liver"), eq("organism part"), any(URI[].class), any(URI[].class)))
+                .thenReturn(predict(properties.get(0), URI.create("http://www.test.com/ontology/UBERON_0002107")));
+        when(zooma.annotate(eq("lung"), any(URI[].class), any(URI[].class)))
+                .thenReturn(predict(properties.get(1), URI.create("http://www.test.com/ontology/UBERON_0002048")));
+        when(zooma.annotate(eq("gout"), eq("disease"), any(URI[].class), any(URI[].class)))
+                .thenThrow(new IllegalStateException("Search failed"));
+
+        ontologyService = mock(OntologyService.class);
+        service = new MappingJobService(zooma, ontologyService, new MappingJobStore(directory), 2, 1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    public void testSubmitAndReport() {
+        try {
+            service.init();
+            MappingJob job = service.submit("owner1", properties, new URI[0], new ArrayList<URI>(), new URI[0]);
+            assertEquals(job, service.getJob(job.getId()), "Submitted job should be available");
+
+            awaitFinished(job);
+            assertEquals(MappingJob.State.COMPLETE, job.getState(), "Job should have completed");
+            assertEquals(3, job.getCompleted(), "Wrong number of completed searches");
+            assertEquals(1, job.getFailed(), "Wrong number of failed searches");
+            assertEquals(1f, job.getProgress(), "Wrong progress");
+            assertTrue(job.getMessage().contains("1 ZOOMA searches"), "Failed searches should be reported");
+
+            List<String> lines = readReport(job.getId());
+            assertEquals(10, lines.size(), "Report should have a 7 line header and one line per property");
+            assertTrue(lines.get(7).startsWith("organism part\tliver\t"), "Wrong first result: " + lines.get(7));
+            assertTrue(lines.get(8).startsWith("[NO TYPE]\tlung\t"), "Wrong second result: " + lines.get(8));
+            assertTrue(lines.get(9).startsWith("disease\tgout\tN/A\tN/A\tDid not map"),
+                       "Wrong third result: " + lines.get(9));
+            assertTrue(service.getReportSize(job.getId()) > 0, "Report size should be known");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Failed to run mapping job");
+        }
+    }
+
+    @Test
+    public void testSubmitWithSources() {
+        try {
+            URI[] requiredSources = {URI.create("http://www.test.com/source1")};
+            List<URI> preferredSources = Collections.singletonList(URI.create("http://www.test.com/source2"));
+            URI[] ontologySources = {URI.create("http://www.test.com/ontology")};
+            service.init();
+            MappingJob job = service.submit("owner1",
+                                            properties.subList(0, 1),
+                                            requiredSources,
+                                            preferredSources,
+                                            ontologySources);
+            awaitFinished(job);
+            verify(zooma).annotate("liver", "organism part", preferredSources, requiredSources, ontologySources);
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Failed to run mapping job");
+        }
+    }
+
+    @Test
+    public void testCancel() {
+        final CountDownLatch searching = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(zooma.annotate(eq("liver"), eq("organism part"), any(URI[].class), any(URI[].class)))
+                .thenAnswer(new Answer<List<AnnotationPrediction>>() {
+                    @Override public List<AnnotationPrediction> answer(InvocationOnMock invocation) throws Throwable {
+                        searching.countDown();
+                        release.await(10, TimeUnit.SECONDS);
+                        return Collections.emptyList();
+                    }
+                });
+
+        try {
+            service.init();
+            final MappingJob job = service.submit("owner1", properties, new URI[0], new ArrayList<URI>(), new URI[0]);
+            assertTrue(searching.await(10, TimeUnit.SECONDS), "Job should have started searching");
+            assertFalse(job.isFinished(), "Job should not have finished");
+            assertTrue(job.getProgress() < 1f, "Unfinished job should not be reported as complete");
+            assertThrows(IllegalStateException.class, new Executable() {
+                @Override public void execute() throws Throwable {
+                    service.openReport(job.getId());
+                }
+            }, "Report should not be available before the job has finished");
+
+            service.cancel(job.getId());
+            release.countDown();
+            assertEquals(MappingJob.State.CANCELLED, job.getState(), "Job should have been cancelled");
+            assertFalse(new File(directory, job.getId()).exists(), "Cancelled job should have been deleted");
+            assertThrows(NoSuchResourceException.class, new Executable() {
+                @Override public void execute() throws Throwable {
+                    service.getJob(job.getId());
+                }
+            }, "Cancelled job should no longer be available");
+        }
+        catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            fail("Failed to cancel mapping job");
+        }
+        finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testResumeAfterRestart() {
+        try {
+            // a job that was interrupted after searching its first property, as left in the store by a shutdown
+            MappingJobStore store = new MappingJobStore(directory);
+            MappingJob interrupted = new MappingJob("job1",
+                                                    "owner1",
+                                                    new Date(),
+                                                    properties.size(),
+                                                    new URI[0],
+                                                    new ArrayList<URI>(),
+                                                    new URI[0]);
+            store.createJob(interrupted, properties);
+            interrupted.setState(MappingJob.State.RUNNING);
+            store.saveJob(interrupted);
+            store.appendResult(interrupted, 0, true, "organism part\tliver\trecovered\n");
+            store.closeResultWriter(interrupted);
+
+            service.init();
+            MappingJob job = service.getJob("job1");
+            awaitFinished(job);
+            assertEquals(MappingJob.State.COMPLETE, job.getState(), "Resumed job should have completed");
+            assertEquals(3, job.getCompleted(), "Wrong number of completed searches");
+            verify(zooma, never()).annotate(eq("liver"), anyString(), any(URI[].class), any(URI[].class));
+            verify(zooma).annotate(eq("lung"), any(URI[].class), any(URI[].class));
+
+            List<String> lines = readReport(job.getId());
+            assertEquals(10, lines.size(), "Report should have a 7 line header and one line per property");
+            assertEquals("organism part\tliver\trecovered", lines.get(7), "Recovered result should be reported");
+            assertTrue(lines.get(8).startsWith("[NO TYPE]\tlung\t"), "Wrong second result: " + lines.get(8));
+
+            // and once finished, the job is still available after another restart
+            service.destroy();
+            service = new MappingJobService(zooma, ontologyService, new MappingJobStore(directory), 2, 1);
+            service.init();
+            assertEquals(MappingJob.State.COMPLETE, service.getJob("job1").getState(), "Job should be restored");
+            assertEquals(lines, readReport("job1"), "Report should be restored");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Failed to resume mapping job");
+        }
+    }
+
+    @Test
+    public void testGetUnknownJob() {
+        service.init();
+        assertThrows(NoSuchResourceException.class, new Executable() {
+            @Override public void execute() throws Throwable {
+                service.getJob("unknown");
+            }
+        }, "Unknown job should not be available");
+    }
+
+    private List<AnnotationPrediction> predict(Property property, URI semanticTag) {
+        Annotation annotation = new SimpleAnnotation(
+                URI.create("http://www.test.com/annotation/" + property.getPropertyValue()),
+                null,
+                property,
+                new SimpleAnnotationProvenance(
+                        new SimpleDatabaseAnnotationSource(URI.create("http://www.test.com/source1"), "test"),
+                        AnnotationProvenance.Evidence.MANUAL_CURATED,
+                        "test",
+                        new Date()),
+                semanticTag);
+        return Collections.singletonList(AnnotationPredictionBuilder.predictFromAnnotation(annotation)
+                                                 .derivedFrom(annotation)
+                                                 .confidenceIs(AnnotationPrediction.Confidence.HIGH)
+                                                 .build());
+    }
+
+    private void awaitFinished(MappingJob job) {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!job.isFinished()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for " + job);
+            }
+            try {
+                Thread.sleep(10);
+            }
+            catch (InterruptedException e) {
+                fail("Interrupted waiting for " + job);
+            }
+        }
+    }
+
+    private List<String> readReport(String jobId) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (InputStream in = service.openReport(jobId)) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,204 @@
+package uk.ac.ebi.fgpt.zooma.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import uk.ac.ebi.fgpt.zooma.model.Property;
+import uk.ac.ebi.fgpt.zooma.model.TypedProperty;
+import uk.ac.ebi.fgpt.zooma.service.MappingJob;
+import uk.ac.ebi.fgpt.zooma.service.MappingJobService;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests that a {@link ZoomaMappingController} submits mapping jobs, follows the job of the current session and streams
+ * finished reports.
+ *
+ * @date 18/10/26
+ */
+public class TestZoomaMappingController {
+    private static final String REPORT =
+            "Application Name:\tZOOMA (Automatic Ontology Mapper)\n" +
+                    "Version:\t2.0\n" +
+                    "Run at:\tnow\n" +
+                    "Run from:\thttp://www.ebi.ac.uk/fgpt/zooma\n" +
+                    "\n" +
+                    "\n" +
+                    "PROPERTY TYPE\tPROPERTY VALUE\tONTOLOGY TERM LABEL(S)\n" +
+                    "organism part\tliver\tliver\n" +
+                    "disease\tgout\t\n";
+
+    private MappingJob job;
+    private HttpSession session;
+
+    private MappingJobService mappingJobService;
+    private ZoomaMappingController controller;
+
+    @BeforeEach
+    public void setUp() {
+        job = new MappingJob("job1", "owner1", new Date(), 2, new URI[0], new ArrayList<URI>(), new URI[0]);
+        session = mock(HttpSession.class);
+        when(session.getId()).thenReturn("session1");
+
+        mappingJobService = mock(MappingJobService.class);
+        when(mappingJobService.getJob("job1")).thenReturn(job);
+        controller = new ZoomaMappingController(mappingJobService);
+    }
+
+    @Test
+    public void testRequestMapping() {
+        try {
+            when(mappingJobService.submit(anyString(),
+                                          anyListOf(Property.class),
+                                          any(URI[].class),
+                                          anyListOf(URI.class),
+                                          any(URI[].class))).thenReturn(job);
+
+            ZoomaMappingRequest request = new ZoomaMappingRequest();
+            request.add(item("organism part", "liver"));
+            request.add(item(null, "gout"));
+            controller.requestMapping("", request, session);
+            verify(session).setAttribute("mappingJob", "job1");
+
+            ArgumentCaptor<List> properties = ArgumentCaptor.forClass(List.class);
+            verify(mappingJobService).submit(eq("session1"),
+                                             properties.capture(),
+                                             any(URI[].class),
+                                             anyListOf(URI.class),
+                                             any(URI[].class));
+            List<?> submitted = properties.getValue();
+            assertEquals(2, submitted.size(), "Wrong number of properties submitted");
+            assertEquals("organism part", ((TypedProperty) submitted.get(0)).getPropertyType(),
+                         "Wrong property type submitted");
+            assertEquals("gout", ((Property) submitted.get(1)).getPropertyValue(), "Wrong property value submitted");
+            assertFalse(submitted.get(1) instanceof TypedProperty, "Untyped property submitted with type");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Failed to request mapping");
+        }
+    }
+
+    @Test
+    public void testCheckMappingStatus() {
+        assertEquals(0f, controller.checkMappingStatus(session), "Progress without a job should be 0");
+
+        when(session.getAttribute("mappingJob")).thenReturn("job1");
+        job.setState(MappingJob.State.RUNNING);
+        job.recordSearch(true);
+        job.recordSearch(true);
+        assertTrue(controller.checkMappingStatus(session) < 1f,
+                   "Progress should not be complete until the report is written");
+
+        job.setState(MappingJob.State.COMPLETE);
+        assertEquals(1f, controller.checkMappingStatus(session), "Progress of finished job should be 1");
+    }
+
+    @Test
+    public void testGetMappingReport() {
+        try {
+            when(session.getAttribute("mappingJob")).thenReturn("job1");
+            job.setState(MappingJob.State.COMPLETE);
+            when(mappingJobService.openReport("job1"))
+                    .thenReturn(new ByteArrayInputStream(REPORT.getBytes(StandardCharsets.UTF_8)));
+            when(mappingJobService.getReportSize("job1")).thenReturn((long) REPORT.length());
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            HttpServletResponse response = response(out);
+            controller.getMappingReport(session, response);
+            assertEquals(REPORT, out.toString("UTF-8"), "Wrong report");
+            verify(response).setHeader("Content-Length", Integer.toString(REPORT.length()));
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Failed to get mapping report");
+        }
+    }
+
+    @Test
+    public void testGetMappingResult() {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            controller.getMappingResult(session, response(out));
+            JsonNode result = new ObjectMapper().readTree(out.toString("UTF-8"));
+            assertEquals("OK", result.get("status").asText(), "Wrong status without a job");
+            assertEquals(0, result.get("data").size(), "There should be no data without a job");
+
+            when(session.getAttribute("mappingJob")).thenReturn("job1");
+            job.setState(MappingJob.State.COMPLETE);
+            job.setMessage("There were 1 ZOOMA searches that encountered problems");
+            when(mappingJobService.openReport("job1"))
+                    .thenReturn(new ByteArrayInputStream(REPORT.getBytes(StandardCharsets.UTF_8)));
+
+            out = new ByteArrayOutputStream();
+            HttpServletResponse response = response(out);
+            controller.getMappingResult(session, response);
+            verify(response).setContentType("application/json");
+            result = new ObjectMapper().readTree(out.toString("UTF-8"));
+            assertEquals(job.getMessage(), result.get("status").asText(), "Wrong status");
+            JsonNode data = result.get("data");
+            assertEquals(2, data.size(), "Header lines should be skipped");
+            assertEquals("organism part", data.get(0).get(0).asText(), "Wrong property type");
+            assertEquals("liver", data.get(0).get(2).asText(), "Wrong label");
+            assertEquals(3, data.get(1).size(), "Trailing empty values should be kept");
+            assertEquals("", data.get(1).get(2).asText(), "Wrong empty value");
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            fail("Failed to get mapping result");
+        }
+    }
+
+    @Test
+    public void testResetSession() {
+        when(session.getAttribute("mappingJob")).thenReturn("job1");
+        controller.resetSession(session);
+        verify(mappingJobService).cancel("job1");
+        verify(session).invalidate();
+    }
+
+    private HttpServletResponse response(final ByteArrayOutputStream out) throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override public void write(int b) {
+                out.write(b);
+            }
+
+            @Override public void write(byte[] b, int off, int len) {
+                out.write(b, off, len);
+            }
+        });
+        return response;
+    }
+
+    private ZoomaMappingRequestItem item(String propertyType, String propertyValue) {
+        ZoomaMappingRequestItem item = new ZoomaMappingRequestItem();
+        item.setPropertyType(propertyType);
+        item.setPropertyValue(propertyValue);
+        return item;
+    }
+}